@@ -0,0 +1,135 @@
+package com.app.inventario.Config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Fusiona los registros de inventario repetidos para una misma sucursal y producto antes de que Hibernate
+ * (ddl-auto: update) agregue uk_inventario_sucursal_producto. Sin este paso la creación de la restricción
+ * falla con solo un aviso en el log, el servicio arranca igual y la unicidad queda sin aplicar.
+ *
+ * De cada par repetido se conserva el registro de menor id con la suma de las cantidades, el mayor stock
+ * mínimo y la actualización más reciente. Las líneas de reservas que apuntaban a los registros eliminados
+ * pasan al conservado, para que liberarlas reponga el stock donde quedó. Cada par se fusiona en su propia
+ * transacción y cualquier error detiene el arranque.
+ */
+@Component
+public class InventarioDuplicadosMigracion {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioDuplicadosMigracion.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // El EntityManagerFactory (y con él el transaction manager de JPA) se crea después: se usa JDBC directo
+    public InventarioDuplicadosMigracion(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @PostConstruct
+    public void fusionarDuplicados() {
+        if (!existeTabla("inventario")) {
+            return;
+        }
+        List<Map<String, Object>> pares = jdbcTemplate.queryForList(
+                "SELECT id_sucursal, id_producto FROM inventario GROUP BY id_sucursal, id_producto HAVING COUNT(*) > 1");
+        if (pares.isEmpty()) {
+            return;
+        }
+        boolean conReservas = existeTabla("reservas_stock_lineas");
+        for (Map<String, Object> par : pares) {
+            Long sucursalId = ((Number) par.get("id_sucursal")).longValue();
+            Long productoId = ((Number) par.get("id_producto")).longValue();
+            transactionTemplate.executeWithoutResult(status -> fusionar(sucursalId, productoId, conReservas));
+        }
+        logger.warn("Se fusionaron {} pares sucursal/producto repetidos en inventario", pares.size());
+    }
+
+    private void fusionar(Long sucursalId, Long productoId, boolean conReservas) {
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+                "SELECT id_inventario, cantidad, stock_minimo, ultima_actualizacion FROM inventario " +
+                        "WHERE id_sucursal = ? AND id_producto = ? ORDER BY id_inventario FOR UPDATE",
+                sucursalId, productoId);
+        if (filas.size() < 2) {
+            return;
+        }
+
+        long conservado = ((Number) filas.get(0).get("id_inventario")).longValue();
+        List<Long> eliminados = filas.subList(1, filas.size()).stream()
+                .map(fila -> ((Number) fila.get("id_inventario")).longValue())
+                .toList();
+        int cantidad = filas.stream().mapToInt(fila -> entero(fila.get("cantidad"))).sum();
+        Integer stockMinimo = filas.stream()
+                .map(fila -> (Number) fila.get("stock_minimo"))
+                .filter(Objects::nonNull)
+                .map(Number::intValue)
+                .max(Integer::compare)
+                .orElse(null);
+        LocalDateTime ultimaActualizacion = filas.stream()
+                .map(fila -> fecha(fila.get("ultima_actualizacion")))
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+
+        jdbcTemplate.update("UPDATE inventario SET cantidad = ?, stock_minimo = ?, ultima_actualizacion = ? " +
+                "WHERE id_inventario = ?", cantidad, stockMinimo, ultimaActualizacion, conservado);
+        String ids = String.join(",", Collections.nCopies(eliminados.size(), "?"));
+        if (conReservas) {
+            Object[] parametros = new Object[eliminados.size() + 1];
+            parametros[0] = conservado;
+            for (int i = 0; i < eliminados.size(); i++) {
+                parametros[i + 1] = eliminados.get(i);
+            }
+            jdbcTemplate.update("UPDATE reservas_stock_lineas SET id_inventario = ? WHERE id_inventario IN (" + ids + ")",
+                    parametros);
+        }
+        jdbcTemplate.update("DELETE FROM inventario WHERE id_inventario IN (" + ids + ")", eliminados.toArray());
+        logger.warn("Inventario sucursal {} producto {}: registros {} fusionados en {} con cantidad {}",
+                sucursalId, productoId, eliminados, conservado, cantidad);
+    }
+
+    private boolean existeTabla(String tabla) {
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tabla + " WHERE 1 = 0", Long.class);
+            return true;
+        } catch (BadSqlGrammarException e) {
+            return false;
+        }
+    }
+
+    private static int entero(Object valor) {
+        return valor == null ? 0 : ((Number) valor).intValue();
+    }
+
+    // Según el driver, un DATETIME llega como Timestamp o como LocalDateTime
+    private static LocalDateTime fecha(Object valor) {
+        return valor instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) valor;
+    }
+
+    /**
+     * Hace que el EntityManagerFactory, que es quien actualiza el esquema, espere a la fusión.
+     */
+    @Component
+    static class AntesDeJpa extends EntityManagerFactoryDependsOnPostProcessor {
+
+        AntesDeJpa() {
+            super(InventarioDuplicadosMigracion.class);
+        }
+    }
+}
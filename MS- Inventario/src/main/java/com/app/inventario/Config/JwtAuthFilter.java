@@ -1,24 +1,43 @@
 package com.app.inventario.Config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.app.auth.JwtTokenVerifier;
+import org.app.auth.TokenServicioVerifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final AuthClientService authClientService;
+    private final JwtTokenVerifier jwtTokenVerifier;
+    private final TokenServicioVerifier tokenServicioVerifier;
 
-    public JwtAuthFilter(AuthClientService authClientService) {
+    // local: verifica firma y expiración en este servicio; remote: delega en MS-Authenticacion
+    @Value("${auth.validation.mode:local}")
+    private String validationMode;
+
+    // Si la validación local rechaza el token, se consulta a MS-Authenticacion antes de responder 401
+    @Value("${auth.validation.remoteFallback:false}")
+    private boolean remoteFallback;
+
+    public JwtAuthFilter(AuthClientService authClientService, JwtTokenVerifier jwtTokenVerifier,
+                         TokenServicioVerifier tokenServicioVerifier) {
         this.authClientService = authClientService;
+        this.jwtTokenVerifier = jwtTokenVerifier;
+        this.tokenServicioVerifier = tokenServicioVerifier;
     }
 
     @Override
@@ -29,9 +48,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.replace("Bearer ", "");
-            if (authClientService.validateToken(token)) {
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken("usuario", null, new ArrayList<>());
+            UsernamePasswordAuthenticationToken authentication = autenticar(token);
+            if (authentication != null) {
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
             } else {
@@ -42,5 +60,30 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    // Un token de servicio lleva sus permisos en scope (SCOPE_inventario:reservar); uno de usuario, ninguno
+    private UsernamePasswordAuthenticationToken autenticar(String token) {
+        Claims servicio = tokenServicioVerifier.verify(token);
+        if (servicio != null) {
+            List<SimpleGrantedAuthority> alcances = TokenServicioVerifier.autoridades(servicio).stream()
+                    .map(SimpleGrantedAuthority::new)
+                    .toList();
+            return new UsernamePasswordAuthenticationToken(servicio.getSubject(), null, alcances);
+        }
+        String principal = validarToken(token);
+        return principal != null ? new UsernamePasswordAuthenticationToken(principal, null, new ArrayList<>()) : null;
+    }
+
+    private String validarToken(String token) {
+        if ("local".equalsIgnoreCase(validationMode) && jwtTokenVerifier.isEnabled()) {
+            Claims claims = jwtTokenVerifier.verify(token);
+            if (claims != null) {
+                return claims.getSubject() != null ? claims.getSubject() : "usuario";
+            }
+            if (!remoteFallback) {
+                return null;
+            }
+        }
+        return authClientService.validateToken(token) ? "usuario" : null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.app.inventario.Config;
+
+import org.app.resilience.ClienteResiliente;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/resiliencia: estado del circuito, uso del bulkhead, timeouts y lecturas duplicadas de cada
+ * servicio al que se ha llamado. /actuator/resiliencia/{destino} devuelve solo ese destino.
+ */
+@Component
+@Endpoint(id = "resiliencia")
+public class ResilienciaEndpoint {
+
+    private final ClienteResiliente clienteResiliente;
+
+    public ResilienciaEndpoint(ClienteResiliente clienteResiliente) {
+        this.clienteResiliente = clienteResiliente;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> resiliencia() {
+        return clienteResiliente.metricas();
+    }
+
+    @ReadOperation
+    public Map<String, Object> destino(@Selector String destino) {
+        return clienteResiliente.metricas(destino);
+    }
+}
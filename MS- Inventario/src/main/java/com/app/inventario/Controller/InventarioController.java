@@ -15,6 +15,7 @@ import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -86,6 +87,32 @@ public class InventarioController {
         return ResponseEntity.ok(resource);
     }
 
+    @Operation(
+            summary = "Obtener inventarios por lote",
+            description = "Recupera hasta " + InventarioService.MAX_IDS_LOTE + " registros de inventario en una sola llamada. " +
+                    "Cada ID tiene su propio resultado: ENCONTRADO, NO_ENCONTRADO o ERROR si no se pudo consultar su producto o sucursal"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Resultado de cada ID",
+                    content = @Content(schema = @Schema(implementation = InventarioBatchResponse.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Se pidieron más IDs de los permitidos",
+                    content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> obtenerInventariosPorIds(
+            @Parameter(description = "IDs de los registros de inventario", required = true)
+            @RequestBody InventarioBatchRequest request) {
+        ServiceResult<InventarioBatchResponse> result = inventarioService.obtenerInventariosPorIds(request.getIds());
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result.getErrors());
+        }
+        return ResponseEntity.ok(result.getData());
+    }
+
     @Operation(
             summary = "Obtener inventario por sucursal",
             description = "Recupera todos los registros de inventario para una sucursal específica"
@@ -183,6 +210,27 @@ public class InventarioController {
         return ResponseEntity.ok(resource);
     }
 
+    @Operation(
+            summary = "Transferir varios productos",
+            description = "Transfiere stock de varios productos entre dos sucursales en una sola transacción; si a alguno le falta stock no se transfiere ninguno"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Transferencia realizada exitosamente",
+                    content = @Content(schema = @Schema(implementation = TransferenciaLoteResponse.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Stock insuficiente o parámetros inválidos",
+                    content = @Content)
+    })
+    @PostMapping("/transferencia/lote")
+    public ResponseEntity<TransferenciaLoteResponse> transferirLote(
+            @Parameter(description = "Sucursales origen y destino y cantidades por producto", required = true)
+            @RequestBody TransferenciaLoteRequest request) {
+        return ResponseEntity.ok(inventarioService.transferirLote(request));
+    }
+
     @Operation(
             summary = "Obtener productos con bajo stock",
             description = "Recupera los productos que están por debajo del stock mínimo configurado"
@@ -244,6 +292,66 @@ public class InventarioController {
         return ResponseEntity.ok(resource);
     }
 
+    @Operation(
+            summary = "Reservar stock",
+            description = "Descuenta la cantidad indicada de varios registros de inventario en una sola transacción. " +
+                    "Si alguna línea no tiene stock suficiente no se descuenta ninguna"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Todas las líneas fueron reservadas",
+                    content = @Content(schema = @Schema(implementation = ReservaStockResponse.class))),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Alguna línea no pudo reservarse; se informa el estado de cada una",
+                    content = @Content(schema = @Schema(implementation = ReservaStockResponse.class))),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "El token no es el de MS-Carrito con scope inventario:reservar",
+                    content = @Content)
+    })
+    @PostMapping("/reservar")
+    public ResponseEntity<ReservaStockResponse> reservarStock(
+            @Parameter(description = "Líneas a reservar", required = true)
+            @RequestBody ReservaStockRequest request) {
+        ReservaStockResponse response = inventarioService.reservarStock(request);
+        if (!response.isCompleta()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Liberar reserva",
+            description = "Devuelve al inventario lo descontado por una reserva previa. Liberar de nuevo la misma " +
+                    "reserva no repone nada, así que la llamada puede reintentarse sin riesgo"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Reserva liberada, ahora o en una llamada anterior",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Reserva no encontrada",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "El token no es el de MS-Carrito con scope inventario:reservar",
+                    content = @Content)
+    })
+    @PostMapping("/reservas/{reservaId}/liberar")
+    public ResponseEntity<?> liberarStock(
+            @Parameter(description = "ID devuelto al reservar", required = true)
+            @PathVariable String reservaId) {
+        ServiceResult<Boolean> result = inventarioService.liberarStock(reservaId);
+        if (result.hasErrors()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result.getErrors());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(
             summary = "Cancelar venta",
             description = "Cancela una venta y restaura el stock"
@@ -0,0 +1,16 @@
+package com.app.inventario.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventarioBatchRequest {
+    private List<Long> ids;
+}
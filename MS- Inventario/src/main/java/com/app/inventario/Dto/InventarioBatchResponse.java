@@ -0,0 +1,35 @@
+package com.app.inventario.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventarioBatchResponse {
+    // Un resultado por cada ID distinto pedido, en el orden de la solicitud
+    private List<Resultado> resultados;
+
+    public enum Estado {
+        ENCONTRADO,
+        NO_ENCONTRADO,
+        // El registro existe pero no se pudo consultar su producto o su sucursal
+        ERROR
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultado {
+        private Long id;
+        private Estado estado;
+        private InventarioResponse inventario;
+        private String error;
+    }
+}
@@ -0,0 +1,38 @@
+package com.app.inventario.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaStockResponse {
+    private boolean completa;
+    // Solo si la reserva se aplicó completa; es lo que se envía para liberarla
+    private String reservaId;
+    private List<LineaResultado> lineas;
+
+    public enum EstadoLinea {
+        RESERVADA,
+        STOCK_INSUFICIENTE,
+        NO_ENCONTRADO,
+        CANTIDAD_INVALIDA,
+        // La línea no se aplicó (o se repuso) porque otra línea de la misma reserva falló
+        REVERTIDA
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaResultado {
+        private Long inventarioId;
+        private Integer cantidad;
+        private EstadoLinea estado;
+    }
+}
@@ -0,0 +1,27 @@
+package com.app.inventario.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferenciaLoteRequest {
+    private Long origenId;
+    private Long destinoId;
+    private List<Linea> lineas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Linea {
+        private Long productoId;
+        private Integer cantidad;
+    }
+}
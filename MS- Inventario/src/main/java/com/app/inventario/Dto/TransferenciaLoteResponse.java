@@ -0,0 +1,31 @@
+package com.app.inventario.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferenciaLoteResponse {
+    private SucursalResponse origen;
+    private SucursalResponse destino;
+    private List<LineaResultado> lineas;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineaResultado {
+        private ProductoResponse producto;
+        private Long inventarioOrigenId;
+        private Long inventarioDestinoId;
+        private Integer cantidadTransferida;
+        private Integer cantidadOrigen;
+        private Integer cantidadDestino;
+    }
+}
@@ -10,7 +10,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventario")
+@Table(name = "inventario", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inventario_sucursal_producto", columnNames = {"id_sucursal", "id_producto"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
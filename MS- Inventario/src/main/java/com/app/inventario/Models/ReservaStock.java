@@ -0,0 +1,54 @@
+package com.app.inventario.Models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reserva aplicada por reservarStock. Guarda lo que se descontó de cada registro para que la liberación
+ * reponga exactamente eso y una sola vez, sin importar cuántas veces se reintente.
+ */
+@Entity
+@Table(name = "reservas_stock")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservaStock {
+    @Id
+    @Column(name = "id_reserva", length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String estado = "RESERVADA"; // RESERVADA, LIBERADA
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "reservas_stock_lineas", joinColumns = @JoinColumn(name = "id_reserva"))
+    @Builder.Default
+    private List<Linea> lineas = new ArrayList<>();
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_liberacion")
+    private LocalDateTime fechaLiberacion;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Linea {
+        @Column(name = "id_inventario", nullable = false)
+        private Long inventarioId;
+
+        @Column(nullable = false)
+        private Integer cantidad;
+    }
+}
@@ -1,10 +1,16 @@
 package com.app.inventario.Repository;
 
 import com.app.inventario.Models.Inventario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +20,35 @@ public interface InventarioRepository extends JpaRepository<Inventario, Long> {
 
     List<Inventario> findBySucursalId(Long sucursalId);
 
+    List<Inventario> findBySucursalIdInAndProductoIdIn(Collection<Long> sucursalIds, Collection<Long> productoIds);
+
+    @Query("SELECT i.id FROM Inventario i WHERE i.sucursalId IN :sucursalIds AND i.productoId IN :productoIds")
+    List<Long> findIdsBySucursalIdInAndProductoIdIn(@Param("sucursalIds") Collection<Long> sucursalIds,
+                                                    @Param("productoIds") Collection<Long> productoIds);
+
+    /**
+     * Bloquea las filas por clave primaria y en orden ascendente de ID, el mismo para todas las
+     * transferencias, de modo que dos transferencias sobre las mismas filas nunca se bloquean mutuamente.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventario i WHERE i.id IN :ids ORDER BY i.id")
+    List<Inventario> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT i FROM Inventario i WHERE i.cantidad < i.stockMinimo")
     List<Inventario> findByCantidadLessThanStockMinimo();
-}
\ No newline at end of file
+
+    /**
+     * Descuenta stock solo si alcanza; la condición se evalúa en la misma sentencia, por lo que
+     * dos reservas concurrentes nunca pueden dejar la cantidad en negativo.
+     *
+     * @return 1 si se descontó, 0 si el registro no existe o no tiene stock suficiente
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventario i SET i.cantidad = i.cantidad - :cantidad, i.ultimaActualizacion = :fecha " +
+            "WHERE i.id = :id AND i.cantidad >= :cantidad")
+    int descontarStock(@Param("id") Long id, @Param("cantidad") int cantidad, @Param("fecha") LocalDateTime fecha);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventario i SET i.cantidad = i.cantidad + :cantidad, i.ultimaActualizacion = :fecha WHERE i.id = :id")
+    int reponerStock(@Param("id") Long id, @Param("cantidad") int cantidad, @Param("fecha") LocalDateTime fecha);
+}
@@ -0,0 +1,25 @@
+package com.app.inventario.Repository;
+
+import com.app.inventario.Models.ReservaStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ReservaStockRepository extends JpaRepository<ReservaStock, String> {
+
+    /**
+     * Pasa la reserva a LIBERADA solo si seguía RESERVADA. La condición se evalúa en la misma sentencia,
+     * así que de dos liberaciones concurrentes de la misma reserva solo una repone el stock.
+     *
+     * @return 1 si esta llamada la liberó, 0 si no existe o ya estaba liberada
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ReservaStock r SET r.estado = 'LIBERADA', r.fechaLiberacion = :fecha " +
+            "WHERE r.id = :id AND r.estado = 'RESERVADA'")
+    int marcarLiberada(@Param("id") String id, @Param("fecha") LocalDateTime fecha);
+}
@@ -2,11 +2,17 @@ package com.app.inventario.Service;
 
 import com.app.inventario.Dto.*;
 import com.app.inventario.Models.Inventario;
+import com.app.inventario.Models.ReservaStock;
 import com.app.inventario.Repository.InventarioRepository;
+import com.app.inventario.Repository.ReservaStockRepository;
 import com.app.inventario.shared.MicroserviceClient;
+import com.app.inventario.shared.RemoteCallMetrics;
+import com.app.inventario.shared.RemoteLookup;
 import com.app.inventario.shared.TokenContext;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
+import org.app.resilience.ConsultasParalelas;
+import org.app.resilience.RemoteLookupExecutor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
@@ -14,7 +20,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +46,13 @@ public class InventarioService {
 
     private final MicroserviceClient microserviceClient;
     private final InventarioRepository inventarioRepository;
+    private final RemoteLookupExecutor remoteLookupExecutor;
+    private final RemoteCallMetrics remoteCallMetrics;
+    private final TransferenciaStockService transferenciaStockService;
+    private final ReservaStockRepository reservaStockRepository;
+
+    // Tope de IDs por llamada a /batch: acota el IN de la consulta y las llamadas a otros servicios
+    public static final int MAX_IDS_LOTE = 100;
 
 
     public SucursalResponse consultarSucursal(Long id) {
@@ -71,41 +95,105 @@ public class InventarioService {
 
     @Transactional
     public InventarioResponse registrarInventario(InventarioRequest request) {
+        try (ConsultasParalelas consultas = new ConsultasParalelas(remoteLookupExecutor)) {
+            ConsultasParalelas.Consulta<ProductoResponse> producto =
+                    consultas.iniciar("producto", request.getProductoId(), this::consultarProducto);
+            ConsultasParalelas.Consulta<SucursalResponse> sucursal =
+                    consultas.iniciar("sucursal", request.getSucursalId(), this::consultarSucursal);
+            consultas.esperar();
+
+            Inventario inventario = Inventario.builder()
+                    .productoId(request.getProductoId())
+                    .sucursalId(request.getSucursalId())
+                    .cantidad(request.getCantidad())
+                    .stockMinimo(request.getStockMinimo() != null ? request.getStockMinimo() : 1)
+                    .build();
 
-        ProductoResponse producto = consultarProducto(request.getProductoId());
-        SucursalResponse sucursal = consultarSucursal(request.getSucursalId());
-
-        Inventario inventario = Inventario.builder()
-                .productoId(request.getProductoId())
-                .sucursalId(request.getSucursalId())
-                .cantidad(request.getCantidad())
-                .stockMinimo(request.getStockMinimo() != null ? request.getStockMinimo() : 1)
-                .build();
-
-        inventario = inventarioRepository.save(inventario);
-        return buildInventarioResponse(inventario, producto, sucursal);
+            inventario = inventarioRepository.save(inventario);
+            return buildInventarioResponse(inventario, producto.obtener(), sucursal.obtener());
+        }
     }
 
     public InventarioResponse obtenerInventarioPorId(Long id) {
         Inventario inventario = inventarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Registro de inventario no encontrado"));
 
-        ProductoResponse producto = consultarProducto(inventario.getProductoId());
-        SucursalResponse sucursal = consultarSucursal(inventario.getSucursalId());
-
-        return buildInventarioResponse(inventario, producto, sucursal);
+        return construirRespuesta(inventario);
     }
 
     public List<InventarioResponse> obtenerInventarioPorSucursal(Long sucursalId) {
+        RemoteLookup<Long, SucursalResponse> sucursales = new RemoteLookup<>("sucursal", this::consultarSucursal);
+        sucursales.obtener(sucursalId);
 
-        consultarSucursal(sucursalId);
+        List<Inventario> inventarios = inventarioRepository.findBySucursalId(sucursalId);
+        RemoteLookup<Long, ProductoResponse> productos = new RemoteLookup<>("producto", this::consultarProducto);
+        productos.resolver(idsDe(inventarios, Inventario::getProductoId), remoteLookupExecutor);
 
-        return inventarioRepository.findBySucursalId(sucursalId).stream()
-                .map(inventario -> {
-                    ProductoResponse producto = consultarProducto(inventario.getProductoId());
-                    return buildInventarioResponse(inventario, producto, null);
-                })
+        List<InventarioResponse> resultado = inventarios.stream()
+                .map(inventario -> buildInventarioResponse(inventario, productos.obtener(inventario.getProductoId()), null))
                 .collect(Collectors.toList());
+
+        remoteCallMetrics.registrar("obtenerInventarioPorSucursal", inventarios.size(), productos, sucursales);
+        return resultado;
+    }
+
+    /**
+     * Resuelve un lote de registros con un solo findAllById y una consulta por producto y sucursal
+     * distintos. Cada ID tiene su propio resultado: un ID inexistente o cuyo producto no pudo
+     * consultarse no hace fallar al resto del lote.
+     */
+    public ServiceResult<InventarioBatchResponse> obtenerInventariosPorIds(List<Long> ids) {
+        Set<Long> distintos = ids == null ? Set.of() : ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distintos.size() > MAX_IDS_LOTE) {
+            return new ServiceResult<>(List.of("No se pueden consultar más de " + MAX_IDS_LOTE + " inventarios por llamada"));
+        }
+        if (distintos.isEmpty()) {
+            return new ServiceResult<>(InventarioBatchResponse.builder().resultados(List.of()).build());
+        }
+
+        Map<Long, Inventario> inventarios = inventarioRepository.findAllById(distintos).stream()
+                .collect(Collectors.toMap(Inventario::getId, Function.identity()));
+        RemoteLookup<Long, ProductoResponse> productos = new RemoteLookup<>("producto", this::consultarProducto);
+        RemoteLookup<Long, SucursalResponse> sucursales = new RemoteLookup<>("sucursal", this::consultarSucursal);
+        Map<Long, RuntimeException> erroresProducto = productos.resolverCadaUno(
+                idsDe(inventarios.values(), Inventario::getProductoId), remoteLookupExecutor);
+        Map<Long, RuntimeException> erroresSucursal = sucursales.resolverCadaUno(
+                idsDe(inventarios.values(), Inventario::getSucursalId), remoteLookupExecutor);
+
+        List<InventarioBatchResponse.Resultado> resultados = new ArrayList<>(distintos.size());
+        for (Long id : distintos) {
+            Inventario inventario = inventarios.get(id);
+            if (inventario == null) {
+                resultados.add(InventarioBatchResponse.Resultado.builder()
+                        .id(id)
+                        .estado(InventarioBatchResponse.Estado.NO_ENCONTRADO)
+                        .build());
+                continue;
+            }
+            RuntimeException error = erroresProducto.containsKey(inventario.getProductoId())
+                    ? erroresProducto.get(inventario.getProductoId())
+                    : erroresSucursal.get(inventario.getSucursalId());
+            if (error != null) {
+                resultados.add(InventarioBatchResponse.Resultado.builder()
+                        .id(id)
+                        .estado(InventarioBatchResponse.Estado.ERROR)
+                        .error(error.getMessage())
+                        .build());
+                continue;
+            }
+            resultados.add(InventarioBatchResponse.Resultado.builder()
+                    .id(id)
+                    .estado(InventarioBatchResponse.Estado.ENCONTRADO)
+                    .inventario(buildInventarioResponse(inventario,
+                            productos.obtener(inventario.getProductoId()),
+                            sucursales.obtener(inventario.getSucursalId())))
+                    .build());
+        }
+
+        remoteCallMetrics.registrar("obtenerInventariosPorIds", inventarios.size(), productos, sucursales);
+        return new ServiceResult<>(InventarioBatchResponse.builder().resultados(resultados).build());
     }
 
     @Transactional
@@ -118,71 +206,133 @@ public class InventarioService {
 
         inventario = inventarioRepository.save(inventario);
 
-        ProductoResponse producto = consultarProducto(inventario.getProductoId());
-        SucursalResponse sucursal = consultarSucursal(inventario.getSucursalId());
-
-        return buildInventarioResponse(inventario, producto, sucursal);
+        return construirRespuesta(inventario);
     }
 
-    @Transactional
+    /**
+     * Valida las sucursales y el producto antes de tocar la base, para no mantener filas bloqueadas
+     * mientras se espera a otros servicios, y arma la respuesta con esas mismas consultas.
+     */
     public InventarioResponse transferirStock(Long origenId, Long destinoId, Long productoId, Integer cantidad) {
-
-        consultarSucursal(origenId);
-        consultarSucursal(destinoId);
-        consultarProducto(productoId);
-
-
-        Inventario inventarioOrigen = inventarioRepository.findByProductoIdAndSucursalId(productoId, origenId)
-                .orElseThrow(() -> new RuntimeException("No existe inventario para el producto en la sucursal origen"));
-
-
-        if (inventarioOrigen.getCantidad() < cantidad) {
-            throw new RuntimeException("Stock insuficiente en sucursal origen");
+        try (ConsultasParalelas consultas = new ConsultasParalelas(remoteLookupExecutor)) {
+            ConsultasParalelas.Consulta<SucursalResponse> sucursalOrigen =
+                    consultas.iniciar("sucursal", origenId, this::consultarSucursal);
+            ConsultasParalelas.Consulta<SucursalResponse> sucursalDestino =
+                    consultas.iniciar("sucursal", destinoId, this::consultarSucursal);
+            ConsultasParalelas.Consulta<ProductoResponse> producto =
+                    consultas.iniciar("producto", productoId, this::consultarProducto);
+            consultas.esperar();
+
+            Map<Long, Integer> cantidades = new HashMap<>();
+            cantidades.put(productoId, cantidad);
+            Inventario inventarioDestino = transferenciaStockService.transferir(origenId, destinoId, cantidades)
+                    .get(0)
+                    .destino();
+
+            return InventarioResponse.builder()
+                    .id(inventarioDestino.getId())
+                    .producto(producto.obtener())
+                    .sucursal(sucursalDestino.obtener())
+                    .cantidad(inventarioDestino.getCantidad())
+                    .stockMinimo(inventarioDestino.getStockMinimo())
+                    .ultimaActualizacion(inventarioDestino.getUltimaActualizacion())
+                    .transferencia(TransferenciaResponse.builder()
+                            .origen(sucursalOrigen.obtener())
+                            .cantidadTransferida(cantidad)
+                            .build())
+                    .build();
         }
+    }
 
+    /**
+     * Transfiere varios productos entre dos sucursales en una sola transacción: o se mueven todos o
+     * ninguno. Las líneas repetidas de un mismo producto se suman.
+     */
+    public TransferenciaLoteResponse transferirLote(TransferenciaLoteRequest request) {
+        if (request == null || request.getLineas() == null || request.getLineas().isEmpty()) {
+            throw new RuntimeException("La transferencia no tiene productos");
+        }
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        for (TransferenciaLoteRequest.Linea linea : request.getLineas()) {
+            if (linea.getProductoId() == null || linea.getCantidad() == null || linea.getCantidad() <= 0) {
+                throw new RuntimeException("La cantidad a transferir debe ser mayor que cero");
+            }
+            cantidades.merge(linea.getProductoId(), linea.getCantidad(), Integer::sum);
+        }
 
-        Inventario inventarioDestino = inventarioRepository.findByProductoIdAndSucursalId(productoId, destinoId)
-                .orElse(Inventario.builder()
-                        .productoId(productoId)
-                        .sucursalId(destinoId)
-                        .cantidad(0)
-                        .stockMinimo(1)
-                        .build());
-
-
-        inventarioOrigen.setCantidad(inventarioOrigen.getCantidad() - cantidad);
-        inventarioDestino.setCantidad(inventarioDestino.getCantidad() + cantidad);
+        try (ConsultasParalelas consultas = new ConsultasParalelas(remoteLookupExecutor)) {
+            ConsultasParalelas.Consulta<SucursalResponse> sucursalOrigen =
+                    consultas.iniciar("sucursal", request.getOrigenId(), this::consultarSucursal);
+            ConsultasParalelas.Consulta<SucursalResponse> sucursalDestino =
+                    consultas.iniciar("sucursal", request.getDestinoId(), this::consultarSucursal);
+            Map<Long, ConsultasParalelas.Consulta<ProductoResponse>> productos = new HashMap<>();
+            cantidades.keySet().forEach(productoId ->
+                    productos.put(productoId, consultas.iniciar("producto", productoId, this::consultarProducto)));
+            consultas.esperar();
+
+            List<TransferenciaLoteResponse.LineaResultado> lineas = transferenciaStockService
+                    .transferir(request.getOrigenId(), request.getDestinoId(), cantidades)
+                    .stream()
+                    .map(movimiento -> TransferenciaLoteResponse.LineaResultado.builder()
+                            .producto(productos.get(movimiento.destino().getProductoId()).obtener())
+                            .inventarioOrigenId(movimiento.origen().getId())
+                            .inventarioDestinoId(movimiento.destino().getId())
+                            .cantidadTransferida(movimiento.cantidad())
+                            .cantidadOrigen(movimiento.origen().getCantidad())
+                            .cantidadDestino(movimiento.destino().getCantidad())
+                            .build())
+                    .collect(Collectors.toList());
+
+            return TransferenciaLoteResponse.builder()
+                    .origen(sucursalOrigen.obtener())
+                    .destino(sucursalDestino.obtener())
+                    .lineas(lineas)
+                    .build();
+        }
+    }
 
-        inventarioRepository.save(inventarioOrigen);
-        inventarioRepository.save(inventarioDestino);
+    public List<InventarioResponse> obtenerProductosBajoStockMinimo() {
+        return construirRespuestas("obtenerProductosBajoStockMinimo",
+                inventarioRepository.findByCantidadLessThanStockMinimo());
+    }
 
+    /**
+     * Arma las respuestas de una lista de inventarios consultando cada producto y sucursal distintos
+     * una sola vez y en paralelo, en lugar de dos llamadas remotas por registro.
+     */
+    private List<InventarioResponse> construirRespuestas(String operacion, List<Inventario> inventarios) {
+        RemoteLookup<Long, ProductoResponse> productos = new RemoteLookup<>("producto", this::consultarProducto);
+        RemoteLookup<Long, SucursalResponse> sucursales = new RemoteLookup<>("sucursal", this::consultarSucursal);
+        productos.resolver(idsDe(inventarios, Inventario::getProductoId), remoteLookupExecutor);
+        sucursales.resolver(idsDe(inventarios, Inventario::getSucursalId), remoteLookupExecutor);
+
+        List<InventarioResponse> resultado = inventarios.stream()
+                .map(inventario -> buildInventarioResponse(
+                        inventario,
+                        productos.obtener(inventario.getProductoId()),
+                        sucursales.obtener(inventario.getSucursalId())))
+                .collect(Collectors.toList());
 
-        ProductoResponse producto = consultarProducto(productoId);
-        SucursalResponse sucursalOrigen = consultarSucursal(origenId);
-        SucursalResponse sucursalDestino = consultarSucursal(destinoId);
+        remoteCallMetrics.registrar(operacion, inventarios.size(), productos, sucursales);
+        return resultado;
+    }
 
-        return InventarioResponse.builder()
-                .id(inventarioDestino.getId())
-                .producto(producto)
-                .sucursal(sucursalDestino)
-                .cantidad(inventarioDestino.getCantidad())
-                .stockMinimo(inventarioDestino.getStockMinimo())
-                .ultimaActualizacion(inventarioDestino.getUltimaActualizacion())
-                .transferencia(TransferenciaResponse.builder()
-                        .origen(sucursalOrigen)
-                        .cantidadTransferida(cantidad)
-                        .build())
-                .build();
+    /**
+     * Arma la respuesta de un solo inventario consultando su producto y su sucursal a la vez.
+     */
+    private InventarioResponse construirRespuesta(Inventario inventario) {
+        try (ConsultasParalelas consultas = new ConsultasParalelas(remoteLookupExecutor)) {
+            ConsultasParalelas.Consulta<ProductoResponse> producto =
+                    consultas.iniciar("producto", inventario.getProductoId(), this::consultarProducto);
+            ConsultasParalelas.Consulta<SucursalResponse> sucursal =
+                    consultas.iniciar("sucursal", inventario.getSucursalId(), this::consultarSucursal);
+            consultas.esperar();
+            return buildInventarioResponse(inventario, producto.obtener(), sucursal.obtener());
+        }
     }
 
-    public List<InventarioResponse> obtenerProductosBajoStockMinimo() {
-        return inventarioRepository.findByCantidadLessThanStockMinimo().stream()
-                .map(inventario -> {
-                    ProductoResponse producto = consultarProducto(inventario.getProductoId());
-                    SucursalResponse sucursal = consultarSucursal(inventario.getSucursalId());
-                    return buildInventarioResponse(inventario, producto, sucursal);
-                })
-                .collect(Collectors.toList());
+    private static Set<Long> idsDe(Collection<Inventario> inventarios, Function<Inventario, Long> id) {
+        return inventarios.stream().map(id).collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     private InventarioResponse buildInventarioResponse(Inventario inventario,
@@ -232,12 +382,8 @@ public class InventarioService {
             inventario.setUltimaActualizacion(LocalDateTime.now());
             inventario = inventarioRepository.save(inventario);
 
-            // Paso 2: Validar entidades externas
-            ProductoResponse producto = consultarProducto(inventario.getProductoId());
-            SucursalResponse sucursal = consultarSucursal(inventario.getSucursalId());
-
-            // Paso 3: Confirmar venta
-            InventarioResponse response = buildInventarioResponse(inventario, producto, sucursal);
+            // Paso 2: Validar entidades externas y confirmar venta
+            InventarioResponse response = construirRespuesta(inventario);
             return new ServiceResult<>(response);
 
         } catch (Exception e) {
@@ -247,6 +393,117 @@ public class InventarioService {
         }
     }
 
+    /**
+     * Reserva varias líneas de inventario en una sola transacción. Es todo o nada: si alguna línea
+     * no puede reservarse, las que sí se descontaron se reponen y se informa el estado de cada una.
+     * Una reserva completa queda registrada y su ID es lo único que acepta liberarStock.
+     */
+    @Transactional
+    public ReservaStockResponse reservarStock(ReservaStockRequest request) {
+        if (request == null || request.getLineas() == null || request.getLineas().isEmpty()) {
+            return ReservaStockResponse.builder().completa(false).lineas(List.of()).build();
+        }
+
+        boolean lineasValidas = request.getLineas().stream().allMatch(this::esLineaValida);
+        Map<Long, Integer> cantidades = lineasValidas ? agruparLineas(request) : Map.of();
+        Map<Long, ReservaStockResponse.EstadoLinea> fallidas = new HashMap<>();
+        List<Map.Entry<Long, Integer>> aplicadas = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        // Se recorre en orden de ID para que reservas concurrentes bloqueen las filas en el mismo orden
+        for (Map.Entry<Long, Integer> entry : cantidades.entrySet()) {
+            if (inventarioRepository.descontarStock(entry.getKey(), entry.getValue(), ahora) == 1) {
+                aplicadas.add(entry);
+            } else {
+                fallidas.put(entry.getKey(), inventarioRepository.existsById(entry.getKey())
+                        ? ReservaStockResponse.EstadoLinea.STOCK_INSUFICIENTE
+                        : ReservaStockResponse.EstadoLinea.NO_ENCONTRADO);
+            }
+        }
+
+        boolean completa = lineasValidas && fallidas.isEmpty();
+        if (!completa) {
+            aplicadas.forEach(entry -> inventarioRepository.reponerStock(entry.getKey(), entry.getValue(), ahora));
+        }
+
+        String reservaId = null;
+        if (completa) {
+            reservaId = UUID.randomUUID().toString();
+            reservaStockRepository.save(ReservaStock.builder()
+                    .id(reservaId)
+                    .lineas(cantidades.entrySet().stream()
+                            .map(entry -> new ReservaStock.Linea(entry.getKey(), entry.getValue()))
+                            .collect(Collectors.toList()))
+                    .fechaCreacion(ahora)
+                    .build());
+        }
+
+        List<ReservaStockResponse.LineaResultado> resultados = request.getLineas().stream()
+                .map(linea -> ReservaStockResponse.LineaResultado.builder()
+                        .inventarioId(linea.getInventarioId())
+                        .cantidad(linea.getCantidad())
+                        .estado(estadoLinea(linea, fallidas, completa))
+                        .build())
+                .collect(Collectors.toList());
+
+        return ReservaStockResponse.builder()
+                .completa(completa)
+                .reservaId(reservaId)
+                .lineas(resultados)
+                .build();
+    }
+
+    /**
+     * Devuelve al inventario lo descontado por una reserva. Es idempotente: solo la llamada que pasa la
+     * reserva de RESERVADA a LIBERADA repone el stock; los reintentos devuelven false sin tocar nada.
+     */
+    @Transactional
+    public ServiceResult<Boolean> liberarStock(String reservaId) {
+        LocalDateTime ahora = LocalDateTime.now();
+        if (reservaId == null || reservaStockRepository.marcarLiberada(reservaId, ahora) == 0) {
+            if (reservaId == null || !reservaStockRepository.existsById(reservaId)) {
+                return new ServiceResult<>(List.of("Reserva no encontrada"));
+            }
+            return new ServiceResult<>(false);
+        }
+
+        ReservaStock reserva = reservaStockRepository.findById(reservaId)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada"));
+        reserva.getLineas().stream()
+                .sorted(Comparator.comparing(ReservaStock.Linea::getInventarioId))
+                .forEach(linea -> inventarioRepository.reponerStock(linea.getInventarioId(), linea.getCantidad(), ahora));
+        return new ServiceResult<>(true);
+    }
+
+    private Map<Long, Integer> agruparLineas(ReservaStockRequest request) {
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        if (request == null || request.getLineas() == null) {
+            return cantidades;
+        }
+        for (ReservaStockRequest.Linea linea : request.getLineas()) {
+            if (esLineaValida(linea)) {
+                cantidades.merge(linea.getInventarioId(), linea.getCantidad(), Integer::sum);
+            }
+        }
+        return cantidades;
+    }
+
+    private boolean esLineaValida(ReservaStockRequest.Linea linea) {
+        return linea.getInventarioId() != null && linea.getCantidad() != null && linea.getCantidad() > 0;
+    }
+
+    private ReservaStockResponse.EstadoLinea estadoLinea(ReservaStockRequest.Linea linea,
+                                                         Map<Long, ReservaStockResponse.EstadoLinea> fallidas,
+                                                         boolean completa) {
+        if (!esLineaValida(linea)) {
+            return ReservaStockResponse.EstadoLinea.CANTIDAD_INVALIDA;
+        }
+        if (fallidas.containsKey(linea.getInventarioId())) {
+            return fallidas.get(linea.getInventarioId());
+        }
+        return completa ? ReservaStockResponse.EstadoLinea.RESERVADA : ReservaStockResponse.EstadoLinea.REVERTIDA;
+    }
+
     private void restaurarStock(Long inventarioId) {
         inventarioRepository.findById(inventarioId).ifPresent(inv -> {
             inv.setCantidad(inv.getCantidad() + 1);
@@ -268,10 +525,7 @@ public class InventarioService {
 
         inventario = inventarioRepository.save(inventario);
 
-        ProductoResponse producto = consultarProducto(inventario.getProductoId());
-        SucursalResponse sucursal = consultarSucursal(inventario.getSucursalId());
-
-        return buildInventarioResponse(inventario, producto, sucursal);
+        return construirRespuesta(inventario);
     }
 
 }
\ No newline at end of file
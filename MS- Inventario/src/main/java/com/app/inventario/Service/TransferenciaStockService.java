@@ -0,0 +1,136 @@
+package com.app.inventario.Service;
+
+import com.app.inventario.Models.Inventario;
+import com.app.inventario.Repository.InventarioRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Motor de transferencias de stock entre dos sucursales, para uno o varios productos a la vez.
+ *
+ * Las filas de origen y destino se bloquean (SELECT ... FOR UPDATE) en orden de ID antes de comprobar
+ * el stock, así que dos transferencias concurrentes sobre el mismo origen no pueden pasar ambas la
+ * comprobación, y dos transferencias en sentidos opuestos no se bloquean mutuamente. Es todo o nada:
+ * si a un producto le falta stock no se mueve ninguno. Las filas de destino que no existen se crean
+ * antes, fuera de la transacción de la transferencia, apoyándose en la restricción única
+ * (sucursal, producto) cuando dos peticiones intentan crearlas a la vez.
+ */
+@Service
+public class TransferenciaStockService {
+
+    private final InventarioRepository inventarioRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public TransferenciaStockService(InventarioRepository inventarioRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.inventarioRepository = inventarioRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Mueve las cantidades indicadas por producto desde la sucursal origen a la destino.
+     *
+     * @return un movimiento por producto, en orden de ID de producto, con las filas ya actualizadas
+     */
+    public List<Movimiento> transferir(Long origenId, Long destinoId, Map<Long, Integer> cantidadesPorProducto) {
+        if (origenId == null || destinoId == null || origenId.equals(destinoId)) {
+            throw new RuntimeException("La sucursal origen y la destino deben ser distintas");
+        }
+        if (cantidadesPorProducto == null || cantidadesPorProducto.isEmpty()) {
+            throw new RuntimeException("La transferencia no tiene productos");
+        }
+        Map<Long, Integer> cantidades = new TreeMap<>();
+        cantidadesPorProducto.forEach((productoId, cantidad) -> {
+            if (productoId == null || cantidad == null || cantidad <= 0) {
+                throw new RuntimeException("La cantidad a transferir debe ser mayor que cero");
+            }
+            cantidades.put(productoId, cantidad);
+        });
+
+        asegurarFilasDestino(origenId, destinoId, cantidades.keySet());
+        return transactionTemplate.execute(status -> mover(origenId, destinoId, cantidades));
+    }
+
+    private List<Movimiento> mover(Long origenId, Long destinoId, Map<Long, Integer> cantidades) {
+        List<Long> ids = inventarioRepository.findIdsBySucursalIdInAndProductoIdIn(
+                Set.of(origenId, destinoId), cantidades.keySet());
+        Map<Long, Inventario> origen = new HashMap<>();
+        Map<Long, Inventario> destino = new HashMap<>();
+        for (Inventario fila : inventarioRepository.findAllByIdForUpdate(ids)) {
+            (fila.getSucursalId().equals(origenId) ? origen : destino).put(fila.getProductoId(), fila);
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Movimiento> movimientos = new ArrayList<>(cantidades.size());
+        for (Map.Entry<Long, Integer> entry : cantidades.entrySet()) {
+            Inventario filaOrigen = origen.get(entry.getKey());
+            Inventario filaDestino = destino.get(entry.getKey());
+            if (filaOrigen == null) {
+                throw new RuntimeException("No existe inventario para el producto " + entry.getKey() + " en la sucursal origen");
+            }
+            if (filaDestino == null) {
+                // Solo si alguien eliminó la fila recién creada entre ambos pasos
+                throw new RuntimeException("No existe inventario para el producto " + entry.getKey() + " en la sucursal destino");
+            }
+            if (filaOrigen.getCantidad() < entry.getValue()) {
+                throw new RuntimeException("Stock insuficiente en sucursal origen para el producto " + entry.getKey());
+            }
+
+            filaOrigen.setCantidad(filaOrigen.getCantidad() - entry.getValue());
+            filaOrigen.setUltimaActualizacion(ahora);
+            filaDestino.setCantidad(filaDestino.getCantidad() + entry.getValue());
+            filaDestino.setUltimaActualizacion(ahora);
+            movimientos.add(new Movimiento(filaOrigen, filaDestino, entry.getValue()));
+        }
+
+        inventarioRepository.saveAll(origen.values());
+        inventarioRepository.saveAll(destino.values());
+        return movimientos;
+    }
+
+    /**
+     * Crea con cantidad 0 las filas de destino que faltan. Antes comprueba que todos los productos
+     * existan en el origen, para no dejar filas vacías de una transferencia que no puede hacerse.
+     */
+    private void asegurarFilasDestino(Long origenId, Long destinoId, Set<Long> productoIds) {
+        Map<Long, Inventario> origen = new HashMap<>();
+        Map<Long, Inventario> destino = new HashMap<>();
+        for (Inventario fila : inventarioRepository.findBySucursalIdInAndProductoIdIn(Set.of(origenId, destinoId), productoIds)) {
+            (fila.getSucursalId().equals(origenId) ? origen : destino).put(fila.getProductoId(), fila);
+        }
+
+        for (Long productoId : productoIds) {
+            if (!origen.containsKey(productoId)) {
+                throw new RuntimeException("No existe inventario para el producto " + productoId + " en la sucursal origen");
+            }
+        }
+        for (Long productoId : productoIds) {
+            if (destino.containsKey(productoId)) {
+                continue;
+            }
+            try {
+                inventarioRepository.save(Inventario.builder()
+                        .productoId(productoId)
+                        .sucursalId(destinoId)
+                        .cantidad(0)
+                        .stockMinimo(1)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Otra transferencia hacia la misma sucursal la creó al mismo tiempo
+            }
+        }
+    }
+
+    public record Movimiento(Inventario origen, Inventario destino, int cantidad) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.app.inventario.shared;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registra cuántas llamadas remotas hizo cada petición, por operación y dependencia.
+ * Se publica como inventario.llamadas.remotas en /actuator/metrics (count, total y max).
+ */
+@Component
+public class RemoteCallMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteCallMetrics.class);
+    private static final String METRICA = "inventario.llamadas.remotas";
+
+    private final MeterRegistry registry;
+
+    public RemoteCallMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void registrar(String operacion, int registros, RemoteLookup<?, ?>... lookups) {
+        for (RemoteLookup<?, ?> lookup : lookups) {
+            DistributionSummary.builder(METRICA)
+                    .description("Llamadas remotas por petición")
+                    .tag("operacion", operacion)
+                    .tag("dependencia", lookup.getDependencia())
+                    .register(registry)
+                    .record(lookup.getLlamadas());
+        }
+        if (log.isDebugEnabled()) {
+            int total = 0;
+            for (RemoteLookup<?, ?> lookup : lookups) {
+                total += lookup.getLlamadas();
+            }
+            log.debug("{}: {} registros, {} llamadas remotas", operacion, registros, total);
+        }
+    }
+
+    public DistributionSummary resumen(String operacion, String dependencia) {
+        return registry.find(METRICA)
+                .tag("operacion", operacion)
+                .tag("dependencia", dependencia)
+                .summary();
+    }
+}
@@ -0,0 +1,110 @@
+package com.app.inventario.shared;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Memoiza las consultas a otro microservicio durante una petición: cada ID se consulta una sola
+ * vez aunque aparezca en muchos registros. No es thread-safe para compartir entre peticiones;
+ * se crea una instancia por operación.
+ */
+public class RemoteLookup<K, V> {
+
+    private final String dependencia;
+    private final Function<K, V> consulta;
+    private final Map<K, V> resultados = new ConcurrentHashMap<>();
+    private final AtomicInteger llamadas = new AtomicInteger();
+
+    public RemoteLookup(String dependencia, Function<K, V> consulta) {
+        this.dependencia = dependencia;
+        this.consulta = consulta;
+    }
+
+    /**
+     * Consulta en paralelo los IDs distintos que aún no se conocen. El token de la petición se
+     * propaga a los hilos del executor porque TokenContext es un ThreadLocal.
+     */
+    public void resolver(Collection<K> ids, Executor executor) {
+        List<K> pendientes = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(id -> !resultados.containsKey(id))
+                .toList();
+
+        if (pendientes.size() <= 1) {
+            pendientes.forEach(this::consultar);
+            return;
+        }
+
+        CompletableFuture<?>[] tareas = pendientes.stream()
+                .map(id -> CompletableFuture.supplyAsync(TokenContext.propagar(() -> consultar(id)), executor))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(tareas).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Como resolver, pero el fallo de un ID no corta a los demás: devuelve la excepción de cada ID que
+     * falló, que queda sin resultado para que quien llama informe el error solo en ese registro.
+     */
+    public Map<K, RuntimeException> resolverCadaUno(Collection<K> ids, Executor executor) {
+        List<K> pendientes = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(id -> !resultados.containsKey(id))
+                .toList();
+
+        Map<K, RuntimeException> errores = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] tareas = pendientes.stream()
+                .map(id -> CompletableFuture.runAsync(TokenContext.propagar(() -> {
+                    try {
+                        consultar(id);
+                    } catch (RuntimeException e) {
+                        errores.put(id, e);
+                    }
+                }), executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tareas).join();
+        return errores;
+    }
+
+    public V obtener(K id) {
+        if (id == null) {
+            return null;
+        }
+        V valor = resultados.get(id);
+        return valor != null ? valor : consultar(id);
+    }
+
+    public String getDependencia() {
+        return dependencia;
+    }
+
+    public int getLlamadas() {
+        return llamadas.get();
+    }
+
+    private V consultar(K id) {
+        llamadas.incrementAndGet();
+        V valor = consulta.apply(id);
+        if (valor != null) {
+            resultados.put(id, valor);
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,100 @@
+package com.app.inventario.Config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventarioDuplicadosMigracionTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:duplicados;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void fusionarDuplicados_deberiaSumarEnElRegistroMasAntiguoYMoverLasReservas() {
+        // Arrange: esquema previo a la restricción, con dos pares repetidos
+        crearTablas();
+        LocalDateTime antes = LocalDateTime.of(2025, 1, 1, 10, 0);
+        insertar(1L, 10L, 100L, 5, 2, antes);
+        insertar(2L, 10L, 100L, 3, 4, antes.plusDays(2));
+        insertar(3L, 10L, 100L, 1, null, antes.plusDays(1));
+        insertar(4L, 20L, 100L, 7, 1, antes);
+        insertar(5L, 20L, 200L, 2, 1, antes);
+        insertar(6L, 20L, 200L, 0, 1, antes);
+        jdbcTemplate.update("INSERT INTO reservas_stock_lineas (id_reserva, id_inventario, cantidad) VALUES ('r1', 2, 1)");
+        jdbcTemplate.update("INSERT INTO reservas_stock_lineas (id_reserva, id_inventario, cantidad) VALUES ('r1', 4, 1)");
+
+        // Act
+        new InventarioDuplicadosMigracion(dataSource).fusionarDuplicados();
+
+        // Assert
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+                "SELECT id_inventario, cantidad, stock_minimo, ultima_actualizacion FROM inventario ORDER BY id_inventario");
+        assertEquals(List.of(1L, 4L, 5L), filas.stream().map(f -> ((Number) f.get("id_inventario")).longValue()).toList());
+        assertEquals(9, ((Number) filas.get(0).get("cantidad")).intValue());
+        assertEquals(4, ((Number) filas.get(0).get("stock_minimo")).intValue());
+        assertEquals(antes.plusDays(2), ((Timestamp) filas.get(0).get("ultima_actualizacion")).toLocalDateTime());
+        assertEquals(2, ((Number) filas.get(2).get("cantidad")).intValue());
+        assertEquals(List.of(1L, 4L), jdbcTemplate.queryForList(
+                "SELECT id_inventario FROM reservas_stock_lineas ORDER BY id_inventario", Long.class));
+        // Con los duplicados fusionados la restricción que agrega Hibernate ya no falla
+        assertDoesNotThrow(() -> jdbcTemplate.execute("ALTER TABLE inventario ADD CONSTRAINT " +
+                "uk_inventario_sucursal_producto UNIQUE (id_sucursal, id_producto)"));
+    }
+
+    @Test
+    void fusionarDuplicados_sinTablaTodavia_noDeberiaHacerNada() {
+        assertDoesNotThrow(() -> new InventarioDuplicadosMigracion(dataSource).fusionarDuplicados());
+    }
+
+    @Test
+    void fusionarDuplicados_sinTablaDeReservas_deberiaFusionarIgual() {
+        // Arrange
+        jdbcTemplate.execute("CREATE TABLE inventario (id_inventario BIGINT PRIMARY KEY, id_producto BIGINT NOT NULL, " +
+                "id_sucursal BIGINT NOT NULL, cantidad INT NOT NULL, stock_minimo INT, ultima_actualizacion TIMESTAMP)");
+        insertar(1L, 10L, 100L, 5, 1, null);
+        insertar(2L, 10L, 100L, 3, 1, null);
+
+        // Act
+        new InventarioDuplicadosMigracion(dataSource).fusionarDuplicados();
+
+        // Assert
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT cantidad FROM inventario WHERE id_inventario = 1", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventario", Integer.class));
+    }
+
+    private void crearTablas() {
+        jdbcTemplate.execute("CREATE TABLE inventario (id_inventario BIGINT PRIMARY KEY, id_producto BIGINT NOT NULL, " +
+                "id_sucursal BIGINT NOT NULL, cantidad INT NOT NULL, stock_minimo INT, ultima_actualizacion TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE reservas_stock_lineas (id_reserva VARCHAR(36) NOT NULL, " +
+                "id_inventario BIGINT NOT NULL, cantidad INT NOT NULL)");
+    }
+
+    private void insertar(Long id, Long sucursalId, Long productoId, int cantidad, Integer stockMinimo,
+                          LocalDateTime ultimaActualizacion) {
+        jdbcTemplate.update("INSERT INTO inventario (id_inventario, id_sucursal, id_producto, cantidad, stock_minimo, " +
+                "ultima_actualizacion) VALUES (?, ?, ?, ?, ?, ?)", id, sucursalId, productoId, cantidad, stockMinimo,
+                ultimaActualizacion);
+    }
+}
@@ -2,16 +2,23 @@ package com.app.inventario;
 
 import com.app.inventario.Dto.*;
 import com.app.inventario.Models.Inventario;
+import com.app.inventario.Models.ReservaStock;
 import com.app.inventario.Repository.InventarioRepository;
+import com.app.inventario.Repository.ReservaStockRepository;
 import com.app.inventario.Service.InventarioService;
+import com.app.inventario.Service.TransferenciaStockService;
 import com.app.inventario.shared.MicroserviceClient;
+import com.app.inventario.shared.RemoteCallMetrics;
 import com.app.inventario.shared.TokenContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.app.dto.ServiceResult;
+import org.app.resilience.RemoteLookupExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
@@ -20,7 +27,9 @@ import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -35,6 +44,18 @@ class InventarioServiceTest {
     @Mock
     private MicroserviceClient microserviceClient;
 
+    @Spy
+    private RemoteLookupExecutor remoteLookupExecutor = new RemoteLookupExecutor(4, false, TokenContext::propagar);
+
+    @Spy
+    private RemoteCallMetrics remoteCallMetrics = new RemoteCallMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private TransferenciaStockService transferenciaStockService;
+
+    @Mock
+    private ReservaStockRepository reservaStockRepository;
+
     @InjectMocks
     private InventarioService inventarioService;
     @Value("${auth.url.provMicro}")
@@ -203,11 +224,12 @@ class InventarioServiceTest {
         Long productoId = 1L;
         Integer cantidad = 5;
 
+        // Filas tal como quedan después de mover 5 unidades: 10 - 5 en origen y 3 + 5 en destino
         Inventario inventarioOrigen = Inventario.builder()
                 .id(1L)
                 .productoId(productoId)
                 .sucursalId(origenId)
-                .cantidad(10)
+                .cantidad(5)
                 .stockMinimo(2)
                 .build();
 
@@ -215,7 +237,7 @@ class InventarioServiceTest {
                 .id(2L)
                 .productoId(productoId)
                 .sucursalId(destinoId)
-                .cantidad(3)
+                .cantidad(8)
                 .stockMinimo(2)
                 .build();
 
@@ -223,11 +245,8 @@ class InventarioServiceTest {
         SucursalResponse sucursalOrigenResponse = new SucursalResponse();
         SucursalResponse sucursalDestinoResponse = new SucursalResponse();
 
-        when(inventarioRepository.findByProductoIdAndSucursalId(productoId, origenId))
-                .thenReturn(Optional.of(inventarioOrigen));
-        when(inventarioRepository.findByProductoIdAndSucursalId(productoId, destinoId))
-                .thenReturn(Optional.of(inventarioDestino));
-        when(inventarioRepository.save(any(Inventario.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transferenciaStockService.transferir(origenId, destinoId, Map.of(productoId, cantidad)))
+                .thenReturn(List.of(new TransferenciaStockService.Movimiento(inventarioOrigen, inventarioDestino, cantidad)));
 
         when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN)))
                 .thenReturn(new ResponseEntity<>(productoResponse, HttpStatus.OK));
@@ -243,11 +262,15 @@ class InventarioServiceTest {
 // Assert
         assertNotNull(result);
         assertEquals(inventarioDestino.getId(), result.getId());
-        assertEquals(5, inventarioOrigen.getCantidad()); // 10 - 5 = 5
-        assertEquals(8, inventarioDestino.getCantidad()); // 3 + 5 = 8
+        assertEquals(8, result.getCantidad());
         assertNotNull(result.getTransferencia());
         assertEquals(sucursalOrigenResponse, result.getTransferencia().getOrigen());
         assertEquals(cantidad, result.getTransferencia().getCantidadTransferida());
+        assertEquals(sucursalDestinoResponse, result.getSucursal());
+        verify(microserviceClient, times(1))
+                .enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN));
+        verify(microserviceClient, times(1)).enviarConToken(contains("/sucursales/" + origenId), any(), any(), any(), any());
+        verify(microserviceClient, times(1)).enviarConToken(contains("/sucursales/" + destinoId), any(), any(), any(), any());
     }
 
     @Test
@@ -374,4 +397,255 @@ class InventarioServiceTest {
         assertTrue(result.stream().anyMatch(r -> r.getCantidad() == 1));
         assertTrue(result.stream().anyMatch(r -> r.getCantidad() == 0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerInventariosPorIds_DeberiaConsultarCadaProductoYSucursalUnaVez() {
+        // Arrange
+        Inventario inventario1 = Inventario.builder()
+                .id(1L)
+                .productoId(7L)
+                .sucursalId(1L)
+                .cantidad(3)
+                .stockMinimo(1)
+                .build();
+
+        Inventario inventario2 = Inventario.builder()
+                .id(2L)
+                .productoId(7L)
+                .sucursalId(1L)
+                .cantidad(5)
+                .stockMinimo(1)
+                .build();
+
+        Inventario inventario3 = Inventario.builder()
+                .id(3L)
+                .productoId(8L)
+                .sucursalId(1L)
+                .cantidad(0)
+                .stockMinimo(1)
+                .build();
+
+        when(inventarioRepository.findAllById(any())).thenReturn(List.of(inventario1, inventario2, inventario3));
+        when(microserviceClient.enviarConToken(contains("/productos/get/"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new ProductoResponse(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/sucursales/"), eq(HttpMethod.GET), isNull(), eq(SucursalResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new SucursalResponse(), HttpStatus.OK));
+
+        // Act
+        ServiceResult<InventarioBatchResponse> result = inventarioService.obtenerInventariosPorIds(List.of(1L, 2L, 3L, 2L));
+
+        // Assert
+        assertFalse(result.hasErrors());
+        assertEquals(List.of(1L, 2L, 3L), result.getData().getResultados().stream()
+                .map(InventarioBatchResponse.Resultado::getId).toList());
+        assertTrue(result.getData().getResultados().stream()
+                .allMatch(r -> r.getEstado() == InventarioBatchResponse.Estado.ENCONTRADO));
+        verify(inventarioRepository, times(1)).findAllById(any());
+        verify(microserviceClient, times(2))
+                .enviarConToken(contains("/productos/get/"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN));
+        verify(microserviceClient, times(1))
+                .enviarConToken(contains("/sucursales/"), eq(HttpMethod.GET), isNull(), eq(SucursalResponse.class), eq(TEST_TOKEN));
+    }
+
+    @Test
+    void obtenerInventariosPorIds_FalloDeUnProducto_SoloMarcaEsosIds() {
+        // Arrange
+        Inventario conProducto = Inventario.builder().id(1L).productoId(7L).sucursalId(1L).cantidad(3).build();
+        Inventario productoCaido = Inventario.builder().id(2L).productoId(8L).sucursalId(1L).cantidad(5).build();
+
+        when(inventarioRepository.findAllById(any())).thenReturn(List.of(conProducto, productoCaido));
+        when(microserviceClient.enviarConToken(endsWith("/productos/get/7"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new ProductoResponse(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(endsWith("/productos/get/8"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN)))
+                .thenThrow(new RuntimeException("Error al obtener producto"));
+        when(microserviceClient.enviarConToken(contains("/sucursales/"), eq(HttpMethod.GET), isNull(), eq(SucursalResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new SucursalResponse(), HttpStatus.OK));
+
+        // Act
+        ServiceResult<InventarioBatchResponse> result = inventarioService.obtenerInventariosPorIds(List.of(1L, 2L, 9L));
+
+        // Assert
+        List<InventarioBatchResponse.Resultado> resultados = result.getData().getResultados();
+        assertEquals(InventarioBatchResponse.Estado.ENCONTRADO, resultados.get(0).getEstado());
+        assertNotNull(resultados.get(0).getInventario());
+        assertEquals(InventarioBatchResponse.Estado.ERROR, resultados.get(1).getEstado());
+        assertEquals("Error al obtener producto", resultados.get(1).getError());
+        assertEquals(InventarioBatchResponse.Estado.NO_ENCONTRADO, resultados.get(2).getEstado());
+    }
+
+    @Test
+    void obtenerInventariosPorIds_MasDelMaximo_DeberiaRechazarSinConsultar() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, InventarioService.MAX_IDS_LOTE + 1).boxed().toList();
+
+        // Act
+        ServiceResult<InventarioBatchResponse> result = inventarioService.obtenerInventariosPorIds(ids);
+
+        // Assert
+        assertTrue(result.hasErrors());
+        assertEquals("No se pueden consultar más de 100 inventarios por llamada", result.getErrors().get(0));
+        verifyNoInteractions(inventarioRepository, microserviceClient);
+    }
+
+    @Test
+    void obtenerInventariosPorIds_SinIds_DeberiaRetornarListaVacia() {
+        // Act
+        ServiceResult<InventarioBatchResponse> result = inventarioService.obtenerInventariosPorIds(List.of());
+
+        // Assert
+        assertTrue(result.getData().getResultados().isEmpty());
+        verifyNoInteractions(inventarioRepository, microserviceClient);
+    }
+
+    @Test
+    void reservarStock_LineaSinStock_DeberiaRevertirLasDemas() {
+        // Arrange
+        ReservaStockRequest request = ReservaStockRequest.builder()
+                .lineas(List.of(
+                        ReservaStockRequest.Linea.builder().inventarioId(2L).cantidad(5).build(),
+                        ReservaStockRequest.Linea.builder().inventarioId(1L).cantidad(3).build(),
+                        ReservaStockRequest.Linea.builder().inventarioId(3L).cantidad(1).build()))
+                .build();
+
+        when(inventarioRepository.descontarStock(eq(1L), eq(3), any())).thenReturn(1);
+        when(inventarioRepository.descontarStock(eq(2L), eq(5), any())).thenReturn(0);
+        when(inventarioRepository.descontarStock(eq(3L), eq(1), any())).thenReturn(0);
+        when(inventarioRepository.existsById(2L)).thenReturn(true);
+        when(inventarioRepository.existsById(3L)).thenReturn(false);
+
+        // Act
+        ReservaStockResponse result = inventarioService.reservarStock(request);
+
+        // Assert
+        assertFalse(result.isCompleta());
+        assertEquals(ReservaStockResponse.EstadoLinea.STOCK_INSUFICIENTE, result.getLineas().get(0).getEstado());
+        assertEquals(ReservaStockResponse.EstadoLinea.REVERTIDA, result.getLineas().get(1).getEstado());
+        assertEquals(ReservaStockResponse.EstadoLinea.NO_ENCONTRADO, result.getLineas().get(2).getEstado());
+        verify(inventarioRepository).reponerStock(eq(1L), eq(3), any());
+        verify(inventarioRepository, never()).reponerStock(eq(2L), anyInt(), any());
+    }
+
+    @Test
+    void reservarStock_LineasRepetidas_DeberiaAgruparCantidades() {
+        // Arrange
+        ReservaStockRequest request = ReservaStockRequest.builder()
+                .lineas(List.of(
+                        ReservaStockRequest.Linea.builder().inventarioId(1L).cantidad(2).build(),
+                        ReservaStockRequest.Linea.builder().inventarioId(1L).cantidad(3).build()))
+                .build();
+
+        when(inventarioRepository.descontarStock(eq(1L), eq(5), any())).thenReturn(1);
+
+        // Act
+        ReservaStockResponse result = inventarioService.reservarStock(request);
+
+        // Assert
+        assertTrue(result.isCompleta());
+        assertNotNull(result.getReservaId());
+        assertTrue(result.getLineas().stream()
+                .allMatch(linea -> linea.getEstado() == ReservaStockResponse.EstadoLinea.RESERVADA));
+        verify(inventarioRepository, times(1)).descontarStock(any(), anyInt(), any());
+        verify(inventarioRepository, never()).reponerStock(any(), anyInt(), any());
+        verify(reservaStockRepository).save(argThat(reserva -> reserva.getId().equals(result.getReservaId())
+                && reserva.getLineas().equals(List.of(new ReservaStock.Linea(1L, 5)))));
+    }
+
+    @Test
+    void liberarStock_DeberiaReponerLasLineasDeLaReserva() {
+        // Arrange
+        ReservaStock reserva = ReservaStock.builder()
+                .id("reserva-1")
+                .lineas(List.of(new ReservaStock.Linea(2L, 1), new ReservaStock.Linea(1L, 4)))
+                .build();
+        when(reservaStockRepository.marcarLiberada(eq("reserva-1"), any())).thenReturn(1);
+        when(reservaStockRepository.findById("reserva-1")).thenReturn(Optional.of(reserva));
+
+        // Act
+        ServiceResult<Boolean> result = inventarioService.liberarStock("reserva-1");
+
+        // Assert
+        assertTrue(result.getData());
+        verify(inventarioRepository).reponerStock(eq(1L), eq(4), any());
+        verify(inventarioRepository).reponerStock(eq(2L), eq(1), any());
+    }
+
+    @Test
+    void liberarStock_YaLiberada_NoDeberiaReponerDeNuevo() {
+        // Arrange
+        when(reservaStockRepository.marcarLiberada(eq("reserva-1"), any())).thenReturn(0);
+        when(reservaStockRepository.existsById("reserva-1")).thenReturn(true);
+
+        // Act
+        ServiceResult<Boolean> result = inventarioService.liberarStock("reserva-1");
+
+        // Assert
+        assertFalse(result.hasErrors());
+        assertFalse(result.getData());
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void liberarStock_ReservaInexistente_DeberiaRetornarError() {
+        // Arrange
+        when(reservaStockRepository.marcarLiberada(eq("otra"), any())).thenReturn(0);
+        when(reservaStockRepository.existsById("otra")).thenReturn(false);
+
+        // Act
+        ServiceResult<Boolean> result = inventarioService.liberarStock("otra");
+
+        // Assert
+        assertEquals(List.of("Reserva no encontrada"), result.getErrors());
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void reservarStock_CantidadInvalida_NoDeberiaDescontarNada() {
+        // Arrange
+        ReservaStockRequest request = ReservaStockRequest.builder()
+                .lineas(List.of(
+                        ReservaStockRequest.Linea.builder().inventarioId(1L).cantidad(2).build(),
+                        ReservaStockRequest.Linea.builder().inventarioId(2L).cantidad(0).build()))
+                .build();
+
+        // Act
+        ReservaStockResponse result = inventarioService.reservarStock(request);
+
+        // Assert
+        assertFalse(result.isCompleta());
+        assertEquals(ReservaStockResponse.EstadoLinea.REVERTIDA, result.getLineas().get(0).getEstado());
+        assertEquals(ReservaStockResponse.EstadoLinea.CANTIDAD_INVALIDA, result.getLineas().get(1).getEstado());
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void obtenerInventarioPorSucursal_DeberiaConsultarCadaProductoUnaVezYRegistrarMetrica() {
+        // Arrange
+        Long sucursalId = 1L;
+        List<Inventario> inventarios = LongStream.rangeClosed(1, 6)
+                .mapToObj(i -> Inventario.builder()
+                        .id(i)
+                        .productoId(i % 2 == 0 ? 10L : 20L)
+                        .sucursalId(sucursalId)
+                        .cantidad((int) i)
+                        .stockMinimo(1)
+                        .build())
+                .toList();
+
+        when(inventarioRepository.findBySucursalId(sucursalId)).thenReturn(inventarios);
+        when(microserviceClient.enviarConToken(contains("/productos/get/"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new ProductoResponse(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/sucursales/"), eq(HttpMethod.GET), isNull(), eq(SucursalResponse.class), eq(TEST_TOKEN)))
+                .thenReturn(new ResponseEntity<>(new SucursalResponse(), HttpStatus.OK));
+
+        // Act
+        List<InventarioResponse> result = inventarioService.obtenerInventarioPorSucursal(sucursalId);
+
+        // Assert
+        assertEquals(6, result.size());
+        assertTrue(result.stream().allMatch(r -> r.getProducto() != null));
+        verify(microserviceClient, times(2))
+                .enviarConToken(contains("/productos/get/"), eq(HttpMethod.GET), isNull(), eq(ProductoResponse.class), eq(TEST_TOKEN));
+        assertEquals(2.0, remoteCallMetrics.resumen("obtenerInventarioPorSucursal", "producto").totalAmount());
+        assertEquals(1.0, remoteCallMetrics.resumen("obtenerInventarioPorSucursal", "sucursal").totalAmount());
+    }
+}
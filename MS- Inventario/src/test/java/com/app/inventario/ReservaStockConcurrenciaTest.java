@@ -0,0 +1,215 @@
+package com.app.inventario;
+
+import com.app.inventario.Dto.ReservaStockRequest;
+import com.app.inventario.Dto.ReservaStockResponse;
+import com.app.inventario.Models.Inventario;
+import com.app.inventario.Repository.InventarioRepository;
+import com.app.inventario.Repository.ReservaStockRepository;
+import com.app.inventario.Service.InventarioService;
+import com.app.inventario.Service.TransferenciaStockService;
+import com.app.inventario.shared.MicroserviceClient;
+import com.app.inventario.shared.RemoteCallMetrics;
+import org.app.resilience.RemoteLookupExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés de reservarStock contra una base H2 real: muchos hilos compiten por las mismas
+ * filas y se comprueba que nunca se vende más de lo que hay.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservas;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({InventarioService.class, TransferenciaStockService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservaStockConcurrenciaTest {
+
+    private static final int HILOS = 64;
+
+    // (sucursal, producto) es única: cada fila de prueba usa su propio producto
+    private final AtomicLong productos = new AtomicLong();
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ReservaStockRepository reservaStockRepository;
+
+    @MockitoBean
+    private MicroserviceClient microserviceClient;
+
+    @MockitoBean
+    private RemoteLookupExecutor remoteLookupExecutor;
+
+    @MockitoBean
+    private RemoteCallMetrics remoteCallMetrics;
+
+    @AfterEach
+    void tearDown() {
+        reservaStockRepository.deleteAll();
+        inventarioRepository.deleteAll();
+    }
+
+    @Test
+    void reservarStock_ConcurrenciaSobreUnaFila_NoDebeSobrevender() throws Exception {
+        // Arrange
+        Long inventarioId = crearInventario(50);
+        int intentos = 400;
+
+        // Act
+        List<ReservaStockResponse> respuestas = ejecutarEnParalelo(intentos, i -> reserva(linea(inventarioId, 1)));
+
+        // Assert
+        long reservadas = respuestas.stream().filter(ReservaStockResponse::isCompleta).count();
+        assertEquals(50, reservadas);
+        assertEquals(0, cantidadActual(inventarioId));
+        assertTrue(respuestas.stream()
+                .filter(r -> !r.isCompleta())
+                .allMatch(r -> r.getLineas().get(0).getEstado() == ReservaStockResponse.EstadoLinea.STOCK_INSUFICIENTE));
+    }
+
+    @Test
+    void reservarStock_ConcurrenciaMultiLinea_DebeSerTodoONada() throws Exception {
+        // Arrange
+        int stockInicialA = 300;
+        int stockInicialB = 200;
+        Long a = crearInventario(stockInicialA);
+        Long b = crearInventario(stockInicialB);
+        int intentos = 1_000;
+
+        // Act: la mitad de las reservas lista las filas en orden inverso
+        List<ReservaStockResponse> respuestas = ejecutarEnParalelo(intentos, i -> i % 2 == 0
+                ? reserva(linea(a, 3), linea(b, 2))
+                : reserva(linea(b, 1), linea(a, 2), linea(b, 1)));
+
+        // Assert
+        int descontadoA = 0;
+        int descontadoB = 0;
+        for (int i = 0; i < respuestas.size(); i++) {
+            if (respuestas.get(i).isCompleta()) {
+                descontadoA += i % 2 == 0 ? 3 : 2;
+                descontadoB += 2;
+            }
+        }
+        int finalA = cantidadActual(a);
+        int finalB = cantidadActual(b);
+
+        assertTrue(finalA >= 0 && finalB >= 0, "El stock nunca debe quedar negativo");
+        assertEquals(stockInicialA - descontadoA, finalA);
+        assertEquals(stockInicialB - descontadoB, finalB);
+        // B se agota primero (2 unidades por reserva), así que no puede quedar ninguna reserva posible
+        assertTrue(finalB < 2, "Debieron reservarse todas las unidades alcanzables");
+    }
+
+    @Test
+    void liberarStock_DeberiaReponerLoReservadoUnaSolaVez() throws Exception {
+        // Arrange
+        Long inventarioId = crearInventario(10);
+        ReservaStockResponse reserva = inventarioService.reservarStock(reserva(linea(inventarioId, 4)));
+        assertTrue(reserva.isCompleta());
+        assertEquals(6, cantidadActual(inventarioId));
+
+        // Act: reintentos de la misma compensación llegando a la vez
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<Boolean>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < HILOS; i++) {
+                futuros.add(executor.submit(() -> {
+                    inicio.await();
+                    return inventarioService.liberarStock(reserva.getReservaId()).getData();
+                }));
+            }
+            inicio.countDown();
+            int liberaciones = 0;
+            for (Future<Boolean> futuro : futuros) {
+                liberaciones += futuro.get(60, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            // Assert
+            assertEquals(1, liberaciones);
+            assertEquals(10, cantidadActual(inventarioId));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<ReservaStockResponse> ejecutarEnParalelo(int intentos,
+                                                          java.util.function.IntFunction<ReservaStockRequest> requests)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger errores = new AtomicInteger();
+        try {
+            List<Future<ReservaStockResponse>> futuros = new ArrayList<>();
+            for (int i = 0; i < intentos; i++) {
+                ReservaStockRequest request = requests.apply(i);
+                futuros.add(executor.submit(() -> {
+                    inicio.await();
+                    try {
+                        return inventarioService.reservarStock(request);
+                    } catch (RuntimeException e) {
+                        errores.incrementAndGet();
+                        throw e;
+                    }
+                }));
+            }
+            inicio.countDown();
+
+            List<ReservaStockResponse> respuestas = new ArrayList<>();
+            for (Future<ReservaStockResponse> futuro : futuros) {
+                respuestas.add(futuro.get(60, TimeUnit.SECONDS));
+            }
+            assertEquals(0, errores.get(), "Ninguna reserva debe fallar con excepción (bloqueos mutuos, timeouts)");
+            return respuestas;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long crearInventario(int cantidad) {
+        return inventarioRepository.save(Inventario.builder()
+                .productoId(productos.incrementAndGet())
+                .sucursalId(1L)
+                .cantidad(cantidad)
+                .build()).getId();
+    }
+
+    private int cantidadActual(Long inventarioId) {
+        return inventarioRepository.findById(inventarioId).orElseThrow().getCantidad();
+    }
+
+    private static ReservaStockRequest.Linea linea(Long inventarioId, int cantidad) {
+        return ReservaStockRequest.Linea.builder().inventarioId(inventarioId).cantidad(cantidad).build();
+    }
+
+    private static ReservaStockRequest reserva(ReservaStockRequest.Linea... lineas) {
+        return ReservaStockRequest.builder().lineas(List.of(lineas)).build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.app.inventario;
+
+import com.app.inventario.Models.Inventario;
+import com.app.inventario.Repository.InventarioRepository;
+import com.app.inventario.Service.TransferenciaStockService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés de TransferenciaStockService contra una base H2 real: transferencias concurrentes
+ * sobre las mismas filas, en ambos sentidos, nunca deben sobregirar el origen, perder stock ni
+ * bloquearse mutuamente.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transferencias;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TransferenciaStockService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferenciaStockConcurrenciaTest {
+
+    private static final int HILOS = 32;
+    private static final String STOCK_INSUFICIENTE = "Stock insuficiente";
+
+    @Autowired
+    private TransferenciaStockService transferenciaStockService;
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @AfterEach
+    void tearDown() {
+        inventarioRepository.deleteAll();
+    }
+
+    @Test
+    void transferir_ConcurrenciaDesdeUnOrigen_NoDebeSobregirar() throws Exception {
+        // Arrange
+        crearInventario(1L, 10L, 50);
+        crearInventario(2L, 10L, 0);
+
+        // Act
+        List<Boolean> resultados = ejecutarEnParalelo(200, i -> Map.of(10L, 1), i -> 1L, i -> 2L);
+
+        // Assert
+        assertEquals(50, resultados.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, cantidadActual(1L, 10L));
+        assertEquals(50, cantidadActual(2L, 10L));
+    }
+
+    @Test
+    void transferir_LotesEnSentidosOpuestos_NoDebeBloquearseNiPerderStock() throws Exception {
+        // Arrange
+        for (long producto = 1; producto <= 4; producto++) {
+            crearInventario(1L, producto, 100);
+            crearInventario(2L, producto, 100);
+        }
+
+        // Act: las pares van de 1 a 2 y las impares de 2 a 1, con los productos listados en orden inverso
+        List<Boolean> resultados = ejecutarEnParalelo(600,
+                i -> i % 2 == 0 ? lote(1L, 3, 2L, 1, 4L, 2) : lote(4L, 1, 3L, 2, 1L, 3),
+                i -> i % 2 == 0 ? 1L : 2L,
+                i -> i % 2 == 0 ? 2L : 1L);
+
+        // Assert
+        for (long producto = 1; producto <= 4; producto++) {
+            int origen = cantidadActual(1L, producto);
+            int destino = cantidadActual(2L, producto);
+            assertTrue(origen >= 0 && destino >= 0, "El stock nunca debe quedar negativo");
+            assertEquals(200, origen + destino, "La transferencia no debe crear ni perder stock");
+        }
+        assertTrue(resultados.stream().anyMatch(Boolean::booleanValue));
+    }
+
+    @Test
+    void transferir_ConcurrenciaHaciaSucursalSinInventario_DebeCrearUnaSolaFila() throws Exception {
+        // Arrange
+        crearInventario(1L, 10L, 100);
+
+        // Act
+        List<Boolean> resultados = ejecutarEnParalelo(64, i -> Map.of(10L, 1), i -> 1L, i -> 3L);
+
+        // Assert
+        assertTrue(resultados.stream().allMatch(Boolean::booleanValue));
+        assertEquals(1, inventarioRepository.findBySucursalId(3L).size());
+        assertEquals(64, cantidadActual(3L, 10L));
+        assertEquals(36, cantidadActual(1L, 10L));
+    }
+
+    @Test
+    void transferir_LoteConUnProductoSinStock_NoDebeMoverNinguno() {
+        // Arrange
+        crearInventario(1L, 10L, 5);
+        crearInventario(1L, 11L, 1);
+
+        // Act
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> transferenciaStockService.transferir(1L, 2L, lote(10L, 5, 11L, 2)));
+
+        // Assert
+        assertTrue(error.getMessage().startsWith(STOCK_INSUFICIENTE));
+        assertEquals(5, cantidadActual(1L, 10L));
+        assertEquals(1, cantidadActual(1L, 11L));
+    }
+
+    private List<Boolean> ejecutarEnParalelo(int intentos,
+                                             IntFunction<Map<Long, Integer>> lotes,
+                                             IntFunction<Long> origenes,
+                                             IntFunction<Long> destinos) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futuros = new ArrayList<>();
+            for (int i = 0; i < intentos; i++) {
+                Map<Long, Integer> lote = lotes.apply(i);
+                Long origen = origenes.apply(i);
+                Long destino = destinos.apply(i);
+                futuros.add(executor.submit(() -> {
+                    inicio.await();
+                    try {
+                        transferenciaStockService.transferir(origen, destino, lote);
+                        return true;
+                    } catch (RuntimeException e) {
+                        // Cualquier otro error (bloqueo mutuo, timeout) hace fallar la prueba
+                        if (e.getMessage() == null || !e.getMessage().startsWith(STOCK_INSUFICIENTE)) {
+                            throw e;
+                        }
+                        return false;
+                    }
+                }));
+            }
+            inicio.countDown();
+
+            List<Boolean> resultados = new ArrayList<>();
+            for (Future<Boolean> futuro : futuros) {
+                resultados.add(futuro.get(60, TimeUnit.SECONDS));
+            }
+            return resultados;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void crearInventario(Long sucursalId, Long productoId, int cantidad) {
+        inventarioRepository.save(Inventario.builder()
+                .productoId(productoId)
+                .sucursalId(sucursalId)
+                .cantidad(cantidad)
+                .build());
+    }
+
+    private int cantidadActual(Long sucursalId, Long productoId) {
+        return inventarioRepository.findByProductoIdAndSucursalId(productoId, sucursalId).orElseThrow().getCantidad();
+    }
+
+    private static Map<Long, Integer> lote(Object... productoYCantidad) {
+        Map<Long, Integer> lote = new LinkedHashMap<>();
+        for (int i = 0; i < productoYCantidad.length; i += 2) {
+            lote.put((Long) productoYCantidad[i], (Integer) productoYCantidad[i + 1]);
+        }
+        return lote;
+    }
+}
@@ -0,0 +1,225 @@
+package com.app.inventario.benchmark;
+
+import com.app.inventario.MsInventarioApplication;
+import com.app.inventario.Models.Inventario;
+import com.app.inventario.Repository.InventarioRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de GET /api/inventario/{id} con hilos de plataforma y con hilos virtuales. Cada petición lee
+ * el inventario en H2 y consulta MS-Producto y MS-Sucursales, simulados con un servidor local que responde tras
+ * LATENCIA_MS; así casi todo el tiempo de la petición es espera de E/S, que es donde se nota el modelo de hilos.
+ * Para cada nivel de concurrencia se mide el rendimiento, la latencia y el máximo de peticiones atendidas a la
+ * vez, contado como llamadas simultáneas en el servidor simulado (cada petición tiene una sola en curso).
+ *
+ * El pool de conexiones salientes, el paralelismo de RemoteLookupExecutor y los bulkheads y timeouts de
+ * resiliencia se agrandan en ambos modos para que el límite medido sea el de los hilos y no el de
+ * http.client.maxPerRoute, inventario.remoto.paralelismo o resiliencia.defecto.maxConcurrentes. También se
+ * desactiva spring.jpa.open-in-view: con él cada petición retiene su conexión JDBC mientras espera a los otros
+ * servicios, y el pool de Hikari (10 por defecto) limita las peticiones en curso igual en los dos modos.
+ *
+ * Solo cubre MS-Inventario, y el servicio, el cliente de carga y las dependencias simuladas corren en el mismo
+ * proceso. Con un solo núcleo la corrida queda limitada por CPU y el servidor simulado deja de responder desde
+ * unas 200 peticiones simultáneas, así que no sirve para comparar los dos modos. Para una comparación útil hay
+ * que correrlo en una máquina con varios núcleos y, de preferencia, con las dependencias en otro equipo.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test. Argumentos opcionales:
+ * niveles de concurrencia separados por coma (por defecto 50,100,200,400,800,1600).
+ */
+public class HilosVirtualesCarga {
+
+    private static final long LATENCIA_MS = 100;
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(2);
+    private static final Duration MEDICION = Duration.ofSeconds(5);
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicInteger maximoEnCurso = new AtomicInteger();
+    private HttpServer dependencias;
+
+    public static void main(String[] args) throws Exception {
+        int[] niveles = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{50, 100, 200, 400, 800, 1600};
+        new HilosVirtualesCarga().ejecutar(niveles);
+    }
+
+    private void ejecutar(int[] niveles) throws Exception {
+        iniciarDependencias();
+        try {
+            List<String> filas = new ArrayList<>();
+            for (boolean virtuales : new boolean[]{false, true}) {
+                filas.addAll(medirModo(virtuales, niveles));
+            }
+            System.out.printf("%n%-11s %6s %10s %9s %9s %8s %13s%n",
+                    "modo", "conc", "req/s", "p50 ms", "p99 ms", "errores", "max en curso");
+            filas.forEach(System.out::println);
+        } finally {
+            dependencias.stop(0);
+        }
+    }
+
+    private List<String> medirModo(boolean virtuales, int[] niveles) throws Exception {
+        String urlDependencias = "http://localhost:" + dependencias.getAddress().getPort();
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MsInventarioApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtuales,
+                "--spring.datasource.url=jdbc:h2:mem:carga-" + virtuales + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.open-in-view=false",
+                "--auth.url.provMicro=" + urlDependencias,
+                "--auth.url.sucursalMicro=" + urlDependencias,
+                "--http.client.maxTotal=8000",
+                "--http.client.maxPerRoute=4000",
+                "--http.client.poolTimeoutMs=30000",
+                "--http.client.readTimeoutMs=30000",
+                "--inventario.remoto.paralelismo=8000",
+                "--resiliencia.defecto.maxConcurrentes=8000",
+                "--resiliencia.defecto.timeoutMs=30000",
+                "--resiliencia.defecto.llamadaLentaMs=30000",
+                "--logging.level.root=WARN");
+        try {
+            Long id = contexto.getBean(InventarioRepository.class)
+                    .save(Inventario.builder().productoId(1L).sucursalId(1L).cantidad(10).build())
+                    .getId();
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            URI url = URI.create("http://localhost:" + puerto + "/api/inventario/" + id);
+            String token = crearToken(contexto.getEnvironment().getProperty("auth.app.jwtSecret"));
+
+            List<String> filas = new ArrayList<>();
+            for (int concurrencia : niveles) {
+                filas.add(medirNivel(virtuales ? "virtual" : "plataforma", concurrencia, url, token));
+            }
+            return filas;
+        } finally {
+            contexto.close();
+        }
+    }
+
+    private String medirNivel(String modo, int concurrencia, URI url, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+        AtomicLong completadas = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        ConcurrentLinkedQueue<Long> latencias = new ConcurrentLinkedQueue<>();
+        long inicioMedicion = System.nanoTime() + CALENTAMIENTO.toNanos();
+        long fin = inicioMedicion + MEDICION.toNanos();
+
+        try (HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+             ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrencia; i++) {
+                clientes.submit(() -> {
+                    while (System.nanoTime() < fin) {
+                        long inicio = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = cliente.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        if (inicio >= inicioMedicion) {
+                            latencias.add(System.nanoTime() - inicio);
+                            (ok ? completadas : errores).incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            // El máximo se cuenta solo durante la medición, sin el arranque de las conexiones
+            Thread.sleep(CALENTAMIENTO.toMillis());
+            maximoEnCurso.set(enCurso.get());
+            clientes.shutdown();
+            clientes.awaitTermination(MEDICION.toSeconds() + 120, TimeUnit.SECONDS);
+        }
+
+        long[] ordenadas = latencias.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("%-11s %6d %10.0f %9.1f %9.1f %8d %13d",
+                modo,
+                concurrencia,
+                completadas.get() / (double) MEDICION.toSeconds(),
+                percentil(ordenadas, 0.50),
+                percentil(ordenadas, 0.99),
+                errores.get(),
+                maximoEnCurso.get());
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.floor(p * ordenadas.length))] / 1_000_000.0;
+    }
+
+    private void iniciarDependencias() throws IOException {
+        dependencias = HttpServer.create(new InetSocketAddress("localhost", 0), 8192);
+        dependencias.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        dependencias.createContext("/api/productos/get/", exchange -> responder(exchange,
+                "{\"id\":1,\"codigoSku\":\"SKU-1\",\"nombre\":\"Perfume\",\"precio\":19990.00}"));
+        dependencias.createContext("/api/sucursales/", exchange -> responder(exchange,
+                "{\"id\":1,\"nombre\":\"Casa matriz\",\"ciudad\":\"Santiago\",\"activa\":true}"));
+        dependencias.start();
+    }
+
+    private void responder(HttpExchange exchange, String json) throws IOException {
+        maximoEnCurso.accumulateAndGet(enCurso.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(LATENCIA_MS);
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            enCurso.decrementAndGet();
+        }
+    }
+
+    private static String crearToken(String secreto) {
+        return Jwts.builder()
+                .subject("carga")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secreto)), Jwts.SIG.HS256)
+                .compact();
+    }
+}
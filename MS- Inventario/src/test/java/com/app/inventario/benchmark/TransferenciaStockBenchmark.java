@@ -0,0 +1,149 @@
+package com.app.inventario.benchmark;
+
+import com.app.inventario.MsInventarioApplication;
+import com.app.inventario.Models.Inventario;
+import com.app.inventario.Repository.InventarioRepository;
+import com.app.inventario.Service.TransferenciaStockService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Rendimiento de TransferenciaStockService con transferencias concurrentes sobre H2. Dos sucursales con
+ * PRODUCTOS productos cada una; la mitad de los hilos transfiere de la 1 a la 2 y la otra mitad al revés,
+ * así que hay tanto esperas por bloqueo como riesgo de bloqueo mutuo si el orden no fuera determinista.
+ *
+ * Escenarios:
+ * - misma-fila: todas las transferencias mueven el mismo producto (peor caso de contención)
+ * - repartido: cada transferencia mueve un producto al azar
+ * - lote-10: cada transferencia mueve 10 productos al azar en una sola transacción
+ *
+ * Se informa transferencias/s, latencia y cuántas terminaron con error (debería ser 0: el stock inicial
+ * alcanza para toda la medición). Ejecutar con: mvn test-compile y luego el main de esta clase con el
+ * classpath de test. Argumentos opcionales: hilos separados por coma (por defecto 1,8,32,64).
+ */
+public class TransferenciaStockBenchmark {
+
+    private static final int PRODUCTOS = 200;
+    private static final int STOCK_INICIAL = 1_000_000;
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(2);
+    private static final Duration MEDICION = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        int[] niveles = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1, 8, 32, 64};
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(MsInventarioApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark-transferencias;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=80",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        try {
+            InventarioRepository repository = contexto.getBean(InventarioRepository.class);
+            TransferenciaStockService service = contexto.getBean(TransferenciaStockService.class);
+            List<Inventario> filas = new ArrayList<>();
+            for (long producto = 1; producto <= PRODUCTOS; producto++) {
+                for (long sucursal = 1; sucursal <= 2; sucursal++) {
+                    filas.add(Inventario.builder().productoId(producto).sucursalId(sucursal).cantidad(STOCK_INICIAL).build());
+                }
+            }
+            repository.saveAll(filas);
+
+            Map<String, IntFunction<Map<Long, Integer>>> escenarios = new LinkedHashMap<>();
+            escenarios.put("misma-fila", i -> Map.of(1L, 1));
+            escenarios.put("repartido", i -> Map.of(productoAlAzar(), 1));
+            escenarios.put("lote-10", i -> {
+                Map<Long, Integer> lote = new LinkedHashMap<>();
+                while (lote.size() < 10) {
+                    lote.put(productoAlAzar(), 1);
+                }
+                return lote;
+            });
+
+            System.out.printf("%n%-11s %6s %12s %9s %9s %8s%n", "escenario", "hilos", "transf/s", "p50 ms", "p99 ms", "errores");
+            for (Map.Entry<String, IntFunction<Map<Long, Integer>>> escenario : escenarios.entrySet()) {
+                for (int hilos : niveles) {
+                    System.out.println(medir(service, escenario.getKey(), hilos, escenario.getValue()));
+                }
+            }
+        } finally {
+            contexto.close();
+        }
+    }
+
+    private static String medir(TransferenciaStockService service, String escenario, int hilos,
+                                IntFunction<Map<Long, Integer>> lotes) throws InterruptedException {
+        AtomicLong completadas = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        ConcurrentLinkedQueue<Long> latencias = new ConcurrentLinkedQueue<>();
+        long inicioMedicion = System.nanoTime() + CALENTAMIENTO.toNanos();
+        long fin = inicioMedicion + MEDICION.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        for (int h = 0; h < hilos; h++) {
+            long origen = h % 2 == 0 ? 1L : 2L;
+            long destino = h % 2 == 0 ? 2L : 1L;
+            executor.submit(() -> {
+                int i = 0;
+                while (System.nanoTime() < fin) {
+                    Map<Long, Integer> lote = lotes.apply(i++);
+                    long inicio = System.nanoTime();
+                    boolean ok;
+                    try {
+                        service.transferir(origen, destino, lote);
+                        ok = true;
+                    } catch (RuntimeException e) {
+                        ok = false;
+                    }
+                    if (inicio >= inicioMedicion) {
+                        latencias.add(System.nanoTime() - inicio);
+                        (ok ? completadas : errores).incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(CALENTAMIENTO.toSeconds() + MEDICION.toSeconds() + 120, TimeUnit.SECONDS);
+
+        long[] ordenadas = latencias.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("%-11s %6d %12.0f %9.2f %9.2f %8d",
+                escenario,
+                hilos,
+                completadas.get() / (double) MEDICION.toSeconds(),
+                percentil(ordenadas, 0.50),
+                percentil(ordenadas, 0.99),
+                errores.get());
+    }
+
+    private static long productoAlAzar() {
+        return ThreadLocalRandom.current().nextLong(1, PRODUCTOS + 1);
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        return ordenadas[(int) Math.min(ordenadas.length - 1, Math.floor(p * ordenadas.length))] / 1_000_000.0;
+    }
+}
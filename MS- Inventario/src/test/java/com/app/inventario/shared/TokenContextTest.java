@@ -0,0 +1,60 @@
+package com.app.inventario.shared;
+
+import org.app.resilience.RemoteLookupExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenContextTest {
+
+    private RemoteLookupExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        TokenContext.clear();
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void propagar_conHilosVirtuales_deberiaLlevarElTokenALaConsulta() {
+        executor = new RemoteLookupExecutor(4, true, TokenContext::propagar);
+        TokenContext.setToken("token-peticion");
+
+        CompletableFuture<String> tarea = CompletableFuture.supplyAsync(() ->
+                (Thread.currentThread().isVirtual() ? "virtual:" : "plataforma:") + TokenContext.getToken(), executor);
+
+        assertEquals("virtual:token-peticion", tarea.join());
+        assertEquals("token-peticion", TokenContext.getToken());
+    }
+
+    @Test
+    void conToken_deberiaRestaurarElTokenAnterior() {
+        TokenContext.setToken("original");
+
+        String dentro = TokenContext.conToken("otro", TokenContext::getToken);
+
+        assertEquals("otro", dentro);
+        assertEquals("original", TokenContext.getToken());
+        TokenContext.clear();
+        TokenContext.conToken("temporal", () -> assertEquals("temporal", TokenContext.getToken()));
+        assertNull(TokenContext.getToken());
+    }
+
+    @Test
+    void resolver_conHilosVirtuales_deberiaConsultarConElTokenDeLaPeticion() {
+        executor = new RemoteLookupExecutor(4, true, TokenContext::propagar);
+        TokenContext.setToken("token-peticion");
+        RemoteLookup<Long, String> lookup = new RemoteLookup<>("producto", id -> id + ":" + TokenContext.getToken());
+
+        lookup.resolver(List.of(1L, 2L, 3L), executor);
+
+        assertEquals("2:token-peticion", lookup.obtener(2L));
+        assertEquals(3, lookup.getLlamadas());
+    }
+}
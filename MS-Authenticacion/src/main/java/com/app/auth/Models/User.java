@@ -35,6 +35,7 @@ public class User implements UserDetails {
             name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
+    @Builder.Default
     private Set<Role> roles = new HashSet<>();
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -49,8 +50,11 @@ public class User implements UserDetails {
 
     @LastModifiedDate
     private Timestamp updatedAt;
+    @Builder.Default
     private boolean enabled = true;
+    @Builder.Default
     private boolean locked = false;
+    @Builder.Default
     private int failedLoginAttempts = 0;
 
 
@@ -1,8 +1,9 @@
 package com.app.auth.config.jwt;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -59,12 +60,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private void authenticateUser(String token, HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         try {
-            String username = jwtUtils.getUsernameFromToken(token);
+            Claims claims = jwtUtils.parseClaims(token);
+            String username = claims.getSubject();
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
-                if (jwtUtils.isTokenValid(token, userDetails)) {
+                if (jwtUtils.isTokenValid(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
 
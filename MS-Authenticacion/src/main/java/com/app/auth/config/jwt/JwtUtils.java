@@ -3,12 +3,15 @@ package com.app.auth.config.jwt;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.SecretKey;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
@@ -30,6 +33,19 @@ public class JwtUtils {
     private String jwtRefreshMs;
     private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
 
+    // La clave y el parser son inmutables y thread-safe: se construyen una sola vez al iniciar
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
     public String getUsernameFromToken(String token) {
         return getClaims(token, Claims::getSubject);
     }
@@ -39,8 +55,7 @@ public class JwtUtils {
     }
 
     public Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
     }
 
     private String generateTokenFromUsername(HashMap<String, Object> extraClaims, UserDetails user) {
@@ -55,18 +70,22 @@ public class JwtUtils {
                 .subject(user.getUsername())
                 .issuedAt(issuedAt)
                 .expiration(expiration)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, Jwts.SIG.HS256)
                 .compact();
         return token;
     }
 
+    /**
+     * Verifica firma y expiración y devuelve los claims. Es el único parseo necesario por request:
+     * el resultado se reutiliza con {@link #isTokenValid(Claims, UserDetails)}.
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser.parseSignedClaims(token).getPayload();
+    }
+
     private Claims getAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parseClaims(token);
         } catch (Exception e) {
             logger.error("Error al validar token: " + e.getMessage());
             throw e;
@@ -83,13 +102,14 @@ public class JwtUtils {
     public boolean isTokenExpired(String token) {
         return getExpiration(token).before(new Date());
     }
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject())
+                && !claims.getExpiration().before(new Date());
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = parseClaims(token);
 
             final String username = claims.getSubject();
             final boolean isExpired = claims.getExpiration().before(new Date());
@@ -115,10 +135,7 @@ public class JwtUtils {
 
     public void validateToken(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
         } catch (ExpiredJwtException ex) {
             logger.warn("Token expirado: {}", ex.getMessage());
             throw ex;
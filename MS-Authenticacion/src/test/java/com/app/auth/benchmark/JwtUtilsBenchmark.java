@@ -0,0 +1,110 @@
+package com.app.auth.benchmark;
+
+import com.app.auth.config.jwt.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens/seg en los caminos de login (firma) y validación (filtro), comparando la clave y el parser
+ * precalculados de JwtUtils contra reconstruirlos en cada llamada como se hacía antes.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilsBenchmark {
+
+    static final String JWT_SECRET = "9ab67789df495410c1798fea3ccb00fb8816221312a10b4e00a874a7e4b46960cd8495067622053e6e6ad36addae12c4308921ad8ba01ab23ce2f5bfc1936691ce66bec658cca86526e52e6f337276e5900817fff24fbf04124c3d26a51b364966360da1b4b1eb0a6e6d99988fe21637cbbfb5b092e1ff2a894d658b422ff98ae57f16798286a1d3535052f4f81093a0a80dd3fcc2f6f3516d021f07f824ec809b5868bc439e578a4c82253c02abb0364412a3cc2a86845a91ad2a11285299a594c04815467df481d2a2a0af7f92a61456259ae79789ca4263ea83d017d85169464178dc34f044a2daafd5ad5e325dc7a55ce4cb7fdcfeba0c9c8d90f05a31e6";
+
+    private JwtUtils jwtUtils;
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", JWT_SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        user = User.withUsername("admin").password("x").build();
+        token = jwtUtils.getToken(user);
+        // La comparación solo vale si ambos caminos firman el mismo contenido
+        if (!parsearSinCache(loginSinCache()).keySet().equals(jwtUtils.parseClaims(token).keySet())) {
+            throw new IllegalStateException("loginSinCache no genera los mismos claims que JwtUtils.getToken");
+        }
+    }
+
+    private static SecretKey claveSinCache() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET));
+    }
+
+    private static Claims parsearSinCache(String token) {
+        return Jwts.parser()
+                .verifyWith(claveSinCache())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    // Mismo token que JwtUtils.getToken (claims extra issuedAt y expiration incluidos); solo cambia la clave
+    @Benchmark
+    public String loginSinCache() {
+        Date ahora = new Date();
+        Date expiracion = new Date(ahora.getTime() + 3_600_000);
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("issuedAt", ahora);
+        claims.put("expiration", expiracion);
+        return Jwts.builder()
+                .claims(claims)
+                .subject(user.getUsername())
+                .issuedAt(ahora)
+                .expiration(expiracion)
+                .signWith(claveSinCache(), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String loginConClaveCacheada() {
+        return jwtUtils.getToken(user);
+    }
+
+    // Camino anterior del filtro: getUsernameFromToken + isTokenValid, dos parseos con clave y parser nuevos
+    @Benchmark
+    public boolean validacionSinCache() {
+        String username = parsearSinCache(token).getSubject();
+        Claims claims = parsearSinCache(token);
+        return username.equals(claims.getSubject()) && !claims.getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean validacionUnSoloParseo() {
+        Claims claims = jwtUtils.parseClaims(token);
+        return jwtUtils.isTokenValid(claims, user);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
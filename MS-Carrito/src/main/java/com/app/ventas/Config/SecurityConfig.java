@@ -19,6 +19,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/auth/validate-token").permitAll()
                         .requestMatchers("/api/no-auth/**", "/swagger-ui.html",
                                 "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Solo la sincronización de MS-ResenasFeedBack, con su token de servicio
+                        .requestMatchers(HttpMethod.GET, "/api/carrito/compras-confirmadas")
+                        .hasAuthority("SCOPE_compras:leer")
+                        // Solo las entregas del outbox de MS-Pago, que confirman la compra ya cobrada
+                        .requestMatchers(HttpMethod.POST, "/api/carrito/*/confirmar")
+                        .hasAuthority("SCOPE_carritos:confirmar")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
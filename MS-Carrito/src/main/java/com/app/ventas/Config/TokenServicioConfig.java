@@ -0,0 +1,16 @@
+package com.app.ventas.Config;
+
+import org.app.auth.TokenServicio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TokenServicioConfig {
+    // confirmarCompra llega con el token de MS-Pago, que no sirve para MS-Inventario ni MS-cupones: la reserva
+    // de stock y el canje de cupón, y sus compensaciones, van con el token propio de MS-Carrito
+    @Bean
+    public TokenServicio tokenServicio(@Value("${auth.servicio.jwtSecret:}") String jwtSecret) {
+        return new TokenServicio(jwtSecret, "ms-carrito", "inventario:reservar cupones:canjear");
+    }
+}
@@ -12,6 +12,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
@@ -20,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -65,7 +67,7 @@ public class CarroController {
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).agregarProductos(request)).withSelfRel());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).obtenerCarrito(result.getData().getCarroId())).withRel("view-cart"));
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).aplicarCupon(result.getData().getCarroId(), "{codigoCupon}")).withRel("apply-coupon"));
-        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(result.getData().getCarroId())).withRel("confirm-purchase"));
+        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(result.getData().getCarroId(), null)).withRel("confirm-purchase"));
 
         return ResponseEntity.status(HttpStatus.CREATED).body(resource);
     }
@@ -108,7 +110,7 @@ public class CarroController {
         EntityModel<?> resource = EntityModel.of(result.getData());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).aplicarCupon(carroId, codigoCupon)).withSelfRel());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).obtenerCarrito(carroId)).withRel("view-cart"));
-        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId)).withRel("confirm-purchase"));
+        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId, null)).withRel("confirm-purchase"));
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).vaciarCarrito(carroId)).withRel("clear-cart"));
 
         return ResponseEntity.ok(resource);
@@ -170,7 +172,7 @@ public class CarroController {
                     EntityModel<CarroResponse> resource = EntityModel.of(carro);
                     resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).obtenerCarrito(carro.getCarroId())).withSelfRel());
                     resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).aplicarCupon(carro.getCarroId(), "{codigoCupon}")).withRel("apply-coupon"));
-                    resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carro.getCarroId())).withRel("confirm-purchase"));
+                    resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carro.getCarroId(), null)).withRel("confirm-purchase"));
                     return resource;
                 })
                 .collect(Collectors.toList());
@@ -212,7 +214,7 @@ public class CarroController {
         EntityModel<CarroResponse> resource = EntityModel.of(result.getData());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).obtenerCarrito(carroId)).withSelfRel());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).aplicarCupon(carroId, "{codigoCupon}")).withRel("apply-coupon"));
-        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId)).withRel("confirm-purchase"));
+        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId, null)).withRel("confirm-purchase"));
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).vaciarCarrito(carroId)).withRel("clear-cart"));
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).listarPorUsuario(result.getData().getUsuarioId())).withRel("user-carts"));
 
@@ -221,7 +223,8 @@ public class CarroController {
 
     @Operation(
             summary = "Confirmar compra",
-            description = "Finaliza la compra, actualiza el inventario y aplica descuentos por cupón",
+            description = "Finaliza la compra, actualiza el inventario y aplica descuentos por cupón. La invoca " +
+                    "MS-Pago al cobrar, con su token de servicio (scope carritos:confirmar)",
             operationId = "confirmarCompra"
     )
     @ApiResponses(value = {
@@ -235,29 +238,81 @@ public class CarroController {
                     description = "Error al confirmar la compra (inventario insuficiente, carrito vacío)",
                     content = @Content(schema = @Schema(implementation = ServiceResult.class))
             ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "El token no es el de MS-Pago con scope carritos:confirmar"
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Carrito no encontrado"
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "El carrito ya fue confirmado con otra clave",
+                    content = @Content(schema = @Schema(implementation = ServiceResult.class))
             )
     })
     @PostMapping("/{carroId}/confirmar")
     public ResponseEntity<?> confirmarCompra(
             @Parameter(description = "ID del carrito a confirmar", required = true)
-            @PathVariable Long carroId) {
+            @PathVariable Long carroId,
+            @Parameter(description = "Clave para reconocer reenvíos de la misma confirmación")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId, idempotencyKey);
 
         if (result.hasErrors()) {
             if (result.getErrors().contains("Carro no encontrado")) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
             }
+            if (result.getErrors().contains(CarroService.CARRO_YA_CONFIRMADO)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            }
             return ResponseEntity.badRequest().body(result);
         }
 
         EntityModel<CarroResponse> resource = EntityModel.of(result.getData());
-        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId)).withSelfRel());
+        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).confirmarCompra(carroId, null)).withSelfRel());
         resource.add(WebMvcLinkBuilder.linkTo(methodOn(CarroController.class).listarPorUsuario(result.getData().getUsuarioId())).withRel("user-carts"));
 
         return ResponseEntity.ok(resource);
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "Compras confirmadas",
+            description = "Productos de carros confirmados, una fila por línea en orden de id. Para el lote siguiente se envía en despuesDe el último detalleId recibido; desde limita a carros confirmados a partir de esa fecha. Requiere un token de servicio con alcance compras:leer",
+            operationId = "comprasConfirmadas"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote obtenido exitosamente",
+                    content = @Content(schema = @Schema(implementation = CompraConfirmadaDto.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Límite inválido",
+                    content = @Content(schema = @Schema(implementation = ServiceResult.class))
+            ),
+            @ApiResponse(
+                    responseCode = "403",
+                    description = "El token no es de servicio o no tiene el alcance compras:leer"
+            )
+    })
+    @GetMapping("/compras-confirmadas")
+    public ResponseEntity<?> obtenerComprasConfirmadas(
+            @Parameter(description = "Último detalleId recibido (0 para empezar)")
+            @RequestParam(defaultValue = "0") Long despuesDe,
+            @Parameter(description = "Solo carros confirmados desde esta fecha (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @Parameter(description = "Tamaño del lote (1 a 5000, por defecto 1000)")
+            @RequestParam(required = false) Integer limite) {
+
+        ServiceResult<List<CompraConfirmadaDto>> result = carroService.obtenerComprasConfirmadas(despuesDe, desde, limite);
+
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result);
+        }
+        return ResponseEntity.ok(result.getData());
+    }
+}
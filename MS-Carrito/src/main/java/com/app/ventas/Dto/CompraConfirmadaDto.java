@@ -0,0 +1,13 @@
+package com.app.ventas.Dto;
+import lombok.*;
+
+// Un producto comprado por un usuario en un carro confirmado
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompraConfirmadaDto {
+    private Long detalleId;
+    private Long usuarioId;
+    private Long productoId;
+}
@@ -0,0 +1,17 @@
+package com.app.ventas.Dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemptionDto {
+    private String redemptionId;
+    private Long couponId;
+    private String code;
+    private Long userId;
+    private boolean redeemed;
+    private String reason;
+}
@@ -0,0 +1,13 @@
+package com.app.ventas.Dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemptionRequest {
+    private String code;
+    private Long userId;
+}
@@ -0,0 +1,17 @@
+package com.app.ventas.Dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponSnapshotDto {
+    private long version;
+    private boolean full;
+    private List<CouponDto> coupons;
+    private List<Long> removedIds;
+}
@@ -0,0 +1,14 @@
+package com.app.ventas.Dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventarioBatchRequest {
+    private List<Long> ids;
+}
@@ -0,0 +1,33 @@
+package com.app.ventas.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventarioBatchResponse {
+    private List<Resultado> resultados;
+
+    public enum Estado {
+        ENCONTRADO,
+        NO_ENCONTRADO,
+        ERROR
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Resultado {
+        private Long id;
+        private Estado estado;
+        private InventarioDto inventario;
+        private String error;
+    }
+}
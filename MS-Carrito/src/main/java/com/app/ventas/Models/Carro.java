@@ -8,7 +8,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "carritos")
+@Table(name = "carritos", indexes = {
+        // Compras confirmadas por fecha: MS-ResenasFeedBack las sincroniza de forma incremental
+        @Index(name = "idx_carritos_estado_confirmacion", columnList = "estado, fecha_confirmacion")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -37,6 +40,14 @@ public class Carro {
     @Column
     private String codigoCupon;
 
+    // Idempotency-Key con la que se confirmó el carro; permite reconocer reenvíos de la misma confirmación
+    @Column(name = "clave_confirmacion", length = 100)
+    private String claveConfirmacion;
+
+    // Momento en que el carro pasó a COMPLETADO; null en carros confirmados antes de existir la columna
+    @Column(name = "fecha_confirmacion")
+    private LocalDateTime fechaConfirmacion;
+
     @Column(nullable = false)
     @Builder.Default
     private String estado = "ACTIVO"; // ACTIVO, VACIO, COMPLETADO, ABANDONADO
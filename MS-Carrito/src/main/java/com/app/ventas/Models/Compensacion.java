@@ -0,0 +1,55 @@
+package com.app.ventas.Models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reserva de stock o canje de cupón que una confirmación fallida no pudo devolver. Se guarda fuera de la
+ * transacción de la confirmación para que su rollback no la borre, y CompensacionService la reintenta hasta
+ * liberarla; liberar dos veces lo mismo no devuelve nada de más.
+ */
+@Entity
+@Table(name = "carritos_compensaciones", indexes = {
+        // El reintento recorre las pendientes por vencimiento
+        @Index(name = "idx_compensaciones_proximo_intento", columnList = "proximo_intento")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Compensacion {
+
+    public enum Tipo {
+        STOCK, // reservaId de MS-Inventario
+        CUPON  // redemptionId de MS-cupones
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "carro_id", nullable = false)
+    private Long carroId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Tipo tipo;
+
+    @Column(nullable = false, length = 100)
+    private String referencia;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+}
@@ -26,6 +26,10 @@ public class DetalleCarro {
     @Column(name = "producto_id", nullable = false)
     private Long productoId;
 
+    // Registro de inventario (producto en una sucursal) del que se descuenta el stock al confirmar
+    @Column(name = "inventario_id")
+    private Long inventarioId;
+
     // --- Datos de negocio ---
     @Column(nullable = false)
     private Integer cantidad;
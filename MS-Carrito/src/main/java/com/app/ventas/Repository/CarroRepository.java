@@ -1,10 +1,30 @@
 package com.app.ventas.Repository;
 
+import com.app.ventas.Dto.CompraConfirmadaDto;
 import com.app.ventas.Models.Carro;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface CarroRepository extends JpaRepository<Carro,Long> {
     List<Carro> findByUsuarioId(Long usuarioId);
+
+    // Bloquea el carro hasta el fin de la transacción: dos confirmaciones del mismo carro se atienden de a una
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Carro c WHERE c.id = :id")
+    Optional<Carro> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT new com.app.ventas.Dto.CompraConfirmadaDto(d.id, c.usuarioId, d.productoId) " +
+            "FROM DetalleCarro d JOIN d.carro c " +
+            "WHERE c.estado = 'COMPLETADO' AND d.id > :despuesDe " +
+            "AND (:desde IS NULL OR c.fechaConfirmacion >= :desde) ORDER BY d.id")
+    List<CompraConfirmadaDto> findComprasConfirmadas(@Param("despuesDe") Long despuesDe,
+                                                     @Param("desde") LocalDateTime desde, Limit limit);
 }
@@ -0,0 +1,12 @@
+package com.app.ventas.Repository;
+
+import com.app.ventas.Models.Compensacion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CompensacionRepository extends JpaRepository<Compensacion, Long> {
+    List<Compensacion> findByProximoIntentoLessThanEqualOrderByProximoIntento(LocalDateTime ahora, Limit limit);
+}
@@ -7,16 +7,23 @@ import com.app.ventas.Repository.CarroRepository;
 import com.app.ventas.shared.MicroserviceClient;
 import com.app.ventas.shared.TokenContext;
 import lombok.RequiredArgsConstructor;
+import org.app.auth.TokenServicio;
 import org.app.dto.ServiceResult;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,24 +32,105 @@ public class CarroService {
 
     private final CarroRepository carroRepository;
     private final MicroserviceClient microserviceClient;
+    private final CuponSnapshotService cuponSnapshotService;
+    private final TokenServicio tokenServicio;
+    private final CompensacionService compensacionService;
+
+    public static final String CARRO_YA_CONFIRMADO = "El carro ya fue confirmado";
+
+    private static final int LOTE_COMPRAS_DEFECTO = 1000;
+    private static final int LOTE_COMPRAS_MAXIMO = 5000;
+    // Tope de IDs que MS-Inventario acepta por llamada a /batch
+    private static final int LOTE_INVENTARIO_MAXIMO = 100;
+
+    // Métodos auxiliares para comunicación con otros microservicios. La reserva de stock y el canje de cupón
+    // solo se aceptan con el token de servicio de MS-Carrito
+    private ReservaStockResponse reservarStock(ReservaStockRequest request) {
+        String token = tokenServicio.obtener();
+        String url = "http://localhost:9017/api/inventario/reservar";
+        try {
+            ResponseEntity<ReservaStockResponse> response = microserviceClient.enviarConToken(
+                    url,
+                    HttpMethod.POST,
+                    request,
+                    ReservaStockResponse.class,
+                    token
+            );
+            return response.getBody();
+        } catch (HttpClientErrorException.Conflict e) {
+            // 409: la reserva no se aplicó y el cuerpo trae el estado de cada línea
+            return e.getResponseBodyAs(ReservaStockResponse.class);
+        }
+    }
+
+    private CouponRedemptionDto canjearCupon(String codigoCupon, Long usuarioId) {
+        String token = tokenServicio.obtener();
+        String url = "http://localhost:9022/api/coupons/redeem";
+        try {
+            ResponseEntity<CouponRedemptionDto> response = microserviceClient.enviarConToken(
+                    url,
+                    HttpMethod.POST,
+                    new CouponRedemptionRequest(codigoCupon, usuarioId),
+                    CouponRedemptionDto.class,
+                    token
+            );
+            return response.getBody();
+        } catch (HttpClientErrorException.Conflict e) {
+            // 409: el cupón no se canjeó y el cuerpo trae el motivo
+            return e.getResponseBodyAs(CouponRedemptionDto.class);
+        }
+    }
+
+    /**
+     * Consulta los registros de inventario en lotes de hasta LOTE_INVENTARIO_MAXIMO IDs. Si un lote falla
+     * entero, o MS-Inventario no pudo resolver algún ID, esos IDs se consultan de a uno; los que no existen
+     * o siguen fallando quedan fuera del mapa y solo su línea se informa como no disponible.
+     */
+    private Map<Long, InventarioDto> obtenerProductosInventario(List<Long> inventarioIds) {
+        Map<Long, InventarioDto> inventarios = new HashMap<>();
+        List<Long> porConsultar = new ArrayList<>();
+        for (int desde = 0; desde < inventarioIds.size(); desde += LOTE_INVENTARIO_MAXIMO) {
+            List<Long> lote = inventarioIds.subList(desde, Math.min(desde + LOTE_INVENTARIO_MAXIMO, inventarioIds.size()));
+            try {
+                for (InventarioBatchResponse.Resultado resultado : obtenerLoteInventario(lote)) {
+                    if (resultado.getEstado() == InventarioBatchResponse.Estado.ENCONTRADO && resultado.getInventario() != null) {
+                        inventarios.put(resultado.getId(), resultado.getInventario());
+                    } else if (resultado.getEstado() == InventarioBatchResponse.Estado.ERROR) {
+                        porConsultar.add(resultado.getId());
+                    }
+                }
+            } catch (Exception e) {
+                porConsultar.addAll(lote);
+            }
+        }
+
+        for (Long inventarioId : porConsultar) {
+            try {
+                inventarios.put(inventarioId, obtenerProductoInventario(inventarioId));
+            } catch (Exception e) {
+                // La línea se informa como no disponible
+            }
+        }
+        return inventarios;
+    }
 
-    // Métodos auxiliares para comunicación con otros microservicios
-    private InventarioResponse actualizarInventario(Long id, String accion) {
+    private List<InventarioBatchResponse.Resultado> obtenerLoteInventario(List<Long> inventarioIds) {
         String token = TokenContext.getToken();
-        String url = String.format("http://localhost:9017/api/inventario/%d/%s", id, accion);
-        ResponseEntity<InventarioResponse> response = microserviceClient.enviarConToken(
+        String url = "http://localhost:9017/api/inventario/batch";
+        ResponseEntity<InventarioBatchResponse> response = microserviceClient.enviarConToken(
                 url,
                 HttpMethod.POST,
-                null,
-                InventarioResponse.class,
+                new InventarioBatchRequest(inventarioIds),
+                InventarioBatchResponse.class,
                 token
         );
 
-        if (!response.getStatusCode().is2xxSuccessful()) {
-            throw new RuntimeException("Error al actualizar inventario");
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null
+                || response.getBody().getResultados() == null) {
+            throw new RuntimeException("Error al obtener productos de inventario");
         }
 
-        return response.getBody();
+        return response.getBody().getResultados();
     }
 
     private InventarioDto obtenerProductoInventario(Long inventarioId) {
@@ -56,36 +144,13 @@ public class CarroService {
                 token
         );
 
-        if (!response.getStatusCode().is2xxSuccessful()) {
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
             throw new RuntimeException("Error al obtener producto de inventario");
         }
 
         return response.getBody();
     }
 
-    private ServiceResult<CouponDto> validarCupon(String codigoCupon) {
-        String token = TokenContext.getToken();
-        String url = "http://localhost:9022/api/coupons/validate/" + codigoCupon;
-
-        try {
-            ResponseEntity<CouponDto> response = microserviceClient.enviarConToken(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    CouponDto.class,
-                    token
-            );
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                return new ServiceResult<>(List.of("Cupón no válido o expirado"));
-            }
-
-            return new ServiceResult<>(response.getBody());
-        } catch (Exception e) {
-            return new ServiceResult<>(List.of("Error al validar el cupón: " + e.getMessage()));
-        }
-    }
-
     private BigDecimal aplicarDescuento(BigDecimal total, CouponDto cupon) {
         if (cupon == null || !cupon.isValid()) {
             return total;
@@ -110,7 +175,7 @@ public class CarroService {
 
         // Validar cupón si viene en la solicitud
         if (request.getCodigoCupon() != null && !request.getCodigoCupon().isEmpty()) {
-            ServiceResult<CouponDto> resultadoCupon = validarCupon(request.getCodigoCupon());
+            ServiceResult<CouponDto> resultadoCupon = cuponSnapshotService.validarCupon(request.getCodigoCupon());
             if (resultadoCupon.hasErrors()) {
                 errores.addAll(resultadoCupon.getErrors());
             } else {
@@ -118,13 +183,19 @@ public class CarroService {
             }
         }
 
+        // Obtener todos los registros de inventario del carrito en una sola llamada
+        List<Long> inventarioIds = request.getDetalles().stream()
+                .map(CarroRequest.DetalleCarroRequest::getInventarioId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<Long, InventarioDto> inventarios = obtenerProductosInventario(inventarioIds);
+
         // Procesar cada producto del carrito
         for (CarroRequest.DetalleCarroRequest detalleReq : request.getDetalles()) {
-            InventarioDto producto;
+            InventarioDto producto = inventarios.get(detalleReq.getInventarioId());
 
-            try {
-                producto = obtenerProductoInventario(detalleReq.getInventarioId());
-            } catch (Exception e) {
+            if (producto == null) {
                 errores.add("Producto no disponible: " + detalleReq.getInventarioId());
                 continue;
             }
@@ -141,6 +212,7 @@ public class CarroService {
 
             DetalleCarro detalle = DetalleCarro.builder()
                     .productoId(producto.getProducto().getId())
+                    .inventarioId(detalleReq.getInventarioId())
                     .cantidad(detalleReq.getCantidad())
                     .precioUnitario(precio.doubleValue())
                     .subtotal(subtotalItem.doubleValue())
@@ -187,18 +259,18 @@ public class CarroService {
         List<String> errores = new ArrayList<>();
 
         // Validar el cupón
-        ServiceResult<CouponDto> resultadoCupon = validarCupon(codigoCupon);
+        ServiceResult<CouponDto> resultadoCupon = cuponSnapshotService.validarCupon(codigoCupon);
         if (resultadoCupon.hasErrors()) {
             return resultadoCupon;
         }
         CouponDto cupon = resultadoCupon.getData();
 
         // Obtener el carro
-        Carro carro = carroRepository.findById(carroId)
-                .orElseThrow(() -> {
-                    errores.add("Carro no encontrado");
-                    return new RuntimeException("Carro no encontrado");
-                });
+        Carro carro = carroRepository.findById(carroId).orElse(null);
+        if (carro == null) {
+            errores.add("Carro no encontrado");
+            return new ServiceResult<>(errores);
+        }
 
         // Validar estado del carro
         if ("COMPLETADO".equalsIgnoreCase(carro.getEstado())) {
@@ -256,7 +328,7 @@ public class CarroService {
             return new ServiceResult<>(errores);
         }
 
-        return new ServiceResult<>(null);
+        return new ServiceResult<>((Void) null);
     }
 
     @Transactional(readOnly = true)
@@ -284,40 +356,155 @@ public class CarroService {
 
     @Transactional
     public ServiceResult<CarroResponse> confirmarCompra(Long carroId) {
+        return confirmarCompra(carroId, null);
+    }
+
+    /**
+     * Confirma el carro. Con {@code claveIdempotencia} (la envía MS-Pago desde su outbox), repetir la
+     * confirmación con la misma clave devuelve el carro ya confirmado en lugar de un error, así el
+     * reenvío tras una respuesta perdida no reserva stock ni canjea el cupón otra vez.
+     *
+     * El carro se lee bloqueado y la clave se escribe antes de reservar stock o canjear el cupón: una
+     * segunda entrega que llega mientras la primera sigue en curso espera el bloqueo y luego encuentra el
+     * carro COMPLETADO. Si la confirmación falla, la transacción se revierte y la clave se descarta; la
+     * reserva y el canje ya hechos los devuelve CompensacionService, que reintenta lo que no pueda liberar.
+     *
+     * El bloqueo y la transacción siguen abiertos durante la reserva y el canje. Cada llamada está acotada por
+     * los tiempos de http.client (poolTimeoutMs + connectTimeoutMs + readTimeoutMs, 9 s con los valores por
+     * defecto), así que el caso peor, reserva y canje lentos seguidos de dos liberaciones, ronda los 36 s.
+     * Queda por debajo de innodb_lock_wait_timeout (50 s por defecto): una entrega repetida del mismo carro
+     * espera a la primera en vez de fallar, y las confirmaciones de otros carros no se ven afectadas.
+     */
+    @Transactional
+    public ServiceResult<CarroResponse> confirmarCompra(Long carroId, String claveIdempotencia) {
         List<String> errores = new ArrayList<>();
-        Carro carro = carroRepository.findById(carroId).orElse(null);
+        Carro carro = carroRepository.findByIdForUpdate(carroId).orElse(null);
 
         if (carro == null) {
             errores.add("Carro no encontrado");
             return new ServiceResult<>(errores);
         }
 
+        if ("COMPLETADO".equals(carro.getEstado())) {
+            if (claveIdempotencia != null && claveIdempotencia.equals(carro.getClaveConfirmacion())) {
+                return new ServiceResult<>(mapearCarroAResponse(carro));
+            }
+            errores.add(CARRO_YA_CONFIRMADO);
+            return new ServiceResult<>(errores);
+        }
+
         // Validar que el carro tenga productos
         if (carro.getDetalles().isEmpty()) {
             errores.add("No se puede confirmar un carro vacío");
             return new ServiceResult<>(errores);
         }
 
-        // Actualizar inventario para cada producto
+        carro.setClaveConfirmacion(claveIdempotencia);
+        carroRepository.saveAndFlush(carro);
+
+        // Reservar el stock de todas las líneas en una sola llamada (todo o nada)
+        Map<Long, DetalleCarro> detallesPorInventario = new HashMap<>();
+        List<ReservaStockRequest.Linea> lineas = new ArrayList<>();
         for (DetalleCarro detalle : carro.getDetalles()) {
-            try {
-                actualizarInventario(detalle.getProductoId(), "vender");
-            } catch (Exception e) {
-                errores.add("Error al confirmar producto: " + detalle.getProductoId());
+            // Carros antiguos no guardaban el inventario; se mantiene el ID usado hasta ahora
+            Long inventarioId = detalle.getInventarioId() != null ? detalle.getInventarioId() : detalle.getProductoId();
+            detallesPorInventario.put(inventarioId, detalle);
+            lineas.add(ReservaStockRequest.Linea.builder()
+                    .inventarioId(inventarioId)
+                    .cantidad(detalle.getCantidad())
+                    .build());
+        }
+
+        ReservaStockRequest reservaRequest = new ReservaStockRequest(lineas);
+        ReservaStockResponse reserva;
+        try {
+            reserva = reservarStock(reservaRequest);
+        } catch (Exception e) {
+            errores.add("Error al reservar stock: " + e.getMessage());
+            return descartarConfirmacion(errores);
+        }
+
+        if (reserva == null) {
+            errores.add("No se pudo reservar el stock del carro");
+            return descartarConfirmacion(errores);
+        }
+
+        if (!reserva.isCompleta()) {
+            for (ReservaStockResponse.LineaResultado linea : reserva.getLineas()) {
+                DetalleCarro detalle = detallesPorInventario.get(linea.getInventarioId());
+                Long productoId = detalle != null ? detalle.getProductoId() : linea.getInventarioId();
+                switch (linea.getEstado()) {
+                    case STOCK_INSUFICIENTE -> errores.add("Stock insuficiente para producto: " + productoId);
+                    case NO_ENCONTRADO -> errores.add("Producto no disponible: " + productoId);
+                    case CANTIDAD_INVALIDA -> errores.add("Cantidad inválida para producto: " + productoId);
+                    default -> {
+                    }
+                }
+            }
+            if (errores.isEmpty()) {
+                errores.add("No se pudo reservar el stock del carro");
             }
+            return descartarConfirmacion(errores);
         }
 
-        if (!errores.isEmpty()) {
-            return new ServiceResult<>(errores);
+        // Canjear el cupón: es aquí donde se controla su límite de usos
+        String canjeId = null;
+        if (carro.getCodigoCupon() != null && !carro.getCodigoCupon().isEmpty()) {
+            CouponRedemptionDto canje;
+            try {
+                canje = canjearCupon(carro.getCodigoCupon(), carro.getUsuarioId());
+            } catch (Exception e) {
+                compensacionService.compensar(carroId, reserva.getReservaId(), null);
+                errores.add("Error al canjear el cupón: " + e.getMessage());
+                return descartarConfirmacion(errores);
+            }
+            if (canje == null || !canje.isRedeemed()) {
+                compensacionService.compensar(carroId, reserva.getReservaId(), null);
+                errores.add(canje != null && canje.getReason() != null ? canje.getReason() : "No se pudo canjear el cupón");
+                return descartarConfirmacion(errores);
+            }
+            canjeId = canje.getRedemptionId();
         }
 
         // Marcar carro como completado
         carro.setEstado("COMPLETADO");
-        carro = carroRepository.save(carro);
+        carro.setFechaConfirmacion(LocalDateTime.now());
+        try {
+            carro = carroRepository.saveAndFlush(carro);
+        } catch (Exception e) {
+            // Acción compensatoria: devolver el stock reservado y el canje del cupón
+            compensacionService.compensar(carroId, reserva.getReservaId(), canjeId);
+            errores.add("Error al guardar el carro: " + e.getMessage());
+            return descartarConfirmacion(errores);
+        }
 
         return new ServiceResult<>(mapearCarroAResponse(carro));
     }
 
+    // La confirmación no se completó: se revierte la transacción para no dejar la clave guardada
+    private ServiceResult<CarroResponse> descartarConfirmacion(List<String> errores) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        return new ServiceResult<>(errores);
+    }
+
+    /**
+     * Productos de carros confirmados, una fila por línea y en orden de id de línea. Se recorre pasando
+     * en {@code despuesDe} el último id recibido. Con {@code desde} solo entran los carros confirmados
+     * desde esa fecha, para sincronizaciones incrementales.
+     */
+    public ServiceResult<List<CompraConfirmadaDto>> obtenerComprasConfirmadas(Long despuesDe, LocalDateTime desde, Integer limite) {
+        List<String> errores = new ArrayList<>();
+        int maximo = limite != null ? limite : LOTE_COMPRAS_DEFECTO;
+        if (maximo < 1 || maximo > LOTE_COMPRAS_MAXIMO) {
+            errores.add("El límite debe estar entre 1 y " + LOTE_COMPRAS_MAXIMO);
+            return new ServiceResult<>(errores);
+        }
+        long ultimo = despuesDe != null ? despuesDe : 0L;
+        return new ServiceResult<>(carroRepository.findComprasConfirmadas(ultimo, desde, Limit.of(maximo)));
+    }
+
     private CarroResponse mapearCarroAResponse(Carro carro) {
         List<CarroResponse.DetalleResponse> detalles = carro.getDetalles().stream()
                 .map(d -> CarroResponse.DetalleResponse.builder()
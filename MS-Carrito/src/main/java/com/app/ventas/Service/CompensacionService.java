@@ -0,0 +1,148 @@
+package com.app.ventas.Service;
+
+import com.app.ventas.Models.Compensacion;
+import com.app.ventas.Repository.CompensacionRepository;
+import com.app.ventas.shared.MicroserviceClient;
+import org.app.auth.TokenServicio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Devuelve la reserva de stock y el canje de cupón de una confirmación que no se completó. Cada liberación
+ * se intenta por separado, así que un fallo de MS-Inventario no impide devolver el cupón. Lo que falla queda
+ * en carritos_compensaciones, escrito en su propia transacción porque la de la confirmación se revierte, y
+ * se reintenta cada reintentoMs con espera exponencial hasta maxBackoffMs. Liberar dos veces la misma
+ * reserva o el mismo canje no devuelve nada de más, así que varias instancias pueden reintentar la misma
+ * fila sin riesgo. Un 404 significa que no hay nada que liberar y la fila se descarta.
+ */
+@Service
+public class CompensacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompensacionService.class);
+    private static final String INVENTARIO_URL = "http://localhost:9017/api/inventario/reservas/";
+    private static final String CUPONES_URL = "http://localhost:9022/api/coupons/redemptions/";
+    private static final int LARGO_ERROR = 500;
+
+    private final CompensacionRepository compensacionRepository;
+    private final MicroserviceClient microserviceClient;
+    private final TokenServicio tokenServicio;
+    private final TransactionTemplate transaccionPropia;
+    private final int lote;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    public CompensacionService(CompensacionRepository compensacionRepository,
+                               MicroserviceClient microserviceClient,
+                               TokenServicio tokenServicio,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${carrito.compensaciones.lote:100}") int lote,
+                               @Value("${carrito.compensaciones.backoffMs:60000}") long backoffMs,
+                               @Value("${carrito.compensaciones.maxBackoffMs:3600000}") long maxBackoffMs) {
+        this.compensacionRepository = compensacionRepository;
+        this.microserviceClient = microserviceClient;
+        this.tokenServicio = tokenServicio;
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lote = lote;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    /**
+     * Libera la reserva y el canje (cualquiera puede ser null). No lanza excepciones: lo que no se pudo
+     * liberar queda registrado para reintentarse.
+     */
+    public void compensar(Long carroId, String reservaId, String canjeId) {
+        if (reservaId != null) {
+            intentar(carroId, Compensacion.Tipo.STOCK, reservaId);
+        }
+        if (canjeId != null) {
+            intentar(carroId, Compensacion.Tipo.CUPON, canjeId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${carrito.compensaciones.reintentoMs:60000}")
+    public void reintentarPendientes() {
+        List<Compensacion> pendientes = compensacionRepository
+                .findByProximoIntentoLessThanEqualOrderByProximoIntento(LocalDateTime.now(), Limit.of(lote));
+        for (Compensacion compensacion : pendientes) {
+            try {
+                liberar(compensacion.getTipo(), compensacion.getReferencia());
+                compensacionRepository.delete(compensacion);
+                logger.info("{} {} del carro {} liberado en el intento {}", compensacion.getTipo(),
+                        compensacion.getReferencia(), compensacion.getCarroId(), compensacion.getIntentos() + 1);
+            } catch (HttpClientErrorException.NotFound e) {
+                logger.warn("{} {} del carro {} no existe, se descarta", compensacion.getTipo(),
+                        compensacion.getReferencia(), compensacion.getCarroId());
+                compensacionRepository.delete(compensacion);
+            } catch (Exception e) {
+                int intentos = compensacion.getIntentos() + 1;
+                compensacion.setIntentos(intentos);
+                compensacion.setUltimoError(recortar(e.getMessage()));
+                compensacion.setProximoIntento(LocalDateTime.now().plus(Duration.ofMillis(espera(intentos))));
+                compensacionRepository.save(compensacion);
+                logger.warn("No se pudo liberar {} {} del carro {} (intento {}): {}", compensacion.getTipo(),
+                        compensacion.getReferencia(), compensacion.getCarroId(), intentos, e.getMessage());
+            }
+        }
+    }
+
+    private void intentar(Long carroId, Compensacion.Tipo tipo, String referencia) {
+        try {
+            liberar(tipo, referencia);
+        } catch (HttpClientErrorException.NotFound e) {
+            logger.warn("{} {} del carro {} no existe, no hay nada que liberar", tipo, referencia, carroId);
+        } catch (Exception e) {
+            logger.warn("No se pudo liberar {} {} del carro {}, se reintentará: {}", tipo, referencia, carroId,
+                    e.getMessage());
+            registrar(carroId, tipo, referencia, e.getMessage());
+        }
+    }
+
+    private void registrar(Long carroId, Compensacion.Tipo tipo, String referencia, String error) {
+        LocalDateTime ahora = LocalDateTime.now();
+        try {
+            transaccionPropia.executeWithoutResult(status -> compensacionRepository.save(Compensacion.builder()
+                    .carroId(carroId)
+                    .tipo(tipo)
+                    .referencia(referencia)
+                    .intentos(1)
+                    .ultimoError(recortar(error))
+                    .proximoIntento(ahora.plus(Duration.ofMillis(espera(1))))
+                    .fechaCreacion(ahora)
+                    .build()));
+        } catch (Exception e) {
+            // Sin la fila nadie lo reintentará: queda en el log para liberarlo a mano
+            logger.error("No se pudo registrar la liberación pendiente de {} {} del carro {}: {}", tipo, referencia,
+                    carroId, e.getMessage());
+        }
+    }
+
+    private void liberar(Compensacion.Tipo tipo, String referencia) {
+        String url = tipo == Compensacion.Tipo.STOCK
+                ? INVENTARIO_URL + referencia + "/liberar"
+                : CUPONES_URL + referencia + "/release";
+        microserviceClient.enviarConToken(url, HttpMethod.POST, null, Void.class, tokenServicio.obtener());
+    }
+
+    private long espera(int intentos) {
+        return Math.min(backoffMs << Math.min(intentos - 1, 20), maxBackoffMs);
+    }
+
+    private static String recortar(String error) {
+        return error != null && error.length() > LARGO_ERROR ? error.substring(0, LARGO_ERROR) : error;
+    }
+}
@@ -0,0 +1,170 @@
+package com.app.ventas.Service;
+
+import com.app.ventas.Dto.CouponDto;
+import com.app.ventas.Dto.CouponSnapshotDto;
+import com.app.ventas.shared.MicroserviceClient;
+import com.app.ventas.shared.TokenContext;
+import org.app.dto.ServiceResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Copia local de los cupones de MS-cupones para validar códigos sin una llamada remota por carro.
+ * La vigencia (active, validFrom, validTo) se evalúa en memoria con CouponDto.isValid().
+ *
+ * El snapshot se refresca bajo demanda con el token de la petición en curso: si tiene más de refreshMs
+ * se piden solo los cambios desde la última versión, y cada fullRefreshMs se recarga completo. Mientras un
+ * hilo refresca, el resto sigue usando el snapshot anterior. Un código que no está en el snapshot fuerza
+ * un refresco incremental, como máximo uno cada missRefreshMs, por si el cupón se creó recién.
+ */
+@Service
+public class CuponSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuponSnapshotService.class);
+    private static final String SNAPSHOT_URL = "http://localhost:9022/api/coupons/snapshot";
+
+    private final MicroserviceClient microserviceClient;
+    private final long refreshMs;
+    private final long fullRefreshMs;
+    private final long missRefreshMs;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(long version,
+                            Map<String, CouponDto> porCodigo,
+                            Map<Long, String> codigoPorId,
+                            long refrescadoEn,
+                            long completoEn) {
+    }
+
+    public CuponSnapshotService(MicroserviceClient microserviceClient,
+                                @Value("${cupones.snapshot.refreshMs:30000}") long refreshMs,
+                                @Value("${cupones.snapshot.fullRefreshMs:600000}") long fullRefreshMs,
+                                @Value("${cupones.snapshot.missRefreshMs:1000}") long missRefreshMs) {
+        this.microserviceClient = microserviceClient;
+        this.refreshMs = refreshMs;
+        this.fullRefreshMs = fullRefreshMs;
+        this.missRefreshMs = missRefreshMs;
+    }
+
+    public ServiceResult<CouponDto> validarCupon(String codigoCupon) {
+        if (codigoCupon == null || codigoCupon.isBlank()) {
+            return new ServiceResult<>(List.of("Cupón no válido o expirado"));
+        }
+        String codigo = normalizar(codigoCupon);
+        try {
+            Snapshot actual = vigente(refreshMs);
+            CouponDto cupon = actual.porCodigo().get(codigo);
+            if (cupon == null) {
+                cupon = vigente(missRefreshMs).porCodigo().get(codigo);
+            }
+            if (cupon == null || !cupon.isValid()) {
+                return new ServiceResult<>(List.of("Cupón no válido o expirado"));
+            }
+            return new ServiceResult<>(cupon);
+        } catch (Exception e) {
+            return new ServiceResult<>(List.of("Error al validar el cupón: " + e.getMessage()));
+        }
+    }
+
+    public long getVersion() {
+        Snapshot actual = snapshot;
+        return actual != null ? actual.version() : 0L;
+    }
+
+    private Snapshot vigente(long maxEdadMs) {
+        Snapshot actual = snapshot;
+        if (actual != null && System.currentTimeMillis() - actual.refrescadoEn() < maxEdadMs) {
+            return actual;
+        }
+
+        if (actual == null) {
+            // Sin snapshot no hay con qué responder: se espera la primera carga
+            refreshLock.lock();
+        } else if (!refreshLock.tryLock()) {
+            return actual;
+        }
+        try {
+            if (snapshot == actual) {
+                snapshot = refrescar(actual);
+            }
+        } catch (RuntimeException e) {
+            if (actual == null) {
+                throw e;
+            }
+            logger.warn("No se pudo refrescar el snapshot de cupones, se usa la versión {}: {}", actual.version(), e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+        return snapshot;
+    }
+
+    private Snapshot refrescar(Snapshot actual) {
+        long ahora = System.currentTimeMillis();
+        boolean completo = actual == null || ahora - actual.completoEn() >= fullRefreshMs;
+        String url = completo ? SNAPSHOT_URL : SNAPSHOT_URL + "?sinceVersion=" + actual.version();
+
+        ResponseEntity<CouponSnapshotDto> response = microserviceClient.enviarConToken(
+                url,
+                HttpMethod.GET,
+                null,
+                CouponSnapshotDto.class,
+                TokenContext.getToken()
+        );
+        CouponSnapshotDto cambios = response.getBody();
+        if (!response.getStatusCode().is2xxSuccessful() || cambios == null) {
+            throw new RuntimeException("Error al obtener el snapshot de cupones");
+        }
+
+        Map<String, CouponDto> porCodigo = new HashMap<>();
+        Map<Long, String> codigoPorId = new HashMap<>();
+        if (!cambios.isFull()) {
+            porCodigo.putAll(actual.porCodigo());
+            codigoPorId.putAll(actual.codigoPorId());
+        }
+        if (cambios.getRemovedIds() != null) {
+            for (Long id : cambios.getRemovedIds()) {
+                String codigo = codigoPorId.remove(id);
+                if (codigo != null) {
+                    porCodigo.remove(codigo);
+                }
+            }
+        }
+        if (cambios.getCoupons() != null) {
+            for (CouponDto cupon : cambios.getCoupons()) {
+                // Un cupón modificado puede haber cambiado de código o haberse desactivado
+                String anterior = codigoPorId.remove(cupon.getId());
+                if (anterior != null) {
+                    porCodigo.remove(anterior);
+                }
+                if (cupon.isActive() && cupon.getCode() != null) {
+                    String codigo = normalizar(cupon.getCode());
+                    porCodigo.put(codigo, cupon);
+                    codigoPorId.put(cupon.getId(), codigo);
+                }
+            }
+        }
+
+        return new Snapshot(
+                cambios.getVersion(),
+                Map.copyOf(porCodigo),
+                Map.copyOf(codigoPorId),
+                ahora,
+                cambios.isFull() ? ahora : actual.completoEn());
+    }
+
+    private static String normalizar(String codigo) {
+        return codigo.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -5,16 +5,21 @@ import com.app.ventas.Models.Carro;
 import com.app.ventas.Models.DetalleCarro;
 import com.app.ventas.Repository.CarroRepository;
 import com.app.ventas.Service.CarroService;
+import com.app.ventas.Service.CompensacionService;
+import com.app.ventas.Service.CuponSnapshotService;
 import com.app.ventas.shared.MicroserviceClient;
 import com.app.ventas.shared.TokenContext;
 import net.datafaker.Faker;
+import org.app.auth.TokenServicio;
 import org.app.dto.ServiceResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,9 +41,18 @@ public class CarroServiceTest {
     @Mock
     private MicroserviceClient microserviceClient;
 
+    @Mock
+    private CuponSnapshotService cuponSnapshotService;
+
     @Mock
     private TokenContext tokenContext;
 
+    @Mock
+    private TokenServicio tokenServicio;
+
+    @Mock
+    private CompensacionService compensacionService;
+
     @InjectMocks
     private CarroService carroService;
 
@@ -50,6 +64,8 @@ public class CarroServiceTest {
     @BeforeEach
     void setUp() {
         faker = new Faker();
+        TokenContext.setToken("token-de-prueba");
+        lenient().when(tokenServicio.obtener()).thenReturn("token-de-servicio");
 
         
         carroRequest = new CarroRequest();
@@ -62,6 +78,7 @@ public class CarroServiceTest {
         carroRequest.setDetalles(List.of(detalle));
 
         inventarioDto = new InventarioDto();
+        inventarioDto.setId(detalle.getInventarioId());
         inventarioDto.setCantidad(10);
         InventarioDto.ProductoDto producto = new InventarioDto.ProductoDto();
         producto.setId(detalle.getInventarioId());
@@ -79,11 +96,10 @@ public class CarroServiceTest {
     @Test
     void agregarProductosAlCarro_Success() {
         
-        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(InventarioDto.class), anyString()))
-                .thenReturn(new ResponseEntity<>(inventarioDto, HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/inventario/batch"), eq(HttpMethod.POST), any(InventarioBatchRequest.class), eq(InventarioBatchResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(loteInventario(InventarioBatchResponse.Estado.ENCONTRADO), HttpStatus.OK));
 
-        when(microserviceClient.enviarConToken(contains("coupons"), eq(HttpMethod.GET), isNull(), eq(CouponDto.class), anyString()))
-                .thenReturn(new ResponseEntity<>(couponDto, HttpStatus.OK));
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
 
         when(carroRepository.save(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -103,10 +119,12 @@ public class CarroServiceTest {
     @Test
     void agregarProductosAlCarro_ProductoNoDisponible() {
         
-        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(InventarioDto.class), anyString()))
-                .thenThrow(new RuntimeException("Producto no disponible"));
+        when(microserviceClient.enviarConToken(contains("/inventario/batch"), eq(HttpMethod.POST), any(InventarioBatchRequest.class), eq(InventarioBatchResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(loteInventario(InventarioBatchResponse.Estado.NO_ENCONTRADO), HttpStatus.OK));
 
         
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+
         ServiceResult<CarroResponse> result = carroService.agregarProductosAlCarro(carroRequest);
 
         
@@ -121,10 +139,12 @@ public class CarroServiceTest {
         inventarioDto.setCantidad(0);
 
         
-        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(InventarioDto.class), anyString()))
-                .thenReturn(new ResponseEntity<>(inventarioDto, HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/inventario/batch"), eq(HttpMethod.POST), any(InventarioBatchRequest.class), eq(InventarioBatchResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(loteInventario(InventarioBatchResponse.Estado.ENCONTRADO), HttpStatus.OK));
 
         
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+
         ServiceResult<CarroResponse> result = carroService.agregarProductosAlCarro(carroRequest);
 
         
@@ -133,6 +153,59 @@ public class CarroServiceTest {
         assertTrue(result.getErrors().get(0).contains("Stock insuficiente"));
     }
 
+    @Test
+    void agregarProductosAlCarro_FallaElLote_DeberiaConsultarCadaLinea() {
+        
+        when(microserviceClient.enviarConToken(contains("/inventario/batch"), eq(HttpMethod.POST), any(InventarioBatchRequest.class), eq(InventarioBatchResponse.class), anyString()))
+                .thenThrow(new RuntimeException("Timeout"));
+        when(microserviceClient.enviarConToken(endsWith("/inventario/" + inventarioDto.getId()), eq(HttpMethod.GET), isNull(), eq(InventarioDto.class), anyString()))
+                .thenReturn(new ResponseEntity<>(inventarioDto, HttpStatus.OK));
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+        when(carroRepository.save(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        
+        ServiceResult<CarroResponse> result = carroService.agregarProductosAlCarro(carroRequest);
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(1, result.getData().getDetalles().size());
+    }
+
+    @Test
+    void agregarProductosAlCarro_ErrorEnUnId_SoloEsaLineaSeConsultaDeNuevo() {
+        
+        CarroRequest.DetalleCarroRequest otroDetalle = new CarroRequest.DetalleCarroRequest();
+        otroDetalle.setInventarioId(inventarioDto.getId() + 1);
+        otroDetalle.setCantidad(1);
+        carroRequest.setDetalles(List.of(carroRequest.getDetalles().get(0), otroDetalle));
+        InventarioBatchResponse lote = InventarioBatchResponse.builder()
+                .resultados(List.of(
+                        InventarioBatchResponse.Resultado.builder()
+                                .id(inventarioDto.getId())
+                                .estado(InventarioBatchResponse.Estado.ENCONTRADO)
+                                .inventario(inventarioDto)
+                                .build(),
+                        InventarioBatchResponse.Resultado.builder()
+                                .id(otroDetalle.getInventarioId())
+                                .estado(InventarioBatchResponse.Estado.ERROR)
+                                .error("Error al obtener producto")
+                                .build()))
+                .build();
+
+        when(microserviceClient.enviarConToken(contains("/inventario/batch"), eq(HttpMethod.POST), any(InventarioBatchRequest.class), eq(InventarioBatchResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(lote, HttpStatus.OK));
+        when(microserviceClient.enviarConToken(endsWith("/inventario/" + otroDetalle.getInventarioId()), eq(HttpMethod.GET), isNull(), eq(InventarioDto.class), anyString()))
+                .thenThrow(new RuntimeException("Error al obtener producto de inventario"));
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+
+        
+        ServiceResult<CarroResponse> result = carroService.agregarProductosAlCarro(carroRequest);
+
+        
+        assertEquals(List.of("Producto no disponible: " + otroDetalle.getInventarioId()), result.getErrors());
+        verify(microserviceClient, never()).enviarConToken(endsWith("/inventario/" + inventarioDto.getId()), eq(HttpMethod.GET), any(), any(), anyString());
+    }
+
     @Test
     void aplicarCuponACarro_Success() {
         
@@ -142,8 +215,7 @@ public class CarroServiceTest {
 
         
         when(carroRepository.findById(carroId)).thenReturn(Optional.of(carroExistente));
-        when(microserviceClient.enviarConToken(contains("coupons"), eq(HttpMethod.GET), isNull(), eq(CouponDto.class), anyString()))
-                .thenReturn(new ResponseEntity<>(couponDto, HttpStatus.OK));
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
         when(carroRepository.save(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         
@@ -167,6 +239,8 @@ public class CarroServiceTest {
         when(carroRepository.findById(carroId)).thenReturn(Optional.empty());
 
         
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+
         ServiceResult<?> result = carroService.aplicarCuponACarro(carroId, codigoCupon);
 
         
@@ -186,6 +260,8 @@ public class CarroServiceTest {
         when(carroRepository.findById(carroId)).thenReturn(Optional.of(carroExistente));
 
         
+        when(cuponSnapshotService.validarCupon("DESC20")).thenReturn(new ServiceResult<>(couponDto));
+
         ServiceResult<?> result = carroService.aplicarCuponACarro(carroId, codigoCupon);
 
         
@@ -243,10 +319,10 @@ public class CarroServiceTest {
         Carro carroExistente = crearCarroDePrueba(carroId, "ACTIVO");
 
         
-        when(carroRepository.findById(carroId)).thenReturn(Optional.of(carroExistente));
-        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.POST), isNull(), eq(InventarioResponse.class), anyString()))
-                .thenReturn(new ResponseEntity<>(new InventarioResponse(), HttpStatus.OK));
-        when(carroRepository.save(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+        when(microserviceClient.enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(ReservaStockResponse.builder().completa(true).reservaId("reserva-1").lineas(List.of()).build(), HttpStatus.OK));
+        when(carroRepository.saveAndFlush(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         
         ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
@@ -254,8 +330,100 @@ public class CarroServiceTest {
         
         assertFalse(result.hasErrors());
         assertEquals("COMPLETADO", result.getData().getEstado());
-        verify(microserviceClient, times(carroExistente.getDetalles().size()))
-                .enviarConToken(anyString(), eq(HttpMethod.POST), isNull(), eq(InventarioResponse.class), anyString());
+        assertNotNull(carroExistente.getFechaConfirmacion());
+        DetalleCarro detalle = carroExistente.getDetalles().get(0);
+        verify(microserviceClient, times(1)).enviarConToken(
+                contains("/inventario/reservar"),
+                eq(HttpMethod.POST),
+                argThat((ReservaStockRequest r) -> r.getLineas().size() == 1
+                        && r.getLineas().get(0).getInventarioId().equals(detalle.getInventarioId())
+                        && r.getLineas().get(0).getCantidad().equals(detalle.getCantidad())),
+                eq(ReservaStockResponse.class),
+                // La reserva va con el token de servicio de MS-Carrito, no con el de quien confirmó
+                eq("token-de-servicio"));
+    }
+
+    @Test
+    void confirmarCompra_StockInsuficiente() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "ACTIVO");
+        DetalleCarro detalle = carroExistente.getDetalles().get(0);
+        ReservaStockResponse reserva = ReservaStockResponse.builder()
+                .completa(false)
+                .lineas(List.of(ReservaStockResponse.LineaResultado.builder()
+                        .inventarioId(detalle.getInventarioId())
+                        .cantidad(detalle.getCantidad())
+                        .estado(ReservaStockResponse.EstadoLinea.STOCK_INSUFICIENTE)
+                        .build()))
+                .build();
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+        when(microserviceClient.enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(reserva, HttpStatus.OK));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
+
+        
+        assertTrue(result.hasErrors());
+        assertEquals(List.of("Stock insuficiente para producto: " + detalle.getProductoId()), result.getErrors());
+        assertEquals("ACTIVO", carroExistente.getEstado());
+        verify(carroRepository, times(1)).saveAndFlush(any(Carro.class));
+    }
+
+    @Test
+    void confirmarCompra_CuponAgotado_DeberiaLiberarStock() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "ACTIVO");
+        carroExistente.setCodigoCupon("DESC20");
+        CouponRedemptionDto rechazo = CouponRedemptionDto.builder()
+                .code("DESC20")
+                .redeemed(false)
+                .reason("El cupón alcanzó su límite de usos")
+                .build();
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+        when(microserviceClient.enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(ReservaStockResponse.builder().completa(true).reservaId("reserva-1").lineas(List.of()).build(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/coupons/redeem"), eq(HttpMethod.POST), any(CouponRedemptionRequest.class), eq(CouponRedemptionDto.class), anyString()))
+                .thenReturn(new ResponseEntity<>(rechazo, HttpStatus.OK));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
+
+        
+        assertTrue(result.hasErrors());
+        assertEquals(List.of("El cupón alcanzó su límite de usos"), result.getErrors());
+        verify(compensacionService).compensar(carroId, "reserva-1", null);
+        assertEquals("ACTIVO", carroExistente.getEstado());
+        verify(carroRepository, times(1)).saveAndFlush(any(Carro.class));
+    }
+
+    @Test
+    void confirmarCompra_MismaClaveIdempotencia_DeberiaRetornarCarroSinReservarDeNuevo() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "COMPLETADO");
+        carroExistente.setClaveConfirmacion("pago-1-confirmar-carrito");
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId, "pago-1-confirmar-carrito");
+        ServiceResult<CarroResponse> otraClave = carroService.confirmarCompra(carroId, "pago-2-confirmar-carrito");
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals("COMPLETADO", result.getData().getEstado());
+        assertTrue(otraClave.hasErrors());
+        assertEquals(List.of(CarroService.CARRO_YA_CONFIRMADO), otraClave.getErrors());
+        verifyNoInteractions(microserviceClient);
+        verify(carroRepository, never()).saveAndFlush(any(Carro.class));
     }
 
     @Test
@@ -266,7 +434,7 @@ public class CarroServiceTest {
         carroExistente.getDetalles().clear(); 
 
         
-        when(carroRepository.findById(carroId)).thenReturn(Optional.of(carroExistente));
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
 
         
         ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
@@ -277,9 +445,116 @@ public class CarroServiceTest {
         assertTrue(result.getErrors().get(0).contains("No se puede confirmar un carro vacío"));
     }
 
+    @Test
+    void confirmarCompra_CarroYaConfirmadoSinClave_DeberiaRechazarSinReservar() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "COMPLETADO");
+        carroExistente.setClaveConfirmacion("pago-1-confirmar-carrito");
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId);
+
+        
+        assertEquals(List.of(CarroService.CARRO_YA_CONFIRMADO), result.getErrors());
+        verifyNoInteractions(microserviceClient);
+    }
+
+    @Test
+    void confirmarCompra_ConCupon_DeberiaGuardarLaClaveAntesDeReservarYCanjear() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "ACTIVO");
+        carroExistente.setCodigoCupon("DESC20");
+        CouponRedemptionDto canje = CouponRedemptionDto.builder()
+                .redemptionId("canje-1")
+                .code("DESC20")
+                .redeemed(true)
+                .build();
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+        when(carroRepository.saveAndFlush(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(microserviceClient.enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(ReservaStockResponse.builder().completa(true).reservaId("reserva-1").lineas(List.of()).build(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/coupons/redeem"), eq(HttpMethod.POST), any(CouponRedemptionRequest.class), eq(CouponRedemptionDto.class), anyString()))
+                .thenReturn(new ResponseEntity<>(canje, HttpStatus.OK));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId, "pago-1-confirmar-carrito");
+
+        
+        assertFalse(result.hasErrors());
+        InOrder orden = inOrder(carroRepository, microserviceClient);
+        orden.verify(carroRepository).saveAndFlush(argThat(c -> "pago-1-confirmar-carrito".equals(c.getClaveConfirmacion())));
+        orden.verify(microserviceClient).enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString());
+        orden.verify(microserviceClient).enviarConToken(contains("/coupons/redeem"), eq(HttpMethod.POST), any(CouponRedemptionRequest.class), eq(CouponRedemptionDto.class), anyString());
+        orden.verify(carroRepository).saveAndFlush(argThat(c -> "COMPLETADO".equals(c.getEstado())));
+    }
+
+    @Test
+    void confirmarCompra_ErrorAlGuardar_DeberiaDevolverReservaYCanje() {
+        
+        Long carroId = faker.number().randomNumber();
+        Carro carroExistente = crearCarroDePrueba(carroId, "ACTIVO");
+        carroExistente.setCodigoCupon("DESC20");
+        CouponRedemptionDto canje = CouponRedemptionDto.builder()
+                .redemptionId("canje-1")
+                .code("DESC20")
+                .redeemed(true)
+                .build();
+
+        
+        when(carroRepository.findByIdForUpdate(carroId)).thenReturn(Optional.of(carroExistente));
+        when(carroRepository.saveAndFlush(any(Carro.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new RuntimeException("Deadlock"));
+        when(microserviceClient.enviarConToken(contains("/inventario/reservar"), eq(HttpMethod.POST), any(ReservaStockRequest.class), eq(ReservaStockResponse.class), anyString()))
+                .thenReturn(new ResponseEntity<>(ReservaStockResponse.builder().completa(true).reservaId("reserva-1").lineas(List.of()).build(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(contains("/coupons/redeem"), eq(HttpMethod.POST), any(CouponRedemptionRequest.class), eq(CouponRedemptionDto.class), anyString()))
+                .thenReturn(new ResponseEntity<>(canje, HttpStatus.OK));
+
+        
+        ServiceResult<CarroResponse> result = carroService.confirmarCompra(carroId, "pago-1-confirmar-carrito");
+
+        
+        assertEquals(List.of("Error al guardar el carro: Deadlock"), result.getErrors());
+        verify(compensacionService).compensar(carroId, "reserva-1", "canje-1");
+    }
+
+    @Test
+    void obtenerComprasConfirmadas_DeberiaPedirElLoteDespuesDelUltimoId() {
+        
+        LocalDateTime desde = LocalDateTime.now().minusMinutes(5);
+        List<CompraConfirmadaDto> lote = List.of(new CompraConfirmadaDto(11L, 1L, 100L), new CompraConfirmadaDto(12L, 1L, 200L));
+        when(carroRepository.findComprasConfirmadas(10L, desde, Limit.of(2))).thenReturn(lote);
+
+        
+        ServiceResult<List<CompraConfirmadaDto>> result = carroService.obtenerComprasConfirmadas(10L, desde, 2);
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(lote, result.getData());
+    }
+
+    @Test
+    void obtenerComprasConfirmadas_LimiteInvalido() {
+        
+        ServiceResult<List<CompraConfirmadaDto>> result = carroService.obtenerComprasConfirmadas(0L, null, 10_000);
+
+        
+        assertTrue(result.hasErrors());
+        assertEquals("El límite debe estar entre 1 y 5000", result.getErrors().get(0));
+        verifyNoInteractions(carroRepository);
+    }
+
     private Carro crearCarroDePrueba(Long id, String estado) {
         DetalleCarro detalle = new DetalleCarro();
         detalle.setProductoId(faker.number().randomNumber());
+        detalle.setInventarioId(faker.number().randomNumber());
         detalle.setCantidad(faker.number().numberBetween(1, 5));
         detalle.setPrecioUnitario(Double.parseDouble(faker.commerce().price().replace(",", ".")));
         detalle.setSubtotal(detalle.getPrecioUnitario() * detalle.getCantidad());
@@ -288,11 +563,21 @@ public class CarroServiceTest {
         carro.setId(id);
         carro.setUsuarioId(faker.number().randomNumber());
         carro.setEstado(estado);
-        carro.setDetalles(List.of(detalle));
+        carro.setDetalles(new ArrayList<>(List.of(detalle)));
         carro.setSubtotal(detalle.getSubtotal());
         carro.setTotal(detalle.getSubtotal());
         carro.setFechaCreacion(LocalDateTime.now());
 
         return carro;
     }
-}
\ No newline at end of file
+
+    private InventarioBatchResponse loteInventario(InventarioBatchResponse.Estado estado) {
+        return InventarioBatchResponse.builder()
+                .resultados(List.of(InventarioBatchResponse.Resultado.builder()
+                        .id(inventarioDto.getId())
+                        .estado(estado)
+                        .inventario(estado == InventarioBatchResponse.Estado.ENCONTRADO ? inventarioDto : null)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.app.ventas;
+
+import com.app.ventas.Models.Compensacion;
+import com.app.ventas.Repository.CompensacionRepository;
+import com.app.ventas.Service.CompensacionService;
+import com.app.ventas.shared.MicroserviceClient;
+import org.app.auth.TokenServicio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CompensacionServiceTest {
+
+    private static final String LIBERAR_STOCK = "http://localhost:9017/api/inventario/reservas/reserva-1/liberar";
+    private static final String LIBERAR_CUPON = "http://localhost:9022/api/coupons/redemptions/canje-1/release";
+
+    @Mock
+    private CompensacionRepository compensacionRepository;
+
+    @Mock
+    private MicroserviceClient microserviceClient;
+
+    @Mock
+    private TokenServicio tokenServicio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CompensacionService compensacionService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(tokenServicio.obtener()).thenReturn("token-de-servicio");
+        compensacionService = new CompensacionService(compensacionRepository, microserviceClient, tokenServicio,
+                transactionManager, 100, 1_000, 60_000);
+    }
+
+    @Test
+    void compensar_siFallaElStock_deberiaLiberarIgualElCuponYRegistrarElStock() {
+        // Arrange
+        when(microserviceClient.enviarConToken(eq(LIBERAR_STOCK), eq(HttpMethod.POST), isNull(), eq(Void.class), eq("token-de-servicio")))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+
+        // Act
+        compensacionService.compensar(7L, "reserva-1", "canje-1");
+
+        // Assert
+        verify(microserviceClient).enviarConToken(eq(LIBERAR_CUPON), eq(HttpMethod.POST), isNull(), eq(Void.class), eq("token-de-servicio"));
+        ArgumentCaptor<Compensacion> registrada = ArgumentCaptor.forClass(Compensacion.class);
+        verify(compensacionRepository).save(registrada.capture());
+        assertEquals(7L, registrada.getValue().getCarroId());
+        assertEquals(Compensacion.Tipo.STOCK, registrada.getValue().getTipo());
+        assertEquals("reserva-1", registrada.getValue().getReferencia());
+        assertEquals(1, registrada.getValue().getIntentos());
+        assertEquals("Read timed out", registrada.getValue().getUltimoError());
+        // Se escribe en su propia transacción: la de la confirmación se revierte
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void compensar_siTodoSeLibera_noDeberiaRegistrarNada() {
+        // Act
+        compensacionService.compensar(7L, "reserva-1", "canje-1");
+
+        // Assert
+        verify(microserviceClient).enviarConToken(eq(LIBERAR_STOCK), eq(HttpMethod.POST), isNull(), eq(Void.class), anyString());
+        verify(microserviceClient).enviarConToken(eq(LIBERAR_CUPON), eq(HttpMethod.POST), isNull(), eq(Void.class), anyString());
+        verifyNoInteractions(compensacionRepository);
+    }
+
+    @Test
+    void compensar_siElRegistroFalla_noDeberiaLanzar() {
+        // Arrange
+        when(microserviceClient.enviarConToken(eq(LIBERAR_STOCK), any(), any(), any(), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        when(compensacionRepository.save(any(Compensacion.class))).thenThrow(new RuntimeException("Base de datos caída"));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> compensacionService.compensar(7L, "reserva-1", null));
+    }
+
+    @Test
+    void reintentarPendientes_deberiaBorrarLasLiberadasYPostergarLasQueFallan() {
+        // Arrange
+        Compensacion stock = pendiente(Compensacion.Tipo.STOCK, "reserva-1", 1);
+        Compensacion cupon = pendiente(Compensacion.Tipo.CUPON, "canje-1", 3);
+        when(compensacionRepository.findByProximoIntentoLessThanEqualOrderByProximoIntento(any(LocalDateTime.class), eq(Limit.of(100))))
+                .thenReturn(List.of(stock, cupon));
+        when(microserviceClient.enviarConToken(eq(LIBERAR_STOCK), any(), any(), any(), anyString()))
+                .thenReturn(ResponseEntity.noContent().build());
+        when(microserviceClient.enviarConToken(eq(LIBERAR_CUPON), any(), any(), any(), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        LocalDateTime antes = LocalDateTime.now();
+
+        // Act
+        compensacionService.reintentarPendientes();
+
+        // Assert
+        verify(compensacionRepository).delete(stock);
+        verify(compensacionRepository).save(cupon);
+        assertEquals(4, cupon.getIntentos());
+        assertEquals("Connection refused", cupon.getUltimoError());
+        // 1 s * 2^3
+        assertFalse(cupon.getProximoIntento().isBefore(antes.plusSeconds(8)));
+    }
+
+    @Test
+    void reintentarPendientes_deberiaDescartarLoQueYaNoExiste() {
+        // Arrange
+        Compensacion stock = pendiente(Compensacion.Tipo.STOCK, "reserva-1", 2);
+        when(compensacionRepository.findByProximoIntentoLessThanEqualOrderByProximoIntento(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(stock));
+        when(microserviceClient.enviarConToken(eq(LIBERAR_STOCK), any(), any(), any(), anyString()))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        // Act
+        compensacionService.reintentarPendientes();
+
+        // Assert
+        verify(compensacionRepository).delete(stock);
+        verify(compensacionRepository, never()).save(any());
+    }
+
+    private static Compensacion pendiente(Compensacion.Tipo tipo, String referencia, int intentos) {
+        return Compensacion.builder()
+                .carroId(7L)
+                .tipo(tipo)
+                .referencia(referencia)
+                .intentos(intentos)
+                .proximoIntento(LocalDateTime.now().minusSeconds(1))
+                .fechaCreacion(LocalDateTime.now().minusMinutes(5))
+                .build();
+    }
+}
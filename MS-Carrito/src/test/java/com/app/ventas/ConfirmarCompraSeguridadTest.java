@@ -0,0 +1,86 @@
+package com.app.ventas;
+
+import com.app.ventas.Config.AuthClientService;
+import com.app.ventas.Config.SecurityConfig;
+import com.app.ventas.Controller.CarroController;
+import com.app.ventas.Dto.CarroResponse;
+import com.app.ventas.Service.CarroService;
+import org.app.auth.AutenticacionAutoConfiguration;
+import org.app.auth.TokenServicio;
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Solo las entregas del outbox de MS-Pago confirman carritos: el POST exige su token de servicio con
+ * carritos:confirmar, y ni un token de usuario ni el de otro servicio llegan a CarroService.
+ */
+@WebMvcTest(CarroController.class)
+@Import({SecurityConfig.class, AutenticacionAutoConfiguration.class})
+class ConfirmarCompraSeguridadTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private CarroService carroService;
+
+    @MockitoBean
+    private AuthClientService authClientService;
+
+    @Value("${auth.app.jwtSecret}")
+    private String secretoUsuarios;
+
+    @Value("${auth.servicio.jwtSecret}")
+    private String secretoServicios;
+
+    @Test
+    void confirmar_conElTokenDeMsPago_deberiaLlegarAlServicio() throws Exception {
+        // Arrange
+        CarroResponse carro = CarroResponse.builder().carroId(7L).usuarioId(1L).build();
+        when(carroService.confirmarCompra(7L, "pago-1")).thenReturn(new ServiceResult<>(carro));
+        String token = new TokenServicio(secretoServicios, "ms-pago", "carritos:confirmar").obtener();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/carrito/7/confirmar")
+                        .header("Authorization", "Bearer " + token)
+                        .header("Idempotency-Key", "pago-1"))
+                .andExpect(status().isOk());
+        verify(carroService).confirmarCompra(7L, "pago-1");
+    }
+
+    @Test
+    void confirmar_conTokenDeUsuario_deberiaResponder403() throws Exception {
+        // Arrange: firmado por MS-Authenticacion, aunque traiga el scope de MS-Pago
+        String token = new TokenServicio(secretoUsuarios, "ms-pago", "carritos:confirmar").obtener();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/carrito/7/confirmar").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        verify(carroService, never()).confirmarCompra(anyLong(), any());
+    }
+
+    @Test
+    void confirmar_conTokenDeOtroServicio_deberiaResponder403() throws Exception {
+        // Arrange
+        String token = new TokenServicio(secretoServicios, "ms-resenas", "compras:leer").obtener();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/carrito/7/confirmar").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+        verify(carroService, never()).confirmarCompra(anyLong(), any());
+    }
+}
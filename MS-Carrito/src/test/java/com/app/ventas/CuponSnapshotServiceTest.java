@@ -0,0 +1,170 @@
+package com.app.ventas;
+
+import com.app.ventas.Dto.CouponDto;
+import com.app.ventas.Dto.CouponSnapshotDto;
+import com.app.ventas.Service.CuponSnapshotService;
+import com.app.ventas.shared.MicroserviceClient;
+import com.app.ventas.shared.TokenContext;
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CuponSnapshotServiceTest {
+
+    @Mock
+    private MicroserviceClient microserviceClient;
+
+    private final LocalDateTime ahora = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        TokenContext.setToken("token-de-prueba");
+    }
+
+    @AfterEach
+    void tearDown() {
+        TokenContext.clear();
+    }
+
+    private CouponDto cupon(Long id, String codigo, boolean activo, LocalDateTime desde, LocalDateTime hasta) {
+        return CouponDto.builder()
+                .id(id)
+                .code(codigo)
+                .discountType("PERCENTAGE")
+                .discountValue(BigDecimal.TEN)
+                .validFrom(desde)
+                .validTo(hasta)
+                .active(activo)
+                .build();
+    }
+
+    private void responder(String url, CouponSnapshotDto snapshot) {
+        when(microserviceClient.enviarConToken(eq(url), eq(HttpMethod.GET), isNull(), eq(CouponSnapshotDto.class), anyString()))
+                .thenReturn(new ResponseEntity<>(snapshot, HttpStatus.OK));
+    }
+
+    private static final String URL = "http://localhost:9022/api/coupons/snapshot";
+
+    @Test
+    void validarCupon_deberiaEvaluarLocalmenteSinNuevasLlamadas() {
+        responder(URL, CouponSnapshotDto.builder()
+                .version(5)
+                .full(true)
+                .coupons(List.of(
+                        cupon(1L, "DESC20", true, ahora.minusDays(1), ahora.plusDays(1)),
+                        cupon(2L, "FUTURO", true, ahora.plusDays(1), ahora.plusDays(2)),
+                        cupon(3L, "VENCIDO", true, ahora.minusDays(2), ahora.minusDays(1))))
+                .build());
+        CuponSnapshotService service = new CuponSnapshotService(microserviceClient, 60_000, 600_000, 60_000);
+
+        ServiceResult<CouponDto> valido = service.validarCupon("desc20");
+        ServiceResult<CouponDto> futuro = service.validarCupon("FUTURO");
+        ServiceResult<CouponDto> vencido = service.validarCupon("VENCIDO");
+        ServiceResult<CouponDto> inexistente = service.validarCupon("NOEXISTE");
+
+        assertFalse(valido.hasErrors());
+        assertEquals(1L, valido.getData().getId());
+        assertTrue(futuro.hasErrors());
+        assertTrue(vencido.hasErrors());
+        assertTrue(inexistente.hasErrors());
+        assertEquals(5L, service.getVersion());
+        verify(microserviceClient, times(1)).enviarConToken(anyString(), any(), any(), any(), anyString());
+    }
+
+    @Test
+    void validarCupon_deberiaAplicarCambiosIncrementales() {
+        responder(URL, CouponSnapshotDto.builder()
+                .version(5)
+                .full(true)
+                .coupons(List.of(
+                        cupon(1L, "DESC20", true, ahora.minusDays(1), ahora.plusDays(1)),
+                        cupon(2L, "VERANO", true, ahora.minusDays(1), ahora.plusDays(1)),
+                        cupon(3L, "INVIERNO", true, ahora.minusDays(1), ahora.plusDays(1))))
+                .build());
+        responder(URL + "?sinceVersion=5", CouponSnapshotDto.builder()
+                .version(8)
+                .full(false)
+                .coupons(List.of(
+                        cupon(1L, "DESC25", true, ahora.minusDays(1), ahora.plusDays(1)),
+                        cupon(2L, "VERANO", false, ahora.minusDays(1), ahora.plusDays(1))))
+                .removedIds(List.of(3L))
+                .build());
+        CuponSnapshotService service = new CuponSnapshotService(microserviceClient, 0, 600_000, 0);
+
+        assertFalse(service.validarCupon("VERANO").hasErrors());
+
+        assertTrue(service.validarCupon("DESC20").hasErrors());
+        assertFalse(service.validarCupon("DESC25").hasErrors());
+        assertTrue(service.validarCupon("VERANO").hasErrors());
+        assertTrue(service.validarCupon("INVIERNO").hasErrors());
+        assertEquals(8L, service.getVersion());
+    }
+
+    @Test
+    void validarCupon_deberiaRefrescarAnteCodigoDesconocido() {
+        responder(URL, CouponSnapshotDto.builder()
+                .version(1)
+                .full(true)
+                .coupons(List.of())
+                .build());
+        responder(URL + "?sinceVersion=1", CouponSnapshotDto.builder()
+                .version(2)
+                .full(false)
+                .coupons(List.of(cupon(9L, "NUEVO", true, ahora.minusMinutes(1), ahora.plusDays(1))))
+                .removedIds(List.of())
+                .build());
+        CuponSnapshotService service = new CuponSnapshotService(microserviceClient, 60_000, 600_000, 0);
+
+        ServiceResult<CouponDto> result = service.validarCupon("NUEVO");
+
+        assertFalse(result.hasErrors());
+        assertEquals(9L, result.getData().getId());
+    }
+
+    @Test
+    void validarCupon_deberiaUsarSnapshotAnteriorSiFallaElRefresco() {
+        responder(URL, CouponSnapshotDto.builder()
+                .version(1)
+                .full(true)
+                .coupons(List.of(cupon(1L, "DESC20", true, ahora.minusDays(1), ahora.plusDays(1))))
+                .build());
+        when(microserviceClient.enviarConToken(eq(URL + "?sinceVersion=1"), eq(HttpMethod.GET), isNull(), eq(CouponSnapshotDto.class), anyString()))
+                .thenThrow(new ResourceAccessException("MS-cupones no disponible"));
+        CuponSnapshotService service = new CuponSnapshotService(microserviceClient, 0, 600_000, 0);
+
+        service.validarCupon("DESC20");
+        ServiceResult<CouponDto> result = service.validarCupon("DESC20");
+
+        assertFalse(result.hasErrors());
+        assertEquals(1L, service.getVersion());
+    }
+
+    @Test
+    void validarCupon_deberiaRetornarErrorSinSnapshotDisponible() {
+        when(microserviceClient.enviarConToken(eq(URL), eq(HttpMethod.GET), isNull(), eq(CouponSnapshotDto.class), anyString()))
+                .thenThrow(new ResourceAccessException("MS-cupones no disponible"));
+        CuponSnapshotService service = new CuponSnapshotService(microserviceClient, 60_000, 600_000, 1_000);
+
+        ServiceResult<CouponDto> result = service.validarCupon("DESC20");
+
+        assertTrue(result.hasErrors());
+        assertTrue(result.getErrors().get(0).contains("Error al validar el cupón"));
+    }
+}
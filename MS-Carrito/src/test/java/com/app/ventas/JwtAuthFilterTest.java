@@ -0,0 +1,121 @@
+package com.app.ventas;
+
+import com.app.ventas.Config.AuthClientService;
+import com.app.ventas.Config.JwtAuthFilter;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.app.auth.JwtTokenVerifier;
+import org.app.auth.TokenServicioVerifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthFilterTest {
+
+    private static final String SECRETO_USUARIOS = "9ab67789df495410c1798fea3ccb00fb8816221312a10b4e00a874a7e4b46960" +
+            "cd8495067622053e6e6ad36addae12c4308921ad8ba01ab23ce2f5bfc1936691";
+    private static final String SECRETO_SERVICIOS = "b7a07839f40714deab40ca5b02ad06eab318a94ad4c011c60e77a77dc0100df2" +
+            "46506fb04c0f58fd899d6fb9919419ff4bfa2a3e62e4da981da2612c16b4d944";
+
+    @Mock
+    private AuthClientService authClientService;
+
+    private JwtAuthFilter filtro;
+
+    @BeforeEach
+    void setUp() {
+        filtro = new JwtAuthFilter(authClientService, new JwtTokenVerifier(SECRETO_USUARIOS),
+                new TokenServicioVerifier(SECRETO_SERVICIOS));
+        ReflectionTestUtils.setField(filtro, "validationMode", "local");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenDeServicio_deberiaAutenticarConSusAlcances() throws Exception {
+        // Arrange
+        String token = firmar(SECRETO_SERVICIOS, "ms-resenas", Map.of("scope", "compras:leer"));
+
+        // Act
+        MockHttpServletResponse response = filtrar(token);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("ms-resenas", autenticacion().getName());
+        assertEquals(List.of("SCOPE_compras:leer"),
+                autenticacion().getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void tokenDeUsuario_conScopeYSujetoDeServicio_noDeberiaRecibirAlcances() throws Exception {
+        // Arrange: firmado con el secreto de MS-Authenticacion, aunque imite a MS-ResenasFeedBack
+        String token = firmar(SECRETO_USUARIOS, "ms-resenas", Map.of("scope", "compras:leer"));
+
+        // Act
+        MockHttpServletResponse response = filtrar(token);
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertTrue(autenticacion().getAuthorities().isEmpty());
+    }
+
+    @Test
+    void tokenDeServicio_sinScope_deberiaRechazarse() throws Exception {
+        // Arrange
+        String token = firmar(SECRETO_SERVICIOS, "ms-resenas", Map.of());
+
+        // Act
+        MockHttpServletResponse response = filtrar(token);
+
+        // Assert
+        assertEquals(401, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(authClientService);
+    }
+
+    private MockHttpServletResponse filtrar(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/carrito/compras-confirmadas");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static Authentication autenticacion() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static String firmar(String secreto, String sujeto, Map<String, Object> claims) {
+        Instant ahora = Instant.now();
+        return Jwts.builder()
+                .subject(sujeto)
+                .claims(claims)
+                .issuedAt(Date.from(ahora))
+                .expiration(Date.from(ahora.plusSeconds(600)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secreto)), Jwts.SIG.HS256)
+                .compact();
+    }
+}
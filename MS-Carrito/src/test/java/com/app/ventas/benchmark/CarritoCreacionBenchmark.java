@@ -0,0 +1,177 @@
+package com.app.ventas.benchmark;
+
+import com.app.ventas.Dto.CarroRequest;
+import com.app.ventas.Dto.InventarioDto;
+import com.app.ventas.Models.Carro;
+import com.app.ventas.Repository.CarroRepository;
+import com.app.ventas.Service.CarroService;
+import com.app.ventas.Service.CompensacionService;
+import com.app.ventas.Service.CuponSnapshotService;
+import com.app.ventas.shared.MicroserviceClient;
+import com.app.ventas.shared.TokenContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.app.auth.TokenServicio;
+import org.app.http.HttpClientFactory;
+import org.app.resilience.ClienteResiliente;
+import org.app.resilience.ConfiguracionResiliencia;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mide la latencia de crear un carrito según su tamaño: el flujo anterior (un GET a
+ * /api/inventario/{id} por línea) frente al flujo actual de CarroService (un único POST a
+ * /api/inventario/batch).
+ *
+ * El stub de MS-Inventario escucha en localhost:9017 (la URL que usa CarroService) y simula
+ * {@value #LATENCIA_REMOTA_MS} ms por cada consulta a MS-Producto / MS-Sucursales: el GET
+ * individual hace dos, el lote hace una por producto distinto más una por sucursal distinta.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CarritoCreacionBenchmark {
+
+    static final long LATENCIA_REMOTA_MS = 1;
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d+");
+
+    @Param({"1", "5", "20", "50"})
+    public int tamanoCarrito;
+
+    private HttpServer inventarioStub;
+    private HttpClientFactory httpClientFactory;
+    private ClienteResiliente clienteResiliente;
+    private MicroserviceClient microserviceClient;
+    private CarroService carroService;
+    private CarroRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        // Sin TCP_NODELAY el HttpServer del JDK añade ~40 ms por respuesta (Nagle + ACK diferido)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        inventarioStub = HttpServer.create(new InetSocketAddress("localhost", 9017), 0);
+        inventarioStub.createContext("/api/inventario/batch", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            List<Long> ids = new ArrayList<>();
+            Matcher matcher = ID_PATTERN.matcher(body);
+            while (matcher.find()) {
+                ids.add(Long.parseLong(matcher.group()));
+            }
+            // Un producto distinto por línea y una única sucursal
+            simularLatencia(ids.size() + 1);
+            responder(exchange, ids.stream()
+                    .map(id -> "{\"id\":" + id + ",\"estado\":\"ENCONTRADO\",\"inventario\":" + inventarioJson(id) + "}")
+                    .collect(Collectors.joining(",", "{\"resultados\":[", "]}")));
+        });
+        inventarioStub.createContext("/api/inventario/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            long id = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+            simularLatencia(2);
+            responder(exchange, inventarioJson(id));
+        });
+        inventarioStub.start();
+
+        httpClientFactory = new HttpClientFactory(200, 50, 2000, 5000, 2000, 30000);
+        // Mismo envoltorio que en producción, con cupo de sobra para no medir rechazos del bulkhead
+        ConfiguracionResiliencia resiliencia = new ConfiguracionResiliencia();
+        resiliencia.getDefecto().setMaxConcurrentes(1_000);
+        clienteResiliente = new ClienteResiliente(resiliencia, e -> !(e instanceof HttpClientErrorException));
+        microserviceClient = new MicroserviceClient(httpClientFactory.createRestTemplate(), clienteResiliente);
+
+        CarroRepository carroRepository = mock(CarroRepository.class);
+        when(carroRepository.save(any(Carro.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        carroService = new CarroService(carroRepository, microserviceClient,
+                new CuponSnapshotService(microserviceClient, 30_000, 600_000, 1_000),
+                // Crear el carrito no reserva stock ni canjea cupones: ni el token de servicio ni las compensaciones se usan
+                new TokenServicio("", "ms-carrito", "inventario:reservar cupones:canjear"),
+                mock(CompensacionService.class));
+
+        request = CarroRequest.builder()
+                .usuarioId(1L)
+                .detalles(LongStream.rangeClosed(1, tamanoCarrito)
+                        .mapToObj(id -> CarroRequest.DetalleCarroRequest.builder()
+                                .inventarioId(id)
+                                .cantidad(1)
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClientFactory.close();
+        clienteResiliente.close();
+        inventarioStub.stop(0);
+    }
+
+    @Benchmark
+    public List<InventarioDto> consultaPorLinea() {
+        TokenContext.setToken("benchmark");
+        List<InventarioDto> inventarios = new ArrayList<>();
+        for (CarroRequest.DetalleCarroRequest detalle : request.getDetalles()) {
+            inventarios.add(microserviceClient.enviarConToken(
+                    "http://localhost:9017/api/inventario/" + detalle.getInventarioId(),
+                    HttpMethod.GET,
+                    null,
+                    InventarioDto.class,
+                    "benchmark").getBody());
+        }
+        return inventarios;
+    }
+
+    @Benchmark
+    public Object agregarProductosAlCarro() {
+        TokenContext.setToken("benchmark");
+        return carroService.agregarProductosAlCarro(request);
+    }
+
+    private static void simularLatencia(int consultasRemotas) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(LATENCIA_REMOTA_MS * consultasRemotas));
+    }
+
+    private static String inventarioJson(long id) {
+        return "{\"id\":" + id + ",\"cantidad\":100,\"producto\":{\"id\":" + id
+                + ",\"nombre\":\"Perfume " + id + "\",\"precio\":10990.0},\"sucursal\":{\"id\":1}}";
+    }
+
+    private static void responder(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CarritoCreacionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
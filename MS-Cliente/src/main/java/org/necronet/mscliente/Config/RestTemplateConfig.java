@@ -1,5 +1,6 @@
 package org.necronet.mscliente.Config;
 
+import org.app.http.HttpClientFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -7,7 +8,7 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class RestTemplateConfig {
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(HttpClientFactory httpClientFactory) {
+        return httpClientFactory.createRestTemplate();
     }
 }
@@ -1,9 +1,12 @@
 package org.necronet.mslogistica.Config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.app.auth.JwtTokenVerifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -16,9 +19,19 @@ import java.util.ArrayList;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final AuthClientService authClientService;
+    private final JwtTokenVerifier jwtTokenVerifier;
 
-    public JwtAuthFilter(AuthClientService authClientService) {
+    // local: verifica firma y expiración en este servicio; remote: delega en MS-Authenticacion
+    @Value("${auth.validation.mode:local}")
+    private String validationMode;
+
+    // Si la validación local rechaza el token, se consulta a MS-Authenticacion antes de responder 401
+    @Value("${auth.validation.remoteFallback:false}")
+    private boolean remoteFallback;
+
+    public JwtAuthFilter(AuthClientService authClientService, JwtTokenVerifier jwtTokenVerifier) {
         this.authClientService = authClientService;
+        this.jwtTokenVerifier = jwtTokenVerifier;
     }
 
     @Override
@@ -29,9 +42,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.replace("Bearer ", "");
-            if (authClientService.validateToken(token)) {
+            String principal = validarToken(token);
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken("usuario", null, new ArrayList<>());
+                        new UsernamePasswordAuthenticationToken(principal, null, new ArrayList<>());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
             } else {
@@ -42,5 +56,17 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
 
+    private String validarToken(String token) {
+        if ("local".equalsIgnoreCase(validationMode) && jwtTokenVerifier.isEnabled()) {
+            Claims claims = jwtTokenVerifier.verify(token);
+            if (claims != null) {
+                return claims.getSubject() != null ? claims.getSubject() : "usuario";
+            }
+            if (!remoteFallback) {
+                return null;
+            }
+        }
+        return authClientService.validateToken(token) ? "usuario" : null;
+    }
+}
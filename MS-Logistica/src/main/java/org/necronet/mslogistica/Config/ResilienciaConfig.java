@@ -0,0 +1,28 @@
+package org.necronet.mslogistica.Config;
+
+import org.app.resilience.ClienteResiliente;
+import org.app.resilience.ConfiguracionResiliencia;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Timeouts, bulkheads y circuit breakers por servicio destino para las llamadas remotas
+ * (MicroserviceClient y AuthClientService). Las políticas se leen del bloque "resiliencia" de application.yml.
+ */
+@Configuration
+public class ResilienciaConfig {
+
+    @Bean
+    @ConfigurationProperties("resiliencia")
+    public ConfiguracionResiliencia configuracionResiliencia() {
+        return new ConfiguracionResiliencia();
+    }
+
+    // Un 4xx es un error de la petición, no del destino: no cuenta para abrir el circuito
+    @Bean(destroyMethod = "close")
+    public ClienteResiliente clienteResiliente(ConfiguracionResiliencia configuracionResiliencia) {
+        return new ClienteResiliente(configuracionResiliencia, e -> !(e instanceof HttpClientErrorException));
+    }
+}
@@ -2,6 +2,8 @@ package org.necronet.mspago.Config;
 
 
 
+import org.app.auth.ValidatedTokenCache;
+import org.app.resilience.ClienteResiliente;
 import org.necronet.mspago.Config.Dto.TokenResponse;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -17,28 +19,44 @@ import java.util.Map;
 @Service
 public class AuthClientService {
     private final RestTemplate restTemplate;
+    private final ValidatedTokenCache validatedTokenCache;
+    private final ClienteResiliente clienteResiliente;
     @Value("${auth.url.jwtMicro}")
     private String AUTH_SERVICE_URL;
 
-    public AuthClientService(RestTemplate restTemplate) {
+    public AuthClientService(RestTemplate restTemplate, ValidatedTokenCache validatedTokenCache,
+                             ClienteResiliente clienteResiliente) {
         this.restTemplate = restTemplate;
+        this.validatedTokenCache = validatedTokenCache;
+        this.clienteResiliente = clienteResiliente;
     }
 
     public boolean validateToken(String token) {
+        Boolean enCache = validatedTokenCache.get(token);
+        if (enCache != null) {
+            if (!enCache) {
+                throw new BadCredentialsException("Token inválido");
+            }
+            return true;
+        }
+
         try {
             Map<String, String> requestBody = new HashMap<>();
             requestBody.put("token", token);
 
-            ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
-                    AUTH_SERVICE_URL,
-                    requestBody,
-                    TokenResponse.class
-            );
+            // Validar no cambia nada en auth: admite el timeout propio del destino
+            ResponseEntity<TokenResponse> response = clienteResiliente.ejecutar("auth", true,
+                    () -> restTemplate.postForEntity(AUTH_SERVICE_URL, requestBody, TokenResponse.class));
 
-            return response.getStatusCode().is2xxSuccessful();
+            boolean valido = response.getStatusCode().is2xxSuccessful();
+            if (valido) {
+                validatedTokenCache.putValid(token);
+            }
+            return valido;
 
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
+                validatedTokenCache.putInvalid(token);
                 throw new BadCredentialsException("Token inválido");
             }
             throw new RuntimeException("Error de comunicación con el servicio de autenticación");
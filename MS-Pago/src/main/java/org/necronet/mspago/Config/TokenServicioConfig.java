@@ -0,0 +1,15 @@
+package org.necronet.mspago.Config;
+
+import org.app.auth.TokenServicio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TokenServicioConfig {
+    // Las entregas del outbox confirman carritos; MS-Carrito solo acepta ese POST con carritos:confirmar
+    @Bean
+    public TokenServicio tokenServicio(@Value("${auth.servicio.jwtSecret:}") String jwtSecret) {
+        return new TokenServicio(jwtSecret, "ms-pago", "carritos:confirmar");
+    }
+}
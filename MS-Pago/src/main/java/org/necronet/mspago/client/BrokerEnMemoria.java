@@ -0,0 +1,89 @@
+package org.necronet.mspago.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.necronet.mspago.model.OutboxEvento;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sustituto en memoria de MS-Carrito para pruebas y desarrollo local (pago.outbox.broker=memoria).
+ * Guarda los eventos entregados, descarta los repetidos por clave de idempotencia y responde 409 si el
+ * carrito ya se confirmó con otra clave, igual que lo hace MS-Carrito; permite simular caídas o rechazos.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pago.outbox.broker", havingValue = "memoria")
+public class BrokerEnMemoria implements OutboxPublisher {
+
+    private final List<OutboxEvento> entregados = new CopyOnWriteArrayList<>();
+    private final Set<String> clavesVistas = ConcurrentHashMap.newKeySet();
+    private final Map<Long, String> clavePorCarrito = new ConcurrentHashMap<>();
+    private final AtomicInteger intentos = new AtomicInteger();
+    private final AtomicInteger fallosPendientes = new AtomicInteger();
+    private final AtomicReference<RuntimeException> rechazo = new AtomicReference<>();
+
+    @Override
+    public void publicar(OutboxEvento evento) {
+        intentos.incrementAndGet();
+        RuntimeException error = rechazo.get();
+        if (error != null) {
+            throw error;
+        }
+        if (fallosPendientes.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new ResourceAccessException("Broker en memoria no disponible (simulado)");
+        }
+        String ganadora = evento.getCarritoId() == null ? null
+                : clavePorCarrito.putIfAbsent(evento.getCarritoId(), evento.getClaveIdempotencia());
+        if (ganadora != null && !ganadora.equals(evento.getClaveIdempotencia())) {
+            throw HttpClientErrorException.create(HttpStatus.CONFLICT, "El carro ya fue confirmado", null, null, null);
+        }
+        if (clavesVistas.add(evento.getClaveIdempotencia())) {
+            entregados.add(evento);
+        } else {
+            log.debug("Evento repetido descartado: {}", evento.getClaveIdempotencia());
+        }
+    }
+
+    /**
+     * Las próximas {@code veces} entregas fallan con un error transitorio.
+     */
+    public void fallarProximas(int veces) {
+        fallosPendientes.set(veces);
+    }
+
+    /**
+     * Todas las entregas fallan con {@code error} hasta llamar a {@link #reiniciar()}.
+     */
+    public void rechazarCon(RuntimeException error) {
+        rechazo.set(error);
+    }
+
+    public List<OutboxEvento> getEntregados() {
+        return new ArrayList<>(entregados);
+    }
+
+    public int getIntentos() {
+        return intentos.get();
+    }
+
+    public void reiniciar() {
+        entregados.clear();
+        clavesVistas.clear();
+        clavePorCarrito.clear();
+        intentos.set(0);
+        fallosPendientes.set(0);
+        rechazo.set(null);
+    }
+}
@@ -0,0 +1,46 @@
+package org.necronet.mspago.client;
+
+import org.app.auth.TokenServicio;
+import org.necronet.mspago.model.OutboxEvento;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+/**
+ * Confirma el carrito en MS-Carrito con POST /{carritoId}/confirmar y la cabecera Idempotency-Key. Se
+ * envía con el token del servicio: el token del usuario que pagó no se guarda en el outbox.
+ */
+@Component
+@ConditionalOnProperty(name = "pago.outbox.broker", havingValue = "http", matchIfMissing = true)
+public class CarritoOutboxPublisher implements OutboxPublisher {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final MicroserviceClient microserviceClient;
+    private final TokenServicio tokenServicio;
+    private final String carritoBaseUrl;
+
+    public CarritoOutboxPublisher(MicroserviceClient microserviceClient,
+                                  TokenServicio tokenServicio,
+                                  @Value("${ms.carrito.url}") String carritoBaseUrl) {
+        this.microserviceClient = microserviceClient;
+        this.tokenServicio = tokenServicio;
+        this.carritoBaseUrl = carritoBaseUrl;
+    }
+
+    @Override
+    public void publicar(OutboxEvento evento) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(IDEMPOTENCY_KEY, evento.getClaveIdempotencia());
+        microserviceClient.enviarConToken(
+                carritoBaseUrl + "/" + evento.getCarritoId() + "/confirmar",
+                HttpMethod.POST,
+                null,
+                Void.class,
+                tokenServicio.obtener(),
+                headers
+        );
+    }
+}
@@ -1,5 +1,6 @@
 package org.necronet.mspago.client;
 
+import org.app.resilience.ClienteResiliente;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -7,7 +8,13 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class MicroserviceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ClienteResiliente clienteResiliente;
+
+    public MicroserviceClient(RestTemplate restTemplate, ClienteResiliente clienteResiliente) {
+        this.restTemplate = restTemplate;
+        this.clienteResiliente = clienteResiliente;
+    }
 
     public <T> ResponseEntity<T> enviarConToken(
             String url,
@@ -15,13 +22,29 @@ public class MicroserviceClient {
             Object body,
             Class<T> responseType,
             String token
+    ) {
+        return enviarConToken(url, method, body, responseType, token, null);
+    }
+
+    public <T> ResponseEntity<T> enviarConToken(
+            String url,
+            HttpMethod method,
+            Object body,
+            Class<T> responseType,
+            String token,
+            HttpHeaders extraHeaders
     ) {
         HttpHeaders headers = new HttpHeaders();
+        if (extraHeaders != null) {
+            headers.addAll(extraHeaders);
+        }
         headers.set("Authorization", "Bearer " + token);
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         HttpEntity<?> entity = (body != null) ? new HttpEntity<>(body, headers) : new HttpEntity<>(headers);
 
-        return restTemplate.exchange(url, method, entity, responseType);
+        // Solo un GET puede repetirse sin efectos, así que solo él admite lectura duplicada
+        return clienteResiliente.ejecutar(ClienteResiliente.destinoDe(url), method == HttpMethod.GET,
+                () -> restTemplate.exchange(url, method, entity, responseType));
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package org.necronet.mspago.client;
+
+import org.necronet.mspago.model.OutboxEvento;
+
+/**
+ * Entrega de eventos del outbox. Un error de cliente (4xx) se considera definitivo salvo 401, 403, 408,
+ * 409 y 429; cualquier otra excepción se reintenta.
+ */
+public interface OutboxPublisher {
+
+    void publicar(OutboxEvento evento);
+}
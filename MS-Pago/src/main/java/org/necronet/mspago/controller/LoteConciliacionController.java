@@ -0,0 +1,164 @@
+package org.necronet.mspago.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.app.dto.ServiceResult;
+import org.necronet.mspago.dto.LoteRequest;
+import org.necronet.mspago.model.EstadoLote;
+import org.necronet.mspago.model.LoteConciliacion;
+import org.necronet.mspago.service.ConciliacionService;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+@RequestMapping("/api/pagos/lotes")
+@Tag(name = "Lotes de pagos", description = "Reembolsos y conciliación de pagos por lotes")
+public class LoteConciliacionController {
+
+    private final ConciliacionService conciliacionService;
+
+    public LoteConciliacionController(ConciliacionService conciliacionService) {
+        this.conciliacionService = conciliacionService;
+    }
+
+    @Operation(
+            summary = "Crear un lote",
+            description = "Inicia en segundo plano un lote de reembolso o conciliación sobre los pagos de un estado y rango de fechas"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Lote creado y en proceso",
+                    content = @Content(schema = @Schema(implementation = LoteConciliacion.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Datos del lote inválidos",
+                    content = @Content(schema = @Schema(implementation = List.class))
+            )
+    })
+    @PostMapping
+    public ResponseEntity<?> crearLote(@RequestBody LoteRequest request) {
+        ServiceResult<LoteConciliacion> resultado = conciliacionService.crearLote(request);
+
+        if (resultado.hasErrors()) {
+            return ResponseEntity.badRequest().body(resultado.getErrors());
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(recurso(resultado.getData()));
+    }
+
+    @Operation(
+            summary = "Obtener un lote",
+            description = "Devuelve el avance del lote: punto de control, contadores y pagos por segundo"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote encontrado",
+                    content = @Content(schema = @Schema(implementation = LoteConciliacion.class))
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Lote no encontrado"
+            )
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<?> obtenerLote(
+            @Parameter(description = "ID del lote", required = true, example = "1")
+            @PathVariable Long id) {
+
+        ServiceResult<LoteConciliacion> resultado = conciliacionService.obtenerLote(id);
+
+        if (resultado.hasErrors()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(recurso(resultado.getData()));
+    }
+
+    @Operation(
+            summary = "Cancelar un lote",
+            description = "Detiene el lote al terminar el chunk en curso"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote cancelado",
+                    content = @Content(schema = @Schema(implementation = LoteConciliacion.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "El lote no está en curso",
+                    content = @Content(schema = @Schema(implementation = List.class))
+            )
+    })
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<?> cancelarLote(
+            @Parameter(description = "ID del lote", required = true, example = "1")
+            @PathVariable Long id) {
+
+        return responder(conciliacionService.cancelarLote(id));
+    }
+
+    @Operation(
+            summary = "Reanudar un lote",
+            description = "Reanuda un lote fallido desde su último punto de control"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lote reanudado",
+                    content = @Content(schema = @Schema(implementation = LoteConciliacion.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "El lote no está fallido",
+                    content = @Content(schema = @Schema(implementation = List.class))
+            )
+    })
+    @PostMapping("/{id}/reanudar")
+    public ResponseEntity<?> reanudarLote(
+            @Parameter(description = "ID del lote", required = true, example = "1")
+            @PathVariable Long id) {
+
+        return responder(conciliacionService.reanudarLote(id));
+    }
+
+    private ResponseEntity<?> responder(ServiceResult<LoteConciliacion> resultado) {
+        if (resultado.hasErrors()) {
+            if (resultado.getErrors().contains("Lote no encontrado")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().body(resultado.getErrors());
+        }
+        return ResponseEntity.ok(recurso(resultado.getData()));
+    }
+
+    private EntityModel<LoteConciliacion> recurso(LoteConciliacion lote) {
+        EntityModel<LoteConciliacion> resource = EntityModel.of(lote);
+
+        // Self link
+        resource.add(linkTo(methodOn(LoteConciliacionController.class).obtenerLote(lote.getId())).withSelfRel());
+
+        if (lote.getEstado() == EstadoLote.EN_CURSO) {
+            resource.add(linkTo(methodOn(LoteConciliacionController.class).cancelarLote(lote.getId())).withRel("cancelar"));
+        }
+        if (lote.getEstado() == EstadoLote.FALLIDO) {
+            resource.add(linkTo(methodOn(LoteConciliacionController.class).reanudarLote(lote.getId())).withRel("reanudar"));
+        }
+        return resource;
+    }
+}
@@ -9,10 +9,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.app.dto.ServiceResult;
 import org.necronet.mspago.model.Pago;
+import org.necronet.mspago.service.IdempotenciaService;
 import org.necronet.mspago.service.PagoService;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,9 +31,11 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class PagoController {
 
     private final PagoService pagoService;
+    private final IdempotenciaService idempotenciaService;
 
-    public PagoController(PagoService pagoService) {
+    public PagoController(PagoService pagoService, IdempotenciaService idempotenciaService) {
         this.pagoService = pagoService;
+        this.idempotenciaService = idempotenciaService;
     }
 
     @Operation(
@@ -48,6 +52,16 @@ public class PagoController {
                     responseCode = "400",
                     description = "Error al procesar el pago",
                     content = @Content(schema = @Schema(implementation = List.class))
+            ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Otra petición con la misma Idempotency-Key sigue en proceso",
+                    content = @Content(schema = @Schema(implementation = List.class))
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "La Idempotency-Key ya se usó con otro carrito o método de pago",
+                    content = @Content(schema = @Schema(implementation = List.class))
             )
     })
     @PostMapping("/procesar")
@@ -61,11 +75,23 @@ public class PagoController {
                     example = "TARJETA_CREDITO",
                     schema = @Schema(allowableValues = {"TARJETA_CREDITO", "PAYPAL", "TRANSFERENCIA"})
             )
-            @RequestParam String metodoPago) {
+            @RequestParam String metodoPago,
+
+            @Parameter(description = "Clave para reintentar sin duplicar el pago; los reintentos con la misma clave devuelven el mismo pago")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
-        ServiceResult<Pago> resultado = pagoService.procesarPago(carritoId, metodoPago);
+        ServiceResult<Pago> resultado = idempotenciaService.ejecutar(
+                idempotencyKey,
+                carritoId + "|" + metodoPago,
+                () -> pagoService.procesarPago(carritoId, metodoPago));
 
         if (resultado.hasErrors()) {
+            if (resultado.getErrors().contains(IdempotenciaService.CLAVE_EN_PROCESO)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(resultado.getErrors());
+            }
+            if (resultado.getErrors().contains(IdempotenciaService.CLAVE_REUTILIZADA)) {
+                return ResponseEntity.unprocessableEntity().body(resultado.getErrors());
+            }
             return ResponseEntity.badRequest().body(resultado.getErrors());
         }
 
@@ -181,7 +207,7 @@ public class PagoController {
 
         // Link to process new payment
         resources.add(linkTo(methodOn(PagoController.class)
-                .procesarPago(null, null))
+                .procesarPago(null, null, null))
                 .withRel("procesar-pago")
                 .expand());
 
@@ -0,0 +1,18 @@
+package org.necronet.mspago.dto;
+
+import lombok.Data;
+import org.necronet.mspago.model.EstadoPago;
+import org.necronet.mspago.model.TipoLote;
+
+import java.time.LocalDateTime;
+
+@Data
+public class LoteRequest {
+    private TipoLote tipo;
+    private EstadoPago estadoPago;
+    // Rango de fechaPago [desde, hasta)
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    // Opcional: pagos por chunk (por defecto pago.lotes.chunkSize)
+    private Integer chunkSize;
+}
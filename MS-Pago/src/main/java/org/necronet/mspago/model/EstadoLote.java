@@ -0,0 +1,8 @@
+package org.necronet.mspago.model;
+
+public enum EstadoLote {
+    EN_CURSO,
+    COMPLETADO,
+    CANCELADO,
+    FALLIDO
+}
@@ -0,0 +1,7 @@
+package org.necronet.mspago.model;
+
+public enum EstadoOutbox {
+    PENDIENTE,
+    ENVIADO,
+    FALLIDO
+}
@@ -0,0 +1,87 @@
+package org.necronet.mspago.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Lote de reembolso o conciliación sobre los pagos de un estado y rango de fechas. ultimoPagoId es el
+ * punto de control: todo pago con ID menor o igual ya se procesó, así que un lote interrumpido se
+ * reanuda desde ahí.
+ */
+@Entity
+@Table(name = "pago_lotes")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteConciliacion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoLote tipo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoPago estadoPago;
+
+    @Column(nullable = false)
+    private LocalDateTime desde;
+
+    @Column(nullable = false)
+    private LocalDateTime hasta;
+
+    private int chunkSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoLote estado;
+
+    @Builder.Default
+    private Long ultimoPagoId = 0L;
+
+    private long procesados;
+    private long exitosos;
+    // Pagos corregidos por la conciliación (reembolsos de carritos que nunca se confirmaron)
+    private long ajustados;
+    // Pagos que ya no aplican (cambiaron de estado) o descuadres que requieren revisión manual
+    private long omitidos;
+    private long descuadres;
+    private long errores;
+
+    // Tiempo de proceso acumulado entre reanudaciones, para el rendimiento
+    private long milisegundosProceso;
+
+    // Reserva del lote por la instancia que lo procesa; vencida, otra instancia lo reanuda
+    @JsonIgnore
+    private LocalDateTime reservadoHasta;
+
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaActualizacion;
+    private LocalDateTime fechaFin;
+
+    @Column(length = 500)
+    private String ultimoError;
+
+    @Transient
+    @JsonProperty("pagosPorSegundo")
+    public double getPagosPorSegundo() {
+        return milisegundosProceso == 0 ? 0 : procesados * 1000.0 / milisegundosProceso;
+    }
+
+    @Transient
+    @JsonIgnore
+    public Duration getTiempoProceso() {
+        return Duration.ofMillis(milisegundosProceso);
+    }
+}
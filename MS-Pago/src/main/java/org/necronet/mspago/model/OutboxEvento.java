@@ -0,0 +1,49 @@
+package org.necronet.mspago.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Confirmación de carrito pendiente de enviar a MS-Carrito. Se guarda en la misma transacción que el pago,
+ * así que existe si y solo si el pago quedó registrado; OutboxDispatcher la entrega después.
+ */
+@Entity
+@Table(name = "pago_outbox", indexes = {
+        @Index(name = "idx_pago_outbox_estado_proximo", columnList = "estado, proximo_intento")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvento {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long pagoId;
+    private Long carritoId;
+
+    // MS-Carrito la usa para reconocer reenvíos de una confirmación que ya aplicó
+    @Column(name = "clave_idempotencia", nullable = false, unique = true, length = 100)
+    private String claveIdempotencia;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoOutbox estado;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(length = 500)
+    private String ultimoError;
+
+    private LocalDateTime fechaCreacion;
+    private LocalDateTime fechaEnvio;
+}
@@ -6,6 +6,11 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // Recorrido por keyset de los lotes: estado + id en orden, filtrando por fecha
+        @Index(name = "idx_pago_estado_id", columnList = "estado, id"),
+        @Index(name = "idx_pago_estado_fecha", columnList = "estado, fecha_pago")
+})
 @Data
 public class Pago {
     @Id
@@ -0,0 +1,51 @@
+package org.necronet.mspago.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro persistido de una Idempotency-Key de POST /api/pagos/procesar. Mientras el primer intento se
+ * ejecuta queda EN_PROCESO; si termina bien guarda el pago creado hasta expiraEn. Los intentos fallidos
+ * no se guardan, así que un reintento vuelve a ejecutar.
+ */
+@Entity
+@Table(name = "pago_idempotencia", indexes = {
+        @Index(name = "idx_pago_idempotencia_expira", columnList = "expira_en")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PagoIdempotencia {
+
+    public enum Estado {
+        EN_PROCESO,
+        COMPLETADO
+    }
+
+    // SHA-256 del usuario y la clave recibida: la misma clave de dos usuarios no choca
+    @Id
+    @Column(length = 64)
+    private String clave;
+
+    // SHA-256 de los parámetros de la petición, para rechazar la misma clave con otro carrito o método
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado;
+
+    private Long pagoId;
+
+    @Column(nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+}
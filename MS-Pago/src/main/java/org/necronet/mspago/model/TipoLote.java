@@ -0,0 +1,8 @@
+package org.necronet.mspago.model;
+
+public enum TipoLote {
+    // Reembolsa todos los pagos del filtro
+    REEMBOLSO,
+    // Revisa que cada pago coincida con la confirmación de su carrito y corrige los descuadres
+    CONCILIACION
+}
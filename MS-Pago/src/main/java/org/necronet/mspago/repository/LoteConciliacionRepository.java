@@ -0,0 +1,67 @@
+package org.necronet.mspago.repository;
+
+import org.necronet.mspago.model.EstadoLote;
+import org.necronet.mspago.model.LoteConciliacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LoteConciliacionRepository extends JpaRepository<LoteConciliacion, Long> {
+
+    @Query("select l.id from LoteConciliacion l where l.estado = :estado " +
+            "and (l.reservadoHasta is null or l.reservadoHasta < :ahora) order by l.id")
+    List<Long> findIdsAbandonados(@Param("estado") EstadoLote estado, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Reserva el lote hasta {@code hasta}; devuelve 0 si otra instancia lo tiene reservado.
+     */
+    @Modifying
+    @Transactional
+    @Query("update LoteConciliacion l set l.reservadoHasta = :hasta where l.id = :id and l.estado = :estado " +
+            "and (l.reservadoHasta is null or l.reservadoHasta < :ahora)")
+    int reservar(@Param("id") Long id,
+                 @Param("estado") EstadoLote estado,
+                 @Param("ahora") LocalDateTime ahora,
+                 @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Guarda el punto de control de un chunk y renueva la reserva. Devuelve 0 si el lote ya no está
+     * EN_CURSO (por ejemplo, se canceló mientras se procesaba el chunk).
+     */
+    @Modifying
+    @Transactional
+    @Query("update LoteConciliacion l set l.ultimoPagoId = :ultimoPagoId, " +
+            "l.procesados = l.procesados + :procesados, l.exitosos = l.exitosos + :exitosos, " +
+            "l.ajustados = l.ajustados + :ajustados, l.omitidos = l.omitidos + :omitidos, " +
+            "l.descuadres = l.descuadres + :descuadres, l.errores = l.errores + :errores, " +
+            "l.milisegundosProceso = l.milisegundosProceso + :milisegundos, " +
+            "l.reservadoHasta = :reservadoHasta, l.fechaActualizacion = :ahora " +
+            "where l.id = :id and l.estado = org.necronet.mspago.model.EstadoLote.EN_CURSO")
+    int guardarAvance(@Param("id") Long id,
+                      @Param("ultimoPagoId") Long ultimoPagoId,
+                      @Param("procesados") long procesados,
+                      @Param("exitosos") long exitosos,
+                      @Param("ajustados") long ajustados,
+                      @Param("omitidos") long omitidos,
+                      @Param("descuadres") long descuadres,
+                      @Param("errores") long errores,
+                      @Param("milisegundos") long milisegundos,
+                      @Param("reservadoHasta") LocalDateTime reservadoHasta,
+                      @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("update LoteConciliacion l set l.estado = :nuevo, l.reservadoHasta = null, l.fechaActualizacion = :ahora, " +
+            "l.fechaFin = :fechaFin, l.ultimoError = :error where l.id = :id and l.estado = :actual")
+    int cambiarEstado(@Param("id") Long id,
+                      @Param("actual") EstadoLote actual,
+                      @Param("nuevo") EstadoLote nuevo,
+                      @Param("ahora") LocalDateTime ahora,
+                      @Param("fechaFin") LocalDateTime fechaFin,
+                      @Param("error") String error);
+}
@@ -0,0 +1,37 @@
+package org.necronet.mspago.repository;
+
+import org.necronet.mspago.model.EstadoOutbox;
+import org.necronet.mspago.model.OutboxEvento;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventoRepository extends JpaRepository<OutboxEvento, Long> {
+
+    @Query("select e.id from OutboxEvento e where e.estado = :estado and e.proximoIntento <= :ahora order by e.id")
+    List<Long> findIdsListos(@Param("estado") EstadoOutbox estado, @Param("ahora") LocalDateTime ahora, Limit limit);
+
+    /**
+     * Reserva el evento hasta {@code hasta} moviendo su próximo intento. Devuelve 0 si otro hilo u otra
+     * instancia ya lo reservó; si quien lo reservó se cae, el evento vuelve a estar listo al vencer la reserva.
+     */
+    @Modifying
+    @Transactional
+    @Query("update OutboxEvento e set e.proximoIntento = :hasta " +
+            "where e.id = :id and e.estado = :estado and e.proximoIntento <= :ahora")
+    int reservar(@Param("id") Long id,
+                 @Param("estado") EstadoOutbox estado,
+                 @Param("ahora") LocalDateTime ahora,
+                 @Param("hasta") LocalDateTime hasta);
+
+    long countByEstado(EstadoOutbox estado);
+
+    List<OutboxEvento> findByPagoIdIn(Collection<Long> pagoIds);
+}
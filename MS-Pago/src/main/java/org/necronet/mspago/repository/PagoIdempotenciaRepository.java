@@ -0,0 +1,47 @@
+package org.necronet.mspago.repository;
+
+import org.necronet.mspago.model.PagoIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface PagoIdempotenciaRepository extends JpaRepository<PagoIdempotencia, String> {
+
+    /**
+     * INSERT explícito (save haría merge y pisaría el registro de otra petición): si la clave ya existe
+     * falla con violación de clave primaria, que es lo que decide qué petición ejecuta.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into pago_idempotencia (clave, huella, estado, fecha_creacion, expira_en) " +
+            "values (:clave, :huella, 'EN_PROCESO', :ahora, :expiraEn)", nativeQuery = true)
+    void reservar(@Param("clave") String clave,
+                  @Param("huella") String huella,
+                  @Param("ahora") LocalDateTime ahora,
+                  @Param("expiraEn") LocalDateTime expiraEn);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PagoIdempotencia p where p.expiraEn < :ahora")
+    int eliminarVencidas(@Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PagoIdempotencia p where p.clave = :clave and p.expiraEn < :ahora")
+    int eliminarSiVencida(@Param("clave") String clave, @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Transactional
+    @Query("update PagoIdempotencia p set p.estado = org.necronet.mspago.model.PagoIdempotencia.Estado.COMPLETADO, " +
+            "p.pagoId = :pagoId, p.expiraEn = :expiraEn where p.clave = :clave")
+    int completar(@Param("clave") String clave, @Param("pagoId") Long pagoId, @Param("expiraEn") LocalDateTime expiraEn);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PagoIdempotencia p where p.clave = :clave and p.estado = org.necronet.mspago.model.PagoIdempotencia.Estado.EN_PROCESO")
+    int liberar(@Param("clave") String clave);
+}
@@ -3,11 +3,38 @@ package org.necronet.mspago.repository;
 
 import org.necronet.mspago.model.EstadoPago;
 import org.necronet.mspago.model.Pago;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface PagoRepository extends JpaRepository<Pago, Long> {
     List<Pago> findByUsuarioId(Long usuarioId);
     List<Pago> findByCarritoId(Long carritoId);
     List<Pago> findByEstado(EstadoPago estado);
+
+    /**
+     * Cambia el estado solo si sigue siendo {@code actual}; devuelve 0 si otro hilo u otra instancia ya lo cambió.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Pago p set p.estado = :nuevo where p.id = :id and p.estado = :actual")
+    int cambiarEstado(@Param("id") Long id, @Param("actual") EstadoPago actual, @Param("nuevo") EstadoPago nuevo);
+
+    /**
+     * Siguiente página por keyset (id > ultimoId) de los pagos de un estado en [desde, hasta). Cada
+     * página cuesta lo mismo sin importar cuántas se hayan leído antes y nunca se carga la tabla completa.
+     */
+    @Query("select p from Pago p where p.estado = :estado and p.fechaPago >= :desde and p.fechaPago < :hasta " +
+            "and p.id > :ultimoId order by p.id")
+    List<Pago> findPagina(@Param("estado") EstadoPago estado,
+                          @Param("desde") LocalDateTime desde,
+                          @Param("hasta") LocalDateTime hasta,
+                          @Param("ultimoId") Long ultimoId,
+                          Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,347 @@
+package org.necronet.mspago.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.app.dto.ServiceResult;
+import org.necronet.mspago.dto.LoteRequest;
+import org.necronet.mspago.model.*;
+import org.necronet.mspago.repository.LoteConciliacionRepository;
+import org.necronet.mspago.repository.OutboxEventoRepository;
+import org.necronet.mspago.repository.PagoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lotes de reembolso y conciliación de pagos.
+ *
+ * Cada lote recorre los pagos de un estado y rango de fechas por keyset (id > último procesado), de a
+ * chunkSize pagos, así que la memoria usada depende del tamaño del chunk y no de cuántos pagos haya. Los
+ * pagos de un chunk se procesan en paralelo en un pool acotado; al terminar el chunk se guarda el punto
+ * de control y los contadores con un solo UPDATE. Si la instancia se cae, la reserva del lote vence y
+ * cualquier instancia lo reanuda desde el último punto de control (reprocesar un chunk es seguro: un pago
+ * ya reembolsado se omite).
+ *
+ * Métricas: pago.lotes.pagos (por tipo y resultado) y pago.lotes.chunk (duración de cada chunk).
+ */
+@Slf4j
+@Service
+public class ConciliacionService {
+
+    static final String LOTE_NO_ENCONTRADO = "Lote no encontrado";
+    private static final String SOLO_COMPLETADOS = "Solo se puede reembolsar un pago completado";
+
+    enum Resultado {
+        EXITOSO,
+        AJUSTADO,
+        OMITIDO,
+        DESCUADRE,
+        ERROR
+    }
+
+    private final LoteConciliacionRepository loteRepository;
+    private final PagoRepository pagoRepository;
+    private final OutboxEventoRepository outboxRepository;
+    private final PagoService pagoService;
+    private final MeterRegistry meterRegistry;
+    private final Executor coordinador;
+    private final Executor workers;
+    private final Clock clock;
+    private final int chunkSize;
+    private final int chunkSizeMaximo;
+    private final Duration reserva;
+    private final Duration pendienteMaximo;
+
+    @Autowired
+    public ConciliacionService(LoteConciliacionRepository loteRepository,
+                               PagoRepository pagoRepository,
+                               OutboxEventoRepository outboxRepository,
+                               PagoService pagoService,
+                               MeterRegistry meterRegistry,
+                               @Value("${pago.lotes.workers:4}") int workers,
+                               @Value("${pago.lotes.maxConcurrentes:2}") int maxConcurrentes,
+                               @Value("${pago.lotes.chunkSize:500}") int chunkSize,
+                               @Value("${pago.lotes.chunkSizeMaximo:5000}") int chunkSizeMaximo,
+                               @Value("${pago.lotes.leaseMs:120000}") long leaseMs,
+                               @Value("${pago.lotes.pendienteMaxMs:3600000}") long pendienteMaxMs) {
+        this(loteRepository, pagoRepository, outboxRepository, pagoService, meterRegistry,
+                crearPool("pago-lote-", maxConcurrentes, new LinkedBlockingQueue<>()),
+                // Cola del tamaño de un chunk; si se llena, el coordinador procesa el pago él mismo
+                crearPool("pago-lote-worker-", workers, new ArrayBlockingQueue<>(chunkSizeMaximo)),
+                Clock.systemDefaultZone(), chunkSize, chunkSizeMaximo, leaseMs, pendienteMaxMs);
+    }
+
+    ConciliacionService(LoteConciliacionRepository loteRepository, PagoRepository pagoRepository,
+                        OutboxEventoRepository outboxRepository, PagoService pagoService,
+                        MeterRegistry meterRegistry, Executor coordinador, Executor workers, Clock clock,
+                        int chunkSize, int chunkSizeMaximo, long leaseMs, long pendienteMaxMs) {
+        this.loteRepository = loteRepository;
+        this.pagoRepository = pagoRepository;
+        this.outboxRepository = outboxRepository;
+        this.pagoService = pagoService;
+        this.meterRegistry = meterRegistry;
+        this.coordinador = coordinador;
+        this.workers = workers;
+        this.clock = clock;
+        this.chunkSize = chunkSize;
+        this.chunkSizeMaximo = chunkSizeMaximo;
+        this.reserva = Duration.ofMillis(leaseMs);
+        this.pendienteMaximo = Duration.ofMillis(pendienteMaxMs);
+    }
+
+    private static ThreadPoolExecutor crearPool(String prefijo, int hilos, BlockingQueue<Runnable> cola) {
+        AtomicInteger contador = new AtomicInteger();
+        return new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS, cola,
+                r -> {
+                    Thread hilo = new Thread(r, prefijo + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public ServiceResult<LoteConciliacion> crearLote(LoteRequest request) {
+        List<String> errores = validar(request);
+        if (!errores.isEmpty()) {
+            return new ServiceResult<>(errores);
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now(clock);
+            int tamano = request.getChunkSize() != null ? request.getChunkSize() : chunkSize;
+            LoteConciliacion lote = loteRepository.save(LoteConciliacion.builder()
+                    .tipo(request.getTipo())
+                    .estadoPago(request.getEstadoPago())
+                    .desde(request.getDesde())
+                    .hasta(request.getHasta())
+                    .chunkSize(tamano)
+                    .estado(EstadoLote.EN_CURSO)
+                    .fechaCreacion(ahora)
+                    .fechaActualizacion(ahora)
+                    .build());
+            iniciar(lote.getId());
+            return new ServiceResult<>(lote);
+        } catch (Exception e) {
+            log.error("Error al crear el lote {}", request, e);
+            return new ServiceResult<>(List.of("Error al crear el lote: " + e.getMessage()));
+        }
+    }
+
+    public ServiceResult<LoteConciliacion> obtenerLote(Long id) {
+        return loteRepository.findById(id)
+                .map(ServiceResult::new)
+                .orElseGet(() -> new ServiceResult<>(List.of(LOTE_NO_ENCONTRADO)));
+    }
+
+    /**
+     * El lote se detiene al terminar el chunk en curso; lo procesado hasta ahí queda guardado.
+     */
+    public ServiceResult<LoteConciliacion> cancelarLote(Long id) {
+        LocalDateTime ahora = LocalDateTime.now(clock);
+        if (loteRepository.cambiarEstado(id, EstadoLote.EN_CURSO, EstadoLote.CANCELADO, ahora, ahora, null) == 0) {
+            return loteRepository.existsById(id)
+                    ? new ServiceResult<>(List.of("Solo se puede cancelar un lote en curso"))
+                    : new ServiceResult<>(List.of(LOTE_NO_ENCONTRADO));
+        }
+        return obtenerLote(id);
+    }
+
+    /**
+     * Reanuda un lote FALLIDO desde su último punto de control.
+     */
+    public ServiceResult<LoteConciliacion> reanudarLote(Long id) {
+        LocalDateTime ahora = LocalDateTime.now(clock);
+        if (loteRepository.cambiarEstado(id, EstadoLote.FALLIDO, EstadoLote.EN_CURSO, ahora, null, null) == 0) {
+            return loteRepository.existsById(id)
+                    ? new ServiceResult<>(List.of("Solo se puede reanudar un lote fallido"))
+                    : new ServiceResult<>(List.of(LOTE_NO_ENCONTRADO));
+        }
+        iniciar(id);
+        return obtenerLote(id);
+    }
+
+    /**
+     * Retoma los lotes EN_CURSO cuya reserva venció: la instancia que los procesaba se detuvo.
+     */
+    @Scheduled(fixedDelayString = "${pago.lotes.reanudarMs:60000}")
+    public void reanudarAbandonados() {
+        for (Long id : loteRepository.findIdsAbandonados(EstadoLote.EN_CURSO, LocalDateTime.now(clock))) {
+            iniciar(id);
+        }
+    }
+
+    private void iniciar(Long id) {
+        coordinador.execute(() -> ejecutar(id));
+    }
+
+    void ejecutar(Long id) {
+        LocalDateTime ahora = LocalDateTime.now(clock);
+        if (loteRepository.reservar(id, EstadoLote.EN_CURSO, ahora, ahora.plus(reserva)) == 0) {
+            return;
+        }
+        LoteConciliacion lote = loteRepository.findById(id).orElse(null);
+        if (lote == null) {
+            return;
+        }
+        log.info("Procesando lote {} ({} de pagos {}) desde el pago {}",
+                id, lote.getTipo(), lote.getEstadoPago(), lote.getUltimoPagoId());
+
+        Timer tiempoChunk = meterRegistry.timer("pago.lotes.chunk", "tipo", lote.getTipo().name());
+        long ultimoPagoId = lote.getUltimoPagoId();
+        try {
+            while (true) {
+                long inicio = System.nanoTime();
+                List<Pago> pagina = pagoRepository.findPagina(lote.getEstadoPago(), lote.getDesde(), lote.getHasta(),
+                        ultimoPagoId, Limit.of(lote.getChunkSize()));
+                if (pagina.isEmpty()) {
+                    LocalDateTime fin = LocalDateTime.now(clock);
+                    loteRepository.cambiarEstado(id, EstadoLote.EN_CURSO, EstadoLote.COMPLETADO, fin, fin, null);
+                    log.info("Lote {} completado", id);
+                    return;
+                }
+
+                Map<Resultado, Long> conteo = procesarChunk(lote, pagina);
+                ultimoPagoId = pagina.get(pagina.size() - 1).getId();
+                long milisegundos = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                LocalDateTime fin = LocalDateTime.now(clock);
+                int guardado = loteRepository.guardarAvance(id, ultimoPagoId, pagina.size(),
+                        conteo.get(Resultado.EXITOSO), conteo.get(Resultado.AJUSTADO), conteo.get(Resultado.OMITIDO),
+                        conteo.get(Resultado.DESCUADRE), conteo.get(Resultado.ERROR), milisegundos,
+                        fin.plus(reserva), fin);
+                tiempoChunk.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                if (guardado == 0) {
+                    log.info("Lote {} cancelado en el pago {}", id, ultimoPagoId);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Lote {} detenido en el pago {}", id, ultimoPagoId, e);
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            LocalDateTime fin = LocalDateTime.now(clock);
+            loteRepository.cambiarEstado(id, EstadoLote.EN_CURSO, EstadoLote.FALLIDO, fin, null,
+                    error.length() > 500 ? error.substring(0, 500) : error);
+        }
+    }
+
+    private Map<Resultado, Long> procesarChunk(LoteConciliacion lote, List<Pago> pagina) {
+        // Un solo SELECT por chunk para cruzar los pagos con sus confirmaciones de carrito
+        Map<Long, OutboxEvento> eventos = lote.getTipo() == TipoLote.CONCILIACION
+                ? outboxRepository.findByPagoIdIn(pagina.stream().map(Pago::getId).toList()).stream()
+                .collect(Collectors.toMap(OutboxEvento::getPagoId, Function.identity(), (a, b) -> a))
+                : Map.of();
+
+        List<CompletableFuture<Resultado>> futuros = new ArrayList<>(pagina.size());
+        for (Pago pago : pagina) {
+            futuros.add(CompletableFuture.supplyAsync(() -> procesarPago(lote, pago, eventos.get(pago.getId())), workers));
+        }
+
+        Map<Resultado, Long> conteo = new EnumMap<>(Resultado.class);
+        for (Resultado resultado : Resultado.values()) {
+            conteo.put(resultado, 0L);
+        }
+        for (CompletableFuture<Resultado> futuro : futuros) {
+            conteo.merge(futuro.join(), 1L, Long::sum);
+        }
+        conteo.forEach((resultado, cantidad) -> {
+            if (cantidad > 0) {
+                meterRegistry.counter("pago.lotes.pagos", "tipo", lote.getTipo().name(),
+                        "resultado", resultado.name()).increment(cantidad);
+            }
+        });
+        return conteo;
+    }
+
+    Resultado procesarPago(LoteConciliacion lote, Pago pago, OutboxEvento evento) {
+        try {
+            return lote.getTipo() == TipoLote.REEMBOLSO ? reembolsar(pago, Resultado.EXITOSO) : conciliar(pago, evento);
+        } catch (Exception e) {
+            log.warn("Error en el lote {} con el pago {}: {}", lote.getId(), pago.getId(), e.getMessage());
+            return Resultado.ERROR;
+        }
+    }
+
+    private Resultado reembolsar(Pago pago, Resultado siReembolsa) {
+        ServiceResult<Pago> resultado = pagoService.reembolsarPago(pago.getId());
+        if (!resultado.hasErrors()) {
+            return siReembolsa;
+        }
+        // El pago cambió de estado desde que se leyó el chunk (o ya se reembolsó antes de una reanudación)
+        return resultado.getErrors().contains(SOLO_COMPLETADOS) ? Resultado.OMITIDO : Resultado.ERROR;
+    }
+
+    private Resultado conciliar(Pago pago, OutboxEvento evento) {
+        if (evento == null) {
+            // Pago anterior al outbox: no hay confirmación con la que cruzarlo
+            return Resultado.EXITOSO;
+        }
+        if (pago.getEstado() == EstadoPago.COMPLETADO && evento.getEstado() == EstadoOutbox.FALLIDO) {
+            // El carrito nunca se confirmó y el reembolso automático no llegó a hacerse
+            return reembolsar(pago, Resultado.AJUSTADO);
+        }
+        if (pago.getEstado() == EstadoPago.COMPLETADO && evento.getEstado() == EstadoOutbox.PENDIENTE
+                && evento.getFechaCreacion() != null
+                && evento.getFechaCreacion().isBefore(LocalDateTime.now(clock).minus(pendienteMaximo))) {
+            log.warn("Pago {} sin confirmar el carrito {} desde {}", pago.getId(), evento.getCarritoId(), evento.getFechaCreacion());
+            return Resultado.DESCUADRE;
+        }
+        if (pago.getEstado() == EstadoPago.COMPLETADO && evento.getEstado() == EstadoOutbox.ENVIADO
+                && evento.getUltimoError() != null) {
+            // Una entrega exitosa limpia ultimoError: solo queda así si el carrito respondió 409 antes de que
+            // ese rechazo se tratara como definitivo, es decir, otro pago se quedó con el carrito
+            log.warn("Pago {} cobrado con el carrito {} confirmado por otro pago: {}",
+                    pago.getId(), evento.getCarritoId(), evento.getUltimoError());
+            return Resultado.DESCUADRE;
+        }
+        if (pago.getEstado() == EstadoPago.REEMBOLSADO && evento.getEstado() == EstadoOutbox.ENVIADO) {
+            log.warn("Pago {} reembolsado con el carrito {} confirmado", pago.getId(), evento.getCarritoId());
+            return Resultado.DESCUADRE;
+        }
+        return Resultado.EXITOSO;
+    }
+
+    private List<String> validar(LoteRequest request) {
+        List<String> errores = new ArrayList<>();
+        if (request.getTipo() == null) {
+            errores.add("El tipo de lote es requerido");
+        }
+        if (request.getEstadoPago() == null) {
+            errores.add("El estado de pago es requerido");
+        } else if (request.getTipo() == TipoLote.REEMBOLSO && request.getEstadoPago() != EstadoPago.COMPLETADO) {
+            errores.add("Solo se pueden reembolsar pagos COMPLETADO");
+        }
+        if (request.getDesde() == null || request.getHasta() == null) {
+            errores.add("El rango de fechas es requerido");
+        } else if (!request.getDesde().isBefore(request.getHasta())) {
+            errores.add("La fecha desde debe ser anterior a la fecha hasta");
+        }
+        if (request.getChunkSize() != null && (request.getChunkSize() < 1 || request.getChunkSize() > chunkSizeMaximo)) {
+            errores.add("El tamaño de chunk debe estar entre 1 y " + chunkSizeMaximo);
+        }
+        return errores;
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (coordinador instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+        if (workers instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.necronet.mspago.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.app.dto.ServiceResult;
+import org.necronet.mspago.model.Pago;
+import org.necronet.mspago.model.PagoIdempotencia;
+import org.necronet.mspago.repository.PagoIdempotenciaRepository;
+import org.necronet.mspago.repository.PagoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicación de POST /api/pagos/procesar por Idempotency-Key.
+ *
+ * Dos niveles: una cache acotada en memoria con las claves completadas recientemente y la tabla
+ * pago_idempotencia, que comparten todas las instancias y guarda cada clave hasta ttlMs. La primera
+ * petición con una clave inserta el registro EN_PROCESO (la clave primaria decide quién ejecuta); las
+ * duplicadas que llegan mientras tanto esperan su resultado: en la misma instancia, sobre el mismo
+ * CompletableFuture; desde otra instancia, consultando el registro cada sondeoMs. Un reintento posterior
+ * devuelve el mismo pago sin volver a cobrar. Si el intento falla se libera la clave y el siguiente
+ * reintento ejecuta de nuevo.
+ */
+@Slf4j
+@Service
+public class IdempotenciaService {
+
+    public static final String CLAVE_EN_PROCESO = "Hay otra petición con la misma Idempotency-Key en proceso";
+    public static final String CLAVE_REUTILIZADA = "La Idempotency-Key ya se usó con otros parámetros";
+    public static final String CLAVE_INVALIDA = "La Idempotency-Key debe tener entre 1 y 255 caracteres";
+
+    private static final int LARGO_MAXIMO = 255;
+
+    private record Completada(String huella, Long pagoId) {
+    }
+
+    private record EnCurso(String huella, CompletableFuture<ServiceResult<Pago>> resultado) {
+    }
+
+    private final PagoIdempotenciaRepository idempotenciaRepository;
+    private final PagoRepository pagoRepository;
+    private final Clock clock;
+    private final Duration ttl;
+    private final Duration enProcesoTtl;
+    private final Duration esperaMaxima;
+    private final Duration sondeo;
+    private final Cache<String, Completada> completadas;
+    private final ConcurrentHashMap<String, EnCurso> enCurso = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotenciaService(PagoIdempotenciaRepository idempotenciaRepository,
+                               PagoRepository pagoRepository,
+                               @Value("${pago.idempotencia.ttlMs:86400000}") long ttlMs,
+                               @Value("${pago.idempotencia.enProcesoTtlMs:60000}") long enProcesoTtlMs,
+                               @Value("${pago.idempotencia.esperaMaxMs:10000}") long esperaMaxMs,
+                               @Value("${pago.idempotencia.sondeoMs:50}") long sondeoMs,
+                               @Value("${pago.idempotencia.hotMaxSize:10000}") long hotMaxSize,
+                               @Value("${pago.idempotencia.hotTtlMs:600000}") long hotTtlMs) {
+        this(idempotenciaRepository, pagoRepository, Clock.systemDefaultZone(), ttlMs, enProcesoTtlMs,
+                esperaMaxMs, sondeoMs, hotMaxSize, hotTtlMs);
+    }
+
+    IdempotenciaService(PagoIdempotenciaRepository idempotenciaRepository, PagoRepository pagoRepository,
+                        Clock clock, long ttlMs, long enProcesoTtlMs, long esperaMaxMs, long sondeoMs,
+                        long hotMaxSize, long hotTtlMs) {
+        this.idempotenciaRepository = idempotenciaRepository;
+        this.pagoRepository = pagoRepository;
+        this.clock = clock;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.enProcesoTtl = Duration.ofMillis(enProcesoTtlMs);
+        this.esperaMaxima = Duration.ofMillis(esperaMaxMs);
+        this.sondeo = Duration.ofMillis(sondeoMs);
+        this.completadas = Caffeine.newBuilder()
+                .maximumSize(hotMaxSize)
+                .expireAfterWrite(Duration.ofMillis(Math.min(ttlMs, hotTtlMs)))
+                .build();
+    }
+
+    /**
+     * Ejecuta {@code accion} una sola vez por clave y usuario. Sin clave, ejecuta siempre.
+     *
+     * @param parametros parámetros de la petición; la misma clave con otros parámetros se rechaza
+     */
+    public ServiceResult<Pago> ejecutar(String idempotencyKey, String parametros, Supplier<ServiceResult<Pago>> accion) {
+        if (idempotencyKey == null) {
+            return accion.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > LARGO_MAXIMO) {
+            return new ServiceResult<>(List.of(CLAVE_INVALIDA));
+        }
+
+        String clave = sha256(usuarioActual() + "\n" + idempotencyKey);
+        String huella = sha256(parametros);
+        long limite = System.nanoTime() + esperaMaxima.toNanos();
+
+        Completada completada = completadas.getIfPresent(clave);
+        if (completada != null) {
+            return repetir(completada, huella);
+        }
+
+        EnCurso propia = new EnCurso(huella, new CompletableFuture<>());
+        EnCurso otra = enCurso.putIfAbsent(clave, propia);
+        if (otra != null) {
+            return esperar(otra, huella, limite);
+        }
+        try {
+            ServiceResult<Pago> resultado = ejecutarPrimero(clave, huella, accion, limite);
+            propia.resultado().complete(resultado);
+            return resultado;
+        } catch (RuntimeException e) {
+            propia.resultado().completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propia);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pago.idempotencia.purgeMs:3600000}")
+    public void purgarVencidas() {
+        int eliminadas = idempotenciaRepository.eliminarVencidas(LocalDateTime.now(clock));
+        if (eliminadas > 0) {
+            log.info("Claves de idempotencia vencidas eliminadas: {}", eliminadas);
+        }
+    }
+
+    private ServiceResult<Pago> ejecutarPrimero(String clave, String huella, Supplier<ServiceResult<Pago>> accion,
+                                                long limite) {
+        while (true) {
+            LocalDateTime ahora = LocalDateTime.now(clock);
+            try {
+                idempotenciaRepository.reservar(clave, huella, ahora, ahora.plus(enProcesoTtl));
+                break;
+            } catch (DataIntegrityViolationException e) {
+                // La clave ya existe: la completó o la está ejecutando otra instancia
+            }
+
+            PagoIdempotencia registro = idempotenciaRepository.findById(clave).orElse(null);
+            if (registro == null) {
+                continue;
+            }
+            if (registro.getExpiraEn().isBefore(ahora)) {
+                // Vencida, o la instancia que la ejecutaba se cayó sin terminar
+                idempotenciaRepository.eliminarSiVencida(clave, ahora);
+                continue;
+            }
+            if (!registro.getHuella().equals(huella)) {
+                return new ServiceResult<>(List.of(CLAVE_REUTILIZADA));
+            }
+            if (registro.getEstado() == PagoIdempotencia.Estado.COMPLETADO) {
+                Completada completada = new Completada(registro.getHuella(), registro.getPagoId());
+                completadas.put(clave, completada);
+                return repetir(completada, huella);
+            }
+            if (System.nanoTime() >= limite || !dormir()) {
+                return new ServiceResult<>(List.of(CLAVE_EN_PROCESO));
+            }
+        }
+
+        ServiceResult<Pago> resultado;
+        try {
+            resultado = accion.get();
+        } catch (RuntimeException e) {
+            idempotenciaRepository.liberar(clave);
+            throw e;
+        }
+        if (resultado.hasErrors() || resultado.getData() == null || resultado.getData().getId() == null) {
+            idempotenciaRepository.liberar(clave);
+            return resultado;
+        }
+        Long pagoId = resultado.getData().getId();
+        idempotenciaRepository.completar(clave, pagoId, LocalDateTime.now(clock).plus(ttl));
+        completadas.put(clave, new Completada(huella, pagoId));
+        return resultado;
+    }
+
+    private ServiceResult<Pago> esperar(EnCurso otra, String huella, long limite) {
+        if (!otra.huella().equals(huella)) {
+            return new ServiceResult<>(List.of(CLAVE_REUTILIZADA));
+        }
+        try {
+            return otra.resultado().get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return new ServiceResult<>(List.of(CLAVE_EN_PROCESO));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ServiceResult<>(List.of(CLAVE_EN_PROCESO));
+        } catch (ExecutionException e) {
+            return new ServiceResult<>(List.of("Error al procesar el pago: " + e.getCause().getMessage()));
+        }
+    }
+
+    private ServiceResult<Pago> repetir(Completada completada, String huella) {
+        if (!completada.huella().equals(huella)) {
+            return new ServiceResult<>(List.of(CLAVE_REUTILIZADA));
+        }
+        return pagoRepository.findById(completada.pagoId())
+                .map(ServiceResult::new)
+                .orElseGet(() -> new ServiceResult<>(List.of("Pago no encontrado")));
+    }
+
+    private boolean dormir() {
+        try {
+            Thread.sleep(sondeo.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String usuarioActual() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonimo";
+    }
+
+    private static String sha256(String valor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(valor.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
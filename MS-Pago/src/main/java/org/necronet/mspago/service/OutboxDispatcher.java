@@ -0,0 +1,199 @@
+package org.necronet.mspago.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.necronet.mspago.client.OutboxPublisher;
+import org.necronet.mspago.model.EstadoOutbox;
+import org.necronet.mspago.model.OutboxEvento;
+import org.necronet.mspago.repository.OutboxEventoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega en segundo plano las confirmaciones de carrito del outbox.
+ *
+ * Cada evento se intenta apenas se confirma la transacción del pago y, si falla o se pierde el aviso,
+ * lo recoge la revisión periódica. Antes de enviarlo se reserva con un UPDATE condicional, así que dos
+ * hilos o dos instancias nunca lo envían a la vez. Los errores transitorios se reintentan con espera
+ * exponencial; un 401 o 403 (token del servicio vencido o rotado) también se reintenta. Un rechazo
+ * definitivo de MS-Carrito (4xx) o agotar los intentos deja el evento FALLIDO y reembolsa el pago,
+ * porque el carrito nunca se confirmó con este pago. Eso incluye el 409: MS-Carrito reconoce los reenvíos
+ * de este mismo evento por su clave de idempotencia y los responde como éxito, así que un 409 significa
+ * que otro pago (o una confirmación manual) se quedó con el carrito y este pago sobra.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+
+    private final OutboxEventoRepository outboxRepository;
+    private final OutboxPublisher publisher;
+    private final PagoService pagoService;
+    private final Executor executor;
+    private final Clock clock;
+    private final int batchSize;
+    private final Duration reserva;
+    private final Duration espera;
+    private final Duration esperaMaxima;
+    private final int maxIntentos;
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventoRepository outboxRepository,
+                            OutboxPublisher publisher,
+                            PagoService pagoService,
+                            @Value("${pago.outbox.workers:4}") int workers,
+                            @Value("${pago.outbox.batchSize:100}") int batchSize,
+                            @Value("${pago.outbox.leaseMs:30000}") long leaseMs,
+                            @Value("${pago.outbox.backoffMs:1000}") long backoffMs,
+                            @Value("${pago.outbox.maxBackoffMs:300000}") long maxBackoffMs,
+                            @Value("${pago.outbox.maxIntentos:10}") int maxIntentos) {
+        this(outboxRepository, publisher, pagoService, crearExecutor(workers, batchSize), Clock.systemDefaultZone(),
+                batchSize, leaseMs, backoffMs, maxBackoffMs, maxIntentos);
+    }
+
+    OutboxDispatcher(OutboxEventoRepository outboxRepository, OutboxPublisher publisher, PagoService pagoService,
+                     Executor executor, Clock clock, int batchSize, long leaseMs, long backoffMs,
+                     long maxBackoffMs, int maxIntentos) {
+        this.outboxRepository = outboxRepository;
+        this.publisher = publisher;
+        this.pagoService = pagoService;
+        this.executor = executor;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.reserva = Duration.ofMillis(leaseMs);
+        this.espera = Duration.ofMillis(backoffMs);
+        this.esperaMaxima = Duration.ofMillis(maxBackoffMs);
+        this.maxIntentos = maxIntentos;
+    }
+
+    private static ThreadPoolExecutor crearExecutor(int workers, int capacidad) {
+        AtomicInteger contador = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(capacidad, workers)),
+                r -> {
+                    Thread hilo = new Thread(r, "pago-outbox-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Intento inmediato, fuera del hilo de la petición, en cuanto el pago queda confirmado.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void alRegistrar(OutboxEvento evento) {
+        encolar(evento.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${pago.outbox.pollMs:1000}")
+    public void despacharPendientes() {
+        List<Long> ids = outboxRepository.findIdsListos(EstadoOutbox.PENDIENTE, LocalDateTime.now(clock), Limit.of(batchSize));
+        for (Long id : ids) {
+            if (!encolar(id)) {
+                // Cola llena: el resto queda para la próxima revisión
+                break;
+            }
+        }
+    }
+
+    private boolean encolar(Long id) {
+        try {
+            executor.execute(() -> despachar(id));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    void despachar(Long id) {
+        LocalDateTime ahora = LocalDateTime.now(clock);
+        if (outboxRepository.reservar(id, EstadoOutbox.PENDIENTE, ahora, ahora.plus(reserva)) == 0) {
+            return;
+        }
+        OutboxEvento evento = outboxRepository.findById(id).orElse(null);
+        if (evento == null) {
+            return;
+        }
+
+        evento.setIntentos(evento.getIntentos() + 1);
+        try {
+            publisher.publicar(evento);
+            evento.setEstado(EstadoOutbox.ENVIADO);
+            evento.setFechaEnvio(LocalDateTime.now(clock));
+            evento.setUltimoError(null);
+            outboxRepository.save(evento);
+        } catch (Exception e) {
+            registrarFallo(evento, e);
+        }
+    }
+
+    private void registrarFallo(OutboxEvento evento, Exception e) {
+        evento.setUltimoError(resumir(e));
+        if (esDefinitivo(e) || evento.getIntentos() >= maxIntentos) {
+            evento.setEstado(EstadoOutbox.FALLIDO);
+            outboxRepository.save(evento);
+            log.error("No se pudo confirmar el carrito {} del pago {} tras {} intentos: {}",
+                    evento.getCarritoId(), evento.getPagoId(), evento.getIntentos(), evento.getUltimoError());
+            compensar(evento);
+            return;
+        }
+        evento.setProximoIntento(LocalDateTime.now(clock).plus(esperaPara(evento.getIntentos())));
+        outboxRepository.save(evento);
+        log.warn("Fallo al confirmar el carrito {} (intento {}), se reintenta a las {}: {}",
+                evento.getCarritoId(), evento.getIntentos(), evento.getProximoIntento(), evento.getUltimoError());
+    }
+
+    private void compensar(OutboxEvento evento) {
+        var reembolso = pagoService.reembolsarPago(evento.getPagoId());
+        if (reembolso.hasErrors()) {
+            log.error("No se pudo reembolsar el pago {}: {}", evento.getPagoId(), reembolso.getErrors());
+        }
+    }
+
+    Duration esperaPara(int intentos) {
+        // 1x, 2x, 4x ... la espera base, con tope
+        long factor = 1L << Math.min(intentos - 1, 20);
+        Duration calculada = espera.multipliedBy(factor);
+        return calculada.compareTo(esperaMaxima) > 0 ? esperaMaxima : calculada;
+    }
+
+    private static boolean esDefinitivo(Exception e) {
+        if (!(e instanceof HttpClientErrorException cliente)) {
+            return false;
+        }
+        int estado = cliente.getStatusCode().value();
+        return estado != HttpStatus.UNAUTHORIZED.value()
+                && estado != HttpStatus.FORBIDDEN.value()
+                && estado != HttpStatus.REQUEST_TIMEOUT.value()
+                && estado != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private static String resumir(Exception e) {
+        String mensaje = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (executor instanceof ThreadPoolExecutor pool) {
+            pool.shutdown();
+        }
+    }
+}
@@ -6,21 +6,30 @@ import org.app.dto.ServiceResult;
 import org.necronet.mspago.client.MicroserviceClient;
 import org.necronet.mspago.client.TokenContext;
 import org.necronet.mspago.dto.CarritoResponse;
+import org.necronet.mspago.model.EstadoOutbox;
 import org.necronet.mspago.model.EstadoPago;
 import org.necronet.mspago.model.MetodoPago;
+import org.necronet.mspago.model.OutboxEvento;
 import org.necronet.mspago.model.Pago;
+import org.necronet.mspago.repository.OutboxEventoRepository;
 import org.necronet.mspago.repository.PagoRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class PagoService {
 
     private final PagoRepository pagoRepository;
+    private final OutboxEventoRepository outboxEventoRepository;
+    private final ApplicationEventPublisher eventPublisher;
     @Value("${ms.carrito.url}")
     private String carritoBaseUrl;
     private final MicroserviceClient microserviceClient;
@@ -38,18 +47,6 @@ public class PagoService {
         return response.getBody();
     }
 
-    public void confirmarCarrito(Long carritoId) {
-        String token = TokenContext.getToken();
-        String url = carritoBaseUrl + "/" + carritoId + "/confirmar";
-        microserviceClient.enviarConToken(
-                url,
-                HttpMethod.POST,
-                null,
-                Void.class,
-                token
-        );
-    }
-
     @Transactional
     public ServiceResult<Pago> procesarPago(Long carritoId, String metodoPagoStr) {
         try {
@@ -74,19 +71,39 @@ public class PagoService {
 
             if (pagoExitoso) {
                 pago.setEstado(EstadoPago.COMPLETADO);
-
-                confirmarCarrito( carritoId);
             } else {
                 pago.setEstado(EstadoPago.RECHAZADO);
                 return new ServiceResult<>(List.of("El pago fue rechazado"));
             }
 
-            return new ServiceResult<>(pagoRepository.save(pago));
+            Pago guardado = pagoRepository.save(pago);
+            // La confirmación del carrito queda en el outbox, en la misma transacción que el pago;
+            // OutboxDispatcher la entrega a MS-Carrito cuando la transacción se confirma
+            registrarConfirmacionCarrito(guardado);
+            return new ServiceResult<>(guardado);
         } catch (Exception e) {
+            // El error se devuelve como resultado: sin esto se confirmaría un pago sin su evento en el outbox
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
             return new ServiceResult<>(List.of("Error al procesar el pago: " + e.getMessage()));
         }
     }
 
+    private void registrarConfirmacionCarrito(Pago pago) {
+        LocalDateTime ahora = LocalDateTime.now();
+        OutboxEvento evento = outboxEventoRepository.save(OutboxEvento.builder()
+                .pagoId(pago.getId())
+                .carritoId(pago.getCarritoId())
+                .claveIdempotencia("pago-" + pago.getId() + "-confirmar-carrito")
+                .estado(EstadoOutbox.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(ahora)
+                .fechaCreacion(ahora)
+                .build());
+        eventPublisher.publishEvent(evento);
+    }
+
     public ServiceResult<Pago> obtenerPagoPorId(Long id) {
         try {
             Pago pago = pagoRepository.findById(id)
@@ -106,6 +123,11 @@ public class PagoService {
         }
     }
 
+    /**
+     * Reembolsa un pago completado. El paso a REEMBOLSADO se hace con un UPDATE condicional antes de
+     * llamar a la pasarela, así que si el outbox y un usuario (o dos instancias) lo piden a la vez solo
+     * uno reembolsa; si la pasarela falla, el pago vuelve a COMPLETADO.
+     */
     public ServiceResult<Pago> reembolsarPago(Long pagoId) {
         try {
             ServiceResult<Pago> resultadoPago = obtenerPagoPorId(pagoId);
@@ -116,7 +138,8 @@ public class PagoService {
 
             Pago pago = resultadoPago.getData();
 
-            if (pago.getEstado() != EstadoPago.COMPLETADO) {
+            if (pago.getEstado() != EstadoPago.COMPLETADO
+                    || pagoRepository.cambiarEstado(pagoId, EstadoPago.COMPLETADO, EstadoPago.REEMBOLSADO) == 0) {
                 return new ServiceResult<>(List.of("Solo se puede reembolsar un pago completado"));
             }
 
@@ -125,8 +148,9 @@ public class PagoService {
 
             if (reembolsoExitoso) {
                 pago.setEstado(EstadoPago.REEMBOLSADO);
-                return new ServiceResult<>(pagoRepository.save(pago));
+                return new ServiceResult<>(pago);
             } else {
+                pagoRepository.cambiarEstado(pagoId, EstadoPago.REEMBOLSADO, EstadoPago.COMPLETADO);
                 return new ServiceResult<>(List.of("El reembolso falló"));
             }
         } catch (Exception e) {
@@ -0,0 +1,53 @@
+package org.necronet.mspago.client;
+
+import org.app.auth.TokenServicio;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.mspago.model.EstadoOutbox;
+import org.necronet.mspago.model.OutboxEvento;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CarritoOutboxPublisherTest {
+
+    @Mock
+    private MicroserviceClient microserviceClient;
+
+    @Mock
+    private TokenServicio tokenServicio;
+
+    @Test
+    void publicar_deberiaConfirmarCarritoConClaveIdempotenciaYTokenDelServicio() {
+        when(tokenServicio.obtener()).thenReturn("token-del-servicio");
+        CarritoOutboxPublisher publisher = new CarritoOutboxPublisher(microserviceClient, tokenServicio,
+                "http://localhost:9013/api/carrito");
+        OutboxEvento evento = OutboxEvento.builder()
+                .id(5L)
+                .pagoId(1L)
+                .carritoId(7L)
+                .claveIdempotencia("pago-1-confirmar-carrito")
+                .estado(EstadoOutbox.PENDIENTE)
+                .build();
+
+        publisher.publicar(evento);
+
+        ArgumentCaptor<HttpHeaders> headers = ArgumentCaptor.forClass(HttpHeaders.class);
+        verify(microserviceClient).enviarConToken(
+                eq("http://localhost:9013/api/carrito/7/confirmar"),
+                eq(HttpMethod.POST),
+                isNull(),
+                eq(Void.class),
+                eq("token-del-servicio"),
+                headers.capture());
+        assertEquals("pago-1-confirmar-carrito", headers.getValue().getFirst(CarritoOutboxPublisher.IDEMPOTENCY_KEY));
+    }
+}
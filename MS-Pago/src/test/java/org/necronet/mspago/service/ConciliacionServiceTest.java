@@ -0,0 +1,246 @@
+package org.necronet.mspago.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.mspago.dto.LoteRequest;
+import org.necronet.mspago.model.*;
+import org.necronet.mspago.repository.LoteConciliacionRepository;
+import org.necronet.mspago.repository.OutboxEventoRepository;
+import org.necronet.mspago.repository.PagoRepository;
+import org.springframework.data.domain.Limit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConciliacionServiceTest {
+
+    @Mock
+    private LoteConciliacionRepository loteRepository;
+
+    @Mock
+    private PagoRepository pagoRepository;
+
+    @Mock
+    private OutboxEventoRepository outboxRepository;
+
+    @Mock
+    private PagoService pagoService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-02T00:00:00Z"), ZoneId.of("UTC"));
+    private final LocalDateTime ahora = LocalDateTime.now(clock);
+    private final LocalDateTime desde = ahora.minusDays(1);
+    private ConciliacionService conciliacionService;
+
+    @BeforeEach
+    void setUp() {
+        // Executors directos: el lote y sus pagos se procesan en el hilo de la prueba
+        conciliacionService = new ConciliacionService(loteRepository, pagoRepository, outboxRepository, pagoService,
+                meterRegistry, Runnable::run, Runnable::run, clock, 2, 100, 120_000, 3_600_000);
+    }
+
+    private LoteConciliacion lote(TipoLote tipo, EstadoPago estadoPago, long ultimoPagoId) {
+        LoteConciliacion lote = LoteConciliacion.builder()
+                .id(9L)
+                .tipo(tipo)
+                .estadoPago(estadoPago)
+                .desde(desde)
+                .hasta(ahora)
+                .chunkSize(2)
+                .estado(EstadoLote.EN_CURSO)
+                .ultimoPagoId(ultimoPagoId)
+                .build();
+        when(loteRepository.reservar(eq(9L), eq(EstadoLote.EN_CURSO), eq(ahora), any())).thenReturn(1);
+        when(loteRepository.findById(9L)).thenReturn(Optional.of(lote));
+        return lote;
+    }
+
+    private static Pago pago(long id, EstadoPago estado) {
+        Pago pago = new Pago();
+        pago.setId(id);
+        pago.setCarritoId(id * 10);
+        pago.setEstado(estado);
+        return pago;
+    }
+
+    private static List<Pago> pagos(EstadoPago estado, long... ids) {
+        return LongStream.of(ids).mapToObj(id -> pago(id, estado)).toList();
+    }
+
+    private void paginas(EstadoPago estado, List<Pago> primera, List<Pago> segunda) {
+        long ultimaPrimera = primera.get(primera.size() - 1).getId();
+        when(pagoRepository.findPagina(eq(estado), eq(desde), eq(ahora), eq(0L), any(Limit.class))).thenReturn(primera);
+        when(pagoRepository.findPagina(eq(estado), eq(desde), eq(ahora), eq(ultimaPrimera), any(Limit.class))).thenReturn(segunda);
+    }
+
+    @Test
+    void ejecutar_reembolso_deberiaRecorrerPorKeysetYGuardarPuntoDeControlPorChunk() {
+        lote(TipoLote.REEMBOLSO, EstadoPago.COMPLETADO, 0L);
+        paginas(EstadoPago.COMPLETADO, pagos(EstadoPago.COMPLETADO, 3, 5), pagos(EstadoPago.COMPLETADO, 8));
+        when(pagoRepository.findPagina(eq(EstadoPago.COMPLETADO), any(), any(), eq(8L), any(Limit.class))).thenReturn(List.of());
+        when(pagoService.reembolsarPago(anyLong())).thenReturn(new ServiceResult<>(pago(0, EstadoPago.REEMBOLSADO)));
+        when(pagoService.reembolsarPago(5L)).thenReturn(new ServiceResult<>(List.of("Solo se puede reembolsar un pago completado")));
+        when(loteRepository.guardarAvance(eq(9L), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyLong(), any(), any())).thenReturn(1);
+
+        conciliacionService.ejecutar(9L);
+
+        verify(loteRepository).guardarAvance(eq(9L), eq(5L), eq(2L), eq(1L), eq(0L), eq(1L), eq(0L), eq(0L),
+                anyLong(), any(), any());
+        verify(loteRepository).guardarAvance(eq(9L), eq(8L), eq(1L), eq(1L), eq(0L), eq(0L), eq(0L), eq(0L),
+                anyLong(), any(), any());
+        verify(loteRepository).cambiarEstado(eq(9L), eq(EstadoLote.EN_CURSO), eq(EstadoLote.COMPLETADO), any(), any(), isNull());
+        assertEquals(2.0, meterRegistry.counter("pago.lotes.pagos", "tipo", "REEMBOLSO", "resultado", "EXITOSO").count());
+        assertEquals(1.0, meterRegistry.counter("pago.lotes.pagos", "tipo", "REEMBOLSO", "resultado", "OMITIDO").count());
+        assertEquals(2, meterRegistry.timer("pago.lotes.chunk", "tipo", "REEMBOLSO").count());
+    }
+
+    @Test
+    void ejecutar_deberiaReanudarDesdeElUltimoPuntoDeControl() {
+        lote(TipoLote.REEMBOLSO, EstadoPago.COMPLETADO, 500L);
+        when(pagoRepository.findPagina(eq(EstadoPago.COMPLETADO), any(), any(), eq(500L), any(Limit.class))).thenReturn(List.of());
+
+        conciliacionService.ejecutar(9L);
+
+        verify(pagoRepository, never()).findPagina(any(), any(), any(), eq(0L), any());
+        verify(loteRepository).cambiarEstado(eq(9L), eq(EstadoLote.EN_CURSO), eq(EstadoLote.COMPLETADO), any(), any(), isNull());
+    }
+
+    @Test
+    void ejecutar_deberiaDetenerseSiElLoteSeCancelo() {
+        lote(TipoLote.REEMBOLSO, EstadoPago.COMPLETADO, 0L);
+        when(pagoRepository.findPagina(eq(EstadoPago.COMPLETADO), any(), any(), eq(0L), any(Limit.class)))
+                .thenReturn(pagos(EstadoPago.COMPLETADO, 1, 2));
+        when(pagoService.reembolsarPago(anyLong())).thenReturn(new ServiceResult<>(pago(0, EstadoPago.REEMBOLSADO)));
+        when(loteRepository.guardarAvance(eq(9L), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyLong(), any(), any())).thenReturn(0);
+
+        conciliacionService.ejecutar(9L);
+
+        verify(pagoRepository, times(1)).findPagina(any(), any(), any(), anyLong(), any());
+        verify(loteRepository, never()).cambiarEstado(anyLong(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void ejecutar_noDeberiaProcesarSiOtraInstanciaLoTieneReservado() {
+        when(loteRepository.reservar(eq(9L), any(), any(), any())).thenReturn(0);
+
+        conciliacionService.ejecutar(9L);
+
+        verifyNoInteractions(pagoRepository, pagoService);
+    }
+
+    @Test
+    void ejecutar_conciliacion_deberiaReembolsarCarritosNoConfirmadosYContarDescuadres() {
+        lote(TipoLote.CONCILIACION, EstadoPago.COMPLETADO, 0L);
+        paginas(EstadoPago.COMPLETADO, pagos(EstadoPago.COMPLETADO, 1, 2), pagos(EstadoPago.COMPLETADO, 3, 4));
+        when(pagoRepository.findPagina(eq(EstadoPago.COMPLETADO), any(), any(), eq(4L), any(Limit.class))).thenReturn(List.of());
+        when(outboxRepository.findByPagoIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                evento(1L, EstadoOutbox.ENVIADO, ahora.minusHours(5)),
+                evento(2L, EstadoOutbox.FALLIDO, ahora.minusHours(5))));
+        when(outboxRepository.findByPagoIdIn(List.of(3L, 4L))).thenReturn(List.of(
+                evento(3L, EstadoOutbox.PENDIENTE, ahora.minusHours(2))));
+        when(pagoService.reembolsarPago(2L)).thenReturn(new ServiceResult<>(pago(2L, EstadoPago.REEMBOLSADO)));
+        when(loteRepository.guardarAvance(eq(9L), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(), anyLong(),
+                anyLong(), anyLong(), any(), any())).thenReturn(1);
+
+        conciliacionService.ejecutar(9L);
+
+        // Pago 1 confirmado, pago 2 corregido con reembolso
+        verify(loteRepository).guardarAvance(eq(9L), eq(2L), eq(2L), eq(1L), eq(1L), eq(0L), eq(0L), eq(0L),
+                anyLong(), any(), any());
+        // Pago 3 con la confirmación pendiente hace más de una hora; pago 4 sin evento (anterior al outbox)
+        verify(loteRepository).guardarAvance(eq(9L), eq(4L), eq(2L), eq(1L), eq(0L), eq(0L), eq(1L), eq(0L),
+                anyLong(), any(), any());
+        verify(pagoService, times(1)).reembolsarPago(anyLong());
+    }
+
+    @Test
+    void procesarPago_conciliacion_deberiaMarcarDescuadreSiOtroPagoConfirmoElCarrito() {
+        LoteConciliacion lote = LoteConciliacion.builder().id(9L).tipo(TipoLote.CONCILIACION).build();
+        OutboxEvento enviado = evento(1L, EstadoOutbox.ENVIADO, ahora.minusHours(5));
+        // Entregado antes de que el 409 se tratara como rechazo definitivo
+        enviado.setUltimoError("Conflict: 409 El carro ya fue confirmado");
+
+        ConciliacionService.Resultado resultado =
+                conciliacionService.procesarPago(lote, pago(1L, EstadoPago.COMPLETADO), enviado);
+
+        assertEquals(ConciliacionService.Resultado.DESCUADRE, resultado);
+        assertEquals(ConciliacionService.Resultado.EXITOSO, conciliacionService.procesarPago(lote,
+                pago(2L, EstadoPago.COMPLETADO), evento(2L, EstadoOutbox.ENVIADO, ahora.minusHours(5))));
+        verifyNoInteractions(pagoService);
+    }
+
+    @Test
+    void ejecutar_deberiaMarcarFallidoSiFallaLaLectura() {
+        lote(TipoLote.REEMBOLSO, EstadoPago.COMPLETADO, 0L);
+        when(pagoRepository.findPagina(any(), any(), any(), anyLong(), any(Limit.class)))
+                .thenThrow(new IllegalStateException("Base de datos no disponible"));
+
+        conciliacionService.ejecutar(9L);
+
+        verify(loteRepository).cambiarEstado(eq(9L), eq(EstadoLote.EN_CURSO), eq(EstadoLote.FALLIDO), any(), isNull(),
+                contains("Base de datos no disponible"));
+    }
+
+    @Test
+    void crearLote_deberiaValidarFiltros() {
+        LoteRequest request = new LoteRequest();
+        request.setTipo(TipoLote.REEMBOLSO);
+        request.setEstadoPago(EstadoPago.RECHAZADO);
+        request.setDesde(ahora);
+        request.setHasta(desde);
+        request.setChunkSize(1000);
+
+        ServiceResult<LoteConciliacion> result = conciliacionService.crearLote(request);
+
+        assertTrue(result.hasErrors());
+        assertEquals(3, result.getErrors().size());
+        verify(loteRepository, never()).save(any());
+    }
+
+    @Test
+    void crearLote_deberiaGuardarEIniciarElLote() {
+        LoteRequest request = new LoteRequest();
+        request.setTipo(TipoLote.CONCILIACION);
+        request.setEstadoPago(EstadoPago.COMPLETADO);
+        request.setDesde(desde);
+        request.setHasta(ahora);
+        when(loteRepository.save(any(LoteConciliacion.class))).thenAnswer(inv -> {
+            LoteConciliacion lote = inv.getArgument(0);
+            lote.setId(9L);
+            return lote;
+        });
+
+        ServiceResult<LoteConciliacion> result = conciliacionService.crearLote(request);
+
+        assertFalse(result.hasErrors());
+        assertEquals(EstadoLote.EN_CURSO, result.getData().getEstado());
+        assertEquals(2, result.getData().getChunkSize());
+        verify(loteRepository).reservar(eq(9L), eq(EstadoLote.EN_CURSO), any(), any());
+    }
+
+    private static OutboxEvento evento(Long pagoId, EstadoOutbox estado, LocalDateTime creado) {
+        return OutboxEvento.builder()
+                .pagoId(pagoId)
+                .carritoId(pagoId * 10)
+                .estado(estado)
+                .fechaCreacion(creado)
+                .build();
+    }
+}
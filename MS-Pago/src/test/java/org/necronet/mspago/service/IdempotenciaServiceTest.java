@@ -0,0 +1,220 @@
+package org.necronet.mspago.service;
+
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.mspago.model.EstadoPago;
+import org.necronet.mspago.model.Pago;
+import org.necronet.mspago.model.PagoIdempotencia;
+import org.necronet.mspago.repository.PagoIdempotenciaRepository;
+import org.necronet.mspago.repository.PagoRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotenciaServiceTest {
+
+    @Mock
+    private PagoIdempotenciaRepository idempotenciaRepository;
+
+    @Mock
+    private PagoRepository pagoRepository;
+
+    private IdempotenciaService idempotenciaService;
+    private Pago pago;
+
+    @BeforeEach
+    void setUp() {
+        idempotenciaService = new IdempotenciaService(idempotenciaRepository, pagoRepository,
+                Clock.systemDefaultZone(), 86_400_000, 60_000, 2_000, 10, 100, 600_000);
+        pago = new Pago();
+        pago.setId(1L);
+        pago.setCarritoId(7L);
+        pago.setEstado(EstadoPago.COMPLETADO);
+    }
+
+    private PagoIdempotencia registro(String huella, PagoIdempotencia.Estado estado, Long pagoId) {
+        return PagoIdempotencia.builder()
+                .clave("clave")
+                .huella(huella)
+                .estado(estado)
+                .pagoId(pagoId)
+                .fechaCreacion(LocalDateTime.now())
+                .expiraEn(LocalDateTime.now().plusHours(1))
+                .build();
+    }
+
+    @Test
+    void ejecutar_sinClave_deberiaEjecutarSiempre() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        idempotenciaService.ejecutar(null, "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(pago);
+        });
+        idempotenciaService.ejecutar(null, "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(pago);
+        });
+
+        assertEquals(2, ejecuciones.get());
+        verifyNoInteractions(idempotenciaRepository);
+    }
+
+    @Test
+    void ejecutar_reintento_deberiaDevolverElMismoPagoSinEjecutar() {
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        ServiceResult<Pago> primero = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(pago);
+        });
+        ServiceResult<Pago> reintento = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(new Pago());
+        });
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(1L, primero.getData().getId());
+        assertEquals(1L, reintento.getData().getId());
+        verify(idempotenciaRepository).completar(anyString(), eq(1L), any());
+    }
+
+    @Test
+    void ejecutar_mismaClaveOtrosParametros_deberiaRechazar() {
+        idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> new ServiceResult<>(pago));
+
+        ServiceResult<Pago> result = idempotenciaService.ejecutar("abc", "8|PAYPAL", () -> new ServiceResult<>(pago));
+
+        assertTrue(result.hasErrors());
+        assertEquals(IdempotenciaService.CLAVE_REUTILIZADA, result.getErrors().get(0));
+    }
+
+    @Test
+    void ejecutar_intentoFallido_deberiaLiberarClaveYPermitirReintentar() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        ServiceResult<Pago> fallido = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(List.of("Error al procesar el pago: carrito no disponible"));
+        });
+        ServiceResult<Pago> reintento = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> {
+            ejecuciones.incrementAndGet();
+            return new ServiceResult<>(pago);
+        });
+
+        assertTrue(fallido.hasErrors());
+        assertFalse(reintento.hasErrors());
+        assertEquals(2, ejecuciones.get());
+        verify(idempotenciaRepository).liberar(anyString());
+    }
+
+    @Test
+    void ejecutar_duplicadosConcurrentes_deberianEsperarAlPrimero() throws Exception {
+        lenient().when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+        int peticiones = 20;
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(peticiones);
+        try {
+            List<Future<ServiceResult<Pago>>> futuros = new ArrayList<>();
+            for (int i = 0; i < peticiones; i++) {
+                futuros.add(pool.submit(() -> idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> {
+                    ejecuciones.incrementAndGet();
+                    dentro.countDown();
+                    try {
+                        soltar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new ServiceResult<>(pago);
+                })));
+            }
+            assertTrue(dentro.await(5, TimeUnit.SECONDS));
+            // Dar tiempo a que las duplicadas lleguen mientras la primera sigue en curso
+            Thread.sleep(100);
+            soltar.countDown();
+
+            for (Future<ServiceResult<Pago>> futuro : futuros) {
+                ServiceResult<Pago> result = futuro.get(5, TimeUnit.SECONDS);
+                assertFalse(result.hasErrors());
+                assertEquals(1L, result.getData().getId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, ejecuciones.get());
+        verify(idempotenciaRepository, times(1)).reservar(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void ejecutar_claveCompletadaEnOtraInstancia_deberiaDevolverSuPago() {
+        ArgumentCaptor<String> huella = ArgumentCaptor.forClass(String.class);
+        doThrow(new DataIntegrityViolationException("duplicada"))
+                .when(idempotenciaRepository).reservar(anyString(), huella.capture(), any(), any());
+        when(idempotenciaRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.of(registro(huella.getValue(), PagoIdempotencia.Estado.COMPLETADO, 1L)));
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+
+        ServiceResult<Pago> result = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> fail("No debería ejecutar"));
+
+        assertFalse(result.hasErrors());
+        assertEquals(1L, result.getData().getId());
+    }
+
+    @Test
+    void ejecutar_claveEnProcesoEnOtraInstancia_deberiaEsperarHastaQueTermine() {
+        ArgumentCaptor<String> huella = ArgumentCaptor.forClass(String.class);
+        doThrow(new DataIntegrityViolationException("duplicada"))
+                .when(idempotenciaRepository).reservar(anyString(), huella.capture(), any(), any());
+        AtomicInteger consultas = new AtomicInteger();
+        when(idempotenciaRepository.findById(anyString())).thenAnswer(inv -> Optional.of(
+                consultas.incrementAndGet() < 3
+                        ? registro(huella.getValue(), PagoIdempotencia.Estado.EN_PROCESO, null)
+                        : registro(huella.getValue(), PagoIdempotencia.Estado.COMPLETADO, 1L)));
+        when(pagoRepository.findById(1L)).thenReturn(Optional.of(pago));
+
+        ServiceResult<Pago> result = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> fail("No debería ejecutar"));
+
+        assertFalse(result.hasErrors());
+        assertEquals(3, consultas.get());
+    }
+
+    @Test
+    void ejecutar_claveEnProcesoDemasiadoTiempo_deberiaResponderEnProceso() {
+        ArgumentCaptor<String> huella = ArgumentCaptor.forClass(String.class);
+        doThrow(new DataIntegrityViolationException("duplicada"))
+                .when(idempotenciaRepository).reservar(anyString(), huella.capture(), any(), any());
+        when(idempotenciaRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.of(registro(huella.getValue(), PagoIdempotencia.Estado.EN_PROCESO, null)));
+
+        ServiceResult<Pago> result = idempotenciaService.ejecutar("abc", "7|PAYPAL", () -> fail("No debería ejecutar"));
+
+        assertTrue(result.hasErrors());
+        assertEquals(IdempotenciaService.CLAVE_EN_PROCESO, result.getErrors().get(0));
+    }
+
+    @Test
+    void ejecutar_claveDemasiadoLarga_deberiaRechazar() {
+        ServiceResult<Pago> result = idempotenciaService.ejecutar("x".repeat(256), "7|PAYPAL", () -> new ServiceResult<>(pago));
+
+        assertEquals(IdempotenciaService.CLAVE_INVALIDA, result.getErrors().get(0));
+    }
+}
@@ -0,0 +1,211 @@
+package org.necronet.mspago.service;
+
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.mspago.client.BrokerEnMemoria;
+import org.necronet.mspago.model.EstadoOutbox;
+import org.necronet.mspago.model.OutboxEvento;
+import org.necronet.mspago.model.Pago;
+import org.necronet.mspago.repository.OutboxEventoRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    @Mock
+    private OutboxEventoRepository outboxRepository;
+
+    @Mock
+    private PagoService pagoService;
+
+    private final BrokerEnMemoria broker = new BrokerEnMemoria();
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T10:00:00Z"), ZoneId.of("UTC"));
+    private final LocalDateTime ahora = LocalDateTime.now(clock);
+    private OutboxDispatcher dispatcher;
+    private OutboxEvento evento;
+
+    @BeforeEach
+    void setUp() {
+        // Executor directo: cada evento se despacha en el hilo de la prueba
+        dispatcher = new OutboxDispatcher(outboxRepository, broker, pagoService, Runnable::run, clock,
+                100, 30_000, 1_000, 8_000, 5);
+        evento = OutboxEvento.builder()
+                .id(10L)
+                .pagoId(1L)
+                .carritoId(7L)
+                .claveIdempotencia("pago-1-confirmar-carrito")
+                .estado(EstadoOutbox.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(ahora)
+                .fechaCreacion(ahora)
+                .build();
+    }
+
+    private void listo() {
+        when(outboxRepository.reservar(eq(10L), eq(EstadoOutbox.PENDIENTE), eq(ahora), eq(ahora.plusSeconds(30))))
+                .thenReturn(1);
+        when(outboxRepository.findById(10L)).thenReturn(Optional.of(evento));
+    }
+
+    @Test
+    void alRegistrar_deberiaEntregarYMarcarEnviado() {
+        listo();
+
+        dispatcher.alRegistrar(evento);
+
+        assertEquals(1, broker.getEntregados().size());
+        assertEquals(EstadoOutbox.ENVIADO, evento.getEstado());
+        assertEquals(1, evento.getIntentos());
+        assertEquals(ahora, evento.getFechaEnvio());
+        verify(outboxRepository).save(evento);
+    }
+
+    @Test
+    void despachar_noDeberiaEnviarSiOtroLoReservo() {
+        when(outboxRepository.reservar(eq(10L), any(), any(), any())).thenReturn(0);
+
+        dispatcher.despachar(10L);
+
+        assertEquals(0, broker.getIntentos());
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    void despachar_deberiaReintentarConEsperaExponencialAnteErrorTransitorio() {
+        listo();
+        broker.fallarProximas(1);
+
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.PENDIENTE, evento.getEstado());
+        assertEquals(1, evento.getIntentos());
+        assertEquals(ahora.plusSeconds(1), evento.getProximoIntento());
+        assertNotNull(evento.getUltimoError());
+        verifyNoInteractions(pagoService);
+    }
+
+    @Test
+    void esperaPara_deberiaDuplicarseHastaElTope() {
+        assertEquals(Duration.ofSeconds(1), dispatcher.esperaPara(1));
+        assertEquals(Duration.ofSeconds(2), dispatcher.esperaPara(2));
+        assertEquals(Duration.ofSeconds(4), dispatcher.esperaPara(3));
+        assertEquals(Duration.ofSeconds(8), dispatcher.esperaPara(4));
+        assertEquals(Duration.ofSeconds(8), dispatcher.esperaPara(30));
+    }
+
+    @Test
+    void despachar_deberiaReembolsarSiElCarritoRechazaLaConfirmacion() {
+        listo();
+        broker.rechazarCon(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Stock insuficiente", null, null, null));
+        when(pagoService.reembolsarPago(1L)).thenReturn(new ServiceResult<>(new Pago()));
+
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.FALLIDO, evento.getEstado());
+        verify(pagoService).reembolsarPago(1L);
+    }
+
+    @Test
+    void despachar_deberiaReembolsarSiOtroPagoYaConfirmoElCarrito() {
+        listo();
+        broker.rechazarCon(HttpClientErrorException.create(HttpStatus.CONFLICT, "El carro ya fue confirmado", null, null, null));
+        when(pagoService.reembolsarPago(1L)).thenReturn(new ServiceResult<>(new Pago()));
+
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.FALLIDO, evento.getEstado());
+        assertTrue(evento.getUltimoError().contains("Conflict"));
+        verify(pagoService).reembolsarPago(1L);
+    }
+
+    @Test
+    void despachar_dosPagosDelMismoCarrito_soloElPrimeroQuedaSinReembolsar() {
+        // Los dos pagos pasaron la validación de carrito ACTIVO antes de que se confirmara
+        listo();
+        OutboxEvento otro = OutboxEvento.builder()
+                .id(11L)
+                .pagoId(2L)
+                .carritoId(7L)
+                .claveIdempotencia("pago-2-confirmar-carrito")
+                .estado(EstadoOutbox.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(ahora)
+                .fechaCreacion(ahora)
+                .build();
+        when(outboxRepository.reservar(eq(11L), eq(EstadoOutbox.PENDIENTE), eq(ahora), eq(ahora.plusSeconds(30))))
+                .thenReturn(1);
+        when(outboxRepository.findById(11L)).thenReturn(Optional.of(otro));
+        when(pagoService.reembolsarPago(2L)).thenReturn(new ServiceResult<>(new Pago()));
+
+        dispatcher.despachar(10L);
+        dispatcher.despachar(11L);
+        // Reenvío del ganador: sigue reconocido por su clave
+        evento.setEstado(EstadoOutbox.PENDIENTE);
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.ENVIADO, evento.getEstado());
+        assertEquals(EstadoOutbox.FALLIDO, otro.getEstado());
+        assertEquals(List.of(evento), broker.getEntregados());
+        verify(pagoService).reembolsarPago(2L);
+        verify(pagoService, never()).reembolsarPago(1L);
+    }
+
+    @Test
+    void despachar_deberiaReintentarSiElTokenDelServicioEsRechazado() {
+        listo();
+        broker.rechazarCon(HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Token vencido", null, null, null));
+
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.PENDIENTE, evento.getEstado());
+        assertEquals(ahora.plusSeconds(1), evento.getProximoIntento());
+        verifyNoInteractions(pagoService);
+    }
+
+    @Test
+    void despachar_deberiaFallarAlAgotarIntentos() {
+        listo();
+        evento.setIntentos(4);
+        broker.fallarProximas(1);
+        when(pagoService.reembolsarPago(1L)).thenReturn(new ServiceResult<>(new Pago()));
+
+        dispatcher.despachar(10L);
+
+        assertEquals(EstadoOutbox.FALLIDO, evento.getEstado());
+        assertEquals(5, evento.getIntentos());
+        verify(pagoService).reembolsarPago(1L);
+    }
+
+    @Test
+    void despacharPendientes_deberiaEntregarCadaClaveUnaSolaVez() {
+        listo();
+        when(outboxRepository.findIdsListos(eq(EstadoOutbox.PENDIENTE), eq(ahora), any(Limit.class)))
+                .thenReturn(List.of(10L));
+
+        dispatcher.despacharPendientes();
+        // Reenvío tras una respuesta perdida: el broker lo descarta por la clave de idempotencia
+        evento.setEstado(EstadoOutbox.PENDIENTE);
+        dispatcher.despacharPendientes();
+
+        assertEquals(2, broker.getIntentos());
+        assertEquals(1, broker.getEntregados().size());
+    }
+}
@@ -0,0 +1,55 @@
+package com.app.producto.Config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caches en memoria de MS-Producto, acotadas por tamaño y TTL. Registran estadísticas para que
+ * actuator publique aciertos y fallos en cache.gets (result=hit|miss) por cada cache.
+ * Con spring.cache.type=none se desactivan sin tocar las anotaciones.
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String CATEGORIAS = "categorias";
+    public static final String PROVEEDORES = "proveedores";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${spring.cache.type:caffeine}") String tipo,
+                                     @Value("${cache.productos.maxSize:10000}") long productosMaxSize,
+                                     @Value("${cache.productos.ttlMs:600000}") long productosTtlMs,
+                                     @Value("${cache.categorias.maxSize:500}") long categoriasMaxSize,
+                                     @Value("${cache.categorias.ttlMs:1800000}") long categoriasTtlMs,
+                                     @Value("${cache.proveedores.maxSize:1000}") long proveedoresMaxSize,
+                                     @Value("${cache.proveedores.ttlMs:300000}") long proveedoresTtlMs) {
+        if ("none".equalsIgnoreCase(tipo)) {
+            return new NoOpCacheManager();
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Sin caches dinámicas: un nombre mal escrito falla en vez de crear una cache sin límite
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(PRODUCTOS, construir(productosMaxSize, productosTtlMs));
+        cacheManager.registerCustomCache(CATEGORIAS, construir(categoriasMaxSize, categoriasTtlMs));
+        cacheManager.registerCustomCache(PROVEEDORES, construir(proveedoresMaxSize, proveedoresTtlMs));
+        return cacheManager;
+    }
+
+    private static Cache<Object, Object> construir(long maxSize, long ttlMs) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+}
@@ -1,7 +1,13 @@
 package com.app.producto.Controller;
 
+import com.app.producto.Dto.BusquedaProductosDto;
+import com.app.producto.Dto.ProductoBatchRequest;
 import com.app.producto.Dto.ProductoDto;
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.Dto.ProductoPaginaDto;
+import com.app.producto.Dto.SugerenciaProductoDto;
 import com.app.producto.Service.ProductoService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,9 +19,14 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -24,7 +35,10 @@ import java.util.List;
 @Tag(name = "Productos", description = "API para gestión de productos")
 public class ProductoController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final ProductoService productoService;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Crear nuevo producto",
@@ -50,17 +64,128 @@ public class ProductoController {
 
     @Operation(
             summary = "Listar productos",
-            description = "Obtiene la lista completa de productos registrados"
+            description = "Obtiene una página de productos ordenados por ID. Para la página siguiente se envía " +
+                    "como cursor el valor de siguienteCursor de la respuesta anterior"
     )
     @ApiResponses({
             @ApiResponse(
                     responseCode = "200",
-                    description = "Lista de productos obtenida exitosamente",
-                    content = @Content(schema = @Schema(implementation = ProductoDto[].class)))
+                    description = "Página de productos obtenida exitosamente",
+                    content = @Content(schema = @Schema(implementation = ProductoPaginaDto.class)))
     })
     @GetMapping("list")
-    public ResponseEntity<?> listar() {
-        ServiceResult<List<ProductoDto>> result = productoService.listarProductos();
+    public ResponseEntity<?> listar(
+            @Parameter(description = "ID del último producto recibido", example = "0")
+            @RequestParam(required = false) Long cursor,
+            @Parameter(description = "Cantidad de productos por página (máximo 500)", example = "50")
+            @RequestParam(required = false) Integer limite,
+            @Parameter(description = "Filtrar por catálogo")
+            @RequestParam(required = false) String catalogo,
+            @Parameter(description = "Filtrar por ID de categoría")
+            @RequestParam(required = false) Long categoriaId,
+            @Parameter(description = "Filtrar por estado activo")
+            @RequestParam(required = false) Boolean activo) {
+        ProductoFiltro filtro = new ProductoFiltro(catalogo, categoriaId, activo);
+        ServiceResult<ProductoPaginaDto> result = productoService.listarProductos(filtro, cursor, limite);
+        return handleResult(result, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Exportar productos",
+            description = "Exporta todos los productos que cumplen el filtro en formato NDJSON (un producto por línea), " +
+                    "enviándolos a medida que se leen de la base de datos"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Exportación en curso",
+                    content = @Content(mediaType = NDJSON))
+    })
+    @GetMapping(value = "export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @Parameter(description = "Filtrar por catálogo")
+            @RequestParam(required = false) String catalogo,
+            @Parameter(description = "Filtrar por ID de categoría")
+            @RequestParam(required = false) Long categoriaId,
+            @Parameter(description = "Filtrar por estado activo")
+            @RequestParam(required = false) Boolean activo) {
+        ProductoFiltro filtro = new ProductoFiltro(catalogo, categoriaId, activo);
+        StreamingResponseBody body = out -> productoService.exportarProductos(filtro, pagina -> {
+            try {
+                for (ProductoDto producto : pagina) {
+                    out.write(objectMapper.writeValueAsBytes(producto));
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Buscar productos",
+            description = "Busca por nombre, descripción o SKU tolerando tildes, plurales y errores de tipeo. " +
+                    "Devuelve los productos más relevantes y, sobre todas las coincidencias, la cantidad por " +
+                    "categoría, catálogo y banda de precio"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Resultados de la búsqueda",
+                    content = @Content(schema = @Schema(implementation = BusquedaProductosDto.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Texto vacío, límite o rango de precios inválido",
+                    content = @Content(schema = @Schema(implementation = ServiceResult.class)))
+    })
+    @GetMapping("search")
+    public ResponseEntity<?> buscar(
+            @Parameter(description = "Texto a buscar", required = true, example = "vainilla floral")
+            @RequestParam String q,
+            @Parameter(description = "Filtrar por catálogo")
+            @RequestParam(required = false) String catalogo,
+            @Parameter(description = "Filtrar por ID de categoría")
+            @RequestParam(required = false) Long categoriaId,
+            @Parameter(description = "Filtrar por estado activo")
+            @RequestParam(required = false) Boolean activo,
+            @Parameter(description = "Precio mínimo", example = "20000")
+            @RequestParam(required = false) BigDecimal precioMin,
+            @Parameter(description = "Precio máximo", example = "50000")
+            @RequestParam(required = false) BigDecimal precioMax,
+            @Parameter(description = "Cantidad de productos a devolver (máximo 100)", example = "20")
+            @RequestParam(required = false) Integer limite) {
+        ProductoFiltro filtro = new ProductoFiltro(catalogo, categoriaId, activo);
+        ServiceResult<BusquedaProductosDto> result =
+                productoService.buscarProductos(q, filtro, precioMin, precioMax, limite);
+        return handleResult(result, HttpStatus.OK);
+    }
+
+    @Operation(
+            summary = "Autocompletar productos",
+            description = "Sugiere productos cuyo nombre tiene palabras que empiezan con lo escrito, o cuyo SKU " +
+                    "empieza con lo escrito"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Sugerencias",
+                    content = @Content(schema = @Schema(implementation = SugerenciaProductoDto.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Texto vacío o límite inválido",
+                    content = @Content(schema = @Schema(implementation = ServiceResult.class)))
+    })
+    @GetMapping("autocomplete")
+    public ResponseEntity<?> autocompletar(
+            @Parameter(description = "Texto escrito hasta ahora", required = true, example = "lav")
+            @RequestParam String q,
+            @Parameter(description = "Cantidad de sugerencias (máximo 20)", example = "10")
+            @RequestParam(required = false) Integer limite) {
+        ServiceResult<List<SugerenciaProductoDto>> result = productoService.autocompletar(q, limite);
         return handleResult(result, HttpStatus.OK);
     }
 
@@ -86,6 +211,33 @@ public class ProductoController {
         return handleResult(result, HttpStatus.OK);
     }
 
+    @Operation(
+            summary = "Obtener productos por lote",
+            description = "Recupera varios productos en una sola consulta y los devuelve como un mapa ID -> producto. " +
+                    "Con vista=basico solo se devuelven ID, SKU, nombre y precio. Los IDs inexistentes se omiten"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Productos encontrados",
+                    content = @Content(schema = @Schema(implementation = ProductoDto.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Lista de IDs vacía o demasiado grande",
+                    content = @Content(schema = @Schema(implementation = ServiceResult.class)))
+    })
+    @PostMapping("batch")
+    public ResponseEntity<?> obtenerPorIds(
+            @Parameter(description = "IDs de los productos", required = true)
+            @RequestBody ProductoBatchRequest request,
+            @Parameter(description = "Campos a devolver: completo o basico", example = "basico")
+            @RequestParam(defaultValue = "completo") String vista) {
+        if ("basico".equalsIgnoreCase(vista)) {
+            return handleResult(productoService.obtenerProductosBasicosPorIds(request.getIds()), HttpStatus.OK);
+        }
+        return handleResult(productoService.obtenerProductosPorIds(request.getIds()), HttpStatus.OK);
+    }
+
     @Operation(
             summary = "Actualizar producto",
             description = "Actualiza la información de un producto existente"
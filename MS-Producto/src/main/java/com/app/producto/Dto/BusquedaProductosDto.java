@@ -0,0 +1,22 @@
+package com.app.producto.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusquedaProductosDto {
+    private String consulta;
+    private long totalCoincidencias;
+    // Los más relevantes primero, hasta el límite pedido
+    private List<ProductoDto> productos;
+    // Conteos sobre todas las coincidencias por categoria, catalogo y precio
+    private Map<String, List<FacetaDto>> facetas;
+}
@@ -0,0 +1,16 @@
+package com.app.producto.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetaDto {
+    // ID de categoría, nombre de catálogo o banda de precio ("20000-50000", "100000+")
+    private String valor;
+    private long cantidad;
+}
@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,5 +16,6 @@ public class ProductoBasicoDto {
     private Long id;
     private String codigoSku;
     private String nombre;
+    private BigDecimal precio;
 }
 
@@ -0,0 +1,16 @@
+package com.app.producto.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoFiltro {
+    private String catalogo;
+    private Long categoriaId;
+    private Boolean activo;
+}
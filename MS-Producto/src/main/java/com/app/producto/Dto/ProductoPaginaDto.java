@@ -0,0 +1,18 @@
+package com.app.producto.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoPaginaDto {
+    private List<ProductoDto> productos;
+    // ID desde el que pedir la página siguiente; null cuando no hay más resultados
+    private Long siguienteCursor;
+}
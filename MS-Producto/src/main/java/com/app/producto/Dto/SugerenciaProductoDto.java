@@ -0,0 +1,16 @@
+package com.app.producto.Dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaProductoDto {
+    private Long id;
+    private String codigoSku;
+    private String nombre;
+}
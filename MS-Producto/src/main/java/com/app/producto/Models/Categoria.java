@@ -25,5 +25,6 @@ public class Categoria {
 
     @OneToMany(mappedBy = "categoria")
     @ToString.Exclude
+    @Builder.Default
     private List<Producto> productos = new ArrayList<>();
 }
@@ -10,7 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_catalogo", columnList = "catalogo, id_producto"),
+        @Index(name = "idx_productos_categoria", columnList = "id_categoria, id_producto"),
+        @Index(name = "idx_productos_activo", columnList = "activo, id_producto"),
+        @Index(name = "idx_productos_version_cambio", columnList = "version_cambio")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -48,11 +53,16 @@ public class Producto {
     @Builder.Default
     private Boolean activo = true;
     @Min(0)
+    @Builder.Default
     private Integer stock = 0;
     @Column(name = "fecha_creacion")
     @Builder.Default
     private LocalDateTime fechaCreacion = LocalDateTime.now();
 
+    // Versión de su último alta o modificación (ProductoVersionService); null en productos anteriores
+    @Column(name = "version_cambio")
+    private Long versionCambio;
+
     @Transient // Indica que no es persistente en BD
     private Long proveedoresId;
 }
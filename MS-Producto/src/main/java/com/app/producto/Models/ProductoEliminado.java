@@ -0,0 +1,33 @@
+package com.app.producto.Models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de un producto eliminado, para que las demás instancias lo quiten de su índice de búsqueda en
+ * la siguiente sincronización.
+ */
+@Entity
+@Table(name = "productos_eliminados", indexes = {
+        @Index(name = "idx_productos_eliminados_version", columnList = "version_cambio")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductoEliminado {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_producto", nullable = false)
+    private Long productoId;
+
+    @Column(name = "version_cambio", nullable = false)
+    private Long versionCambio;
+
+    @Column(name = "fecha_eliminacion")
+    private LocalDateTime fechaEliminacion;
+}
@@ -0,0 +1,24 @@
+package com.app.producto.Models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Fila única con la última versión de cambio asignada a productos y bajas. Quien la incrementa la deja
+ * bloqueada hasta el commit, así que las versiones se confirman en orden y nunca se repiten.
+ */
+@Entity
+@Table(name = "productos_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductoVersion {
+    public static final long ID_UNICO = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "version_actual", nullable = false)
+    private Long versionActual;
+}
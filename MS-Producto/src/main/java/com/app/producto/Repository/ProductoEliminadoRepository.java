@@ -0,0 +1,15 @@
+package com.app.producto.Repository;
+
+import com.app.producto.Models.ProductoEliminado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ProductoEliminadoRepository extends JpaRepository<ProductoEliminado, Long> {
+
+    List<ProductoEliminado> findByVersionCambioGreaterThan(Long versionCambio);
+
+    @Query("SELECT COALESCE(MAX(e.versionCambio), 0) FROM ProductoEliminado e")
+    long findMaxVersionCambio();
+}
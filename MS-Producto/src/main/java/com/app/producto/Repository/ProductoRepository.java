@@ -1,8 +1,15 @@
 package com.app.producto.Repository;
 
+import com.app.producto.Dto.ProductoBasicoDto;
+import com.app.producto.Dto.ProductoDto;
 import com.app.producto.Models.Producto;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +21,41 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     boolean existsBySerial(String serial);
 
     List<Producto> findByCatalogo(String catalogo);
+
+    // La categoría se trae en el mismo SELECT para no disparar una consulta por producto
+    @Override
+    @EntityGraph(attributePaths = "categoria")
+    List<Producto> findAllById(Iterable<Long> ids);
+
+    // Lotes por ID creciente para construir el índice de búsqueda; la categoría se usa solo por su ID
+    List<Producto> findByIdGreaterThanOrderByIdAsc(Long id, Limit limite);
+
+    // Cambios de otras instancias para el índice de búsqueda; igual que arriba, la categoría solo por su ID
+    List<Producto> findByVersionCambioGreaterThan(Long versionCambio);
+
+    @Query("SELECT COALESCE(MAX(p.versionCambio), 0) FROM Producto p")
+    long findMaxVersionCambio();
+
+    @Query("SELECT new com.app.producto.Dto.ProductoBasicoDto(p.id, p.codigoSku, p.nombre, p.precio) " +
+            "FROM Producto p WHERE p.id IN :ids")
+    List<ProductoBasicoDto> findBasicosByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Página por cursor (keyset): devuelve los productos con ID mayor a {@code cursor} en orden de ID.
+     * Se proyecta directo a ProductoDto, así que la categoría no genera consultas extra ni se
+     * cargan entidades en el contexto de persistencia. Los filtros en null se ignoran.
+     */
+    @Query("SELECT new com.app.producto.Dto.ProductoDto(p.id, p.codigoSku, p.nombre, p.descripcion, p.precio, " +
+            "p.costo, p.stock, c.id, p.catalogo, p.serial, NULL) " +
+            "FROM Producto p LEFT JOIN p.categoria c " +
+            "WHERE p.id > :cursor " +
+            "AND (:catalogo IS NULL OR p.catalogo = :catalogo) " +
+            "AND (:categoriaId IS NULL OR c.id = :categoriaId) " +
+            "AND (:activo IS NULL OR p.activo = :activo) " +
+            "ORDER BY p.id")
+    List<ProductoDto> buscarPagina(@Param("cursor") Long cursor,
+                                   @Param("catalogo") String catalogo,
+                                   @Param("categoriaId") Long categoriaId,
+                                   @Param("activo") Boolean activo,
+                                   Limit limite);
 }
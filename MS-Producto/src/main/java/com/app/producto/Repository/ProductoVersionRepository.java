@@ -0,0 +1,20 @@
+package com.app.producto.Repository;
+
+import com.app.producto.Models.ProductoVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ProductoVersionRepository extends JpaRepository<ProductoVersion, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM ProductoVersion v WHERE v.id = :id")
+    Optional<ProductoVersion> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT v.versionActual FROM ProductoVersion v WHERE v.id = :id")
+    Optional<Long> findVersionActual(@Param("id") Long id);
+}
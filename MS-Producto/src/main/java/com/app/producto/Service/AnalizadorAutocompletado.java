@@ -0,0 +1,43 @@
+package com.app.producto.Service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * Análisis del nombre para autocompletar. Al indexar, cada palabra se guarda también con todos sus prefijos
+ * ("lavanda" como "l", "la", "lav", ...), así lo que el cliente lleva escrito se busca como un término exacto
+ * en vez de expandir un prefijo contra todo el diccionario en cada tecla. Al consultar solo se pasa a
+ * minúsculas y se quitan las tildes.
+ *
+ * No quita palabras vacías: en nombres como "La Vie Est Belle" son parte de lo que se escribe.
+ */
+public class AnalizadorAutocompletado extends Analyzer {
+
+    public static final int LARGO_MAXIMO_PREFIJO = 20;
+
+    private final boolean conPrefijos;
+
+    public AnalizadorAutocompletado(boolean conPrefijos) {
+        this.conPrefijos = conPrefijos;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream flujo = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+        if (conPrefijos) {
+            // preserveOriginal: las palabras más largas que el máximo se pueden completar igual
+            flujo = new EdgeNGramTokenFilter(flujo, 1, LARGO_MAXIMO_PREFIJO, true);
+        }
+        return new TokenStreamComponents(tokenizer, flujo);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+    }
+}
@@ -0,0 +1,49 @@
+package com.app.producto.Service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * Análisis del nombre y la descripción de los productos: minúsculas, sin palabras vacías del español, sin
+ * tildes y con un stemming liviano que junta singular, plural y género ("floral" y "florales", "amaderado"
+ * y "amaderada").
+ *
+ * Sin raíces ({@code reducirARaiz = false}) deja las palabras completas; la búsqueda lo usa para armar
+ * variantes por término (exacta, aproximada y prefijo) y reduce cada una a su raíz por separado.
+ */
+public class AnalizadorEspanol extends Analyzer {
+
+    private final boolean reducirARaiz;
+
+    public AnalizadorEspanol() {
+        this(true);
+    }
+
+    public AnalizadorEspanol(boolean reducirARaiz) {
+        this.reducirARaiz = reducirARaiz;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream flujo = new LowerCaseFilter(tokenizer);
+        // Las palabras vacías traen tilde ("más", "él"): se quitan antes de plegar los acentos
+        flujo = new StopFilter(flujo, SpanishAnalyzer.getDefaultStopSet());
+        flujo = new ASCIIFoldingFilter(flujo);
+        if (reducirARaiz) {
+            flujo = new SpanishLightStemFilter(flujo);
+        }
+        return new TokenStreamComponents(tokenizer, flujo);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+    }
+}
@@ -0,0 +1,524 @@
+package com.app.producto.Service;
+
+import com.app.producto.Dto.FacetaDto;
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.Dto.SugerenciaProductoDto;
+import com.app.producto.Models.Producto;
+import com.app.producto.Models.ProductoEliminado;
+import com.app.producto.Repository.ProductoEliminadoRepository;
+import com.app.producto.Repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.es.SpanishLightStemmer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.range.LongRange;
+import org.apache.lucene.facet.range.LongRangeFacetCounts;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Índice de búsqueda del catálogo en memoria (Lucene) sobre nombre, descripción, SKU, catálogo y categoría,
+ * para buscar y autocompletar sin recorrer la tabla de productos.
+ *
+ * - Búsqueda: cada palabra debe aparecer en el nombre o la descripción, exacta, con hasta una o dos letras
+ *   de diferencia según su largo, o (la última) como comienzo de una palabra del nombre. Un SKU completo
+ *   también encuentra su producto.
+ * - Facetas: cantidad de coincidencias por categoría, catálogo y banda de precio, contadas sobre todas las
+ *   coincidencias con los filtros ya aplicados.
+ * - Autocompletar: responde solo con el índice (ID, SKU y nombre guardados), sin ir a la base.
+ * - Al arrancar se indexa todo el catálogo por lotes de ID creciente; después ProductoService indexa o quita
+ *   cada producto en cuanto lo guarda o lo elimina. El índice es de esta instancia: cada sincronizacionMs
+ *   se aplican los productos guardados y eliminados por otras instancias desde la última versión de cambio
+ *   vista (ProductoVersionService), así que sus cambios tardan hasta ese intervalo en verse aquí.
+ */
+@Service
+public class BusquedaProductoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaProductoService.class);
+
+    public static final String FACETA_CATEGORIA = "categoria";
+    public static final String FACETA_CATALOGO = "catalogo";
+    public static final String FACETA_PRECIO = "precio";
+
+    private static final String CAMPO_ID = "id";
+    private static final String CAMPO_SKU = "sku";
+    private static final String CAMPO_SKU_GUARDADO = "codigoSku";
+    private static final String CAMPO_NOMBRE = "nombre";
+    private static final String CAMPO_NOMBRE_PREFIJOS = "nombrePrefijos";
+    private static final String CAMPO_DESCRIPCION = "descripcion";
+    private static final String CAMPO_CATALOGO = "catalogo";
+    private static final String CAMPO_CATEGORIA = "categoriaId";
+    private static final String CAMPO_ACTIVO = "activo";
+    // En centavos, para filtrar y contar con enteros
+    private static final String CAMPO_PRECIO = "precio";
+
+    private static final int LOTE_INDEXACION = 1000;
+    private static final int MAXIMO_PALABRAS = 10;
+    private static final int MAXIMO_VALORES_FACETA = 20;
+    private static final int LARGO_MINIMO_PREFIJO_SKU = 3;
+
+    // En pesos; la última banda no tiene tope
+    private static final LongRange[] BANDAS_PRECIO = {
+            banda("0-20000", 0, 20_000),
+            banda("20000-50000", 20_000, 50_000),
+            banda("50000-100000", 50_000, 100_000),
+            new LongRange("100000+", centavos(BigDecimal.valueOf(100_000)), true, Long.MAX_VALUE, true)
+    };
+
+    private static final SpanishLightStemmer ESTEMIZADOR = new SpanishLightStemmer();
+
+    private final ProductoRepository productoRepository;
+    private final ProductoEliminadoRepository productoEliminadoRepository;
+    private final ProductoVersionService productoVersionService;
+    private final Analyzer analizadorPalabras = new AnalizadorEspanol(false);
+    private final Analyzer analizadorPrefijos = new AnalizadorAutocompletado(false);
+    private final FacetsConfig configuracionFacetas = new FacetsConfig();
+    private final ByteBuffersDirectory directorio = new ByteBuffersDirectory();
+    private final IndexWriter escritor;
+    private final SearcherManager buscadores;
+    // Versión de cambio ya aplicada al índice; -1 hasta que termina la carga inicial
+    private volatile long version = -1;
+
+    public record ResultadoBusqueda(List<Long> ids, long total, Map<String, List<FacetaDto>> facetas) {
+    }
+
+    public BusquedaProductoService(ProductoRepository productoRepository,
+                                   ProductoEliminadoRepository productoEliminadoRepository,
+                                   ProductoVersionService productoVersionService) {
+        this.productoRepository = productoRepository;
+        this.productoEliminadoRepository = productoEliminadoRepository;
+        this.productoVersionService = productoVersionService;
+        Analyzer analizador = new PerFieldAnalyzerWrapper(new AnalizadorEspanol(),
+                Map.of(CAMPO_NOMBRE_PREFIJOS, new AnalizadorAutocompletado(true)));
+        try {
+            this.escritor = new IndexWriter(directorio, new IndexWriterConfig(analizador));
+            this.buscadores = new SearcherManager(escritor, new SearcherFactory() {
+                @Override
+                public IndexSearcher newSearcher(IndexReader lector, IndexReader anterior) throws IOException {
+                    return new BuscadorConFacetas(lector, configuracionFacetas);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el índice de búsqueda de productos", e);
+        }
+    }
+
+    /**
+     * @return los IDs de los {@code limite} productos más relevantes, el total de coincidencias y las facetas
+     */
+    public ResultadoBusqueda buscar(String consulta, ProductoFiltro filtro, BigDecimal precioMin,
+                                    BigDecimal precioMax, int limite) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder().setMinimumNumberShouldMatch(1);
+        Query texto = consultaTexto(consulta);
+        if (texto != null) {
+            query.add(texto, BooleanClause.Occur.SHOULD);
+        }
+        query.add(new BoostQuery(new TermQuery(new Term(CAMPO_SKU, normalizarSku(consulta))), 10f),
+                BooleanClause.Occur.SHOULD);
+        agregarFiltros(query, filtro, precioMin, precioMax);
+
+        BuscadorConFacetas buscador = (BuscadorConFacetas) buscadores.acquire();
+        try {
+            Query filtrada = query.build();
+            TopDocs encontrados = buscador.search(filtrada, limite);
+            FacetsCollector coincidencias = buscador.search(filtrada, new FacetsCollectorManager());
+
+            List<Long> ids = new ArrayList<>(encontrados.scoreDocs.length);
+            StoredFields campos = buscador.storedFields();
+            for (ScoreDoc doc : encontrados.scoreDocs) {
+                ids.add(Long.parseLong(campos.document(doc.doc).get(CAMPO_ID)));
+            }
+            long total = 0;
+            for (FacetsCollector.MatchingDocs segmento : coincidencias.getMatchingDocs()) {
+                total += segmento.totalHits;
+            }
+            return new ResultadoBusqueda(ids, total, contarFacetas(buscador, coincidencias));
+        } finally {
+            buscadores.release(buscador);
+        }
+    }
+
+    /**
+     * Productos cuyo nombre tiene palabras que empiezan con cada palabra escrita, o cuyo SKU empieza con el
+     * texto (desde 3 caracteres, para no recorrer todos los SKU con un prefijo corto).
+     */
+    public List<SugerenciaProductoDto> autocompletar(String prefijo, int limite) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder().setMinimumNumberShouldMatch(1);
+        List<String> palabras = analizar(analizadorPrefijos, CAMPO_NOMBRE_PREFIJOS, prefijo);
+        if (!palabras.isEmpty()) {
+            BooleanQuery.Builder nombre = new BooleanQuery.Builder();
+            for (String palabra : palabras) {
+                nombre.add(new TermQuery(new Term(CAMPO_NOMBRE_PREFIJOS, recortar(palabra))), BooleanClause.Occur.MUST);
+            }
+            query.add(nombre.build(), BooleanClause.Occur.SHOULD);
+        }
+        String sku = normalizarSku(prefijo);
+        if (sku.length() >= LARGO_MINIMO_PREFIJO_SKU) {
+            query.add(new PrefixQuery(new Term(CAMPO_SKU, sku)), BooleanClause.Occur.SHOULD);
+        }
+
+        IndexSearcher buscador = buscadores.acquire();
+        try {
+            TopDocs encontrados = buscador.search(query.build(), limite);
+            StoredFields campos = buscador.storedFields();
+            List<SugerenciaProductoDto> sugerencias = new ArrayList<>(encontrados.scoreDocs.length);
+            for (ScoreDoc doc : encontrados.scoreDocs) {
+                Document documento = campos.document(doc.doc);
+                sugerencias.add(SugerenciaProductoDto.builder()
+                        .id(Long.parseLong(documento.get(CAMPO_ID)))
+                        .codigoSku(documento.get(CAMPO_SKU_GUARDADO))
+                        .nombre(documento.get(CAMPO_NOMBRE))
+                        .build());
+            }
+            return sugerencias;
+        } finally {
+            buscadores.release(buscador);
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un producto ya guardado en la base y lo deja visible para las búsquedas.
+     */
+    public void indexar(Producto producto) {
+        if (producto == null || producto.getId() == null) {
+            return;
+        }
+        try {
+            agregar(producto);
+            buscadores.maybeRefreshBlocking();
+        } catch (IOException e) {
+            logger.warn("No se pudo indexar el producto {}", producto.getId(), e);
+        }
+    }
+
+    public void eliminar(Long id) {
+        try {
+            escritor.deleteDocuments(new Term(CAMPO_ID, String.valueOf(id)));
+            buscadores.maybeRefreshBlocking();
+        } catch (IOException e) {
+            logger.warn("No se pudo quitar del índice el producto {}", id, e);
+        }
+    }
+
+    /**
+     * Indexa todo el catálogo. Reemplazar un documento por ID es idempotente, así que volver a ejecutarlo
+     * no duplica productos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void inicializar() {
+        long inicio = System.nanoTime();
+        // Se lee antes de cargar: lo que cambie durante la carga lo vuelve a aplicar la sincronización
+        long versionCargada = productoVersionService.actual();
+        long ultimoId = 0;
+        long indexados = 0;
+        List<Producto> lote;
+        try {
+            do {
+                lote = productoRepository.findByIdGreaterThanOrderByIdAsc(ultimoId, Limit.of(LOTE_INDEXACION));
+                for (Producto producto : lote) {
+                    agregar(producto);
+                }
+                if (!lote.isEmpty()) {
+                    ultimoId = lote.get(lote.size() - 1).getId();
+                    indexados += lote.size();
+                }
+            } while (lote.size() == LOTE_INDEXACION);
+            buscadores.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al indexar productos", e);
+        }
+        version = versionCargada;
+        logger.info("Índice de búsqueda de productos construido: {} productos en {} ms, versión {}",
+                indexados, (System.nanoTime() - inicio) / 1_000_000, versionCargada);
+    }
+
+    /**
+     * Aplica los productos guardados y eliminados (por esta u otra instancia) con versión posterior a la ya
+     * aplicada. Volver a aplicar un cambio no tiene efecto; si falla, se reintenta desde la misma versión.
+     */
+    @Scheduled(fixedDelayString = "${producto.busqueda.sincronizacionMs:10000}")
+    public synchronized void sincronizar() {
+        long desde = version;
+        if (desde < 0) {
+            return;
+        }
+        long ultima = productoVersionService.actual();
+        if (ultima <= desde) {
+            return;
+        }
+        try {
+            List<Producto> guardados = productoRepository.findByVersionCambioGreaterThan(desde);
+            for (Producto producto : guardados) {
+                agregar(producto);
+            }
+            List<ProductoEliminado> eliminados = productoEliminadoRepository.findByVersionCambioGreaterThan(desde);
+            for (ProductoEliminado eliminado : eliminados) {
+                escritor.deleteDocuments(new Term(CAMPO_ID, String.valueOf(eliminado.getProductoId())));
+            }
+            buscadores.maybeRefreshBlocking();
+            version = ultima;
+            logger.debug("Índice de búsqueda sincronizado hasta la versión {}: {} guardados, {} eliminados",
+                    ultima, guardados.size(), eliminados.size());
+        } catch (IOException e) {
+            logger.warn("No se pudo sincronizar el índice de búsqueda desde la versión {}", desde, e);
+        }
+    }
+
+    public int getProductosIndexados() {
+        return escritor.getDocStats().numDocs;
+    }
+
+    private Query consultaTexto(String consulta) throws IOException {
+        List<String> palabras = analizar(analizadorPalabras, CAMPO_NOMBRE, consulta);
+        if (palabras.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder todas = new BooleanQuery.Builder();
+        for (int i = 0; i < palabras.size(); i++) {
+            String palabra = palabras.get(i);
+            String raiz = raiz(palabra);
+            BooleanQuery.Builder variantes = new BooleanQuery.Builder()
+                    .add(new BoostQuery(new TermQuery(new Term(CAMPO_NOMBRE, raiz)), 3f), BooleanClause.Occur.SHOULD)
+                    .add(new TermQuery(new Term(CAMPO_DESCRIPCION, raiz)), BooleanClause.Occur.SHOULD);
+            int ediciones = edicionesPermitidas(raiz);
+            if (ediciones > 0) {
+                // La primera letra tiene que coincidir: acota los términos a comparar
+                variantes.add(new FuzzyQuery(new Term(CAMPO_NOMBRE, raiz), ediciones, 1), BooleanClause.Occur.SHOULD);
+                variantes.add(new BoostQuery(new FuzzyQuery(new Term(CAMPO_DESCRIPCION, raiz), ediciones, 1), 0.5f),
+                        BooleanClause.Occur.SHOULD);
+            }
+            if (i == palabras.size() - 1) {
+                // La última palabra puede estar a medio escribir
+                variantes.add(new TermQuery(new Term(CAMPO_NOMBRE_PREFIJOS, recortar(palabra))), BooleanClause.Occur.SHOULD);
+            }
+            todas.add(variantes.build(), BooleanClause.Occur.MUST);
+        }
+        return todas.build();
+    }
+
+    private static void agregarFiltros(BooleanQuery.Builder query, ProductoFiltro filtro,
+                                       BigDecimal precioMin, BigDecimal precioMax) {
+        if (filtro != null) {
+            if (filtro.getCatalogo() != null) {
+                query.add(new TermQuery(new Term(CAMPO_CATALOGO, filtro.getCatalogo())), BooleanClause.Occur.FILTER);
+            }
+            if (filtro.getCategoriaId() != null) {
+                query.add(LongPoint.newExactQuery(CAMPO_CATEGORIA, filtro.getCategoriaId()), BooleanClause.Occur.FILTER);
+            }
+            if (filtro.getActivo() != null) {
+                query.add(new TermQuery(new Term(CAMPO_ACTIVO, filtro.getActivo().toString())), BooleanClause.Occur.FILTER);
+            }
+        }
+        if (precioMin != null || precioMax != null) {
+            query.add(LongPoint.newRangeQuery(CAMPO_PRECIO,
+                    precioMin != null ? centavos(precioMin) : Long.MIN_VALUE,
+                    precioMax != null ? centavos(precioMax) : Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+        }
+    }
+
+    private Map<String, List<FacetaDto>> contarFacetas(BuscadorConFacetas buscador, FacetsCollector coincidencias)
+            throws IOException {
+        Map<String, List<FacetaDto>> facetas = new LinkedHashMap<>();
+        if (buscador.estadoFacetas != null) {
+            Facets porValor = new SortedSetDocValuesFacetCounts(buscador.estadoFacetas, coincidencias);
+            facetas.put(FACETA_CATEGORIA, valores(porValor, FACETA_CATEGORIA));
+            facetas.put(FACETA_CATALOGO, valores(porValor, FACETA_CATALOGO));
+        } else {
+            facetas.put(FACETA_CATEGORIA, List.of());
+            facetas.put(FACETA_CATALOGO, List.of());
+        }
+
+        // Todas las bandas, en orden de precio y también las que quedan en cero
+        FacetResult porPrecio = new LongRangeFacetCounts(CAMPO_PRECIO, coincidencias, BANDAS_PRECIO)
+                .getTopChildren(BANDAS_PRECIO.length, CAMPO_PRECIO);
+        Map<String, Long> cantidades = new HashMap<>();
+        if (porPrecio != null) {
+            for (LabelAndValue banda : porPrecio.labelValues) {
+                cantidades.put(banda.label, banda.value.longValue());
+            }
+        }
+        List<FacetaDto> bandas = new ArrayList<>(BANDAS_PRECIO.length);
+        for (LongRange banda : BANDAS_PRECIO) {
+            bandas.add(new FacetaDto(banda.label, cantidades.getOrDefault(banda.label, 0L)));
+        }
+        facetas.put(FACETA_PRECIO, bandas);
+        return facetas;
+    }
+
+    private static List<FacetaDto> valores(Facets facetas, String dimension) throws IOException {
+        FacetResult resultado;
+        try {
+            resultado = facetas.getTopChildren(MAXIMO_VALORES_FACETA, dimension);
+        } catch (IllegalArgumentException e) {
+            // Ningún producto indexado tiene todavía un valor en esta dimensión
+            return List.of();
+        }
+        if (resultado == null) {
+            return List.of();
+        }
+        List<FacetaDto> valores = new ArrayList<>(resultado.labelValues.length);
+        for (LabelAndValue valor : resultado.labelValues) {
+            valores.add(new FacetaDto(valor.label, valor.value.longValue()));
+        }
+        return valores;
+    }
+
+    private void agregar(Producto producto) throws IOException {
+        Document documento = new Document();
+        documento.add(new StringField(CAMPO_ID, String.valueOf(producto.getId()), Field.Store.YES));
+        if (producto.getCodigoSku() != null) {
+            documento.add(new StringField(CAMPO_SKU, normalizarSku(producto.getCodigoSku()), Field.Store.NO));
+            documento.add(new StoredField(CAMPO_SKU_GUARDADO, producto.getCodigoSku()));
+        }
+        if (producto.getNombre() != null) {
+            documento.add(new TextField(CAMPO_NOMBRE, producto.getNombre(), Field.Store.YES));
+            documento.add(new TextField(CAMPO_NOMBRE_PREFIJOS, producto.getNombre(), Field.Store.NO));
+        }
+        if (producto.getDescripcion() != null) {
+            documento.add(new TextField(CAMPO_DESCRIPCION, producto.getDescripcion(), Field.Store.NO));
+        }
+        if (StringUtils.hasText(producto.getCatalogo())) {
+            documento.add(new StringField(CAMPO_CATALOGO, producto.getCatalogo(), Field.Store.NO));
+            documento.add(new SortedSetDocValuesFacetField(FACETA_CATALOGO, producto.getCatalogo()));
+        }
+        if (producto.getCategoria() != null && producto.getCategoria().getId() != null) {
+            Long categoriaId = producto.getCategoria().getId();
+            documento.add(new LongPoint(CAMPO_CATEGORIA, categoriaId));
+            documento.add(new SortedSetDocValuesFacetField(FACETA_CATEGORIA, String.valueOf(categoriaId)));
+        }
+        if (producto.getActivo() != null) {
+            documento.add(new StringField(CAMPO_ACTIVO, producto.getActivo().toString(), Field.Store.NO));
+        }
+        if (producto.getPrecio() != null) {
+            long precio = centavos(producto.getPrecio());
+            documento.add(new LongPoint(CAMPO_PRECIO, precio));
+            documento.add(new NumericDocValuesField(CAMPO_PRECIO, precio));
+        }
+        escritor.updateDocument(new Term(CAMPO_ID, String.valueOf(producto.getId())),
+                configuracionFacetas.build(documento));
+    }
+
+    private static List<String> analizar(Analyzer analizador, String campo, String texto) throws IOException {
+        List<String> palabras = new ArrayList<>();
+        try (TokenStream flujo = analizador.tokenStream(campo, texto)) {
+            CharTermAttribute termino = flujo.addAttribute(CharTermAttribute.class);
+            flujo.reset();
+            while (palabras.size() < MAXIMO_PALABRAS && flujo.incrementToken()) {
+                palabras.add(termino.toString());
+            }
+            flujo.end();
+        }
+        return palabras;
+    }
+
+    private static String raiz(String palabra) {
+        char[] letras = palabra.toCharArray();
+        return new String(letras, 0, ESTEMIZADOR.stem(letras, letras.length));
+    }
+
+    // Hasta 3 letras sin tolerancia: con una de diferencia "oud" encontraría también "old" u "our"
+    private static int edicionesPermitidas(String raiz) {
+        if (raiz.length() < 4) {
+            return 0;
+        }
+        return raiz.length() < 8 ? 1 : 2;
+    }
+
+    private static String recortar(String palabra) {
+        return palabra.length() > AnalizadorAutocompletado.LARGO_MAXIMO_PREFIJO
+                ? palabra.substring(0, AnalizadorAutocompletado.LARGO_MAXIMO_PREFIJO)
+                : palabra;
+    }
+
+    private static String normalizarSku(String sku) {
+        return sku.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long centavos(BigDecimal monto) {
+        return monto.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static LongRange banda(String etiqueta, long desde, long hasta) {
+        return new LongRange(etiqueta, centavos(BigDecimal.valueOf(desde)), true, centavos(BigDecimal.valueOf(hasta)), false);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        buscadores.close();
+        escritor.close();
+        directorio.close();
+    }
+
+    /**
+     * Buscador que trae el estado de las facetas del mismo lector, para armarlo una vez por refresco y no en
+     * cada búsqueda.
+     */
+    private static final class BuscadorConFacetas extends IndexSearcher {
+
+        // null mientras ningún producto indexado tiene categoría ni catálogo
+        private final SortedSetDocValuesReaderState estadoFacetas;
+
+        BuscadorConFacetas(IndexReader lector, FacetsConfig configuracion) throws IOException {
+            super(lector);
+            this.estadoFacetas = FieldInfos.getMergedFieldInfos(lector)
+                    .fieldInfo(FacetsConfig.DEFAULT_INDEX_FIELD_NAME) != null
+                    ? new DefaultSortedSetDocValuesReaderState(lector, configuracion)
+                    : null;
+        }
+    }
+}
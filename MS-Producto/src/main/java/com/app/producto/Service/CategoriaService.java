@@ -1,11 +1,15 @@
 package com.app.producto.Service;
 
 
+import com.app.producto.Config.CacheConfig;
 import com.app.producto.Dto.*;
 import com.app.producto.Models.Categoria;
 import com.app.producto.Repository.CategoriaRepository;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -17,6 +21,7 @@ import java.util.stream.Collectors;
 public class CategoriaService {
     private final CategoriaRepository categoriaRepository;
 
+    @CacheEvict(value = CacheConfig.CATEGORIAS, allEntries = true)
     public ServiceResult<CategoriaDto> crearCategoria(CategoriaDto dto) {
         List<String> errors = new ArrayList<>();
         try {
@@ -37,6 +42,7 @@ public class CategoriaService {
             return new ServiceResult<>(errors);
         }
     }
+    @Cacheable(value = CacheConfig.CATEGORIAS, key = "'todas'", unless = "#result.hasErrors()")
     public ServiceResult<List<CategoriaDto>> listarCategorias() {
         List<String> errors = new ArrayList<>();
         try {
@@ -56,6 +62,11 @@ public class CategoriaService {
             return new ServiceResult<>(errors);
         }
     }
+    // Los productos cacheados guardan el ID de categoría, así que también se invalidan
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.CATEGORIAS, allEntries = true),
+            @CacheEvict(value = CacheConfig.PRODUCTOS, allEntries = true)
+    })
     public ServiceResult<Void> eliminarCategoria(Long id) {
         List<String> errors = new ArrayList<>();
         try {
@@ -74,6 +85,7 @@ public class CategoriaService {
         return new ServiceResult<>(errors);
     }
 
+    @CacheEvict(value = CacheConfig.CATEGORIAS, allEntries = true)
     public ServiceResult<CategoriaDto> actualizarCategoria(Long id, CategoriaDto dto) {
         List<String> errors = new ArrayList<>();
         try {
@@ -1,7 +1,13 @@
 package com.app.producto.Service;
 
+import com.app.producto.Config.CacheConfig;
+import com.app.producto.Dto.BusquedaProductosDto;
+import com.app.producto.Dto.ProductoBasicoDto;
 import com.app.producto.Dto.ProductoDto;
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.Dto.ProductoPaginaDto;
 import com.app.producto.Dto.ProveedorResponse;
+import com.app.producto.Dto.SugerenciaProductoDto;
 import com.app.producto.Models.Categoria;
 import com.app.producto.Models.Producto;
 import com.app.producto.Repository.CategoriaRepository;
@@ -11,24 +17,47 @@ import com.app.producto.shared.TokenContext;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductoService {
+    private static final int MAX_IDS_POR_LOTE = 1000;
+    private static final int LIMITE_PAGINA_DEFECTO = 50;
+    private static final int LIMITE_PAGINA_MAXIMO = 500;
+    private static final int LOTE_EXPORTACION = 1000;
+    private static final int LIMITE_BUSQUEDA_DEFECTO = 20;
+    private static final int LIMITE_BUSQUEDA_MAXIMO = 100;
+    private static final int LIMITE_SUGERENCIAS_DEFECTO = 10;
+    private static final int LIMITE_SUGERENCIAS_MAXIMO = 20;
+
     @Value("${auth.url.provMicro}")
     private String AUTH_SERVICE_URL;
     private final MicroserviceClient microserviceClient;
     private final CategoriaRepository categoriaRepository;
     private final ProductoRepository productoRepository;
+    private final BusquedaProductoService busquedaProductoService;
+    private final ProductoVersionService productoVersionService;
 
-    @Cacheable("proveedores")
+    @Cacheable(CacheConfig.PROVEEDORES)
     @CircuitBreaker(name = "proveedorService", fallbackMethod = "fallbackProveedor")
     public ProveedorResponse consultarProveedor(Long proveedorId) {
         String token = TokenContext.getToken();
@@ -79,7 +108,8 @@ public class ProductoService {
 
             Producto producto = toEntity(dto);
             producto.setCategoria(categoria);
-            productoRepository.save(producto);
+            productoVersionService.guardar(producto);
+            busquedaProductoService.indexar(producto);
             return new ServiceResult<>(toDto(producto));
 
         } catch(Exception e) {
@@ -87,19 +117,125 @@ public class ProductoService {
             return new ServiceResult<>(errors);
         }
     }
-    public ServiceResult<List<ProductoDto>> listarProductos() {
+    public ServiceResult<ProductoPaginaDto> listarProductos(ProductoFiltro filtro, Long cursor, Integer limite) {
+        List<String> errors = new ArrayList<>();
+        try {
+            int tamano = limite == null ? LIMITE_PAGINA_DEFECTO : Math.min(Math.max(limite, 1), LIMITE_PAGINA_MAXIMO);
+
+            // Se pide un elemento extra para saber si existe una página siguiente sin hacer un COUNT
+            List<ProductoDto> productos = buscarPagina(filtro, cursor, tamano + 1);
+            Long siguienteCursor = null;
+            if (productos.size() > tamano) {
+                productos = productos.subList(0, tamano);
+                siguienteCursor = productos.get(tamano - 1).getId();
+            }
+
+            return new ServiceResult<>(ProductoPaginaDto.builder()
+                    .productos(productos)
+                    .siguienteCursor(siguienteCursor)
+                    .build());
+
+        } catch (Exception e) {
+            errors.add("Error al listar productos: " + e.getMessage());
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    /**
+     * Recorre todo el catálogo que cumple el filtro en páginas por cursor y entrega cada página al
+     * consumidor, para exportar sin cargar el catálogo completo en memoria.
+     */
+    public void exportarProductos(ProductoFiltro filtro, Consumer<List<ProductoDto>> consumidor) {
+        Long cursor = 0L;
+        List<ProductoDto> pagina;
+        do {
+            pagina = buscarPagina(filtro, cursor, LOTE_EXPORTACION);
+            if (!pagina.isEmpty()) {
+                consumidor.accept(pagina);
+                cursor = pagina.get(pagina.size() - 1).getId();
+            }
+        } while (pagina.size() == LOTE_EXPORTACION);
+    }
+
+    /**
+     * Búsqueda de texto en el catálogo con el índice de BusquedaProductoService. Los productos se leen de la
+     * base por ID y se devuelven en orden de relevancia; las facetas cuentan todas las coincidencias.
+     */
+    public ServiceResult<BusquedaProductosDto> buscarProductos(String consulta, ProductoFiltro filtro,
+                                                               BigDecimal precioMin, BigDecimal precioMax,
+                                                               Integer limite) {
         List<String> errors = new ArrayList<>();
+        if (consulta == null || consulta.isBlank()) {
+            errors.add("Debe indicar el texto a buscar");
+        }
+        int maximo = limite != null ? limite : LIMITE_BUSQUEDA_DEFECTO;
+        if (maximo < 1 || maximo > LIMITE_BUSQUEDA_MAXIMO) {
+            errors.add("El límite debe estar entre 1 y " + LIMITE_BUSQUEDA_MAXIMO);
+        }
+        if ((precioMin != null && precioMin.signum() < 0) || (precioMax != null && precioMax.signum() < 0)
+                || (precioMin != null && precioMax != null && precioMin.compareTo(precioMax) > 0)) {
+            errors.add("El rango de precios no es válido");
+        }
+        if (!errors.isEmpty()) {
+            return new ServiceResult<>(errors);
+        }
         try {
-            List<ProductoDto> dtoList = productoRepository.findAll().stream()
+            BusquedaProductoService.ResultadoBusqueda resultado =
+                    busquedaProductoService.buscar(consulta, filtro, precioMin, precioMax, maximo);
+
+            // findAllById no respeta el orden pedido: se reordena por relevancia
+            Map<Long, ProductoDto> porId = productoRepository.findAllById(resultado.ids()).stream()
                     .map(this::toDto)
+                    .collect(Collectors.toMap(ProductoDto::getId, Function.identity()));
+            List<ProductoDto> productos = resultado.ids().stream()
+                    .map(porId::get)
+                    .filter(Objects::nonNull)
                     .toList();
-            return new ServiceResult<>(dtoList);
+
+            return new ServiceResult<>(BusquedaProductosDto.builder()
+                    .consulta(consulta)
+                    .totalCoincidencias(resultado.total())
+                    .productos(productos)
+                    .facetas(resultado.facetas())
+                    .build());
 
         } catch (Exception e) {
-            errors.add("Error al listar productos: " + e.getMessage());
+            errors.add("Error al buscar productos: " + e.getMessage());
             return new ServiceResult<>(errors);
         }
     }
+
+    public ServiceResult<List<SugerenciaProductoDto>> autocompletar(String prefijo, Integer limite) {
+        List<String> errors = new ArrayList<>();
+        if (prefijo == null || prefijo.isBlank()) {
+            errors.add("Debe indicar el texto a completar");
+        }
+        int maximo = limite != null ? limite : LIMITE_SUGERENCIAS_DEFECTO;
+        if (maximo < 1 || maximo > LIMITE_SUGERENCIAS_MAXIMO) {
+            errors.add("El límite debe estar entre 1 y " + LIMITE_SUGERENCIAS_MAXIMO);
+        }
+        if (!errors.isEmpty()) {
+            return new ServiceResult<>(errors);
+        }
+        try {
+            return new ServiceResult<>(busquedaProductoService.autocompletar(prefijo, maximo));
+
+        } catch (Exception e) {
+            errors.add("Error al autocompletar productos: " + e.getMessage());
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    private List<ProductoDto> buscarPagina(ProductoFiltro filtro, Long cursor, int limite) {
+        ProductoFiltro f = filtro != null ? filtro : new ProductoFiltro();
+        return productoRepository.buscarPagina(
+                cursor != null ? cursor : 0L,
+                f.getCatalogo(),
+                f.getCategoriaId(),
+                f.getActivo(),
+                Limit.of(limite));
+    }
+    @Cacheable(value = CacheConfig.PRODUCTOS, key = "#id", unless = "#result.hasErrors()")
     public ServiceResult<ProductoDto> obtenerProducto(Long id) {
         List<String> errors = new ArrayList<>();
         try {
@@ -116,6 +252,56 @@ public class ProductoService {
         }
     }
 
+    public ServiceResult<Map<Long, ProductoDto>> obtenerProductosPorIds(Collection<Long> ids) {
+        List<String> errors = validarLote(ids);
+        if (!errors.isEmpty()) {
+            return new ServiceResult<>(errors);
+        }
+        try {
+            Map<Long, ProductoDto> productos = productoRepository.findAllById(idsDistintos(ids)).stream()
+                    .map(this::toDto)
+                    .collect(Collectors.toMap(ProductoDto::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+            return new ServiceResult<>(productos);
+
+        } catch (Exception e) {
+            errors.add("Error al obtener productos: " + e.getMessage());
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    public ServiceResult<Map<Long, ProductoBasicoDto>> obtenerProductosBasicosPorIds(Collection<Long> ids) {
+        List<String> errors = validarLote(ids);
+        if (!errors.isEmpty()) {
+            return new ServiceResult<>(errors);
+        }
+        try {
+            Map<Long, ProductoBasicoDto> productos = productoRepository.findBasicosByIdIn(idsDistintos(ids)).stream()
+                    .collect(Collectors.toMap(ProductoBasicoDto::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+            return new ServiceResult<>(productos);
+
+        } catch (Exception e) {
+            errors.add("Error al obtener productos: " + e.getMessage());
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    private List<String> validarLote(Collection<Long> ids) {
+        List<String> errors = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            errors.add("Debe indicar al menos un ID de producto");
+        } else if (ids.size() > MAX_IDS_POR_LOTE) {
+            errors.add("No se pueden consultar más de " + MAX_IDS_POR_LOTE + " productos por solicitud");
+        }
+        return errors;
+    }
+
+    private static Set<Long> idsDistintos(Collection<Long> ids) {
+        Set<Long> distintos = new LinkedHashSet<>(ids);
+        distintos.remove(null);
+        return distintos;
+    }
+
+    @CacheEvict(value = CacheConfig.PRODUCTOS, key = "#id")
     public ServiceResult<ProductoDto> actualizarProducto(Long id, ProductoDto dto) {
         List<String> errors = new ArrayList<>();
         try {
@@ -150,7 +336,8 @@ public class ProductoService {
             producto.setProveedoresId(prov.getId());
             producto.setCategoria(categoria);
 
-            productoRepository.save(producto);
+            productoVersionService.guardar(producto);
+            busquedaProductoService.indexar(producto);
             return new ServiceResult<>(toDto(producto));
 
         } catch (Exception e) {
@@ -158,6 +345,7 @@ public class ProductoService {
             return new ServiceResult<>(errors);
         }
     }
+    @CacheEvict(value = CacheConfig.PRODUCTOS, key = "#id")
     public ServiceResult<Void> eliminarProducto(Long id) {
         List<String> errors = new ArrayList<>();
         try {
@@ -165,7 +353,8 @@ public class ProductoService {
                 errors.add("Producto con ID " + id + " no existe");
                 return new ServiceResult<>(errors);
             }
-            productoRepository.deleteById(id);
+            productoVersionService.eliminar(id);
+            busquedaProductoService.eliminar(id);
         } catch (Exception e) {
             errors.add("Error al eliminar producto: " + e.getMessage());
             return new ServiceResult<>(errors);
@@ -0,0 +1,95 @@
+package com.app.producto.Service;
+
+import com.app.producto.Models.Producto;
+import com.app.producto.Models.ProductoEliminado;
+import com.app.producto.Models.ProductoVersion;
+import com.app.producto.Repository.ProductoEliminadoRepository;
+import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Repository.ProductoVersionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Altas, modificaciones y bajas de productos con su versión de cambio, para que cada instancia aplique a su
+ * índice de búsqueda lo que cambiaron las demás (BusquedaProductoService.sincronizar).
+ *
+ * La versión sale de una fila única leída con SELECT ... FOR UPDATE en la misma transacción que el cambio:
+ * dos escrituras no obtienen la misma versión y una mayor no se confirma antes que una menor, así que quien
+ * sincroniza "desde la versión N" no se salta cambios que seguían en curso cuando leyó N.
+ */
+@Service
+public class ProductoVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductoVersionService.class);
+
+    private final ProductoVersionRepository productoVersionRepository;
+    private final ProductoRepository productoRepository;
+    private final ProductoEliminadoRepository productoEliminadoRepository;
+
+    public ProductoVersionService(ProductoVersionRepository productoVersionRepository,
+                                  ProductoRepository productoRepository,
+                                  ProductoEliminadoRepository productoEliminadoRepository) {
+        this.productoVersionRepository = productoVersionRepository;
+        this.productoRepository = productoRepository;
+        this.productoEliminadoRepository = productoEliminadoRepository;
+    }
+
+    /**
+     * Crea la fila la primera vez, partiendo de la mayor versión ya usada por productos y bajas.
+     */
+    @PostConstruct
+    public void inicializar() {
+        if (productoVersionRepository.existsById(ProductoVersion.ID_UNICO)) {
+            return;
+        }
+        long inicial = Math.max(productoRepository.findMaxVersionCambio(),
+                productoEliminadoRepository.findMaxVersionCambio());
+        try {
+            productoVersionRepository.saveAndFlush(ProductoVersion.builder()
+                    .id(ProductoVersion.ID_UNICO)
+                    .versionActual(inicial)
+                    .build());
+            logger.info("Versión de cambio de productos inicializada en {}", inicial);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la creó al mismo tiempo
+            logger.debug("La versión de cambio de productos ya fue inicializada por otra instancia");
+        }
+    }
+
+    @Transactional
+    public Producto guardar(Producto producto) {
+        producto.setVersionCambio(siguiente());
+        return productoRepository.save(producto);
+    }
+
+    @Transactional
+    public void eliminar(Long id) {
+        productoRepository.deleteById(id);
+        productoEliminadoRepository.save(ProductoEliminado.builder()
+                .productoId(id)
+                .versionCambio(siguiente())
+                .fechaEliminacion(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Última versión confirmada: todo cambio con versión menor o igual ya es visible.
+     */
+    public long actual() {
+        return productoVersionRepository.findVersionActual(ProductoVersion.ID_UNICO).orElse(0L);
+    }
+
+    // El bloqueo de la fila se mantiene hasta que termina la transacción del cambio
+    private long siguiente() {
+        ProductoVersion fila = productoVersionRepository.findByIdForUpdate(ProductoVersion.ID_UNICO)
+                .orElseThrow(() -> new IllegalStateException("La versión de cambio de productos no está inicializada"));
+        fila.setVersionActual(fila.getVersionActual() + 1);
+        return fila.getVersionActual();
+    }
+}
@@ -1,5 +1,6 @@
 package com.app.producto.shared;
 
+import org.app.resilience.ClienteResiliente;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -7,7 +8,13 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class MicroserviceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ClienteResiliente clienteResiliente;
+
+    public MicroserviceClient(RestTemplate restTemplate, ClienteResiliente clienteResiliente) {
+        this.restTemplate = restTemplate;
+        this.clienteResiliente = clienteResiliente;
+    }
 
     public <T> ResponseEntity<T> enviarConToken(
             String url,
@@ -22,6 +29,8 @@ public class MicroserviceClient {
 
         HttpEntity<?> entity = (body != null) ? new HttpEntity<>(body, headers) : new HttpEntity<>(headers);
 
-        return restTemplate.exchange(url, method, entity, responseType);
+        // Solo un GET puede repetirse sin efectos, así que solo él admite lectura duplicada
+        return clienteResiliente.ejecutar(ClienteResiliente.destinoDe(url), method == HttpMethod.GET,
+                () -> restTemplate.exchange(url, method, entity, responseType));
     }
 }
\ No newline at end of file
@@ -1,10 +1,22 @@
 package com.app.producto.shared;
 
+import java.util.function.Supplier;
+
+/**
+ * Token de la petición en curso. Es un ThreadLocal, así que solo lo ve el hilo que atiende la petición:
+ * con hilos de plataforma TokenFilter lo limpia antes de devolver el hilo al pool, y con hilos virtuales
+ * cada petición tiene un hilo propio que se descarta al terminar. No se hereda a otros hilos; el trabajo
+ * que se envía a un executor se envuelve con propagar() para que lleve el token de quien lo crea.
+ */
 public class TokenContext {
     private static final ThreadLocal<String> currentToken = new ThreadLocal<>();
 
     public static void setToken(String token) {
-        currentToken.set(token);
+        if (token == null) {
+            currentToken.remove();
+        } else {
+            currentToken.set(token);
+        }
     }
 
     public static String getToken() {
@@ -14,4 +26,35 @@ public class TokenContext {
     public static void clear() {
         currentToken.remove();
     }
+
+    /**
+     * Ejecuta la tarea con el token indicado y luego restaura el que tenía el hilo. Si el executor la corre
+     * en el mismo hilo de la petición (CallerRunsPolicy), la petición conserva su token.
+     */
+    public static <T> T conToken(String token, Supplier<T> tarea) {
+        String anterior = currentToken.get();
+        setToken(token);
+        try {
+            return tarea.get();
+        } finally {
+            setToken(anterior);
+        }
+    }
+
+    public static void conToken(String token, Runnable tarea) {
+        conToken(token, () -> {
+            tarea.run();
+            return null;
+        });
+    }
+
+    public static Runnable propagar(Runnable tarea) {
+        String token = currentToken.get();
+        return () -> conToken(token, tarea);
+    }
+
+    public static <T> Supplier<T> propagar(Supplier<T> tarea) {
+        String token = currentToken.get();
+        return () -> conToken(token, tarea);
+    }
 }
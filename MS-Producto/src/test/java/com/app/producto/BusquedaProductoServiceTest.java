@@ -0,0 +1,264 @@
+package com.app.producto;
+
+import com.app.producto.Dto.FacetaDto;
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.Dto.SugerenciaProductoDto;
+import com.app.producto.Models.Categoria;
+import com.app.producto.Models.Producto;
+import com.app.producto.Models.ProductoEliminado;
+import com.app.producto.Repository.ProductoEliminadoRepository;
+import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Service.BusquedaProductoService;
+import com.app.producto.Service.ProductoVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BusquedaProductoServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ProductoEliminadoRepository productoEliminadoRepository;
+
+    @Mock
+    private ProductoVersionService productoVersionService;
+
+    private BusquedaProductoService busquedaProductoService;
+
+    @BeforeEach
+    void setUp() {
+        busquedaProductoService = new BusquedaProductoService(productoRepository, productoEliminadoRepository,
+                productoVersionService);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        busquedaProductoService.close();
+    }
+
+    @Test
+    void buscar_noDistingueTildesMayusculasNiPlural() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0001", "Eau de Parfum Vainilla", "Notas de jazmín y sándalo", 1L, "verano", 30000);
+        indexar(2L, "PER-0002", "Eau de Toilette Cítrica", "Bergamota y limón", 1L, "verano", 25000);
+
+        // Act
+        List<Long> porPlural = buscar("VAINILLAS");
+        List<Long> sinTilde = buscar("jazmin sandalo");
+
+        // Assert
+        assertEquals(List.of(1L), porPlural);
+        assertEquals(List.of(1L), sinTilde);
+    }
+
+    @Test
+    void buscar_toleraErroresDeTipeoYLaUltimaPalabraAMedioEscribir() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0001", "Vainilla Floral Intensa", "Fragancia dulce", 1L, "verano", 30000);
+        indexar(2L, "PER-0002", "Vainilla Amaderada", "Fragancia seca", 1L, "verano", 30000);
+
+        // Act
+        List<Long> conError = buscar("vainila floral");
+        List<Long> incompleta = buscar("vainilla flo");
+        List<Long> palabraCortaConError = buscar("vainilla flr");
+
+        // Assert
+        assertEquals(List.of(1L), conError);
+        assertEquals(List.of(1L), incompleta);
+        assertTrue(palabraCortaConError.isEmpty());
+    }
+
+    @Test
+    void buscar_todasLasPalabrasDebenAparecerYElNombrePesaMasQueLaDescripcion() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0001", "Colonia Clásica", "Con notas de lavanda", 1L, "verano", 20000);
+        indexar(2L, "PER-0002", "Lavanda Colonia", "Fresca", 1L, "verano", 20000);
+        indexar(3L, "PER-0003", "Lavanda Intensa", "Aromática", 1L, "verano", 20000);
+
+        // Act
+        List<Long> ids = buscar("lavanda colonia");
+
+        // Assert
+        assertEquals(List.of(2L, 1L), ids);
+    }
+
+    @Test
+    void buscar_porSkuCompleto_loEncuentraAunqueNoAparezcaEnElTexto() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0042", "Eau de Parfum", "Floral", 1L, "verano", 30000);
+        indexar(2L, "PER-0043", "Eau de Toilette", "Cítrica", 1L, "verano", 30000);
+
+        // Act
+        List<Long> ids = buscar("per-0042");
+
+        // Assert
+        assertEquals(List.of(1L), ids);
+    }
+
+    @Test
+    void buscar_cuentaFacetasSobreTodasLasCoincidenciasConLosFiltrosAplicados() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0001", "Perfume Floral", null, 1L, "verano", 15000);
+        indexar(2L, "PER-0002", "Perfume Floral Intenso", null, 1L, "invierno", 30000);
+        indexar(3L, "PER-0003", "Perfume Floral Noche", null, 2L, "invierno", 120000);
+        indexar(4L, "PER-0004", "Colonia Cítrica", null, 2L, "verano", 10000);
+
+        // Act
+        BusquedaProductoService.ResultadoBusqueda todos =
+                busquedaProductoService.buscar("perfume floral", null, null, null, 2);
+        BusquedaProductoService.ResultadoBusqueda filtrados = busquedaProductoService.buscar("perfume floral",
+                ProductoFiltro.builder().categoriaId(1L).build(), null, new BigDecimal("20000"), 10);
+
+        // Assert
+        assertEquals(2, todos.ids().size());
+        assertEquals(3, todos.total());
+        assertEquals(Map.of("1", 2L, "2", 1L), conteos(todos.facetas().get(BusquedaProductoService.FACETA_CATEGORIA)));
+        assertEquals(Map.of("verano", 1L, "invierno", 2L), conteos(todos.facetas().get(BusquedaProductoService.FACETA_CATALOGO)));
+        assertEquals(List.of(
+                        new FacetaDto("0-20000", 1),
+                        new FacetaDto("20000-50000", 1),
+                        new FacetaDto("50000-100000", 0),
+                        new FacetaDto("100000+", 1)),
+                todos.facetas().get(BusquedaProductoService.FACETA_PRECIO));
+
+        assertEquals(List.of(1L), filtrados.ids());
+        assertEquals(1, filtrados.total());
+    }
+
+    @Test
+    void autocompletar_porComienzoDeCadaPalabraYPorPrefijoDeSku() throws IOException {
+        // Arrange
+        indexar(1L, "LAN-0001", "La Vie Est Belle", "Gourmand", 1L, "verano", 90000);
+        indexar(2L, "LAN-0002", "La Nuit Trésor", "Oriental", 1L, "verano", 80000);
+        indexar(3L, "CAR-0001", "Good Girl", "Floral", 2L, "verano", 85000);
+
+        // Act
+        List<SugerenciaProductoDto> porNombre = busquedaProductoService.autocompletar("la vie be", 10);
+        List<SugerenciaProductoDto> conTilde = busquedaProductoService.autocompletar("tres", 10);
+        List<SugerenciaProductoDto> porSku = busquedaProductoService.autocompletar("lan-", 10);
+
+        // Assert
+        assertEquals(1, porNombre.size());
+        assertEquals("La Vie Est Belle", porNombre.get(0).getNombre());
+        assertEquals("LAN-0001", porNombre.get(0).getCodigoSku());
+        assertEquals(List.of(2L), conTilde.stream().map(SugerenciaProductoDto::getId).toList());
+        assertEquals(List.of(1L, 2L), porSku.stream().map(SugerenciaProductoDto::getId).sorted().toList());
+    }
+
+    @Test
+    void indexarYEliminar_mantienenElIndiceAlDia() throws IOException {
+        // Arrange
+        indexar(1L, "PER-0001", "Perfume Ámbar", null, 1L, "verano", 30000);
+
+        // Act
+        indexar(1L, "PER-0001", "Perfume Almizcle", null, 1L, "verano", 30000);
+        List<Long> nombreAnterior = buscar("ambar");
+        List<Long> nombreNuevo = buscar("almizcle");
+        busquedaProductoService.eliminar(1L);
+        List<Long> eliminado = buscar("almizcle");
+
+        // Assert
+        assertTrue(nombreAnterior.isEmpty());
+        assertEquals(List.of(1L), nombreNuevo);
+        assertTrue(eliminado.isEmpty());
+    }
+
+    @Test
+    void inicializar_indexaTodoElCatalogoPorLotes() throws IOException {
+        // Arrange
+        List<Producto> lote = LongStream.rangeClosed(1, 1000).mapToObj(id -> producto(id, "SKU-" + id,
+                "Perfume " + id, null, 1L, "verano", 20000)).toList();
+        when(productoRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(lote);
+        when(productoRepository.findByIdGreaterThanOrderByIdAsc(eq(1000L), any(Limit.class)))
+                .thenReturn(List.of(producto(1001L, "SKU-1001", "Colonia Nueva", null, 2L, "invierno", 20000)));
+
+        // Act
+        busquedaProductoService.inicializar();
+
+        // Assert
+        assertEquals(1001, busquedaProductoService.getProductosIndexados());
+        assertEquals(List.of(1001L), buscar("colonia"));
+        verify(productoRepository, times(2)).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void sincronizar_aplicaLoQueGuardaronYEliminaronOtrasInstancias() throws IOException {
+        // Arrange: al arrancar hay dos productos y la versión confirmada es 3
+        when(productoVersionService.actual()).thenReturn(3L);
+        when(productoRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of(
+                producto(1L, "PER-0001", "Vainilla Floral", null, 1L, "verano", 30000),
+                producto(2L, "PER-0002", "Bergamota Cítrica", null, 1L, "verano", 25000)));
+        busquedaProductoService.inicializar();
+        // Otra instancia renombró el 1 (versión 4) y eliminó el 2 (versión 5)
+        when(productoVersionService.actual()).thenReturn(5L);
+        when(productoRepository.findByVersionCambioGreaterThan(3L)).thenReturn(List.of(
+                producto(1L, "PER-0001", "Vainilla Oriental", null, 1L, "verano", 30000)));
+        when(productoEliminadoRepository.findByVersionCambioGreaterThan(3L)).thenReturn(List.of(
+                ProductoEliminado.builder().productoId(2L).versionCambio(5L).build()));
+
+        // Act
+        busquedaProductoService.sincronizar();
+        busquedaProductoService.sincronizar();
+
+        // Assert
+        assertEquals(List.of(1L), buscar("oriental"));
+        assertTrue(buscar("floral").isEmpty());
+        assertTrue(buscar("bergamota").isEmpty());
+        assertEquals(1, busquedaProductoService.getProductosIndexados());
+        // La segunda vez no hay versiones nuevas y no se consulta la base
+        verify(productoRepository, times(1)).findByVersionCambioGreaterThan(anyLong());
+    }
+
+    @Test
+    void sincronizar_antesDeLaCargaInicial_noHaceNada() {
+        // Act
+        busquedaProductoService.sincronizar();
+
+        // Assert
+        verifyNoInteractions(productoVersionService, productoRepository, productoEliminadoRepository);
+    }
+
+    private List<Long> buscar(String consulta) throws IOException {
+        return busquedaProductoService.buscar(consulta, null, null, null, 10).ids();
+    }
+
+    private void indexar(Long id, String sku, String nombre, String descripcion, Long categoriaId,
+                         String catalogo, long precio) {
+        busquedaProductoService.indexar(producto(id, sku, nombre, descripcion, categoriaId, catalogo, precio));
+    }
+
+    private static Producto producto(Long id, String sku, String nombre, String descripcion, Long categoriaId,
+                                     String catalogo, long precio) {
+        return Producto.builder()
+                .id(id)
+                .codigoSku(sku)
+                .nombre(nombre)
+                .descripcion(descripcion)
+                .precio(BigDecimal.valueOf(precio))
+                .categoria(Categoria.builder().id(categoriaId).build())
+                .catalogo(catalogo)
+                .build();
+    }
+
+    private static Map<String, Long> conteos(List<FacetaDto> facetas) {
+        return facetas.stream().collect(Collectors.toMap(FacetaDto::getValor, FacetaDto::getCantidad));
+    }
+}
@@ -0,0 +1,166 @@
+package com.app.producto;
+
+import com.app.producto.Config.CacheConfig;
+import com.app.producto.Dto.CategoriaDto;
+import com.app.producto.Dto.ProductoDto;
+import com.app.producto.Models.Categoria;
+import com.app.producto.Models.Producto;
+import com.app.producto.Repository.CategoriaRepository;
+import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Service.BusquedaProductoService;
+import com.app.producto.Service.CategoriaService;
+import com.app.producto.Service.ProductoService;
+import com.app.producto.Service.ProductoVersionService;
+import com.app.producto.shared.MicroserviceClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringJUnitConfig(ProductoCacheTest.Config.class)
+@TestPropertySource(properties = {
+        "auth.url.provMicro=http://localhost:9014",
+        "cache.productos.maxSize=2"
+})
+class ProductoCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @Import({CacheConfig.class, ProductoService.class, CategoriaService.class})
+    static class Config {
+    }
+
+    @MockitoBean
+    private ProductoRepository productoRepository;
+
+    @MockitoBean
+    private CategoriaRepository categoriaRepository;
+
+    @MockitoBean
+    private MicroserviceClient microserviceClient;
+
+    @MockitoBean
+    private BusquedaProductoService busquedaProductoService;
+
+    @MockitoBean
+    private ProductoVersionService productoVersionService;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+    }
+
+    private Producto producto(Long id) {
+        return Producto.builder()
+                .id(id)
+                .codigoSku("SKU-" + id)
+                .nombre("Perfume " + id)
+                .precio(new BigDecimal("100.00"))
+                .categoria(Categoria.builder().id(1L).nombre("Fragancias").build())
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativa(String nombre) {
+        return ((CaffeineCache) cacheManager.getCache(nombre)).getNativeCache();
+    }
+
+    @Test
+    void obtenerProducto_deberiaLeerRepositorioUnaSolaVez() {
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto(1L)));
+
+        ServiceResult<ProductoDto> primero = productoService.obtenerProducto(1L);
+        ServiceResult<ProductoDto> segundo = productoService.obtenerProducto(1L);
+
+        assertFalse(primero.hasErrors());
+        assertSame(primero, segundo);
+        verify(productoRepository, times(1)).findById(1L);
+        assertEquals(1, nativa(CacheConfig.PRODUCTOS).stats().hitCount());
+        assertEquals(1, nativa(CacheConfig.PRODUCTOS).stats().missCount());
+    }
+
+    @Test
+    void obtenerProducto_noDeberiaCachearErrores() {
+        when(productoRepository.findById(9L)).thenReturn(Optional.empty());
+
+        assertTrue(productoService.obtenerProducto(9L).hasErrors());
+        assertTrue(productoService.obtenerProducto(9L).hasErrors());
+
+        verify(productoRepository, times(2)).findById(9L);
+    }
+
+    @Test
+    void eliminarProducto_deberiaInvalidarEntrada() {
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto(1L)));
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        productoService.obtenerProducto(1L);
+        productoService.eliminarProducto(1L);
+        productoService.obtenerProducto(1L);
+
+        verify(productoRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void cacheProductos_deberiaRespetarTamanoMaximo() {
+        for (long id = 1; id <= 10; id++) {
+            when(productoRepository.findById(id)).thenReturn(Optional.of(producto(id)));
+            productoService.obtenerProducto(id);
+        }
+
+        Cache<Object, Object> cache = nativa(CacheConfig.PRODUCTOS);
+        cache.cleanUp();
+        assertTrue(cache.estimatedSize() <= 2);
+    }
+
+    @Test
+    void listarCategorias_deberiaInvalidarseAlCrear() {
+        when(categoriaRepository.findAll()).thenReturn(List.of(Categoria.builder().id(1L).nombre("Fragancias").build()));
+        when(categoriaRepository.existsByNombre("Cremas")).thenReturn(false);
+        when(categoriaRepository.save(any(Categoria.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        categoriaService.listarCategorias();
+        categoriaService.listarCategorias();
+        categoriaService.crearCategoria(CategoriaDto.builder().nombre("Cremas").build());
+        categoriaService.listarCategorias();
+
+        verify(categoriaRepository, times(2)).findAll();
+    }
+
+    @Test
+    void eliminarCategoria_deberiaInvalidarProductos() {
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(producto(1L)));
+        when(categoriaRepository.existsById(1L)).thenReturn(true);
+
+        productoService.obtenerProducto(1L);
+        categoriaService.eliminarCategoria(1L);
+        productoService.obtenerProducto(1L);
+
+        verify(productoRepository, times(2)).findById(1L);
+    }
+}
@@ -1,12 +1,19 @@
 package com.app.producto;
 
+import com.app.producto.Dto.BusquedaProductosDto;
+import com.app.producto.Dto.FacetaDto;
+import com.app.producto.Dto.ProductoBasicoDto;
 import com.app.producto.Dto.ProductoDto;
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.Dto.ProductoPaginaDto;
 import com.app.producto.Dto.ProveedorResponse;
 import com.app.producto.Models.Categoria;
 import com.app.producto.Models.Producto;
 import com.app.producto.Repository.CategoriaRepository;
 import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Service.BusquedaProductoService;
 import com.app.producto.Service.ProductoService;
+import com.app.producto.Service.ProductoVersionService;
 import com.app.producto.shared.MicroserviceClient;
 import com.app.producto.shared.TokenContext;
 import org.app.dto.ServiceResult;
@@ -16,6 +23,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -43,6 +51,12 @@ class ProductoServiceTest {
     @Mock
     private TokenContext tokenContext;
 
+    @Mock
+    private BusquedaProductoService busquedaProductoService;
+
+    @Mock
+    private ProductoVersionService productoVersionService;
+
     @InjectMocks
     private ProductoService productoService;
 
@@ -120,7 +134,7 @@ class ProductoServiceTest {
                 eq(testToken)))
                 .thenReturn(new ResponseEntity<>(proveedorResponse, HttpStatus.OK));
 
-        when(productoRepository.save(any(Producto.class))).thenReturn(producto);
+        when(productoVersionService.guardar(any(Producto.class))).thenReturn(producto);
 
         
         ServiceResult<ProductoDto> result = productoService.crearProducto(productoDto);
@@ -133,7 +147,8 @@ class ProductoServiceTest {
         verify(productoRepository).existsByCodigoSku(anyString());
         verify(productoRepository).existsBySerial(anyString());
         verify(categoriaRepository).findById(anyLong());
-        verify(productoRepository).save(any(Producto.class));
+        verify(productoVersionService).guardar(any(Producto.class));
+        verify(busquedaProductoService).indexar(argThat(p -> "SKU123".equals(p.getCodigoSku())));
     }
     @Test
     void consultarProveedor_deberiaRetornarProveedorCuandoExiste() {
@@ -168,21 +183,62 @@ class ProductoServiceTest {
         
         assertTrue(result.hasErrors());
         assertEquals("El SKU ya existe", result.getErrors().get(0));
-        verify(productoRepository, never()).save(any(Producto.class));
+        verifyNoInteractions(productoVersionService, busquedaProductoService);
     }
 
     @Test
     void listarProductos_deberiaRetornarListaDeProductos() {
         
-        when(productoRepository.findAll()).thenReturn(List.of(producto));
+        when(productoRepository.buscarPagina(eq(0L), isNull(), isNull(), isNull(), any()))
+                .thenReturn(List.of(productoService.toDto(producto)));
 
         
-        ServiceResult<List<ProductoDto>> result = productoService.listarProductos();
+        ServiceResult<ProductoPaginaDto> result = productoService.listarProductos(new ProductoFiltro(), null, null);
 
         
         assertFalse(result.hasErrors());
-        assertEquals(1, result.getData().size());
-        assertEquals("Laptop", result.getData().get(0).getNombre());
+        assertEquals(1, result.getData().getProductos().size());
+        assertEquals("Laptop", result.getData().getProductos().get(0).getNombre());
+        assertNull(result.getData().getSiguienteCursor());
+        verify(productoRepository, never()).findAll();
+    }
+
+    @Test
+    void listarProductos_deberiaDevolverCursorCuandoHayMasPaginas() {
+        
+        List<ProductoDto> tresProductos = java.util.stream.LongStream.rangeClosed(11, 13)
+                .mapToObj(id -> ProductoDto.builder().id(id).nombre("P" + id).build())
+                .toList();
+        when(productoRepository.buscarPagina(eq(10L), eq("verano"), isNull(), eq(true), eq(Limit.of(3))))
+                .thenReturn(tresProductos);
+
+        
+        ServiceResult<ProductoPaginaDto> result = productoService.listarProductos(
+                ProductoFiltro.builder().catalogo("verano").activo(true).build(), 10L, 2);
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(2, result.getData().getProductos().size());
+        assertEquals(12L, result.getData().getSiguienteCursor());
+    }
+
+    @Test
+    void exportarProductos_deberiaRecorrerTodasLasPaginas() {
+        
+        List<ProductoDto> paginaCompleta = java.util.stream.LongStream.rangeClosed(1, 1000)
+                .mapToObj(id -> ProductoDto.builder().id(id).build())
+                .toList();
+        List<ProductoDto> ultimaPagina = List.of(ProductoDto.builder().id(1001L).build());
+        when(productoRepository.buscarPagina(eq(0L), isNull(), isNull(), isNull(), any())).thenReturn(paginaCompleta);
+        when(productoRepository.buscarPagina(eq(1000L), isNull(), isNull(), isNull(), any())).thenReturn(ultimaPagina);
+
+        
+        List<ProductoDto> exportados = new java.util.ArrayList<>();
+        productoService.exportarProductos(null, exportados::addAll);
+
+        
+        assertEquals(1001, exportados.size());
+        verify(productoRepository, times(2)).buscarPagina(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -222,14 +278,14 @@ class ProductoServiceTest {
         
         Long productoId = 1L;
         when(productoRepository.existsById(productoId)).thenReturn(true);
-        doNothing().when(productoRepository).deleteById(productoId);
 
         
         ServiceResult<Void> result = productoService.eliminarProducto(productoId);
 
         
         assertFalse(result.hasErrors());
-        verify(productoRepository).deleteById(productoId);
+        verify(productoVersionService).eliminar(productoId);
+        verify(busquedaProductoService).eliminar(productoId);
     }
 
     @Test
@@ -244,7 +300,50 @@ class ProductoServiceTest {
         
         assertTrue(result.hasErrors());
         assertEquals("Producto con ID 99 no existe", result.getErrors().get(0));
-        verify(productoRepository, never()).deleteById(anyLong());
+        verify(productoVersionService, never()).eliminar(anyLong());
+        verify(busquedaProductoService, never()).eliminar(anyLong());
+    }
+
+    @Test
+    void buscarProductos_deberiaDevolverProductosEnOrdenDeRelevancia() throws Exception {
+        
+        Producto otro = Producto.builder()
+                .id(2L)
+                .codigoSku("SKU456")
+                .nombre("Laptop gamer")
+                .precio(BigDecimal.valueOf(1500))
+                .categoria(categoria)
+                .build();
+        ProductoFiltro filtro = ProductoFiltro.builder().categoriaId(1L).build();
+        java.util.Map<String, List<FacetaDto>> facetas = java.util.Map.of(
+                BusquedaProductoService.FACETA_CATEGORIA, List.of(new FacetaDto("1", 2)));
+        when(busquedaProductoService.buscar("laptop", filtro, null, null, 20))
+                .thenReturn(new BusquedaProductoService.ResultadoBusqueda(List.of(2L, 1L), 2, facetas));
+        when(productoRepository.findAllById(any())).thenReturn(List.of(producto, otro));
+
+        
+        ServiceResult<BusquedaProductosDto> result = productoService.buscarProductos("laptop", filtro, null, null, null);
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(List.of(2L, 1L), result.getData().getProductos().stream().map(ProductoDto::getId).toList());
+        assertEquals(2, result.getData().getTotalCoincidencias());
+        assertEquals(2, result.getData().getFacetas().get(BusquedaProductoService.FACETA_CATEGORIA).get(0).getCantidad());
+    }
+
+    @Test
+    void buscarProductos_deberiaValidarTextoLimiteYPrecios() {
+        
+        ServiceResult<BusquedaProductosDto> sinTexto = productoService.buscarProductos(" ", null, null, null, null);
+        ServiceResult<BusquedaProductosDto> limite = productoService.buscarProductos("laptop", null, null, null, 101);
+        ServiceResult<BusquedaProductosDto> precios = productoService.buscarProductos("laptop", null,
+                BigDecimal.valueOf(500), BigDecimal.valueOf(100), null);
+
+        
+        assertEquals(List.of("Debe indicar el texto a buscar"), sinTexto.getErrors());
+        assertEquals(List.of("El límite debe estar entre 1 y 100"), limite.getErrors());
+        assertEquals(List.of("El rango de precios no es válido"), precios.getErrors());
+        verifyNoInteractions(busquedaProductoService);
     }
 
 
@@ -259,4 +358,56 @@ class ProductoServiceTest {
         assertEquals("Laptop", result.getNombre());
         assertEquals(1L, result.getCategoriaId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerProductosPorIds_deberiaRetornarMapaConUnaSolaConsulta() {
+        
+        Producto otro = Producto.builder()
+                .id(2L)
+                .codigoSku("SKU456")
+                .nombre("Mouse")
+                .precio(BigDecimal.valueOf(20))
+                .categoria(categoria)
+                .build();
+        when(productoRepository.findAllById(any())).thenReturn(List.of(producto, otro));
+
+        
+        ServiceResult<java.util.Map<Long, ProductoDto>> result = productoService.obtenerProductosPorIds(List.of(1L, 2L, 2L, 99L));
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(2, result.getData().size());
+        assertEquals("Mouse", result.getData().get(2L).getNombre());
+        assertEquals(1L, result.getData().get(1L).getCategoriaId());
+        verify(productoRepository, times(1)).findAllById(argThat(ids -> {
+            List<Long> lista = new java.util.ArrayList<>();
+            ids.forEach(lista::add);
+            return lista.equals(List.of(1L, 2L, 99L));
+        }));
+    }
+
+    @Test
+    void obtenerProductosBasicosPorIds_deberiaUsarProyeccion() {
+        
+        when(productoRepository.findBasicosByIdIn(any()))
+                .thenReturn(List.of(new ProductoBasicoDto(1L, "SKU123", "Laptop", BigDecimal.valueOf(1200))));
+
+        
+        ServiceResult<java.util.Map<Long, ProductoBasicoDto>> result = productoService.obtenerProductosBasicosPorIds(List.of(1L));
+
+        
+        assertFalse(result.hasErrors());
+        assertEquals(BigDecimal.valueOf(1200), result.getData().get(1L).getPrecio());
+        verify(productoRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void obtenerProductosPorIds_deberiaRechazarListaVacia() {
+        
+        ServiceResult<java.util.Map<Long, ProductoDto>> result = productoService.obtenerProductosPorIds(List.of());
+
+        
+        assertTrue(result.hasErrors());
+        verifyNoInteractions(productoRepository);
+    }
+}
@@ -0,0 +1,70 @@
+package com.app.producto;
+
+import com.app.producto.Models.Producto;
+import com.app.producto.Models.ProductoEliminado;
+import com.app.producto.Repository.ProductoEliminadoRepository;
+import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Service.ProductoVersionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:versiones;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductoVersionService.class)
+class ProductoVersionServiceTest {
+
+    @Autowired
+    private ProductoVersionService productoVersionService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoEliminadoRepository productoEliminadoRepository;
+
+    @Test
+    void guardarYEliminar_deberianAsignarVersionesCrecientesQueSePuedenLeerDesdeUnaVersion() {
+        // Arrange
+        long inicial = productoVersionService.actual();
+
+        // Act
+        Producto primero = productoVersionService.guardar(producto("SKU-1"));
+        Producto segundo = productoVersionService.guardar(producto("SKU-2"));
+        primero.setNombre("Perfume renombrado");
+        productoVersionService.guardar(primero);
+        productoVersionService.eliminar(segundo.getId());
+
+        // Assert
+        assertEquals(inicial + 4, productoVersionService.actual());
+        List<Producto> cambiados = productoRepository.findByVersionCambioGreaterThan(inicial + 2);
+        assertEquals(List.of(primero.getId()), cambiados.stream().map(Producto::getId).toList());
+        assertEquals(inicial + 3, cambiados.get(0).getVersionCambio());
+        List<ProductoEliminado> eliminados = productoEliminadoRepository.findByVersionCambioGreaterThan(inicial + 3);
+        assertEquals(List.of(segundo.getId()), eliminados.stream().map(ProductoEliminado::getProductoId).toList());
+        assertFalse(productoRepository.existsById(segundo.getId()));
+    }
+
+    private static Producto producto(String sku) {
+        return Producto.builder()
+                .codigoSku(sku)
+                .nombre("Perfume " + sku)
+                .precio(BigDecimal.valueOf(1000))
+                .build();
+    }
+}
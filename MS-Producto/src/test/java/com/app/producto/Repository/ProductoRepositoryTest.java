@@ -0,0 +1,75 @@
+package com.app.producto.Repository;
+
+import com.app.producto.Dto.ProductoDto;
+import com.app.producto.Models.Categoria;
+import com.app.producto.Models.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productos;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductoRepositoryTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    private Categoria mujer;
+    private Categoria hombre;
+
+    @BeforeEach
+    void setUp() {
+        mujer = categoriaRepository.save(Categoria.builder().nombre("Mujer").build());
+        hombre = categoriaRepository.save(Categoria.builder().nombre("Hombre").build());
+        for (int i = 1; i <= 10; i++) {
+            productoRepository.save(Producto.builder()
+                    .codigoSku("SKU-" + i)
+                    .nombre("Perfume " + i)
+                    .precio(BigDecimal.valueOf(1000L * i))
+                    .catalogo(i % 2 == 0 ? "verano" : "invierno")
+                    .categoria(i <= 5 ? mujer : hombre)
+                    .activo(i != 10)
+                    .build());
+        }
+    }
+
+    @Test
+    void buscarPagina_deberiaAvanzarPorCursorSinRepetir() {
+        List<ProductoDto> primera = productoRepository.buscarPagina(0L, null, null, null, Limit.of(4));
+        List<ProductoDto> segunda = productoRepository.buscarPagina(
+                primera.get(primera.size() - 1).getId(), null, null, null, Limit.of(4));
+
+        assertEquals(4, primera.size());
+        assertEquals(4, segunda.size());
+        assertTrue(primera.get(3).getId() < segunda.get(0).getId());
+        assertNotNull(primera.get(0).getCategoriaId());
+    }
+
+    @Test
+    void buscarPagina_deberiaAplicarFiltros() {
+        List<ProductoDto> resultado = productoRepository.buscarPagina(0L, "verano", hombre.getId(), true, Limit.of(50));
+
+        // Hombre = 6..10, verano = pares, activo excluye el 10
+        assertEquals(List.of("Perfume 6", "Perfume 8"), resultado.stream().map(ProductoDto::getNombre).toList());
+        assertTrue(resultado.stream().allMatch(p -> hombre.getId().equals(p.getCategoriaId())));
+    }
+}
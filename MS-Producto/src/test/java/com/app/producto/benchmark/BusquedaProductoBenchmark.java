@@ -0,0 +1,174 @@
+package com.app.producto.benchmark;
+
+import com.app.producto.Dto.ProductoFiltro;
+import com.app.producto.MsProductoApplication;
+import com.app.producto.Models.Categoria;
+import com.app.producto.Repository.CategoriaRepository;
+import com.app.producto.Service.BusquedaProductoService;
+import com.app.producto.Service.ProductoService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda y autocompletado sobre un catálogo de 500.000 productos. Levanta MS-Producto completo sobre H2 en
+ * memoria, inserta el catálogo por JDBC en lotes y reconstruye el índice (el log de BusquedaProductoService
+ * informa cuánto tarda). buscarConLike es la alternativa sin índice: LIKE sobre nombre y descripción para los
+ * primeros resultados y el total, sin tolerar errores de tipeo ni contar facetas. buscarProductosServicio suma
+ * la lectura de los productos encontrados desde la base.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BusquedaProductoBenchmark {
+
+    private static final int PRODUCTOS = 500_000;
+    private static final int LOTE_INSERCION = 5_000;
+
+    private static final String[] MARCAS = {"Aurora", "Brisa", "Cielo", "Duna", "Esencia", "Fénix", "Gala",
+            "Hiedra", "Jade", "Luna", "Mística", "Nácar", "Oasis", "Perla", "Quimera", "Rocío", "Sirena",
+            "Tierra", "Velvet", "Zafiro"};
+    private static final String[] NOTAS = {"Vainilla", "Lavanda", "Jazmín", "Sándalo", "Bergamota", "Rosa",
+            "Ámbar", "Almizcle", "Pachulí", "Vetiver", "Canela", "Cuero", "Oud", "Iris", "Pimienta", "Coco",
+            "Mandarina", "Gardenia", "Neroli", "Tabaco"};
+    private static final String[] TIPOS = {"Eau de Parfum", "Eau de Toilette", "Colonia", "Extrait", "Body Mist"};
+    private static final String[] FAMILIAS = {"floral", "amaderada", "oriental", "cítrica", "fresca", "gourmand",
+            "aromática", "chipre"};
+    private static final String[] CATALOGOS = {"verano", "invierno", "otoño", "primavera", "premium", "outlet"};
+
+    private static final String[] CONSULTAS = {"vainilla floral", "lavanda colonia", "sandalo oriental",
+            "luna rosa parfum", "bergamota fresca", "cuero amaderada extrait"};
+    private static final String[] CONSULTAS_CON_ERRORES = {"vainila florall", "lavnda colonia", "bergamotta",
+            "mandarna fresca", "pachuli amadreada"};
+    private static final String[] PREFIJOS = {"va", "lav", "luna ro", "eau de p", "sire", "berg"};
+
+    private ConfigurableApplicationContext contexto;
+    private BusquedaProductoService busquedaProductoService;
+    private ProductoService productoService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(MsProductoApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:busqueda;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--logging.level.root=WARN",
+                "--logging.level.com.app.producto.Service.BusquedaProductoService=INFO");
+
+        CategoriaRepository categoriaRepository = contexto.getBean(CategoriaRepository.class);
+        List<Long> categorias = new ArrayList<>();
+        for (String familia : FAMILIAS) {
+            categorias.add(categoriaRepository.save(Categoria.builder().nombre(familia).build()).getId());
+        }
+
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> filas = new ArrayList<>(LOTE_INSERCION);
+        for (int i = 1; i <= PRODUCTOS; i++) {
+            String nota = NOTAS[random.nextInt(NOTAS.length)];
+            int familia = random.nextInt(FAMILIAS.length);
+            filas.add(new Object[]{
+                    "SKU-" + i,
+                    MARCAS[random.nextInt(MARCAS.length)] + " " + nota + " " + TIPOS[random.nextInt(TIPOS.length)],
+                    "Fragancia " + FAMILIAS[familia] + " con notas de " + NOTAS[random.nextInt(NOTAS.length)]
+                            + " y " + NOTAS[random.nextInt(NOTAS.length)],
+                    BigDecimal.valueOf(5_000 + random.nextInt(195_000)),
+                    categorias.get(familia),
+                    CATALOGOS[random.nextInt(CATALOGOS.length)],
+                    ahora});
+            if (filas.size() == LOTE_INSERCION) {
+                insertar(filas);
+                filas.clear();
+            }
+        }
+        insertar(filas);
+
+        // Al arrancar la tabla estaba vacía: se reconstruye el índice con el catálogo ya cargado
+        busquedaProductoService = contexto.getBean(BusquedaProductoService.class);
+        busquedaProductoService.inicializar();
+        productoService = contexto.getBean(ProductoService.class);
+    }
+
+    private void insertar(List<Object[]> filas) {
+        jdbcTemplate.batchUpdate("INSERT INTO productos (codigo_sku, nombre, descripcion, precio, id_categoria, " +
+                "catalogo, activo, stock, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?, TRUE, 0, ?)", filas);
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Object buscar() throws Exception {
+        return busquedaProductoService.buscar(elegir(CONSULTAS), null, null, null, 20);
+    }
+
+    @Benchmark
+    public Object buscarConErrores() throws Exception {
+        return busquedaProductoService.buscar(elegir(CONSULTAS_CON_ERRORES), null, null, null, 20);
+    }
+
+    @Benchmark
+    public Object buscarConFiltros() throws Exception {
+        ProductoFiltro filtro = ProductoFiltro.builder().catalogo(elegir(CATALOGOS)).build();
+        return busquedaProductoService.buscar(elegir(CONSULTAS), filtro,
+                BigDecimal.valueOf(20_000), BigDecimal.valueOf(50_000), 20);
+    }
+
+    @Benchmark
+    public Object autocompletar() throws Exception {
+        return busquedaProductoService.autocompletar(elegir(PREFIJOS), 10);
+    }
+
+    @Benchmark
+    public Object buscarProductosServicio() {
+        return productoService.buscarProductos(elegir(CONSULTAS), null, null, null, 20);
+    }
+
+    @Benchmark
+    public Object buscarConLike() {
+        String palabra = "%" + elegir(CONSULTAS).split(" ")[0] + "%";
+        // El COUNT es el equivalente a totalCoincidencias y obliga a recorrer la tabla entera
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id_producto FROM productos " +
+                "WHERE LOWER(nombre) LIKE ? OR LOWER(descripcion) LIKE ? LIMIT 20", Long.class, palabra, palabra);
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM productos " +
+                "WHERE LOWER(nombre) LIKE ? OR LOWER(descripcion) LIKE ?", Long.class, palabra, palabra);
+        return List.of(ids, total);
+    }
+
+    private static String elegir(String[] opciones) {
+        return opciones[ThreadLocalRandom.current().nextInt(opciones.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BusquedaProductoBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
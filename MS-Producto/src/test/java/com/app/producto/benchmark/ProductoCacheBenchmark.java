@@ -0,0 +1,139 @@
+package com.app.producto.benchmark;
+
+import com.app.producto.MsProductoApplication;
+import com.app.producto.Models.Categoria;
+import com.app.producto.Models.Producto;
+import com.app.producto.Repository.CategoriaRepository;
+import com.app.producto.Repository.ProductoRepository;
+import com.app.producto.Service.ProductoService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de GET /api/productos/get/{id} con la cache de productos activa (caffeine) y desactivada (none).
+ * Levanta MS-Producto completo sobre H2 en memoria, siembra productos y consulta IDs al azar por HTTP con un
+ * JWT firmado con el secreto del yml (validación local). obtenerProductoServicio llama al mismo método a través
+ * del proxy de cache, sin HTTP ni seguridad, para aislar lo que la cache se ahorra. H2 en memoria subestima el
+ * costo de ir a MySQL, así que la diferencia real en producción es mayor.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductoCacheBenchmark {
+
+    private static final int PRODUCTOS = 1000;
+
+    @Param({"caffeine", "none"})
+    public String tipoCache;
+
+    private ConfigurableApplicationContext contexto;
+    private HttpClient httpClient;
+    private ProductoService productoService;
+    private List<Long> ids;
+    private List<URI> urls;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // Como argumentos de línea de comandos para que tengan prioridad sobre application.yml
+        contexto = new SpringApplicationBuilder(MsProductoApplication.class).run(
+                "--server.port=0",
+                "--spring.cache.type=" + tipoCache,
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--logging.level.root=WARN");
+
+        Categoria categoria = contexto.getBean(CategoriaRepository.class)
+                .save(Categoria.builder().nombre("Fragancias").descripcion("Benchmark").build());
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            productos.add(Producto.builder()
+                    .codigoSku("SKU-" + i)
+                    .nombre("Perfume " + i)
+                    .descripcion("Producto de benchmark")
+                    .precio(new BigDecimal("19990.00"))
+                    .costo(new BigDecimal("9990.00"))
+                    .catalogo("GENERAL")
+                    .serial("SER-" + i)
+                    .categoria(categoria)
+                    .proveedoresId(1L)
+                    .build());
+        }
+        int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+        ids = contexto.getBean(ProductoRepository.class).saveAll(productos).stream()
+                .map(Producto::getId)
+                .toList();
+        urls = ids.stream()
+                .map(id -> URI.create("http://localhost:" + puerto + "/api/productos/get/" + id))
+                .toList();
+        productoService = contexto.getBean(ProductoService.class);
+
+        String secreto = contexto.getEnvironment().getProperty("auth.app.jwtSecret");
+        token = Jwts.builder()
+                .subject("benchmark")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secreto)), Jwts.SIG.HS256)
+                .compact();
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public String obtenerProducto() throws Exception {
+        URI url = urls.get(ThreadLocalRandom.current().nextInt(urls.size()));
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Respuesta inesperada " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    @Benchmark
+    public Object obtenerProductoServicio() {
+        return productoService.obtenerProducto(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductoCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
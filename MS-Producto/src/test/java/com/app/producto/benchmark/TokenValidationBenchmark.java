@@ -0,0 +1,105 @@
+package com.app.producto.benchmark;
+
+import com.app.producto.Config.AuthClientService;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.app.auth.JwtTokenVerifier;
+import org.app.auth.ValidatedTokenCache;
+import org.app.resilience.ClienteResiliente;
+import org.app.resilience.ConfiguracionResiliencia;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la latencia de validar un token localmente (JwtTokenVerifier) contra la llamada
+ * remota a validate-token (AuthClientService), con y sin ValidatedTokenCache, usando un endpoint HTTP local
+ * como stub de MS-Authenticacion.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenValidationBenchmark {
+
+    static final String JWT_SECRET = "9ab67789df495410c1798fea3ccb00fb8816221312a10b4e00a874a7e4b46960cd8495067622053e6e6ad36addae12c4308921ad8ba01ab23ce2f5bfc1936691ce66bec658cca86526e52e6f337276e5900817fff24fbf04124c3d26a51b364966360da1b4b1eb0a6e6d99988fe21637cbbfb5b092e1ff2a894d658b422ff98ae57f16798286a1d3535052f4f81093a0a80dd3fcc2f6f3516d021f07f824ec809b5868bc439e578a4c82253c02abb0364412a3cc2a86845a91ad2a11285299a594c04815467df481d2a2a0af7f92a61456259ae79789ca4263ea83d017d85169464178dc34f044a2daafd5ad5e325dc7a55ce4cb7fdcfeba0c9c8d90f05a31e6";
+
+    private HttpServer authStub;
+    private JwtTokenVerifier verifier;
+    private AuthClientService authClientService;
+    private AuthClientService authClientServiceConCache;
+    private ClienteResiliente clienteResiliente;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        token = Jwts.builder()
+                .subject("benchmark")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET)), Jwts.SIG.HS256)
+                .compact();
+
+        authStub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        authStub.createContext("/api/auth/validate-token", exchange -> {
+            byte[] body = "{\"token\":\"valido\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        authStub.start();
+
+        verifier = new JwtTokenVerifier(JWT_SECRET);
+        String url = "http://localhost:" + authStub.getAddress().getPort() + "/api/auth/validate-token";
+        clienteResiliente = new ClienteResiliente(new ConfiguracionResiliencia(), e -> true);
+        authClientService = new AuthClientService(new RestTemplate(), new ValidatedTokenCache(0, 0, 0), clienteResiliente);
+        ReflectionTestUtils.setField(authClientService, "AUTH_SERVICE_URL", url);
+        authClientServiceConCache = new AuthClientService(new RestTemplate(), new ValidatedTokenCache(10_000, 300_000, 30_000),
+                clienteResiliente);
+        ReflectionTestUtils.setField(authClientServiceConCache, "AUTH_SERVICE_URL", url);
+    }
+
+    @TearDown
+    public void tearDown() {
+        authStub.stop(0);
+        clienteResiliente.close();
+    }
+
+    @Benchmark
+    public Object validacionLocal() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    public boolean validacionRemota() {
+        return authClientService.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validacionRemotaConCache() {
+        return authClientServiceConCache.validateToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
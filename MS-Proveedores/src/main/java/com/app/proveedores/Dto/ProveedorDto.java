@@ -11,10 +11,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProveedorDto {
-    @Schema(description = "RUT del proveedor", example = "12345678-9", required = true)
+    @Schema(description = "RUT del proveedor", example = "12345678-9", requiredMode = Schema.RequiredMode.REQUIRED)
     private String rut;
 
-    @Schema(description = "Nombre del proveedor", example = "Proveedor Ejemplo S.A.", required = true)
+    @Schema(description = "Nombre del proveedor", example = "Proveedor Ejemplo S.A.", requiredMode = Schema.RequiredMode.REQUIRED)
     private String nombre;
 
     @Schema(description = "Dirección del proveedor", example = "Av. Principal 1234")
@@ -0,0 +1,38 @@
+package org.necronet.msresenasfeedback.Config;
+
+import org.app.resilience.ClienteResiliente;
+import org.app.resilience.ConfiguracionResiliencia;
+import org.app.resilience.RemoteLookupExecutor;
+import org.necronet.msresenasfeedback.shared.TokenContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Timeouts, bulkheads y circuit breakers por servicio destino para las llamadas remotas
+ * (MicroserviceClient y AuthClientService). Las políticas se leen del bloque "resiliencia" de application.yml.
+ * También el pool de consultas remotas en paralelo, que lleva el token de la petición a cada consulta.
+ */
+@Configuration
+public class ResilienciaConfig {
+
+    @Bean
+    @ConfigurationProperties("resiliencia")
+    public ConfiguracionResiliencia configuracionResiliencia() {
+        return new ConfiguracionResiliencia();
+    }
+
+    // Un 4xx es un error de la petición, no del destino: no cuenta para abrir el circuito
+    @Bean(destroyMethod = "close")
+    public ClienteResiliente clienteResiliente(ConfiguracionResiliencia configuracionResiliencia) {
+        return new ClienteResiliente(configuracionResiliencia, e -> !(e instanceof HttpClientErrorException));
+    }
+
+    @Bean(destroyMethod = "close")
+    public RemoteLookupExecutor remoteLookupExecutor(@Value("${resenas.remoto.paralelismo:8}") int paralelismo,
+                                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtuales) {
+        return new RemoteLookupExecutor(paralelismo, virtuales, TokenContext::propagar);
+    }
+}
@@ -0,0 +1,15 @@
+package org.necronet.msresenasfeedback.Config;
+
+import org.app.auth.TokenServicio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TokenServicioConfig {
+    // La sincronización de compras verificadas lee GET /api/carrito/compras-confirmadas, que exige compras:leer
+    @Bean
+    public TokenServicio tokenServicio(@Value("${auth.servicio.jwtSecret:}") String jwtSecret) {
+        return new TokenServicio(jwtSecret, "ms-resenas", "compras:leer");
+    }
+}
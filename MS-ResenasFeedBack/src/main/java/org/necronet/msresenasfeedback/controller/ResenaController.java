@@ -8,17 +8,31 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.necronet.msresenasfeedback.dto.BusquedaResenasDto;
 import org.necronet.msresenasfeedback.dto.CrearResenaDto;
+import org.necronet.msresenasfeedback.dto.PaginaDto;
+import org.necronet.msresenasfeedback.dto.ProductoValoradoDto;
 import org.necronet.msresenasfeedback.dto.ResenaDto;
 import org.necronet.msresenasfeedback.dto.ResenaProductoDto;
+import org.necronet.msresenasfeedback.dto.ResumenCalificacionDto;
+import org.necronet.msresenasfeedback.service.BusquedaResenaService;
 import org.necronet.msresenasfeedback.service.ResenaService;
+import org.necronet.msresenasfeedback.service.ResumenCalificacionService;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.stream.Collectors;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
@@ -29,7 +43,13 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 @Tag(name = "Reseñas", description = "API para gestión de reseñas de productos")
 public class ResenaController {
 
+    private static final int MAX_MEJOR_VALORADOS = 100;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ResenaService resenaService;
+    private final ResumenCalificacionService resumenCalificacionService;
+    private final BusquedaResenaService busquedaResenaService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Crear una reseña", description = "Registra una nueva reseña para un producto por parte de un cliente.")
     @ApiResponses(value = {
@@ -51,64 +71,209 @@ public class ResenaController {
 
         ResenaDto resena = result.getData();
         EntityModel<ResenaDto> model = EntityModel.of(resena);
-        model.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(resena.getProductoId())).withRel("resenas-del-producto"));
-        model.add(linkTo(methodOn(ResenaController.class).obtenerTodasResenas()).withRel("todas-las-resenas"));
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(resena.getProductoId(), null, null)).withRel("resenas-del-producto"));
+        model.add(linkTo(methodOn(ResenaController.class).obtenerTodasResenas(null, null)).withRel("todas-las-resenas"));
 
         return ResponseEntity.ok(model);
     }
 
-    @Operation(summary = "Obtener reseñas por producto", description = "Obtiene todas las reseñas asociadas a un producto específico.")
+    @Operation(summary = "Obtener reseñas por producto", description = "Reseñas del producto de la más reciente a la más antigua, por páginas. Para la página siguiente se envía el cursor recibido en siguienteCursor.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Reseñas obtenidas exitosamente", content = @Content(schema = @Schema(implementation = ResenaDto.class))),
-            @ApiResponse(responseCode = "400", description = "Error al obtener las reseñas", content = @Content)
+            @ApiResponse(responseCode = "200", description = "Reseñas obtenidas exitosamente", content = @Content(schema = @Schema(implementation = PaginaDto.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor o tamaño de página inválido", content = @Content)
     })
     @GetMapping("/producto/{productoId}")
     public ResponseEntity<?> obtenerResenasPorProducto(
             @Parameter(description = "ID del producto", required = true)
-            @PathVariable Long productoId) {
+            @PathVariable Long productoId,
+            @Parameter(description = "Cursor devuelto por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Reseñas por página (1 a 100, por defecto 20)")
+            @RequestParam(required = false) Integer tamano) {
 
-        var result = resenaService.obtenerResenasPorProducto(productoId);
+        var result = resenaService.obtenerResenasPorProducto(productoId, cursor, tamano);
         if (result.hasErrors()) {
             return ResponseEntity.badRequest().body(result.getErrors());
         }
 
-        List<EntityModel<ResenaProductoDto>> resenas = result.getData().stream()
-                .map(resena -> EntityModel.of(resena,
-                        linkTo(methodOn(ResenaController.class)
-                                .obtenerResenasPorProducto(resena.getProductoId())).withRel("resenas-del-producto"),
-                        linkTo(methodOn(ResenaController.class)
-                                .obtenerTodasResenas()).withRel("todas-las-resenas")))
-                .collect(Collectors.toList());
+        PaginaDto<ResenaProductoDto> pagina = result.getData();
+        EntityModel<PaginaDto<ResenaProductoDto>> model = EntityModel.of(pagina);
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(productoId, cursor, tamano)).withSelfRel());
+        if (pagina.getSiguienteCursor() != null) {
+            model.add(linkTo(methodOn(ResenaController.class)
+                    .obtenerResenasPorProducto(productoId, pagina.getSiguienteCursor(), tamano)).withRel("siguiente"));
+        }
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResumenPorProducto(productoId)).withRel("resumen"));
 
+        return ResponseEntity.ok(model);
+    }
 
-        CollectionModel<EntityModel<ResenaProductoDto>> collectionModel = CollectionModel.of(resenas);
-        collectionModel.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(productoId)).withSelfRel());
+    @Operation(summary = "Obtener reseñas por cliente", description = "Reseñas escritas por el cliente de la más reciente a la más antigua, por páginas.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reseñas obtenidas exitosamente", content = @Content(schema = @Schema(implementation = PaginaDto.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor o tamaño de página inválido", content = @Content)
+    })
+    @GetMapping("/cliente/{clienteId}")
+    public ResponseEntity<?> obtenerResenasPorCliente(
+            @Parameter(description = "ID del cliente", required = true)
+            @PathVariable Long clienteId,
+            @Parameter(description = "Cursor devuelto por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Reseñas por página (1 a 100, por defecto 20)")
+            @RequestParam(required = false) Integer tamano) {
 
-        return ResponseEntity.ok(collectionModel);
+        var result = resenaService.obtenerResenasPorCliente(clienteId, cursor, tamano);
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result.getErrors());
+        }
+
+        PaginaDto<ResenaDto> pagina = result.getData();
+        EntityModel<PaginaDto<ResenaDto>> model = EntityModel.of(pagina);
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorCliente(clienteId, cursor, tamano)).withSelfRel());
+        if (pagina.getSiguienteCursor() != null) {
+            model.add(linkTo(methodOn(ResenaController.class)
+                    .obtenerResenasPorCliente(clienteId, pagina.getSiguienteCursor(), tamano)).withRel("siguiente"));
+        }
+
+        return ResponseEntity.ok(model);
     }
 
-    @Operation(summary = "Obtener todas las reseñas", description = "Lista todas las reseñas registradas en el sistema.")
+    @Operation(summary = "Buscar reseñas por texto", description = "Busca en los comentarios las reseñas que contienen todas las palabras indicadas, sin distinguir tildes, mayúsculas ni singular/plural. Resultados ordenados por relevancia.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Listado obtenido exitosamente", content = @Content(schema = @Schema(implementation = ResenaDto.class))),
-            @ApiResponse(responseCode = "400", description = "Error al obtener el listado de reseñas", content = @Content)
+            @ApiResponse(responseCode = "200", description = "Búsqueda realizada", content = @Content(schema = @Schema(implementation = BusquedaResenasDto.class))),
+            @ApiResponse(responseCode = "400", description = "Parámetros de búsqueda inválidos", content = @Content)
     })
-    @GetMapping
-    public ResponseEntity<?> obtenerTodasResenas() {
+    @GetMapping("/buscar")
+    public ResponseEntity<?> buscarResenas(
+            @Parameter(description = "Palabras a buscar", required = true)
+            @RequestParam String q,
+            @Parameter(description = "Solo reseñas de este producto")
+            @RequestParam(required = false) Long productoId,
+            @Parameter(description = "Solo reseñas con esta calificación (1 a 5)")
+            @RequestParam(required = false) Integer calificacion,
+            @Parameter(description = "Cantidad máxima de reseñas (1 a 100, por defecto 20)")
+            @RequestParam(required = false) Integer limite) {
+
+        var result = busquedaResenaService.buscar(q, productoId, calificacion, limite);
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result.getErrors());
+        }
+
+        EntityModel<BusquedaResenasDto> model = EntityModel.of(result.getData());
+        model.add(linkTo(methodOn(ResenaController.class).buscarResenas(q, productoId, calificacion, limite)).withSelfRel());
+
+        return ResponseEntity.ok(model);
+    }
+
+    @Operation(summary = "Resumen de calificaciones de un producto", description = "Cantidad de reseñas, promedio e histograma de notas del producto, leídos de su fila de resumen sin recorrer las reseñas.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumen obtenido exitosamente", content = @Content(schema = @Schema(implementation = ResumenCalificacionDto.class))),
+            @ApiResponse(responseCode = "400", description = "Error al obtener el resumen", content = @Content)
+    })
+    @GetMapping("/producto/{productoId}/resumen")
+    public ResponseEntity<?> obtenerResumenPorProducto(
+            @Parameter(description = "ID del producto", required = true)
+            @PathVariable Long productoId) {
 
-        var result = resenaService.obtenerTodasResenas();
+        var result = resumenCalificacionService.obtenerResumen(productoId);
         if (result.hasErrors()) {
             return ResponseEntity.badRequest().body(result.getErrors());
         }
 
-        List<EntityModel<ResenaDto>> resenas = result.getData().stream()
-                .map(resena -> EntityModel.of(resena,
-                        linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(resena.getProductoId())).withRel("resenas-del-producto"),
-                        linkTo(methodOn(ResenaController.class).obtenerTodasResenas()).withSelfRel()))
+        EntityModel<ResumenCalificacionDto> model = EntityModel.of(result.getData());
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResumenPorProducto(productoId)).withSelfRel());
+        model.add(linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(productoId, null, null)).withRel("resenas-del-producto"));
+
+        return ResponseEntity.ok(model);
+    }
+
+    @Operation(summary = "Productos mejor valorados", description = "Productos con mayor promedio de calificación entre los que alcanzan el mínimo de reseñas configurado.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Listado obtenido exitosamente", content = @Content(schema = @Schema(implementation = ProductoValoradoDto.class))),
+            @ApiResponse(responseCode = "400", description = "Error al obtener el listado", content = @Content)
+    })
+    @GetMapping("/mejor-valorados")
+    public ResponseEntity<?> obtenerMejorValorados(
+            @Parameter(description = "Cantidad de productos (máximo 100)")
+            @RequestParam(defaultValue = "10") int limite) {
+
+        var result = resumenCalificacionService.obtenerMejorValorados(Math.min(limite, MAX_MEJOR_VALORADOS));
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result.getErrors());
+        }
+
+        List<EntityModel<ProductoValoradoDto>> productos = result.getData().stream()
+                .map(producto -> EntityModel.of(producto,
+                        linkTo(methodOn(ResenaController.class).obtenerResumenPorProducto(producto.getProductoId())).withRel("resumen"),
+                        linkTo(methodOn(ResenaController.class).obtenerResenasPorProducto(producto.getProductoId(), null, null)).withRel("resenas-del-producto")))
                 .collect(Collectors.toList());
 
-        CollectionModel<EntityModel<ResenaDto>> collectionModel = CollectionModel.of(resenas);
-        collectionModel.add(linkTo(methodOn(ResenaController.class).obtenerTodasResenas()).withSelfRel());
+        CollectionModel<EntityModel<ProductoValoradoDto>> collectionModel = CollectionModel.of(productos);
+        collectionModel.add(linkTo(methodOn(ResenaController.class).obtenerMejorValorados(limite)).withSelfRel());
 
         return ResponseEntity.ok(collectionModel);
     }
+
+    @Operation(summary = "Recalcular resúmenes de calificación", description = "Recalcula el resumen de cada producto a partir de sus reseñas. Pensado para cargar reseñas anteriores a los resúmenes o corregir desvíos.")
+    @ApiResponse(responseCode = "200", description = "Resúmenes recalculados", content = @Content)
+    @PostMapping("/resumen/reconstruir")
+    public ResponseEntity<?> reconstruirResumenes() {
+        int productos = resumenCalificacionService.reconstruir();
+        return ResponseEntity.ok(Map.of("productos", productos));
+    }
+
+    @Operation(summary = "Exportar reseñas", description = "Descarga las reseñas como JSON delimitado por líneas (una reseña por línea), leídas de la base en lotes para no cargarlas todas en memoria. Filtros opcionales por producto y fecha de creación.")
+    @ApiResponse(responseCode = "200", description = "Exportación en curso", content = @Content(mediaType = "application/x-ndjson"))
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarResenas(
+            @Parameter(description = "ID del producto")
+            @RequestParam(required = false) Long productoId,
+            @Parameter(description = "Solo reseñas creadas desde esta fecha (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde) {
+
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+                generador.setRootValueSeparator(null);
+                resenaService.exportarResenas(productoId, desde, lote -> {
+                    try {
+                        for (ResenaDto resena : lote) {
+                            generador.writeObject(resena);
+                            generador.writeRaw('\n');
+                        }
+                        generador.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(cuerpo);
+    }
+
+    @Operation(summary = "Obtener todas las reseñas", description = "Reseñas de todos los productos de la más reciente a la más antigua, por páginas.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Listado obtenido exitosamente", content = @Content(schema = @Schema(implementation = PaginaDto.class))),
+            @ApiResponse(responseCode = "400", description = "Cursor o tamaño de página inválido", content = @Content)
+    })
+    @GetMapping
+    public ResponseEntity<?> obtenerTodasResenas(
+            @Parameter(description = "Cursor devuelto por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Reseñas por página (1 a 100, por defecto 20)")
+            @RequestParam(required = false) Integer tamano) {
+
+        var result = resenaService.obtenerTodasResenas(cursor, tamano);
+        if (result.hasErrors()) {
+            return ResponseEntity.badRequest().body(result.getErrors());
+        }
+
+        PaginaDto<ResenaDto> pagina = result.getData();
+        EntityModel<PaginaDto<ResenaDto>> model = EntityModel.of(pagina);
+        model.add(linkTo(methodOn(ResenaController.class).obtenerTodasResenas(cursor, tamano)).withSelfRel());
+        if (pagina.getSiguienteCursor() != null) {
+            model.add(linkTo(methodOn(ResenaController.class).obtenerTodasResenas(pagina.getSiguienteCursor(), tamano)).withRel("siguiente"));
+        }
+
+        return ResponseEntity.ok(model);
+    }
 }
@@ -0,0 +1,19 @@
+package org.necronet.msresenasfeedback.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BusquedaResenasDto {
+
+    private String consulta;
+    private long totalCoincidencias;
+
+    // Ordenadas por relevancia, a lo sumo el límite pedido
+    private List<ResenaDto> resenas;
+}
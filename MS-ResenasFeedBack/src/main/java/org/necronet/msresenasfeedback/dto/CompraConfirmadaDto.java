@@ -0,0 +1,16 @@
+package org.necronet.msresenasfeedback.dto;
+
+import lombok.*;
+
+// Un producto comprado en un carro confirmado, tal como lo entrega MS-Carrito
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompraConfirmadaDto {
+
+    private Long detalleId;
+    private Long usuarioId;
+    private Long productoId;
+}
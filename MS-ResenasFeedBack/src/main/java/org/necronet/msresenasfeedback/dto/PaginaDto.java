@@ -0,0 +1,20 @@
+package org.necronet.msresenasfeedback.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaDto<T> {
+
+    private List<T> contenido;
+    private int tamano;
+    private boolean hayMas;
+
+    // Se envía como parámetro cursor para pedir la página siguiente; null en la última página
+    private String siguienteCursor;
+}
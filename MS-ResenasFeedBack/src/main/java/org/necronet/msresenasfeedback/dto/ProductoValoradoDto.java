@@ -0,0 +1,15 @@
+package org.necronet.msresenasfeedback.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductoValoradoDto {
+
+    private Long productoId;
+    private long totalResenas;
+    private double promedio;
+}
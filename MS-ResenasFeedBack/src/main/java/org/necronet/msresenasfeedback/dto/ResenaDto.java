@@ -18,4 +18,5 @@ public class ResenaDto {
     private String comentario;
     private Integer calificacion;
     private LocalDateTime fechaCreacion;
+    private Boolean compraVerificada;
 }
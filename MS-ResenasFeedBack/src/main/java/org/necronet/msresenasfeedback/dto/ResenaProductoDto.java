@@ -18,6 +18,7 @@ public class ResenaProductoDto {
     private String comentario;
     private Integer calificacion;
     private LocalDateTime fechaCreacion;
+    private Boolean compraVerificada;
 
     // Campos opcionales si integras con microservicio de cliente/producto
     private String nombreProducto;
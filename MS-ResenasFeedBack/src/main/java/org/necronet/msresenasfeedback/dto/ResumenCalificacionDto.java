@@ -0,0 +1,20 @@
+package org.necronet.msresenasfeedback.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumenCalificacionDto {
+
+    private Long productoId;
+    private long totalResenas;
+    private double promedio;
+
+    // Cantidad de reseñas por nota, de 1 a 5
+    private Map<Integer, Long> histograma;
+}
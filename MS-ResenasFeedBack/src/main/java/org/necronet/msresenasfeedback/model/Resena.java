@@ -6,7 +6,14 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "resenas")
+@Table(name = "resenas", indexes = {
+        // Recalcular el resumen de un producto cuenta sus reseñas por nota sin leer las filas
+        @Index(name = "idx_resenas_producto_calificacion", columnList = "producto_id, calificacion"),
+        // Listados paginados por cursor (fecha, id), del más reciente al más antiguo
+        @Index(name = "idx_resenas_producto_fecha", columnList = "producto_id, fecha_creacion, id"),
+        @Index(name = "idx_resenas_cliente_fecha", columnList = "cliente_id, fecha_creacion, id"),
+        @Index(name = "idx_resenas_fecha", columnList = "fecha_creacion, id")
+})
 @Getter
 @Setter
 @Builder
@@ -32,4 +39,8 @@ public class Resena {
 
     @Column(nullable = false)
     private LocalDateTime fechaCreacion;
+
+    // El cliente había comprado el producto al reseñarlo; null en reseñas anteriores a la verificación
+    @Column(name = "compra_verificada")
+    private Boolean compraVerificada;
 }
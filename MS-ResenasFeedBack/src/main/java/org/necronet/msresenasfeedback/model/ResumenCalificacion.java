@@ -0,0 +1,74 @@
+package org.necronet.msresenasfeedback.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Totales de calificación de un producto: cantidad de reseñas, suma de notas y cuántas hay de cada
+ * nota. Se actualiza en la misma transacción que guarda la reseña, así el promedio y el histograma se
+ * leen de una sola fila sin recorrer las reseñas.
+ */
+@Entity
+@Table(name = "resumen_calificaciones")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenCalificacion implements Persistable<Long> {
+
+    @Id
+    private Long productoId;
+
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long suma;
+
+    @Column(nullable = false)
+    private long estrellas1;
+
+    @Column(nullable = false)
+    private long estrellas2;
+
+    @Column(nullable = false)
+    private long estrellas3;
+
+    @Column(nullable = false)
+    private long estrellas4;
+
+    @Column(nullable = false)
+    private long estrellas5;
+
+    // El id es el del producto, no generado: sin esto save() haría merge y podría pisar una fila creada
+    // por otra petición en lugar de fallar por clave duplicada
+    @Transient
+    @Builder.Default
+    private boolean nuevo = true;
+
+    @Override
+    public Long getId() {
+        return productoId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nuevo;
+    }
+
+    @PostLoad
+    @PostPersist
+    void marcarGuardado() {
+        nuevo = false;
+    }
+
+    public double promedio() {
+        return total == 0 ? 0 : (double) suma / total;
+    }
+
+    public long[] histograma() {
+        return new long[]{estrellas1, estrellas2, estrellas3, estrellas4, estrellas5};
+    }
+}
@@ -0,0 +1,6 @@
+package org.necronet.msresenasfeedback.repository;
+
+public interface ConteoCalificacionView {
+    Integer getCalificacion();
+    Long getTotal();
+}
@@ -1,9 +1,14 @@
 package org.necronet.msresenasfeedback.repository;
 
+import org.necronet.msresenasfeedback.dto.ResenaDto;
 import org.necronet.msresenasfeedback.model.Resena;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +20,48 @@ public interface ResenaRepository extends JpaRepository<Resena, Long> {
     List<Resena> findByClienteId(Long clienteId);
 
     boolean existsByClienteIdAndProductoId(Long clienteId, Long productoId);
+
+    @Query("SELECT r.calificacion AS calificacion, COUNT(r) AS total FROM Resena r " +
+            "WHERE r.productoId = :productoId GROUP BY r.calificacion")
+    List<ConteoCalificacionView> contarPorCalificacion(@Param("productoId") Long productoId);
+
+    @Query("SELECT DISTINCT r.productoId FROM Resena r")
+    List<Long> findDistinctProductoIds();
+
+    // Páginas por cursor: (fecha, id) de la última reseña entregada; la primera página no lleva cursor.
+    // Cada consulta es un rango sobre su índice compuesto, así que el costo no crece con la profundidad.
+
+    List<Resena> findByProductoIdOrderByFechaCreacionDescIdDesc(Long productoId, Limit limit);
+
+    @Query("SELECT r FROM Resena r WHERE r.productoId = :productoId " +
+            "AND (r.fechaCreacion < :fecha OR (r.fechaCreacion = :fecha AND r.id < :id)) " +
+            "ORDER BY r.fechaCreacion DESC, r.id DESC")
+    List<Resena> findPaginaPorProducto(@Param("productoId") Long productoId, @Param("fecha") LocalDateTime fecha,
+                                       @Param("id") Long id, Limit limit);
+
+    List<Resena> findByClienteIdOrderByFechaCreacionDescIdDesc(Long clienteId, Limit limit);
+
+    @Query("SELECT r FROM Resena r WHERE r.clienteId = :clienteId " +
+            "AND (r.fechaCreacion < :fecha OR (r.fechaCreacion = :fecha AND r.id < :id)) " +
+            "ORDER BY r.fechaCreacion DESC, r.id DESC")
+    List<Resena> findPaginaPorCliente(@Param("clienteId") Long clienteId, @Param("fecha") LocalDateTime fecha,
+                                      @Param("id") Long id, Limit limit);
+
+    List<Resena> findAllByOrderByFechaCreacionDescIdDesc(Limit limit);
+
+    @Query("SELECT r FROM Resena r " +
+            "WHERE r.fechaCreacion < :fecha OR (r.fechaCreacion = :fecha AND r.id < :id) " +
+            "ORDER BY r.fechaCreacion DESC, r.id DESC")
+    List<Resena> findPaginaRecientes(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Limit limit);
+
+    /**
+     * Lote de la exportación: reseñas con id mayor al último exportado, ya como DTO para que no queden
+     * entidades en el contexto de persistencia mientras dura la exportación.
+     */
+    @Query("SELECT new org.necronet.msresenasfeedback.dto.ResenaDto(r.id, r.productoId, r.clienteId, " +
+            "r.comentario, r.calificacion, r.fechaCreacion, r.compraVerificada) FROM Resena r " +
+            "WHERE r.id > :id AND (:productoId IS NULL OR r.productoId = :productoId) " +
+            "AND (:desde IS NULL OR r.fechaCreacion >= :desde) ORDER BY r.id")
+    List<ResenaDto> findLoteExportacion(@Param("id") Long id, @Param("productoId") Long productoId,
+                                        @Param("desde") LocalDateTime desde, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.necronet.msresenasfeedback.repository;
+
+import jakarta.persistence.LockModeType;
+import org.necronet.msresenasfeedback.model.ResumenCalificacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ResumenCalificacionRepository extends JpaRepository<ResumenCalificacion, Long> {
+
+    /**
+     * Suma una reseña al resumen en una sola sentencia, sin leer la fila antes: dos reseñas
+     * simultáneas del mismo producto se aplican una tras otra y ninguna se pierde.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE ResumenCalificacion r SET r.total = r.total + 1, r.suma = r.suma + :calificacion, " +
+            "r.estrellas1 = r.estrellas1 + CASE WHEN :calificacion = 1 THEN 1 ELSE 0 END, " +
+            "r.estrellas2 = r.estrellas2 + CASE WHEN :calificacion = 2 THEN 1 ELSE 0 END, " +
+            "r.estrellas3 = r.estrellas3 + CASE WHEN :calificacion = 3 THEN 1 ELSE 0 END, " +
+            "r.estrellas4 = r.estrellas4 + CASE WHEN :calificacion = 4 THEN 1 ELSE 0 END, " +
+            "r.estrellas5 = r.estrellas5 + CASE WHEN :calificacion = 5 THEN 1 ELSE 0 END " +
+            "WHERE r.productoId = :productoId")
+    int sumarCalificacion(@Param("productoId") Long productoId, @Param("calificacion") int calificacion);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ResumenCalificacion r WHERE r.productoId = :productoId")
+    Optional<ResumenCalificacion> findByIdForUpdate(@Param("productoId") Long productoId);
+
+    List<ResumenCalificacion> findByTotalGreaterThanEqual(long total);
+
+    @Query("SELECT r.productoId FROM ResumenCalificacion r")
+    List<Long> findAllProductoIds();
+}
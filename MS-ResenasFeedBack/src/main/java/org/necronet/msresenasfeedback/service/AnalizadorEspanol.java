@@ -0,0 +1,36 @@
+package org.necronet.msresenasfeedback.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * Análisis de los comentarios para el índice de búsqueda: minúsculas, sin palabras vacías del español,
+ * sin tildes y con un stemming liviano que junta singular, plural y género ("alergia" y "alergias",
+ * "falsificado" y "falsificada"). Sin tildes porque los clientes escriben "fijacion" tanto como "fijación".
+ *
+ * Se usa el mismo análisis al indexar y al buscar.
+ */
+public class AnalizadorEspanol extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        StandardTokenizer tokenizer = new StandardTokenizer();
+        TokenStream flujo = new LowerCaseFilter(tokenizer);
+        // Las palabras vacías traen tilde ("más", "él"): se quitan antes de plegar los acentos
+        flujo = new StopFilter(flujo, SpanishAnalyzer.getDefaultStopSet());
+        flujo = new ASCIIFoldingFilter(flujo);
+        flujo = new SpanishLightStemFilter(flujo);
+        return new TokenStreamComponents(tokenizer, flujo);
+    }
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+    }
+}
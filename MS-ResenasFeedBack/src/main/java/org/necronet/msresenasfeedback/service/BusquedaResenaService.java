@@ -0,0 +1,245 @@
+package org.necronet.msresenasfeedback.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.app.dto.ServiceResult;
+import org.necronet.msresenasfeedback.dto.BusquedaResenasDto;
+import org.necronet.msresenasfeedback.dto.ResenaDto;
+import org.necronet.msresenasfeedback.model.Resena;
+import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de texto completo sobre los comentarios de las reseñas con un índice invertido de Lucene en
+ * memoria, para no recorrer la tabla con LIKE.
+ *
+ * - El índice solo guarda el id de cada reseña; los datos devueltos se leen de la base por id.
+ * - Al arrancar se indexan todas las reseñas leyéndolas por lotes de id creciente.
+ * - Cada reseña creada en esta instancia se indexa en cuanto se confirma su transacción.
+ * - Cada sincronizacionMs se reindexan las reseñas creadas desde la sincronización anterior (menos un
+ *   margen), así entran las creadas por otras instancias. Indexar es idempotente: se reemplaza el
+ *   documento con el mismo id, de modo que repetir una reseña no la duplica.
+ */
+@Slf4j
+@Service
+public class BusquedaResenaService {
+
+    private static final String CAMPO_ID = "id";
+    private static final String CAMPO_PRODUCTO = "productoId";
+    private static final String CAMPO_CALIFICACION = "calificacion";
+    private static final String CAMPO_COMENTARIO = "comentario";
+
+    private static final int LIMITE_DEFECTO = 20;
+    private static final int LIMITE_MAXIMO = 100;
+    private static final int LOTE_INDEXACION = 1000;
+
+    private final ResenaRepository resenaRepository;
+    private final long margenSincronizacionMs;
+    private final Analyzer analizador = new AnalizadorEspanol();
+    private final ByteBuffersDirectory directorio = new ByteBuffersDirectory();
+    private final IndexWriter escritor;
+    private final SearcherManager buscadores;
+
+    // Inicio de la última sincronización completada; null hasta terminar la carga inicial
+    private volatile LocalDateTime ultimaSincronizacion;
+
+    public BusquedaResenaService(ResenaRepository resenaRepository,
+                                 @Value("${resenas.busqueda.margenSincronizacionMs:120000}") long margenSincronizacionMs) {
+        this.resenaRepository = resenaRepository;
+        this.margenSincronizacionMs = margenSincronizacionMs;
+        try {
+            this.escritor = new IndexWriter(directorio, new IndexWriterConfig(analizador));
+            this.buscadores = new SearcherManager(escritor, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el índice de búsqueda de reseñas", e);
+        }
+    }
+
+    public ServiceResult<BusquedaResenasDto> buscar(String consulta, Long productoId, Integer calificacion, Integer limite) {
+        List<String> errors = new ArrayList<>();
+        if (consulta == null || consulta.isBlank()) {
+            errors.add("Debe indicar el texto a buscar");
+            return new ServiceResult<>(errors);
+        }
+        int maximo = limite != null ? limite : LIMITE_DEFECTO;
+        if (maximo < 1 || maximo > LIMITE_MAXIMO) {
+            errors.add("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+            return new ServiceResult<>(errors);
+        }
+        if (calificacion != null && (calificacion < 1 || calificacion > 5)) {
+            errors.add("La calificación debe estar entre 1 y 5");
+            return new ServiceResult<>(errors);
+        }
+
+        // Todos los términos deben aparecer; una consulta formada solo por palabras vacías no tiene términos
+        Query texto = new QueryBuilder(analizador).createBooleanQuery(CAMPO_COMENTARIO, consulta, BooleanClause.Occur.MUST);
+        if (texto == null) {
+            return new ServiceResult<>(BusquedaResenasDto.builder().consulta(consulta).resenas(List.of()).build());
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(texto, BooleanClause.Occur.MUST);
+        if (productoId != null) {
+            query.add(LongPoint.newExactQuery(CAMPO_PRODUCTO, productoId), BooleanClause.Occur.FILTER);
+        }
+        if (calificacion != null) {
+            query.add(IntPoint.newExactQuery(CAMPO_CALIFICACION, calificacion), BooleanClause.Occur.FILTER);
+        }
+
+        List<Long> ids = new ArrayList<>();
+        long total;
+        try {
+            IndexSearcher buscador = buscadores.acquire();
+            try {
+                Query filtrada = query.build();
+                TopDocs encontrados = buscador.search(filtrada, maximo);
+                total = buscador.count(filtrada);
+                StoredFields campos = buscador.storedFields();
+                for (ScoreDoc doc : encontrados.scoreDocs) {
+                    ids.add(Long.parseLong(campos.document(doc.doc).get(CAMPO_ID)));
+                }
+            } finally {
+                buscadores.release(buscador);
+            }
+        } catch (IOException e) {
+            log.error("Error al consultar el índice de reseñas", e);
+            errors.add("Error al buscar reseñas");
+            return new ServiceResult<>(errors);
+        }
+
+        // findAllById no respeta el orden pedido: se reordena por relevancia
+        Map<Long, Resena> porId = resenaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Resena::getId, Function.identity()));
+        List<ResenaDto> resenas = ids.stream()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .map(ResenaService::toResenaDto)
+                .collect(Collectors.toList());
+
+        return new ServiceResult<>(BusquedaResenasDto.builder()
+                .consulta(consulta)
+                .totalCoincidencias(total)
+                .resenas(resenas)
+                .build());
+    }
+
+    /**
+     * Agrega o reemplaza una reseña en el índice y la deja visible para las búsquedas. Se llama con la
+     * reseña ya confirmada en la base.
+     */
+    public void indexar(ResenaDto resena) {
+        try {
+            agregar(resena);
+            buscadores.maybeRefresh();
+        } catch (IOException e) {
+            // La sincronización periódica la vuelve a intentar
+            log.warn("No se pudo indexar la reseña {}", resena.getId(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        LocalDateTime inicio = LocalDateTime.now();
+        long indexadas = indexarDesde(null);
+        ultimaSincronizacion = inicio;
+        log.info("Índice de búsqueda de reseñas construido: {} reseñas", indexadas);
+    }
+
+    @Scheduled(fixedDelayString = "${resenas.busqueda.sincronizacionMs:30000}")
+    public void sincronizar() {
+        LocalDateTime anterior = ultimaSincronizacion;
+        if (anterior == null) {
+            return;
+        }
+        LocalDateTime inicio = LocalDateTime.now();
+        indexarDesde(anterior.minus(Duration.ofMillis(margenSincronizacionMs)));
+        ultimaSincronizacion = inicio;
+    }
+
+    public int getResenasIndexadas() {
+        return escritor.getDocStats().numDocs;
+    }
+
+    /**
+     * Indexa las reseñas creadas desde la fecha dada (todas si es null), por lotes de id creciente.
+     *
+     * @return cantidad de reseñas indexadas
+     */
+    long indexarDesde(LocalDateTime desde) {
+        long ultimoId = 0;
+        long indexadas = 0;
+        List<ResenaDto> lote;
+        try {
+            do {
+                lote = resenaRepository.findLoteExportacion(ultimoId, null, desde, Limit.of(LOTE_INDEXACION));
+                for (ResenaDto resena : lote) {
+                    agregar(resena);
+                }
+                if (!lote.isEmpty()) {
+                    ultimoId = lote.get(lote.size() - 1).getId();
+                    indexadas += lote.size();
+                }
+            } while (lote.size() == LOTE_INDEXACION);
+            buscadores.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al indexar reseñas", e);
+        }
+        return indexadas;
+    }
+
+    private void agregar(ResenaDto resena) throws IOException {
+        Document documento = new Document();
+        documento.add(new StringField(CAMPO_ID, String.valueOf(resena.getId()), Field.Store.YES));
+        if (resena.getProductoId() != null) {
+            documento.add(new LongPoint(CAMPO_PRODUCTO, resena.getProductoId()));
+        }
+        if (resena.getCalificacion() != null) {
+            documento.add(new IntPoint(CAMPO_CALIFICACION, resena.getCalificacion()));
+        }
+        if (resena.getComentario() != null) {
+            documento.add(new TextField(CAMPO_COMENTARIO, resena.getComentario(), Field.Store.NO));
+        }
+        escritor.updateDocument(new Term(CAMPO_ID, String.valueOf(resena.getId())), documento);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        buscadores.close();
+        escritor.close();
+        directorio.close();
+    }
+}
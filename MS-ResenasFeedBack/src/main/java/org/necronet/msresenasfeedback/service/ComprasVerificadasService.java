@@ -0,0 +1,135 @@
+package org.necronet.msresenasfeedback.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.app.auth.TokenServicio;
+import org.necronet.msresenasfeedback.dto.CompraConfirmadaDto;
+import org.necronet.msresenasfeedback.shared.MicroserviceClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Pares (cliente, producto) con compra confirmada, copiados de MS-Carrito para validar reseñas sin
+ * consultar MS-Producto y MS-Cliente: si el cliente compró el producto, ambos existen.
+ *
+ * - Cada par se guarda como un long (cliente en los 32 bits altos, producto en los bajos) en un
+ *   ConjuntoLong; un millón de compras ocupa unos 16 MB.
+ * - La primera sincronización trae todas las compras confirmadas por lotes; las siguientes, cada
+ *   sincronizacionMs, solo los carros confirmados desde la anterior menos un margen (relojes de las dos
+ *   máquinas y carros que se confirman mientras se lee). Volver a agregar un par no tiene efecto.
+ * - Las compras no se quitan: un reembolso no cambia que el cliente recibió el producto.
+ * - Una compra más nueva que la última sincronización todavía no está; quien consulta decide qué hacer
+ *   con un par que no encuentra.
+ */
+@Slf4j
+@Service
+public class ComprasVerificadasService {
+
+    private static final int LOTE = 5000;
+    private static final long NO_EMPAQUETABLE = -1L;
+
+    private final MicroserviceClient microserviceClient;
+    private final TokenServicio tokenServicio;
+    private final String comprasUrl;
+    private final Duration margen;
+    private final ConjuntoLong compras = new ConjuntoLong(1 << 16);
+
+    // Inicio de la última sincronización completa o incremental que terminó bien; null hasta la primera
+    private volatile LocalDateTime ultimaSincronizacion;
+
+    public ComprasVerificadasService(MicroserviceClient microserviceClient,
+                                     TokenServicio tokenServicio,
+                                     @Value("${auth.url.carritoMicro}") String carritoUrl,
+                                     @Value("${resenas.compras.margenSincronizacionMs:300000}") long margenMs) {
+        this.microserviceClient = microserviceClient;
+        this.tokenServicio = tokenServicio;
+        this.comprasUrl = carritoUrl + "/api/carrito/compras-confirmadas";
+        this.margen = Duration.ofMillis(margenMs);
+    }
+
+    public boolean esCompraVerificada(Long clienteId, Long productoId) {
+        if (clienteId == null || productoId == null) {
+            return false;
+        }
+        long clave = clave(clienteId, productoId);
+        return clave != NO_EMPAQUETABLE && compras.contiene(clave);
+    }
+
+    /**
+     * La primera ejecución, al arrancar, carga todas las compras; si MS-Carrito no responde se reintenta
+     * completa en la siguiente.
+     */
+    @Scheduled(fixedDelayString = "${resenas.compras.sincronizacionMs:60000}")
+    public synchronized void sincronizar() {
+        LocalDateTime anterior = ultimaSincronizacion;
+        LocalDateTime inicio = LocalDateTime.now();
+        try {
+            long leidas = cargarDesde(anterior == null ? null : anterior.minus(margen));
+            ultimaSincronizacion = inicio;
+            if (anterior == null) {
+                log.info("Compras verificadas cargadas: {} líneas, {} pares cliente-producto", leidas, compras.size());
+            }
+        } catch (Exception e) {
+            log.warn("No se pudieron sincronizar las compras verificadas desde MS-Carrito: {}", e.getMessage());
+        }
+    }
+
+    public int getComprasVerificadas() {
+        return compras.size();
+    }
+
+    private long cargarDesde(LocalDateTime desde) {
+        long despuesDe = 0;
+        long leidas = 0;
+        long[] claves = new long[LOTE];
+        CompraConfirmadaDto[] lote;
+        do {
+            UriComponentsBuilder url = UriComponentsBuilder.fromUriString(comprasUrl)
+                    .queryParam("despuesDe", despuesDe)
+                    .queryParam("limite", LOTE);
+            if (desde != null) {
+                url.queryParam("desde", desde.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            }
+            ResponseEntity<CompraConfirmadaDto[]> response = microserviceClient.enviarConToken(
+                    url.toUriString(),
+                    HttpMethod.GET,
+                    null,
+                    CompraConfirmadaDto[].class,
+                    tokenServicio.obtener()
+            );
+            lote = response.getBody() != null ? response.getBody() : new CompraConfirmadaDto[0];
+
+            int cantidad = 0;
+            for (CompraConfirmadaDto compra : lote) {
+                long clave = compra.getUsuarioId() != null && compra.getProductoId() != null
+                        ? clave(compra.getUsuarioId(), compra.getProductoId())
+                        : NO_EMPAQUETABLE;
+                if (clave != NO_EMPAQUETABLE) {
+                    claves[cantidad++] = clave;
+                }
+                despuesDe = Math.max(despuesDe, compra.getDetalleId());
+            }
+            compras.agregarTodos(claves, cantidad);
+            leidas += lote.length;
+        } while (lote.length == LOTE);
+        return leidas;
+    }
+
+    /**
+     * Cliente en los 31 bits altos y producto en los 32 bajos; ids fuera de ese rango no se guardan (y se
+     * consultan por la vía remota).
+     */
+    static long clave(long clienteId, long productoId) {
+        if (clienteId < 0 || clienteId > Integer.MAX_VALUE || productoId < 0 || productoId > 0xFFFF_FFFFL) {
+            return NO_EMPAQUETABLE;
+        }
+        return (clienteId << 32) | productoId;
+    }
+}
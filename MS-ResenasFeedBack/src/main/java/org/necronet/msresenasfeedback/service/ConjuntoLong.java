@@ -0,0 +1,165 @@
+package org.necronet.msresenasfeedback.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Conjunto de long sin cajas: un arreglo long[] con direccionamiento abierto y sondeo lineal. Cada
+ * elemento ocupa 8 bytes más el hueco libre (carga máxima del 70%), contra los ~50 bytes de un Long en
+ * un HashSet.
+ *
+ * Pensado para muchas lecturas y pocas escrituras: contiene() no toma el lock salvo que coincida con una
+ * escritura (lectura optimista de StampedLock); agregar() sí lo toma. El 0 marca un hueco libre, así que
+ * se guarda aparte.
+ */
+public class ConjuntoLong {
+
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] tabla;
+    private int tamano;
+    private boolean contieneCero;
+
+    public ConjuntoLong() {
+        this(0);
+    }
+
+    public ConjuntoLong(int esperados) {
+        this.tabla = new long[capacidadPara(esperados)];
+    }
+
+    /**
+     * @return true si el valor no estaba
+     */
+    public boolean agregar(long valor) {
+        long stamp = lock.writeLock();
+        try {
+            return agregarSinLock(valor);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Agrega los valores tomando el lock una sola vez.
+     *
+     * @return cantidad de valores que no estaban
+     */
+    public int agregarTodos(long[] valores, int cantidad) {
+        long stamp = lock.writeLock();
+        try {
+            int nuevos = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (agregarSinLock(valores[i])) {
+                    nuevos++;
+                }
+            }
+            return nuevos;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contiene(long valor) {
+        long stamp = lock.tryOptimisticRead();
+        boolean encontrado = buscar(valor);
+        if (lock.validate(stamp)) {
+            return encontrado;
+        }
+        stamp = lock.readLock();
+        try {
+            return buscar(valor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return tamano;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean agregarSinLock(long valor) {
+        if (valor == 0) {
+            if (contieneCero) {
+                return false;
+            }
+            contieneCero = true;
+            tamano++;
+            return true;
+        }
+        if ((long) (tamano + 1) * 10 > (long) tabla.length * 7) {
+            // La tabla nueva se llena antes de publicarla: una lectura optimista nunca ve una a medio copiar
+            tabla = copiar(tabla, tabla.length * 2);
+        }
+        if (insertar(tabla, valor)) {
+            tamano++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean buscar(long valor) {
+        if (valor == 0) {
+            return contieneCero;
+        }
+        long[] actual = tabla;
+        int mascara = actual.length - 1;
+        int i = indice(valor, mascara);
+        // El tope de vueltas solo importa en una lectura optimista que se invalidará de todas formas
+        for (int vueltas = 0; vueltas < actual.length; vueltas++) {
+            long ocupante = actual[i];
+            if (ocupante == valor) {
+                return true;
+            }
+            if (ocupante == 0) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+        return false;
+    }
+
+    private static boolean insertar(long[] destino, long valor) {
+        int mascara = destino.length - 1;
+        int i = indice(valor, mascara);
+        while (destino[i] != 0) {
+            if (destino[i] == valor) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+        destino[i] = valor;
+        return true;
+    }
+
+    private static long[] copiar(long[] origen, int capacidad) {
+        long[] destino = new long[capacidad];
+        for (long valor : origen) {
+            if (valor != 0) {
+                insertar(destino, valor);
+            }
+        }
+        return destino;
+    }
+
+    private static int indice(long valor, int mascara) {
+        // Mezcla final de MurmurHash3: ids consecutivos no quedan en huecos consecutivos
+        long h = valor;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mascara;
+    }
+
+    private static int capacidadPara(int esperados) {
+        long necesaria = Math.max(CAPACIDAD_MINIMA, (long) Math.ceil(esperados / 0.7));
+        return (int) Math.min(1L << 30, Long.highestOneBit(necesaria - 1) << 1);
+    }
+}
@@ -0,0 +1,39 @@
+package org.necronet.msresenasfeedback.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en un listado de reseñas ordenado por (fechaCreacion, id) descendente: la fecha y el id de la
+ * última reseña entregada. Viaja al cliente como texto opaco en base64 url-safe.
+ */
+public record CursorResena(LocalDateTime fecha, Long id) {
+
+    public static CursorResena de(LocalDateTime fecha, Long id) {
+        return new CursorResena(fecha, id);
+    }
+
+    public String codificar() {
+        String valor = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el texto no es un cursor emitido por este servicio
+     */
+    public static CursorResena decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf('|');
+            if (separador < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new CursorResena(LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
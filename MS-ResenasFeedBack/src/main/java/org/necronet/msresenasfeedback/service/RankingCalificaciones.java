@@ -0,0 +1,105 @@
+package org.necronet.msresenasfeedback.service;
+
+import org.necronet.msresenasfeedback.model.ResumenCalificacion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Productos ordenados de mejor a peor promedio para responder "los N mejor valorados" recorriendo solo
+ * los N primeros. Entran únicamente los productos con al menos minimoResenas reseñas: un producto con una
+ * sola reseña de 5 estrellas no debe encabezar la lista. A igual promedio gana el que tiene más reseñas.
+ *
+ * Cada producto se actualiza de forma atómica (compute sobre su clave), así que dos actualizaciones
+ * simultáneas del mismo producto no dejan dos entradas en el conjunto ordenado.
+ */
+public class RankingCalificaciones {
+
+    private static final Comparator<Entrada> ORDEN = Comparator
+            .comparingDouble(Entrada::promedio).reversed()
+            .thenComparing(Comparator.comparingLong(Entrada::total).reversed())
+            .thenComparingLong(Entrada::productoId);
+
+    private final long minimoResenas;
+    private final ConcurrentSkipListSet<Entrada> ordenados = new ConcurrentSkipListSet<>(ORDEN);
+    private final Map<Long, Entrada> porProducto = new ConcurrentHashMap<>();
+
+    public RankingCalificaciones(long minimoResenas) {
+        this.minimoResenas = minimoResenas;
+    }
+
+    public record Entrada(Long productoId, long total, double promedio) {
+    }
+
+    /**
+     * Aplica el resumen de un producto. Las reseñas no se borran, así que un resumen con menos reseñas que
+     * el que ya hay es una lectura atrasada (por ejemplo, una recarga que leyó la fila antes de una reseña
+     * nueva de esta instancia) y se ignora.
+     */
+    public void actualizar(ResumenCalificacion resumen) {
+        aplicar(resumen, true);
+    }
+
+    /**
+     * Deja el ranking igual a los resúmenes dados: aplica los que vienen y quita los que ya no están. Con
+     * reemplazar se aceptan también totales menores, como tras recalcular los resúmenes desde las reseñas.
+     */
+    public void cargar(Collection<ResumenCalificacion> resumenes, boolean reemplazar) {
+        Set<Long> presentes = new HashSet<>();
+        for (ResumenCalificacion resumen : resumenes) {
+            presentes.add(resumen.getProductoId());
+            aplicar(resumen, !reemplazar);
+        }
+        for (Long productoId : porProducto.keySet()) {
+            if (!presentes.contains(productoId)) {
+                porProducto.computeIfPresent(productoId, (id, anterior) -> {
+                    ordenados.remove(anterior);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private void aplicar(ResumenCalificacion resumen, boolean soloSiMasReciente) {
+        porProducto.compute(resumen.getProductoId(), (productoId, anterior) -> {
+            if (anterior != null && soloSiMasReciente && anterior.total() > resumen.getTotal()) {
+                return anterior;
+            }
+            if (anterior != null) {
+                ordenados.remove(anterior);
+            }
+            if (resumen.getTotal() < minimoResenas) {
+                return null;
+            }
+            Entrada entrada = new Entrada(productoId, resumen.getTotal(), resumen.promedio());
+            ordenados.add(entrada);
+            return entrada;
+        });
+    }
+
+    public List<Entrada> mejores(int limite) {
+        List<Entrada> mejores = new ArrayList<>();
+        for (Entrada entrada : ordenados) {
+            if (mejores.size() >= limite) {
+                break;
+            }
+            mejores.add(entrada);
+        }
+        return mejores;
+    }
+
+    public long getMinimoResenas() {
+        return minimoResenas;
+    }
+
+    public int size() {
+        return porProducto.size();
+    }
+}
@@ -4,21 +4,27 @@ import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
 
 
+import org.app.resilience.ConsultasParalelas;
+import org.app.resilience.RemoteLookupExecutor;
 import org.necronet.msresenasfeedback.dto.*;
 import org.necronet.msresenasfeedback.model.Resena;
 import org.necronet.msresenasfeedback.repository.ResenaRepository;
 import org.necronet.msresenasfeedback.shared.MicroserviceClient;
 import org.necronet.msresenasfeedback.shared.TokenContext;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,11 +33,23 @@ public class ResenaService {
 
     private final ResenaRepository resenaRepository;
     private final MicroserviceClient microserviceClient;
+    private final RemoteLookupExecutor remoteLookupExecutor;
+    private final ResumenCalificacionService resumenCalificacionService;
+    private final BusquedaResenaService busquedaResenaService;
+    private final ComprasVerificadasService comprasVerificadasService;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int TAMANO_PAGINA_DEFECTO = 20;
+    private static final int TAMANO_PAGINA_MAXIMO = 100;
+    private static final int LOTE_EXPORTACION = 1000;
 
     @Value("${auth.url.productoMicro}")
     private String PRODUCTOS_SERVICE_URL;
     @Value("${auth.url.clienteMicro}")
     private String CLIENTE_SERVICE_URL;
+    // Con true, quien no tiene una compra verificada del producto no puede reseñarlo
+    @Value("${resenas.compras.exigirCompra:false}")
+    private boolean exigirCompra;
 
     public ServiceResult<ProductoDto> obtenerProducto(Long productoId) {
         List<String> errors = new ArrayList<>();
@@ -79,15 +97,25 @@ public class ResenaService {
         }
     }
 
-    @Transactional
     public ServiceResult<ResenaDto> crearResena(CrearResenaDto dto) {
         List<String> errors = new ArrayList<>();
 
-        ServiceResult<ProductoDto> productoResult = obtenerProducto(dto.getProductoId());
-        if (productoResult.hasErrors()) return new ServiceResult<>(productoResult.getErrors());
+        // El resumen del producto solo admite notas de 1 a 5
+        if (dto.getCalificacion() == null || dto.getCalificacion() < 1 || dto.getCalificacion() > 5) {
+            errors.add("La calificación debe estar entre 1 y 5");
+            return new ServiceResult<>(errors);
+        }
 
-        ServiceResult<ClienteDto> clienteResult = obtenerCliente(dto.getClienteId());
-        if (clienteResult.hasErrors()) return new ServiceResult<>(clienteResult.getErrors());
+        // Una compra confirmada prueba que el producto y el cliente existen: no hace falta preguntarlo
+        boolean compraVerificada = comprasVerificadasService.esCompraVerificada(dto.getClienteId(), dto.getProductoId());
+        if (!compraVerificada) {
+            if (exigirCompra) {
+                errors.add("Solo los clientes que compraron el producto pueden reseñarlo");
+                return new ServiceResult<>(errors);
+            }
+            List<String> erroresRemotos = validarProductoYCliente(dto);
+            if (!erroresRemotos.isEmpty()) return new ServiceResult<>(erroresRemotos);
+        }
 
         Resena resena = Resena.builder()
                 .productoId(dto.getProductoId())
@@ -95,47 +123,141 @@ public class ResenaService {
                 .comentario(dto.getComentario())
                 .calificacion(dto.getCalificacion())
                 .fechaCreacion(LocalDateTime.now())
+                .compraVerificada(compraVerificada)
                 .build();
 
-        Resena guardada = resenaRepository.save(resena);
+        // La transacción empieza después de las consultas remotas y cubre la reseña y su resumen
+        resumenCalificacionService.asegurarResumen(dto.getProductoId());
+        Resena guardada = transactionTemplate.execute(status -> {
+            Resena nueva = resenaRepository.save(resena);
+            resumenCalificacionService.registrar(nueva.getProductoId(), nueva.getCalificacion());
+            return nueva;
+        });
 
-        ResenaDto resenaDto = ResenaDto.builder()
-                .id(guardada.getId())
-                .productoId(guardada.getProductoId())
-                .clienteId(guardada.getClienteId())
-                .comentario(guardada.getComentario())
-                .calificacion(guardada.getCalificacion())
-                .fechaCreacion(guardada.getFechaCreacion())
-                .build();
+        ResenaDto resenaDto = toResenaDto(guardada);
+        // Ya confirmada: se indexa para que aparezca en las búsquedas de texto
+        busquedaResenaService.indexar(resenaDto);
 
         return new ServiceResult<>(resenaDto);
     }
 
-    public ServiceResult<List<ResenaProductoDto>> obtenerResenasPorProducto(Long productoId) {
-        List<Resena> resenas = resenaRepository.findByProductoId(productoId);
-        List<ResenaProductoDto> resultado = resenas.stream()
-                .map(r -> ResenaProductoDto.builder()
-                        .comentario(r.getComentario())
-                        .calificacion(r.getCalificacion())
-
-                        .build())
-                .collect(Collectors.toList());
+    // Producto y cliente no dependen entre sí: se consultan a la vez
+    private List<String> validarProductoYCliente(CrearResenaDto dto) {
+        ServiceResult<ProductoDto> productoResult;
+        ServiceResult<ClienteDto> clienteResult;
+        try (ConsultasParalelas consultas = new ConsultasParalelas(remoteLookupExecutor)) {
+            ConsultasParalelas.Consulta<ServiceResult<ProductoDto>> producto =
+                    consultas.iniciar("producto", dto.getProductoId(), this::obtenerProducto);
+            ConsultasParalelas.Consulta<ServiceResult<ClienteDto>> cliente =
+                    consultas.iniciar("cliente", dto.getClienteId(), this::obtenerCliente);
+            consultas.esperar();
+            productoResult = producto.obtener();
+            clienteResult = cliente.obtener();
+        }
 
-        return new ServiceResult<>(resultado);
+        if (productoResult.hasErrors()) return productoResult.getErrors();
+        if (clienteResult.hasErrors()) return clienteResult.getErrors();
+        return List.of();
     }
 
-    public ServiceResult<List<ResenaDto>> obtenerTodasResenas() {
-        List<ResenaDto> resenas = resenaRepository.findAll().stream()
-                .map(r -> ResenaDto.builder()
+    public ServiceResult<PaginaDto<ResenaProductoDto>> obtenerResenasPorProducto(Long productoId, String cursor, Integer tamano) {
+        return paginar(cursor, tamano,
+                limite -> resenaRepository.findByProductoIdOrderByFechaCreacionDescIdDesc(productoId, limite),
+                (posicion, limite) -> resenaRepository.findPaginaPorProducto(productoId, posicion.fecha(), posicion.id(), limite),
+                r -> ResenaProductoDto.builder()
                         .id(r.getId())
                         .productoId(r.getProductoId())
                         .clienteId(r.getClienteId())
                         .comentario(r.getComentario())
                         .calificacion(r.getCalificacion())
                         .fechaCreacion(r.getFechaCreacion())
-                        .build())
-                .collect(Collectors.toList());
+                        .compraVerificada(r.getCompraVerificada())
+                        .build());
+    }
+
+    public ServiceResult<PaginaDto<ResenaDto>> obtenerResenasPorCliente(Long clienteId, String cursor, Integer tamano) {
+        return paginar(cursor, tamano,
+                limite -> resenaRepository.findByClienteIdOrderByFechaCreacionDescIdDesc(clienteId, limite),
+                (posicion, limite) -> resenaRepository.findPaginaPorCliente(clienteId, posicion.fecha(), posicion.id(), limite),
+                ResenaService::toResenaDto);
+    }
+
+    public ServiceResult<PaginaDto<ResenaDto>> obtenerTodasResenas(String cursor, Integer tamano) {
+        return paginar(cursor, tamano,
+                resenaRepository::findAllByOrderByFechaCreacionDescIdDesc,
+                (posicion, limite) -> resenaRepository.findPaginaRecientes(posicion.fecha(), posicion.id(), limite),
+                ResenaService::toResenaDto);
+    }
 
-        return new ServiceResult<>(resenas);
+    /**
+     * Recorre las reseñas en lotes de id creciente y entrega cada lote al consumidor, así la memoria usada
+     * no depende de cuántas reseñas haya. Los filtros son opcionales.
+     *
+     * @return cantidad de reseñas exportadas
+     */
+    public long exportarResenas(Long productoId, LocalDateTime desde, Consumer<List<ResenaDto>> consumidor) {
+        long ultimoId = 0;
+        long exportadas = 0;
+        List<ResenaDto> lote;
+        do {
+            lote = resenaRepository.findLoteExportacion(ultimoId, productoId, desde, Limit.of(LOTE_EXPORTACION));
+            if (!lote.isEmpty()) {
+                consumidor.accept(lote);
+                ultimoId = lote.get(lote.size() - 1).getId();
+                exportadas += lote.size();
+            }
+        } while (lote.size() == LOTE_EXPORTACION);
+        return exportadas;
+    }
+
+    private <T> ServiceResult<PaginaDto<T>> paginar(String cursor, Integer tamano,
+                                                    Function<Limit, List<Resena>> primeraPagina,
+                                                    BiFunction<CursorResena, Limit, List<Resena>> paginaSiguiente,
+                                                    Function<Resena, T> mapper) {
+        List<String> errors = new ArrayList<>();
+        int tamanoPagina = tamano != null ? tamano : TAMANO_PAGINA_DEFECTO;
+        if (tamanoPagina < 1 || tamanoPagina > TAMANO_PAGINA_MAXIMO) {
+            errors.add("El tamaño de página debe estar entre 1 y " + TAMANO_PAGINA_MAXIMO);
+            return new ServiceResult<>(errors);
+        }
+        CursorResena posicion = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                posicion = CursorResena.decodificar(cursor);
+            } catch (IllegalArgumentException e) {
+                errors.add("Cursor inválido");
+                return new ServiceResult<>(errors);
+            }
+        }
+
+        // Se pide una reseña de más para saber si hay página siguiente sin contar el total
+        Limit limite = Limit.of(tamanoPagina + 1);
+        List<Resena> filas = posicion == null ? primeraPagina.apply(limite) : paginaSiguiente.apply(posicion, limite);
+        boolean hayMas = filas.size() > tamanoPagina;
+        List<Resena> pagina = hayMas ? filas.subList(0, tamanoPagina) : filas;
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Resena ultima = pagina.get(pagina.size() - 1);
+            siguienteCursor = CursorResena.de(ultima.getFechaCreacion(), ultima.getId()).codificar();
+        }
+        return new ServiceResult<>(PaginaDto.<T>builder()
+                .contenido(pagina.stream().map(mapper).collect(Collectors.toList()))
+                .tamano(tamanoPagina)
+                .hayMas(hayMas)
+                .siguienteCursor(siguienteCursor)
+                .build());
+    }
+
+    static ResenaDto toResenaDto(Resena r) {
+        return ResenaDto.builder()
+                .id(r.getId())
+                .productoId(r.getProductoId())
+                .clienteId(r.getClienteId())
+                .comentario(r.getComentario())
+                .calificacion(r.getCalificacion())
+                .fechaCreacion(r.getFechaCreacion())
+                .compraVerificada(r.getCompraVerificada())
+                .build();
     }
 }
@@ -0,0 +1,202 @@
+package org.necronet.msresenasfeedback.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.app.dto.ServiceResult;
+import org.necronet.msresenasfeedback.dto.ProductoValoradoDto;
+import org.necronet.msresenasfeedback.dto.ResumenCalificacionDto;
+import org.necronet.msresenasfeedback.model.ResumenCalificacion;
+import org.necronet.msresenasfeedback.repository.ConteoCalificacionView;
+import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.necronet.msresenasfeedback.repository.ResumenCalificacionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Promedio e histograma de calificaciones por producto, mantenidos al crear cada reseña en lugar de
+ * calcularse leyendo todas las reseñas del producto.
+ *
+ * - asegurarResumen crea la fila del producto fuera de la transacción de la reseña (si dos altas la crean
+ *   a la vez, una falla por clave duplicada y se ignora).
+ * - registrar suma la reseña con un UPDATE atómico dentro de la transacción que la guarda.
+ * - El ranking de mejor valorados vive en memoria; se actualiza tras cada commit de esta instancia y se
+ *   recarga cada refrescoMs para incorporar las reseñas creadas por otras instancias.
+ * - reconstruir recalcula los resúmenes desde las reseñas: se usa al arrancar si la tabla está vacía
+ *   (reseñas anteriores a los resúmenes) y desde el endpoint de administración.
+ */
+@Slf4j
+@Service
+public class ResumenCalificacionService {
+
+    private final ResumenCalificacionRepository resumenRepository;
+    private final ResenaRepository resenaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RankingCalificaciones ranking;
+
+    public ResumenCalificacionService(ResumenCalificacionRepository resumenRepository,
+                                      ResenaRepository resenaRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${resenas.ranking.minimoResenas:5}") long minimoResenas) {
+        this.resumenRepository = resumenRepository;
+        this.resenaRepository = resenaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ranking = new RankingCalificaciones(minimoResenas);
+    }
+
+    public void asegurarResumen(Long productoId) {
+        if (resumenRepository.existsById(productoId)) {
+            return;
+        }
+        try {
+            resumenRepository.save(ResumenCalificacion.builder().productoId(productoId).build());
+        } catch (DataIntegrityViolationException e) {
+            // Otra reseña del mismo producto la creó al mismo tiempo
+        }
+    }
+
+    /**
+     * Suma una reseña al resumen de su producto. Debe llamarse en la transacción que guarda la reseña y
+     * después de asegurarResumen.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Long productoId, int calificacion) {
+        if (calificacion < 1 || calificacion > 5) {
+            throw new IllegalArgumentException("Calificación fuera de rango: " + calificacion);
+        }
+        if (resumenRepository.sumarCalificacion(productoId, calificacion) == 0) {
+            throw new IllegalStateException("No existe el resumen de calificaciones del producto " + productoId);
+        }
+        // La fila queda bloqueada por el UPDATE hasta el commit: lo leído es exactamente lo que se confirmará
+        resumenRepository.findById(productoId).ifPresent(resumen -> afterCommit(() -> ranking.actualizar(resumen)));
+    }
+
+    public ServiceResult<ResumenCalificacionDto> obtenerResumen(Long productoId) {
+        ResumenCalificacion resumen = resumenRepository.findById(productoId)
+                .orElseGet(() -> ResumenCalificacion.builder().productoId(productoId).build());
+        return new ServiceResult<>(toDto(resumen));
+    }
+
+    public ServiceResult<List<ProductoValoradoDto>> obtenerMejorValorados(int limite) {
+        List<ProductoValoradoDto> mejores = ranking.mejores(Math.max(0, limite)).stream()
+                .map(entrada -> ProductoValoradoDto.builder()
+                        .productoId(entrada.productoId())
+                        .totalResenas(entrada.total())
+                        .promedio(redondear(entrada.promedio()))
+                        .build())
+                .collect(Collectors.toList());
+        return new ServiceResult<>(mejores);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (resumenRepository.count() == 0 && resenaRepository.count() > 0) {
+            log.info("Tabla de resúmenes vacía: recalculando desde las reseñas existentes");
+            reconstruir();
+            return;
+        }
+        cargarRanking(false);
+    }
+
+    @Scheduled(fixedDelayString = "${resenas.ranking.refrescoMs:60000}")
+    public void refrescarRanking() {
+        cargarRanking(false);
+    }
+
+    /**
+     * Recalcula el resumen de cada producto desde sus reseñas. Cada producto se recalcula en su propia
+     * transacción con la fila del resumen bloqueada, así que las reseñas que llegan mientras tanto esperan
+     * y se suman sobre el valor recalculado en vez de perderse.
+     *
+     * @return cantidad de productos recalculados
+     */
+    public int reconstruir() {
+        TreeSet<Long> productos = new TreeSet<>(resenaRepository.findDistinctProductoIds());
+        productos.addAll(resumenRepository.findAllProductoIds());
+        for (Long productoId : productos) {
+            asegurarResumen(productoId);
+            transactionTemplate.executeWithoutResult(status -> recalcular(productoId));
+        }
+        cargarRanking(true);
+        log.info("Resúmenes de calificación recalculados: {} productos", productos.size());
+        return productos.size();
+    }
+
+    public int getProductosEnRanking() {
+        return ranking.size();
+    }
+
+    private void recalcular(Long productoId) {
+        ResumenCalificacion resumen = resumenRepository.findByIdForUpdate(productoId)
+                .orElseThrow(() -> new IllegalStateException("No existe el resumen de calificaciones del producto " + productoId));
+        long[] porNota = new long[6];
+        for (ConteoCalificacionView conteo : resenaRepository.contarPorCalificacion(productoId)) {
+            if (conteo.getCalificacion() != null && conteo.getCalificacion() >= 1 && conteo.getCalificacion() <= 5) {
+                porNota[conteo.getCalificacion()] = conteo.getTotal();
+            }
+        }
+        long total = 0;
+        long suma = 0;
+        for (int nota = 1; nota <= 5; nota++) {
+            total += porNota[nota];
+            suma += porNota[nota] * nota;
+        }
+        resumen.setTotal(total);
+        resumen.setSuma(suma);
+        resumen.setEstrellas1(porNota[1]);
+        resumen.setEstrellas2(porNota[2]);
+        resumen.setEstrellas3(porNota[3]);
+        resumen.setEstrellas4(porNota[4]);
+        resumen.setEstrellas5(porNota[5]);
+        resumenRepository.save(resumen);
+    }
+
+    private void cargarRanking(boolean reemplazar) {
+        ranking.cargar(resumenRepository.findByTotalGreaterThanEqual(ranking.getMinimoResenas()), reemplazar);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static ResumenCalificacionDto toDto(ResumenCalificacion resumen) {
+        Map<Integer, Long> histograma = new LinkedHashMap<>();
+        long[] porNota = resumen.histograma();
+        for (int nota = 1; nota <= 5; nota++) {
+            histograma.put(nota, porNota[nota - 1]);
+        }
+        return ResumenCalificacionDto.builder()
+                .productoId(resumen.getProductoId())
+                .totalResenas(resumen.getTotal())
+                .promedio(redondear(resumen.promedio()))
+                .histograma(histograma)
+                .build();
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+}
@@ -0,0 +1,185 @@
+package org.necronet.msresenasfeedback;
+
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.msresenasfeedback.dto.BusquedaResenasDto;
+import org.necronet.msresenasfeedback.dto.ResenaDto;
+import org.necronet.msresenasfeedback.model.Resena;
+import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.necronet.msresenasfeedback.service.BusquedaResenaService;
+import org.springframework.data.domain.Limit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BusquedaResenaServiceTest {
+
+    @Mock
+    private ResenaRepository resenaRepository;
+
+    private BusquedaResenaService busquedaResenaService;
+
+    // Lo que findAllById devuelve: las reseñas "guardadas" en la base
+    private final Map<Long, Resena> guardadas = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        busquedaResenaService = new BusquedaResenaService(resenaRepository, 120_000);
+        lenient().when(resenaRepository.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<Resena> encontradas = new ArrayList<>();
+            for (Object id : inv.<Iterable<?>>getArgument(0)) {
+                encontradas.add(guardadas.get((Long) id));
+            }
+            return encontradas.stream().filter(Objects::nonNull).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        busquedaResenaService.close();
+    }
+
+    @Test
+    void buscar_noDistingueTildesMayusculasNiPlural() {
+        // Arrange
+        indexar(1L, 10L, 1, "Me dio ALERGIAS en la piel");
+        indexar(2L, 10L, 5, "Muy buena fijación, dura todo el día");
+        indexar(3L, 20L, 1, "Parece falsificada, el frasco vino sin sello");
+
+        // Act / Assert
+        assertEquals(List.of(1L), ids(busquedaResenaService.buscar("alergia", null, null, null)));
+        assertEquals(List.of(2L), ids(busquedaResenaService.buscar("fijacion", null, null, null)));
+        assertEquals(List.of(3L), ids(busquedaResenaService.buscar("Falsificado", null, null, null)));
+    }
+
+    @Test
+    void buscar_exigeTodasLasPalabrasYAplicaFiltros() {
+        // Arrange
+        indexar(1L, 10L, 1, "El perfume me dio alergia");
+        indexar(2L, 10L, 4, "Perfume rico, leve alergia al principio");
+        indexar(3L, 20L, 1, "Alergia fuerte con este perfume");
+        indexar(4L, 20L, 2, "Perfume que no dura nada");
+
+        // Act
+        ServiceResult<BusquedaResenasDto> todas = busquedaResenaService.buscar("perfume alergia", null, null, null);
+        ServiceResult<BusquedaResenasDto> delProducto = busquedaResenaService.buscar("perfume alergia", 10L, null, null);
+        ServiceResult<BusquedaResenasDto> conNotaUno = busquedaResenaService.buscar("perfume alergia", null, 1, null);
+        ServiceResult<BusquedaResenasDto> ambos = busquedaResenaService.buscar("perfume alergia", 20L, 1, null);
+
+        // Assert
+        assertEquals(3, todas.getData().getTotalCoincidencias());
+        assertEquals(List.of(1L, 2L), ids(delProducto).stream().sorted().toList());
+        assertEquals(List.of(1L, 3L), ids(conNotaUno).stream().sorted().toList());
+        assertEquals(List.of(3L), ids(ambos));
+    }
+
+    @Test
+    void buscar_respetaElLimiteYCuentaTodasLasCoincidencias() {
+        // Arrange
+        for (long id = 1; id <= 30; id++) {
+            indexar(id, 1L, 5, "Excelente fijación número " + id);
+        }
+
+        // Act
+        ServiceResult<BusquedaResenasDto> result = busquedaResenaService.buscar("fijación", null, null, 5);
+
+        // Assert
+        assertEquals(5, result.getData().getResenas().size());
+        assertEquals(30, result.getData().getTotalCoincidencias());
+    }
+
+    @Test
+    void buscar_conParametrosInvalidos_deberiaRetornarError() {
+        assertEquals("Debe indicar el texto a buscar", busquedaResenaService.buscar("  ", null, null, null).getErrors().get(0));
+        assertEquals("El límite debe estar entre 1 y 100", busquedaResenaService.buscar("olor", null, null, 0).getErrors().get(0));
+        assertEquals("La calificación debe estar entre 1 y 5", busquedaResenaService.buscar("olor", null, 6, null).getErrors().get(0));
+    }
+
+    @Test
+    void buscar_soloPalabrasVacias_deberiaRetornarSinResultados() {
+        indexar(1L, 1L, 3, "Es de lo que hay");
+
+        ServiceResult<BusquedaResenasDto> result = busquedaResenaService.buscar("de lo que", null, null, null);
+
+        assertFalse(result.hasErrors());
+        assertTrue(result.getData().getResenas().isEmpty());
+        verify(resenaRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void indexar_mismaResenaDosVeces_noLaDuplica() {
+        indexar(1L, 1L, 5, "Aroma intenso");
+        indexar(1L, 1L, 5, "Aroma intenso");
+
+        assertEquals(1, busquedaResenaService.getResenasIndexadas());
+        assertEquals(1, busquedaResenaService.buscar("aroma", null, null, null).getData().getTotalCoincidencias());
+    }
+
+    @Test
+    void inicializar_deberiaIndexarTodasLasResenasPorLotes() {
+        // Arrange: un lote completo de 1000 y uno parcial
+        List<ResenaDto> primerLote = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            primerLote.add(dto(id, 1L, 4, "Buen olor " + id));
+        }
+        List<ResenaDto> segundoLote = List.of(dto(1001L, 2L, 1, "Llegó falsificado"));
+        when(resenaRepository.findLoteExportacion(eq(0L), isNull(), isNull(), eq(Limit.of(1000)))).thenReturn(primerLote);
+        when(resenaRepository.findLoteExportacion(eq(1000L), isNull(), isNull(), eq(Limit.of(1000)))).thenReturn(segundoLote);
+        guardar(segundoLote.get(0));
+
+        // Act
+        busquedaResenaService.inicializar();
+
+        // Assert
+        assertEquals(1001, busquedaResenaService.getResenasIndexadas());
+        assertEquals(List.of(1001L), ids(busquedaResenaService.buscar("falsificado", null, null, null)));
+    }
+
+    private void indexar(Long id, Long productoId, int calificacion, String comentario) {
+        ResenaDto resena = dto(id, productoId, calificacion, comentario);
+        guardar(resena);
+        busquedaResenaService.indexar(resena);
+    }
+
+    private void guardar(ResenaDto resena) {
+        guardadas.put(resena.getId(), Resena.builder()
+                .id(resena.getId())
+                .productoId(resena.getProductoId())
+                .clienteId(resena.getClienteId())
+                .comentario(resena.getComentario())
+                .calificacion(resena.getCalificacion())
+                .fechaCreacion(resena.getFechaCreacion())
+                .build());
+    }
+
+    private static ResenaDto dto(Long id, Long productoId, int calificacion, String comentario) {
+        return ResenaDto.builder()
+                .id(id)
+                .productoId(productoId)
+                .clienteId(1L)
+                .comentario(comentario)
+                .calificacion(calificacion)
+                .fechaCreacion(LocalDateTime.now())
+                .build();
+    }
+
+    private static List<Long> ids(ServiceResult<BusquedaResenasDto> result) {
+        assertFalse(result.hasErrors());
+        return result.getData().getResenas().stream().map(ResenaDto::getId).toList();
+    }
+}
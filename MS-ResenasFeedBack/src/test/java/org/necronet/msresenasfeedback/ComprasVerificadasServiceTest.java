@@ -0,0 +1,121 @@
+package org.necronet.msresenasfeedback;
+
+import org.app.auth.TokenServicio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.msresenasfeedback.dto.CompraConfirmadaDto;
+import org.necronet.msresenasfeedback.service.ComprasVerificadasService;
+import org.necronet.msresenasfeedback.shared.MicroserviceClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ComprasVerificadasServiceTest {
+
+    private static final String URL = "http://carrito/api/carrito/compras-confirmadas";
+
+    @Mock
+    private MicroserviceClient microserviceClient;
+
+    @Mock
+    private TokenServicio tokenServicio;
+
+    private ComprasVerificadasService comprasVerificadasService;
+
+    @BeforeEach
+    void setUp() {
+        comprasVerificadasService = new ComprasVerificadasService(microserviceClient, tokenServicio, "http://carrito", 300_000);
+        lenient().when(tokenServicio.obtener()).thenReturn("token-servicio");
+    }
+
+    @Test
+    void sincronizar_primeraVez_deberiaCargarTodasLasComprasPorLotes() {
+        // Arrange: un lote completo de 5000 líneas y uno parcial
+        CompraConfirmadaDto[] primerLote = LongStream.rangeClosed(1, 5000)
+                .mapToObj(id -> new CompraConfirmadaDto(id, id % 100 + 1, id))
+                .toArray(CompraConfirmadaDto[]::new);
+        CompraConfirmadaDto[] segundoLote = {new CompraConfirmadaDto(5001L, 7L, 42L)};
+        responder(URL + "?despuesDe=0&limite=5000", primerLote);
+        responder(URL + "?despuesDe=5000&limite=5000", segundoLote);
+
+        // Act
+        comprasVerificadasService.sincronizar();
+
+        // Assert
+        assertTrue(comprasVerificadasService.esCompraVerificada(7L, 42L));
+        assertTrue(comprasVerificadasService.esCompraVerificada(2L, 1L));
+        assertFalse(comprasVerificadasService.esCompraVerificada(42L, 7L));
+        assertFalse(comprasVerificadasService.esCompraVerificada(7L, null));
+        assertEquals(5001, comprasVerificadasService.getComprasVerificadas());
+        verify(microserviceClient, times(2)).enviarConToken(anyString(), eq(HttpMethod.GET), isNull(),
+                eq(CompraConfirmadaDto[].class), eq("token-servicio"));
+    }
+
+    @Test
+    void sincronizar_siguientesVeces_deberiaPedirSoloLasCompletadasDesdeLaAnterior() {
+        // Arrange
+        responder(URL + "?despuesDe=0&limite=5000", new CompraConfirmadaDto[]{new CompraConfirmadaDto(1L, 1L, 10L)});
+        comprasVerificadasService.sincronizar();
+        when(microserviceClient.enviarConToken(contains("desde="), eq(HttpMethod.GET), isNull(),
+                eq(CompraConfirmadaDto[].class), anyString()))
+                .thenReturn(new ResponseEntity<>(new CompraConfirmadaDto[]{new CompraConfirmadaDto(2L, 2L, 20L)}, HttpStatus.OK));
+
+        // Act
+        comprasVerificadasService.sincronizar();
+
+        // Assert
+        assertTrue(comprasVerificadasService.esCompraVerificada(1L, 10L));
+        assertTrue(comprasVerificadasService.esCompraVerificada(2L, 20L));
+    }
+
+    @Test
+    void sincronizar_conMsCarritoCaido_deberiaReintentarLaCargaCompleta() {
+        // Arrange
+        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(),
+                eq(CompraConfirmadaDto[].class), anyString()))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(new ResponseEntity<>(new CompraConfirmadaDto[]{new CompraConfirmadaDto(1L, 3L, 30L)}, HttpStatus.OK));
+
+        // Act
+        comprasVerificadasService.sincronizar();
+        boolean antes = comprasVerificadasService.esCompraVerificada(3L, 30L);
+        comprasVerificadasService.sincronizar();
+
+        // Assert
+        assertFalse(antes);
+        assertTrue(comprasVerificadasService.esCompraVerificada(3L, 30L));
+        verify(microserviceClient, never()).enviarConToken(contains("desde="), any(), any(), any(), any());
+    }
+
+    @Test
+    void esCompraVerificada_idsQueNoEntranEnLaClave_noSeGuardan() {
+        // Arrange
+        responder(URL + "?despuesDe=0&limite=5000", new CompraConfirmadaDto[]{
+                new CompraConfirmadaDto(1L, 1L << 40, 1L),
+                new CompraConfirmadaDto(2L, 1L, 1L)});
+
+        // Act
+        comprasVerificadasService.sincronizar();
+
+        // Assert
+        assertFalse(comprasVerificadasService.esCompraVerificada(1L << 40, 1L));
+        assertTrue(comprasVerificadasService.esCompraVerificada(1L, 1L));
+        assertEquals(1, comprasVerificadasService.getComprasVerificadas());
+    }
+
+    private void responder(String url, CompraConfirmadaDto[] lote) {
+        when(microserviceClient.enviarConToken(eq(url), eq(HttpMethod.GET), isNull(), eq(CompraConfirmadaDto[].class), anyString()))
+                .thenReturn(new ResponseEntity<>(lote, HttpStatus.OK));
+    }
+}
@@ -0,0 +1,99 @@
+package org.necronet.msresenasfeedback;
+
+import org.junit.jupiter.api.Test;
+import org.necronet.msresenasfeedback.service.ConjuntoLong;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConjuntoLongTest {
+
+    @Test
+    void agregar_seComportaComoUnHashSetIncluyendoElCeroYNegativos() {
+        ConjuntoLong conjunto = new ConjuntoLong();
+        Set<Long> esperado = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Valores repetidos a propósito para ejercitar los duplicados
+            long valor = random.nextInt(20_000) - 1_000;
+            assertEquals(esperado.add(valor), conjunto.agregar(valor));
+        }
+
+        assertEquals(esperado.size(), conjunto.size());
+        for (long valor = -1_000; valor < 19_000; valor++) {
+            assertEquals(esperado.contains(valor), conjunto.contiene(valor), "valor " + valor);
+        }
+    }
+
+    @Test
+    void agregarTodos_cuentaSoloLosNuevos() {
+        ConjuntoLong conjunto = new ConjuntoLong(4);
+        conjunto.agregar(5L);
+
+        int nuevos = conjunto.agregarTodos(new long[]{5L, 6L, 7L, 6L, 99L}, 4);
+
+        assertEquals(2, nuevos);
+        assertEquals(3, conjunto.size());
+        assertFalse(conjunto.contiene(99L));
+    }
+
+    @Test
+    void contiene_mientrasOtroHiloAgregaYRedimensiona_nuncaPierdeLoYaAgregado() throws Exception {
+        ConjuntoLong conjunto = new ConjuntoLong();
+        int base = 1_000;
+        for (long i = 1; i <= base; i++) {
+            conjunto.agregar(i << 32 | i);
+        }
+        AtomicBoolean escribiendo = new AtomicBoolean(true);
+        CountDownLatch inicio = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Long>> lectores = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                lectores.add(pool.submit(() -> {
+                    inicio.await();
+                    long lecturas = 0;
+                    do {
+                        for (long i = 1; i <= base; i++) {
+                            assertTrue(conjunto.contiene(i << 32 | i), "perdido " + i);
+                            lecturas++;
+                        }
+                    } while (escribiendo.get());
+                    return lecturas;
+                }));
+            }
+            Future<?> escritor = pool.submit(() -> {
+                inicio.await();
+                // Muchas duplicaciones de la tabla mientras se lee
+                for (long i = base + 1; i <= 500_000; i++) {
+                    conjunto.agregar(i << 32 | i);
+                }
+                escribiendo.set(false);
+                return null;
+            });
+            inicio.countDown();
+
+            escritor.get(30, TimeUnit.SECONDS);
+            for (Future<Long> lector : lectores) {
+                assertTrue(lector.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            escribiendo.set(false);
+            pool.shutdownNow();
+        }
+
+        assertEquals(500_000, conjunto.size());
+    }
+}
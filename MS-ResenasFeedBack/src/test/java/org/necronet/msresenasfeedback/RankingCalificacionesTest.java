@@ -0,0 +1,104 @@
+package org.necronet.msresenasfeedback;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.necronet.msresenasfeedback.model.ResumenCalificacion;
+import org.necronet.msresenasfeedback.service.RankingCalificaciones;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingCalificacionesTest {
+
+    private RankingCalificaciones ranking;
+
+    @BeforeEach
+    void setUp() {
+        ranking = new RankingCalificaciones(3);
+    }
+
+    private static ResumenCalificacion resumen(long productoId, long total, long suma) {
+        return ResumenCalificacion.builder().productoId(productoId).total(total).suma(suma).build();
+    }
+
+    private List<Long> ids(int limite) {
+        return ranking.mejores(limite).stream().map(RankingCalificaciones.Entrada::productoId).toList();
+    }
+
+    @Test
+    void mejores_ordenaPorPromedioYLuegoPorCantidadDeResenas() {
+        ranking.actualizar(resumen(1L, 10, 40));   // 4.0
+        ranking.actualizar(resumen(2L, 4, 18));    // 4.5
+        ranking.actualizar(resumen(3L, 20, 80));   // 4.0 con más reseñas
+        ranking.actualizar(resumen(4L, 3, 6));     // 2.0
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), ids(10));
+        assertEquals(List.of(2L, 3L), ids(2));
+    }
+
+    @Test
+    void mejores_excluyeProductosConPocasResenas() {
+        ranking.actualizar(resumen(1L, 2, 10));    // 5.0 pero solo 2 reseñas
+        ranking.actualizar(resumen(2L, 3, 12));
+
+        assertEquals(List.of(2L), ids(10));
+
+        ranking.actualizar(resumen(1L, 3, 15));
+        assertEquals(List.of(1L, 2L), ids(10));
+    }
+
+    @Test
+    void actualizar_reemplazaLaEntradaAnteriorDelProducto() {
+        ranking.actualizar(resumen(1L, 3, 15));
+        ranking.actualizar(resumen(2L, 3, 12));
+        ranking.actualizar(resumen(1L, 4, 14));    // baja de 5.0 a 3.5
+
+        assertEquals(List.of(2L, 1L), ids(10));
+        assertEquals(2, ranking.size());
+    }
+
+    @Test
+    void actualizar_ignoraResumenesAtrasados() {
+        ranking.actualizar(resumen(1L, 5, 25));
+        ranking.actualizar(resumen(1L, 4, 4));
+
+        assertEquals(5.0, ranking.mejores(1).get(0).promedio());
+    }
+
+    @Test
+    void cargar_quitaLosProductosQueYaNoEstanYConReemplazarAceptaTotalesMenores() {
+        ranking.actualizar(resumen(1L, 5, 25));
+        ranking.actualizar(resumen(2L, 5, 20));
+
+        ranking.cargar(List.of(resumen(2L, 4, 8)), true);
+
+        assertEquals(List.of(2L), ids(10));
+        assertEquals(2.0, ranking.mejores(1).get(0).promedio());
+    }
+
+    @Test
+    void actualizar_concurrenteSobreElMismoProducto_noDuplicaEntradas() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                long total = 3 + i;
+                futuros.add(pool.submit(() -> ranking.actualizar(resumen(1L, total, total * 4))));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, ranking.mejores(10).size());
+        assertEquals(2_002, ranking.mejores(1).get(0).total());
+    }
+}
@@ -0,0 +1,191 @@
+package org.necronet.msresenasfeedback;
+
+import org.app.resilience.RemoteLookupExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.necronet.msresenasfeedback.dto.PaginaDto;
+import org.necronet.msresenasfeedback.dto.ResenaDto;
+import org.necronet.msresenasfeedback.dto.ResenaProductoDto;
+import org.necronet.msresenasfeedback.model.Resena;
+import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.necronet.msresenasfeedback.service.BusquedaResenaService;
+import org.necronet.msresenasfeedback.service.ComprasVerificadasService;
+import org.necronet.msresenasfeedback.service.ResenaService;
+import org.necronet.msresenasfeedback.service.ResumenCalificacionService;
+import org.necronet.msresenasfeedback.shared.MicroserviceClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recorre los listados por cursor contra una base H2 real, con muchas reseñas que comparten la misma
+ * fecha de creación, y comprueba que cada reseña aparece exactamente una vez y en orden.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:paginacion;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "auth.url.productoMicro=http://productos",
+        "auth.url.clienteMicro=http://clientes"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ResenaService.class, BusquedaResenaService.class, ResumenCalificacionService.class,
+        ResenaPaginacionTest.ConsultasRemotas.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResenaPaginacionTest {
+
+    private static final int RESENAS = 250;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    @Autowired
+    private ResenaService resenaService;
+
+    @Autowired
+    private ResenaRepository resenaRepository;
+
+    @MockitoBean
+    private MicroserviceClient microserviceClient;
+
+    @MockitoBean
+    private ComprasVerificadasService comprasVerificadasService;
+
+    @BeforeEach
+    void setUp() {
+        // Grupos de 7 reseñas con la misma fecha: el desempate por id es el que evita saltos y repetidos
+        List<Resena> resenas = new ArrayList<>();
+        for (int i = 0; i < RESENAS; i++) {
+            resenas.add(Resena.builder()
+                    .productoId((long) (i % 2) + 1)
+                    .clienteId((long) (i % 5) + 1)
+                    .comentario("Reseña " + i)
+                    .calificacion(i % 5 + 1)
+                    .fechaCreacion(BASE.plusMinutes(i / 7))
+                    .build());
+        }
+        resenaRepository.saveAll(resenas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resenaRepository.deleteAll();
+    }
+
+    @Test
+    void obtenerTodasResenas_RecorridoCompleto_DebeEntregarCadaReseñaUnaVezEnOrden() {
+        List<ResenaDto> recorridas = recorrer(cursor -> resenaService.obtenerTodasResenas(cursor, 40).getData());
+
+        assertEquals(RESENAS, recorridas.size());
+        assertEquals(RESENAS, recorridas.stream().map(ResenaDto::getId).distinct().count());
+        assertOrdenDescendente(recorridas.stream().map(r -> clave(r.getFechaCreacion(), r.getId())).toList());
+    }
+
+    @Test
+    void obtenerResenasPorProducto_RecorridoCompleto_SoloDevuelveLasDelProducto() {
+        List<ResenaProductoDto> recorridas = recorrer(cursor -> resenaService.obtenerResenasPorProducto(2L, cursor, 40).getData());
+
+        assertEquals(RESENAS / 2, recorridas.size());
+        assertTrue(recorridas.stream().allMatch(r -> r.getProductoId() == 2L));
+        assertEquals(RESENAS / 2, recorridas.stream().map(ResenaProductoDto::getId).distinct().count());
+        assertOrdenDescendente(recorridas.stream().map(r -> clave(r.getFechaCreacion(), r.getId())).toList());
+    }
+
+    @Test
+    void obtenerResenasPorCliente_ReseñaNuevaDuranteElRecorrido_NoDesplazaLasPaginasSiguientes() {
+        PaginaDto<ResenaDto> primera = resenaService.obtenerResenasPorCliente(3L, null, 20).getData();
+        Set<Long> vistas = new HashSet<>(primera.getContenido().stream().map(ResenaDto::getId).toList());
+
+        // Una reseña nueva queda antes del cursor y no debe aparecer ni empujar a otra hacia la página siguiente
+        resenaRepository.save(Resena.builder().productoId(1L).clienteId(3L).comentario("Nueva").calificacion(5)
+                .fechaCreacion(BASE.plusDays(1)).build());
+
+        String cursor = primera.getSiguienteCursor();
+        int restantes = 0;
+        while (cursor != null) {
+            PaginaDto<ResenaDto> pagina = resenaService.obtenerResenasPorCliente(3L, cursor, 20).getData();
+            for (ResenaDto resena : pagina.getContenido()) {
+                assertTrue(vistas.add(resena.getId()), "Reseña repetida: " + resena.getId());
+                assertNotEquals("Nueva", resena.getComentario());
+                restantes++;
+            }
+            cursor = pagina.getSiguienteCursor();
+        }
+
+        assertEquals(RESENAS / 5, primera.getContenido().size() + restantes);
+    }
+
+    @Test
+    void exportarResenas_DebeCubrirTodasLasFilasEnLotesConFiltros() {
+        List<ResenaDto> exportadas = new ArrayList<>();
+        long total = resenaService.exportarResenas(null, null, exportadas::addAll);
+
+        assertEquals(RESENAS, total);
+        assertEquals(RESENAS, exportadas.stream().map(ResenaDto::getId).distinct().count());
+
+        List<ResenaDto> filtradas = new ArrayList<>();
+        LocalDateTime desde = BASE.plusMinutes(20);
+        long totalFiltradas = resenaService.exportarResenas(1L, desde, filtradas::addAll);
+
+        long esperadas = resenaRepository.findAll().stream()
+                .filter(r -> r.getProductoId() == 1L && !r.getFechaCreacion().isBefore(desde))
+                .count();
+        assertEquals(esperadas, totalFiltradas);
+        assertTrue(filtradas.stream().allMatch(r -> r.getProductoId() == 1L && !r.getFechaCreacion().isBefore(desde)));
+    }
+
+    private static <T> List<T> recorrer(Function<String, PaginaDto<T>> pedirPagina) {
+        List<T> recorridas = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaginaDto<T> pagina = pedirPagina.apply(cursor);
+            assertTrue(pagina.getContenido().size() <= 40);
+            recorridas.addAll(pagina.getContenido());
+            cursor = pagina.getSiguienteCursor();
+        } while (cursor != null);
+        return recorridas;
+    }
+
+    private record Clave(LocalDateTime fecha, Long id) {
+    }
+
+    private static Clave clave(LocalDateTime fecha, Long id) {
+        return new Clave(fecha, id);
+    }
+
+    private static void assertOrdenDescendente(List<Clave> claves) {
+        Comparator<Clave> orden = Comparator.comparing(Clave::fecha).thenComparing(Clave::id);
+        for (int i = 1; i < claves.size(); i++) {
+            assertTrue(orden.compare(claves.get(i - 1), claves.get(i)) > 0,
+                    "Fuera de orden en la posición " + i);
+        }
+    }
+
+    @TestConfiguration
+    static class ConsultasRemotas {
+
+        @Bean(destroyMethod = "close")
+        RemoteLookupExecutor remoteLookupExecutor() {
+            return new RemoteLookupExecutor(4);
+        }
+    }
+}
@@ -1,21 +1,31 @@
 package org.necronet.msresenasfeedback;
 
 import org.app.dto.ServiceResult;
+import org.app.resilience.RemoteLookupExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.necronet.msresenasfeedback.dto.*;
 import org.necronet.msresenasfeedback.model.Resena;
 import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.necronet.msresenasfeedback.service.BusquedaResenaService;
+import org.necronet.msresenasfeedback.service.ComprasVerificadasService;
+import org.necronet.msresenasfeedback.service.CursorResena;
 import org.necronet.msresenasfeedback.service.ResenaService;
+import org.necronet.msresenasfeedback.service.ResumenCalificacionService;
 import org.necronet.msresenasfeedback.shared.MicroserviceClient;
 import org.necronet.msresenasfeedback.shared.TokenContext;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -37,6 +47,21 @@ public class ResenaServiceTest {
     @Mock
     private TokenContext tokenContext;
 
+    @Spy
+    private RemoteLookupExecutor remoteLookupExecutor = new RemoteLookupExecutor(4, false, TokenContext::propagar);
+
+    @Mock
+    private ResumenCalificacionService resumenCalificacionService;
+
+    @Mock
+    private BusquedaResenaService busquedaResenaService;
+
+    @Mock
+    private ComprasVerificadasService comprasVerificadasService;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private ResenaService resenaService;
 
@@ -119,6 +144,23 @@ public class ResenaServiceTest {
         assertNotNull(result.getData());
         assertEquals("Excelente producto", result.getData().getComentario());
         verify(resenaRepository, times(1)).save(any(Resena.class));
+        verify(resumenCalificacionService).asegurarResumen(1L);
+        verify(resumenCalificacionService).registrar(1L, 5);
+        verify(busquedaResenaService).indexar(argThat(indexada -> indexada.getId().equals(1L)));
+    }
+
+    @Test
+    void crearResena_deberiaRechazarCalificacionFueraDeRango() {
+        // Arrange
+        crearResenaDto.setCalificacion(6);
+
+        // Act
+        ServiceResult<ResenaDto> result = resenaService.crearResena(crearResenaDto);
+
+        // Assert
+        assertTrue(result.hasErrors());
+        assertEquals("La calificación debe estar entre 1 y 5", result.getErrors().get(0));
+        verifyNoInteractions(microserviceClient, resenaRepository, resumenCalificacionService);
     }
 
     @Test
@@ -143,6 +185,7 @@ public class ResenaServiceTest {
         assertTrue(result.hasErrors());
         assertEquals("Error al obtener los datos del producto", result.getErrors().get(0));
         verify(resenaRepository, never()).save(any(Resena.class));
+        verifyNoInteractions(resumenCalificacionService);
     }
 
     @Test
@@ -179,37 +222,130 @@ public class ResenaServiceTest {
     }
 
     @Test
-    void obtenerResenasPorProducto_deberiaRetornarListaResenas() {
+    void crearResena_conCompraVerificada_noDeberiaConsultarProductoNiCliente() {
         // Arrange
-        List<Resena> resenas = new ArrayList<>();
-        resenas.add(resena);
+        when(comprasVerificadasService.esCompraVerificada(1L, 1L)).thenReturn(true);
+        when(resenaRepository.save(any(Resena.class))).thenAnswer(invocation -> {
+            Resena nueva = invocation.getArgument(0);
+            nueva.setId(7L);
+            return nueva;
+        });
 
-        when(resenaRepository.findByProductoId(anyLong())).thenReturn(resenas);
+        // Act
+        ServiceResult<ResenaDto> result = resenaService.crearResena(crearResenaDto);
+
+        // Assert
+        assertFalse(result.hasErrors());
+        assertTrue(result.getData().getCompraVerificada());
+        verifyNoInteractions(microserviceClient);
+        verify(resenaRepository).save(argThat(Resena::getCompraVerificada));
+    }
+
+    @Test
+    void crearResena_sinCompraVerificada_deberiaMarcarlaComoNoVerificada() {
+        // Arrange
+        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ProductoDto.class), any()))
+                .thenReturn(new ResponseEntity<>(productoDto, HttpStatus.OK));
+        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ClienteDto.class), any()))
+                .thenReturn(new ResponseEntity<>(clienteDto, HttpStatus.OK));
+        when(resenaRepository.save(any(Resena.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
-        ServiceResult<List<ResenaProductoDto>> result = resenaService.obtenerResenasPorProducto(1L);
+        ServiceResult<ResenaDto> result = resenaService.crearResena(crearResenaDto);
 
         // Assert
         assertFalse(result.hasErrors());
-        assertEquals(1, result.getData().size());
-        assertEquals("Excelente producto", result.getData().get(0).getComentario());
+        assertFalse(result.getData().getCompraVerificada());
+    }
+
+    @Test
+    void crearResena_exigiendoCompraYSinCompraVerificada_deberiaRechazarla() {
+        // Arrange
+        ReflectionTestUtils.setField(resenaService, "exigirCompra", true);
+
+        // Act
+        ServiceResult<ResenaDto> result = resenaService.crearResena(crearResenaDto);
+
+        // Assert
+        assertTrue(result.hasErrors());
+        assertEquals("Solo los clientes que compraron el producto pueden reseñarlo", result.getErrors().get(0));
+        verifyNoInteractions(microserviceClient);
+        verify(resenaRepository, never()).save(any(Resena.class));
     }
 
     @Test
-    void obtenerTodasResenas_deberiaRetornarTodasLasResenas() {
+    void obtenerResenasPorProducto_deberiaRetornarPrimeraPagina() {
         // Arrange
-        List<Resena> resenas = new ArrayList<>();
-        resenas.add(resena);
+        when(resenaRepository.findByProductoIdOrderByFechaCreacionDescIdDesc(eq(1L), any(Limit.class)))
+                .thenReturn(List.of(resena));
+
+        // Act
+        ServiceResult<PaginaDto<ResenaProductoDto>> result = resenaService.obtenerResenasPorProducto(1L, null, null);
+
+        // Assert
+        assertFalse(result.hasErrors());
+        assertEquals(1, result.getData().getContenido().size());
+        assertEquals("Excelente producto", result.getData().getContenido().get(0).getComentario());
+        assertFalse(result.getData().isHayMas());
+        assertNull(result.getData().getSiguienteCursor());
+        verify(resenaRepository).findByProductoIdOrderByFechaCreacionDescIdDesc(1L, Limit.of(21));
+    }
 
-        when(resenaRepository.findAll()).thenReturn(resenas);
+    @Test
+    void obtenerResenasPorProducto_conMasResenasQueLaPagina_deberiaDevolverCursorDeLaUltima() {
+        // Arrange: se piden 2 y el repositorio devuelve 3, la tercera solo indica que hay más
+        LocalDateTime fecha = LocalDateTime.of(2025, 6, 1, 12, 0);
+        List<Resena> filas = List.of(resenaCon(30L, fecha), resenaCon(20L, fecha), resenaCon(10L, fecha.minusDays(1)));
+        when(resenaRepository.findByProductoIdOrderByFechaCreacionDescIdDesc(1L, Limit.of(3))).thenReturn(filas);
+        when(resenaRepository.findPaginaPorProducto(1L, fecha, 20L, Limit.of(3))).thenReturn(List.of(filas.get(2)));
+
+        // Act
+        PaginaDto<ResenaProductoDto> primera = resenaService.obtenerResenasPorProducto(1L, null, 2).getData();
+        PaginaDto<ResenaProductoDto> segunda = resenaService.obtenerResenasPorProducto(1L, primera.getSiguienteCursor(), 2).getData();
+
+        // Assert
+        assertEquals(List.of(30L, 20L), primera.getContenido().stream().map(ResenaProductoDto::getId).toList());
+        assertTrue(primera.isHayMas());
+        assertEquals(CursorResena.de(fecha, 20L), CursorResena.decodificar(primera.getSiguienteCursor()));
+        assertEquals(List.of(10L), segunda.getContenido().stream().map(ResenaProductoDto::getId).toList());
+        assertFalse(segunda.isHayMas());
+    }
+
+    @Test
+    void obtenerTodasResenas_deberiaRetornarPaginaDeRecientes() {
+        // Arrange
+        when(resenaRepository.findAllByOrderByFechaCreacionDescIdDesc(any(Limit.class))).thenReturn(List.of(resena));
 
         // Act
-        ServiceResult<List<ResenaDto>> result = resenaService.obtenerTodasResenas();
+        ServiceResult<PaginaDto<ResenaDto>> result = resenaService.obtenerTodasResenas(null, 10);
 
         // Assert
         assertFalse(result.hasErrors());
-        assertEquals(1, result.getData().size());
-        assertEquals("Excelente producto", result.getData().get(0).getComentario());
+        assertEquals(1, result.getData().getContenido().size());
+        assertEquals("Excelente producto", result.getData().getContenido().get(0).getComentario());
+        verify(resenaRepository, never()).findAll();
+    }
+
+    @Test
+    void obtenerResenasPorCliente_conCursorInvalido_deberiaRetornarError() {
+        // Act
+        ServiceResult<PaginaDto<ResenaDto>> result = resenaService.obtenerResenasPorCliente(1L, "no-es-un-cursor", null);
+
+        // Assert
+        assertTrue(result.hasErrors());
+        assertEquals("Cursor inválido", result.getErrors().get(0));
+        verifyNoInteractions(resenaRepository);
+    }
+
+    @Test
+    void obtenerTodasResenas_conTamanoFueraDeRango_deberiaRetornarError() {
+        // Act
+        ServiceResult<PaginaDto<ResenaDto>> result = resenaService.obtenerTodasResenas(null, 500);
+
+        // Assert
+        assertTrue(result.hasErrors());
+        assertEquals("El tamaño de página debe estar entre 1 y 100", result.getErrors().get(0));
+        verifyNoInteractions(resenaRepository);
     }
 
     @Test
@@ -253,4 +389,15 @@ public class ResenaServiceTest {
         assertFalse(result.hasErrors());
         assertEquals("Juan Perez", result.getData().getNombre());
     }
-}
\ No newline at end of file
+
+    private static Resena resenaCon(Long id, LocalDateTime fecha) {
+        return Resena.builder()
+                .id(id)
+                .productoId(1L)
+                .clienteId(id)
+                .comentario("Reseña " + id)
+                .calificacion(4)
+                .fechaCreacion(fecha)
+                .build();
+    }
+}
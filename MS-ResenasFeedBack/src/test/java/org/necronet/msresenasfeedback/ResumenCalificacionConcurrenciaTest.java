@@ -0,0 +1,220 @@
+package org.necronet.msresenasfeedback;
+
+import org.app.dto.ServiceResult;
+import org.app.resilience.RemoteLookupExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.necronet.msresenasfeedback.dto.ClienteDto;
+import org.necronet.msresenasfeedback.dto.CrearResenaDto;
+import org.necronet.msresenasfeedback.dto.ProductoDto;
+import org.necronet.msresenasfeedback.dto.ProductoValoradoDto;
+import org.necronet.msresenasfeedback.dto.ResenaDto;
+import org.necronet.msresenasfeedback.dto.ResumenCalificacionDto;
+import org.necronet.msresenasfeedback.model.Resena;
+import org.necronet.msresenasfeedback.model.ResumenCalificacion;
+import org.necronet.msresenasfeedback.repository.ResenaRepository;
+import org.necronet.msresenasfeedback.repository.ResumenCalificacionRepository;
+import org.necronet.msresenasfeedback.service.BusquedaResenaService;
+import org.necronet.msresenasfeedback.service.ComprasVerificadasService;
+import org.necronet.msresenasfeedback.service.ResenaService;
+import org.necronet.msresenasfeedback.service.ResumenCalificacionService;
+import org.necronet.msresenasfeedback.shared.MicroserviceClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba de estrés de los resúmenes de calificación contra una base H2 real: muchas reseñas simultáneas
+ * de los mismos productos y se comprueba que el resumen cuenta todas, sin perder ninguna.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resumenes;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "auth.url.productoMicro=http://productos",
+        "auth.url.clienteMicro=http://clientes",
+        "resenas.ranking.minimoResenas=5"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ResenaService.class, BusquedaResenaService.class, ResumenCalificacionService.class,
+        ResumenCalificacionConcurrenciaTest.ConsultasRemotas.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResumenCalificacionConcurrenciaTest {
+
+    private static final int HILOS = 32;
+
+    @Autowired
+    private ResenaService resenaService;
+
+    @Autowired
+    private ResumenCalificacionService resumenCalificacionService;
+
+    @Autowired
+    private ResenaRepository resenaRepository;
+
+    @Autowired
+    private ResumenCalificacionRepository resumenRepository;
+
+    @MockitoBean
+    private MicroserviceClient microserviceClient;
+
+    // Sin compras verificadas: las altas validan producto y cliente con el MicroserviceClient simulado
+    @MockitoBean
+    private ComprasVerificadasService comprasVerificadasService;
+
+    @BeforeEach
+    void setUp() {
+        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ProductoDto.class), any()))
+                .thenReturn(new ResponseEntity<>(ProductoDto.builder().id(1L).nombre("Perfume").build(), HttpStatus.OK));
+        when(microserviceClient.enviarConToken(anyString(), eq(HttpMethod.GET), isNull(), eq(ClienteDto.class), any()))
+                .thenReturn(new ResponseEntity<>(ClienteDto.builder().id(1L).nombre("Cliente").build(), HttpStatus.OK));
+    }
+
+    @AfterEach
+    void tearDown() {
+        resenaRepository.deleteAll();
+        resumenRepository.deleteAll();
+        resumenCalificacionService.reconstruir();
+    }
+
+    @Test
+    void crearResena_ConcurrenciaSobreLosMismosProductos_NoDebePerderReseñas() throws Exception {
+        // Arrange: 600 reseñas repartidas entre 3 productos, con notas 1..5 en rotación
+        int intentos = 600;
+
+        // Act
+        List<ServiceResult<ResenaDto>> resultados = ejecutarEnParalelo(intentos, i -> resenaService.crearResena(
+                CrearResenaDto.builder()
+                        .productoId((long) (i % 3) + 1)
+                        .clienteId((long) i)
+                        .comentario("Reseña " + i)
+                        .calificacion(i % 5 + 1)
+                        .build()));
+
+        // Assert
+        assertTrue(resultados.stream().noneMatch(ServiceResult::hasErrors));
+        for (long productoId = 1; productoId <= 3; productoId++) {
+            ResumenCalificacionDto resumen = resumenCalificacionService.obtenerResumen(productoId).getData();
+            assertEquals(resenaRepository.findByProductoId(productoId).size(), resumen.getTotalResenas());
+            assertEquals(200, resumen.getTotalResenas());
+            assertEquals(3.0, resumen.getPromedio());
+            for (int nota = 1; nota <= 5; nota++) {
+                assertEquals(40L, resumen.getHistograma().get(nota));
+            }
+        }
+        List<ProductoValoradoDto> mejores = resumenCalificacionService.obtenerMejorValorados(10).getData();
+        assertEquals(3, mejores.size());
+        assertTrue(mejores.stream().allMatch(p -> p.getTotalResenas() == 200));
+    }
+
+    @Test
+    void reconstruir_DebeRecalcularDesdeLasReseñasYCorregirDesvios() {
+        // Arrange: reseñas anteriores a los resúmenes y un resumen desviado
+        guardarResenas(10L, 5, 5, 5, 5, 4, 4);
+        guardarResenas(20L, 1, 2, 3, 3, 3);
+        guardarResenas(30L, 5);
+        resumenRepository.save(ResumenCalificacion.builder().productoId(20L).total(999).suma(999).build());
+
+        // Act
+        int productos = resumenCalificacionService.reconstruir();
+
+        // Assert
+        assertEquals(3, productos);
+        ResumenCalificacionDto diez = resumenCalificacionService.obtenerResumen(10L).getData();
+        assertEquals(6, diez.getTotalResenas());
+        assertEquals(4.67, diez.getPromedio());
+        assertEquals(4L, diez.getHistograma().get(5));
+        assertEquals(2L, diez.getHistograma().get(4));
+        ResumenCalificacionDto veinte = resumenCalificacionService.obtenerResumen(20L).getData();
+        assertEquals(5, veinte.getTotalResenas());
+        assertEquals(2.4, veinte.getPromedio());
+        assertEquals(3L, veinte.getHistograma().get(3));
+
+        // El producto 30 tiene una sola reseña: no llega al mínimo del ranking
+        List<ProductoValoradoDto> mejores = resumenCalificacionService.obtenerMejorValorados(10).getData();
+        assertEquals(List.of(10L, 20L), mejores.stream().map(ProductoValoradoDto::getProductoId).toList());
+    }
+
+    @Test
+    void obtenerResumen_ProductoSinReseñas_DebeDevolverCeros() {
+        ResumenCalificacionDto resumen = resumenCalificacionService.obtenerResumen(404L).getData();
+
+        assertEquals(0, resumen.getTotalResenas());
+        assertEquals(0.0, resumen.getPromedio());
+        assertEquals(5, resumen.getHistograma().size());
+    }
+
+    private void guardarResenas(Long productoId, int... notas) {
+        List<Resena> resenas = new ArrayList<>();
+        for (int i = 0; i < notas.length; i++) {
+            resenas.add(Resena.builder()
+                    .productoId(productoId)
+                    .clienteId((long) i + 1)
+                    .comentario("Reseña " + i)
+                    .calificacion(notas[i])
+                    .fechaCreacion(LocalDateTime.now())
+                    .build());
+        }
+        resenaRepository.saveAll(resenas);
+    }
+
+    private <T> List<T> ejecutarEnParalelo(int intentos, IntFunction<T> tarea) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        try {
+            List<Future<T>> futuros = new ArrayList<>();
+            for (int i = 0; i < intentos; i++) {
+                int intento = i;
+                futuros.add(pool.submit(() -> {
+                    inicio.await();
+                    return tarea.apply(intento);
+                }));
+            }
+            inicio.countDown();
+            List<T> resultados = new ArrayList<>();
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get(60, TimeUnit.SECONDS));
+            }
+            return resultados;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @TestConfiguration
+    static class ConsultasRemotas {
+
+        @Bean(destroyMethod = "close")
+        RemoteLookupExecutor remoteLookupExecutor() {
+            return new RemoteLookupExecutor(4);
+        }
+    }
+}
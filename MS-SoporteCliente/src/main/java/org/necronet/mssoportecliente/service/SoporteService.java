@@ -9,9 +9,11 @@ import org.necronet.mssoportecliente.shared.MicroserviceClient;
 import org.necronet.mssoportecliente.shared.TokenContext;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -178,6 +180,10 @@ public class SoporteService {
                     token
             );
 
+            if (response.getStatusCode() == HttpStatus.NOT_FOUND) {
+                errors.add("Cliente no encontrado");
+                return new ServiceResult<>(errors);
+            }
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
                 errors.add("Error al obtener el cliente: " + response.getStatusCode());
                 return new ServiceResult<>(errors);
@@ -185,6 +191,9 @@ public class SoporteService {
 
             return new ServiceResult<>(response.getBody());
 
+        } catch (HttpClientErrorException.NotFound e) {
+            errors.add("Cliente no encontrado");
+            return new ServiceResult<>(errors);
         } catch (Exception e) {
             errors.add("Excepción al llamar al microservicio de clientes: " + e.getMessage());
             return new ServiceResult<>(errors);
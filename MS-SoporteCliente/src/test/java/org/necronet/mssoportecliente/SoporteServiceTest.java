@@ -138,7 +138,7 @@ public class SoporteServiceTest {
         ServiceResult<TicketSoporteDto> result = soporteService.crearTicket(ticketRequest);
 
         assertTrue(result.hasErrors());
-        assertTrue(result.getErrors().contains("Error DB"));
+        assertTrue(result.getErrors().contains("Error al crear el ticket: Error DB"));
     }
 
 }
@@ -19,6 +19,9 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.POST, "/api/auth/validate-token").permitAll()
                         .requestMatchers("/api/no-auth/**", "/swagger-ui.html",
                                 "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        // Solo la confirmación de compra de MS-Carrito, con su token de servicio
+                        .requestMatchers(HttpMethod.POST, "/api/coupons/redeem",
+                                "/api/coupons/redemptions/*/release").hasAuthority("SCOPE_cupones:canjear")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
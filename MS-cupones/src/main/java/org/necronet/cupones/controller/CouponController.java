@@ -8,11 +8,16 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.RequiredArgsConstructor;
 import org.app.dto.ServiceResult;
 import org.necronet.cupones.dto.CouponDto;
+import org.necronet.cupones.dto.CouponRedemptionDto;
+import org.necronet.cupones.dto.CouponRedemptionRequest;
+import org.necronet.cupones.dto.CouponSnapshotDto;
+import org.necronet.cupones.service.CouponRedemptionService;
 import org.necronet.cupones.service.CouponService;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +32,7 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 public class CouponController {
 
     private final CouponService couponService;
+    private final CouponRedemptionService couponRedemptionService;
 
     @Operation(summary = "Crear un nuevo cupón",
             description = "Crea un cupón con los datos enviados en el cuerpo de la petición")
@@ -106,6 +112,80 @@ public class CouponController {
         return ResponseEntity.ok(resource);
     }
 
+    @Operation(summary = "Snapshot de cupones",
+            description = "Devuelve los cupones activos no expirados para validarlos localmente. " +
+                    "Con sinceVersion devuelve solo los cupones cambiados y los IDs eliminados después de esa versión")
+    @ApiResponse(responseCode = "200", description = "Snapshot generado",
+            content = @Content(schema = @Schema(implementation = CouponSnapshotDto.class)))
+    @GetMapping("/snapshot")
+    public ResponseEntity<?> getSnapshot(
+            @Parameter(description = "Última versión conocida por el cliente; se omite para un snapshot completo")
+            @RequestParam(required = false) Long sinceVersion) {
+        ServiceResult<CouponSnapshotDto> result = couponService.getSnapshot(sinceVersion);
+        if (result.hasErrors()) {
+            return ResponseEntity.internalServerError().body(result);
+        }
+        return ResponseEntity.ok(result.getData());
+    }
+
+    @Operation(summary = "Buscar cupones por prefijo de código",
+            description = "Devuelve los cupones cuyo código empieza con el prefijo indicado, sin distinguir mayúsculas")
+    @ApiResponse(responseCode = "200", description = "Cupones encontrados",
+            content = @Content(schema = @Schema(implementation = ServiceResult.class)))
+    @GetMapping("/search")
+    public ResponseEntity<EntityModel<ServiceResult<List<CouponDto>>>> searchCoupons(
+            @Parameter(description = "Prefijo del código", required = true)
+            @RequestParam String prefix,
+            @Parameter(description = "Máximo de resultados (hasta 100)")
+            @RequestParam(defaultValue = "20") int limit) {
+        ServiceResult<List<CouponDto>> result = couponService.searchByCodePrefix(prefix, limit);
+
+        EntityModel<ServiceResult<List<CouponDto>>> resource = EntityModel.of(result);
+        resource.add(WebMvcLinkBuilder.linkTo(methodOn(CouponController.class).searchCoupons(prefix, limit)).withSelfRel());
+
+        return ResponseEntity.ok(resource);
+    }
+
+    @Operation(summary = "Canjear un cupón",
+            description = "Consume un uso del cupón respetando su límite total y el límite por usuario. " +
+                    "Responde 409 con el motivo si el cupón no se puede canjear")
+    @ApiResponse(responseCode = "200", description = "Cupón canjeado",
+            content = @Content(schema = @Schema(implementation = CouponRedemptionDto.class)))
+    @ApiResponse(responseCode = "409", description = "Cupón inválido o sin usos disponibles",
+            content = @Content(schema = @Schema(implementation = CouponRedemptionDto.class)))
+    @ApiResponse(responseCode = "403", description = "El token no es el de MS-Carrito con scope cupones:canjear")
+    @PostMapping("/redeem")
+    public ResponseEntity<?> redeemCoupon(
+            @RequestBody
+            @Parameter(description = "Código del cupón y usuario que lo canjea", required = true)
+            CouponRedemptionRequest request) {
+        ServiceResult<CouponRedemptionDto> result = couponRedemptionService.redeem(request.getCode(), request.getUserId());
+        if (result.hasErrors()) {
+            return ResponseEntity.internalServerError().body(result);
+        }
+        return result.getData().isRedeemed()
+                ? ResponseEntity.ok(result.getData())
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(result.getData());
+    }
+
+    @Operation(summary = "Liberar un canje",
+            description = "Devuelve el uso consumido por un canje, por ejemplo si la compra no se completó. " +
+                    "Liberar dos veces el mismo canje no devuelve dos usos")
+    @ApiResponse(responseCode = "204", description = "Canje liberado")
+    @ApiResponse(responseCode = "404", description = "Canje no encontrado")
+    @ApiResponse(responseCode = "403", description = "El token no es el de MS-Carrito con scope cupones:canjear")
+    @PostMapping("/redemptions/{redemptionId}/release")
+    public ResponseEntity<?> releaseCoupon(
+            @PathVariable
+            @Parameter(description = "Identificador del canje devuelto al canjear", required = true)
+            String redemptionId) {
+        ServiceResult<Boolean> result = couponRedemptionService.release(redemptionId);
+        if (result.hasErrors()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(summary = "Validar un cupón por código",
             description = "Valida si un cupón está activo y es válido según su código")
     @ApiResponse(responseCode = "200", description = "Cupón válido",
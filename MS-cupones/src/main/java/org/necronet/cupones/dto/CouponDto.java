@@ -22,4 +22,7 @@ public class CouponDto {
     private LocalDateTime validFrom;
     private LocalDateTime validTo;
     private boolean active;
+    private Integer maxUses;
+    private Integer maxUsesPerUser;
+    private Long redeemedCount;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package org.necronet.cupones.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemptionDto {
+    // Identificador del canje; es lo que se envía para liberarlo
+    private String redemptionId;
+    private Long couponId;
+    private String code;
+    private Long userId;
+    private boolean redeemed;
+    // Motivo del rechazo cuando redeemed es false
+    private String reason;
+}
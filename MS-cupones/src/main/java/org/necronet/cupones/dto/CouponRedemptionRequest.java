@@ -0,0 +1,13 @@
+package org.necronet.cupones.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemptionRequest {
+    private String code;
+    private Long userId;
+}
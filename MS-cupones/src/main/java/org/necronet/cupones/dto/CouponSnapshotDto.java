@@ -0,0 +1,21 @@
+package org.necronet.cupones.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Snapshot de cupones para validación local en otros servicios. Con full=true reemplaza todo el snapshot;
+ * si no, trae solo los cupones modificados y los IDs eliminados después de la versión pedida.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponSnapshotDto {
+    private long version;
+    private boolean full;
+    private List<CouponDto> coupons;
+    private List<Long> removedIds;
+}
@@ -2,12 +2,24 @@ package org.necronet.cupones.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "cupones")
+@Table(name = "cupones", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cupones_code_normalized", columnNames = "code_normalized")
+}, indexes = {
+        @Index(name = "idx_cupones_change_version", columnList = "change_version"),
+        // findValidCoupons / findActiveNotExpiredCoupons: igualdad en active y rango en valid_to
+        @Index(name = "idx_cupones_active_valid_to_from", columnList = "active, valid_to, valid_from"),
+        // findCouponsBetweenDates: un índice por cada lado del OR
+        @Index(name = "idx_cupones_valid_from", columnList = "valid_from"),
+        @Index(name = "idx_cupones_valid_to", columnList = "valid_to")
+})
+@DynamicUpdate
 @Getter
 @Setter
 @Builder
@@ -18,12 +30,35 @@ public class Coupon {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String code;
+    // Código en mayúsculas y sin espacios; es el que se busca y el que tiene índice único
+    @Column(name = "code_normalized", length = 64)
+    private String codeNormalized;
     private String description;
     private BigDecimal discountValue;
     private String discountType;
     private LocalDateTime validFrom;
     private LocalDateTime validTo;
     private boolean active;
+    // Límite total de canjes; null = sin límite
+    private Integer maxUses;
+    // Límite de canjes por usuario; null = sin límite
+    private Integer maxUsesPerUser;
+    // Total canjeado según la última conciliación de cupones_contadores (puede ir unos segundos atrasado)
+    @Builder.Default
+    private Long redeemedCount = 0L;
+    // Cantidad de filas en cupones_contadores entre las que se reparte el límite
+    private Integer counterShards;
+    // Versión de cambio: se incrementa en cada alta o modificación para la sincronización incremental
+    @Column(name = "change_version")
+    private Long changeVersion;
 
+    @PrePersist
+    @PreUpdate
+    void normalizeCode() {
+        this.codeNormalized = normalizeCode(code);
+    }
 
+    public static String normalizeCode(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package org.necronet.cupones.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Fila única con la última versión de cambio asignada a cupones y bajas. Quien la incrementa la deja
+ * bloqueada hasta el commit, así que las versiones se confirman en orden y nunca se repiten.
+ */
+@Entity
+@Table(name = "cupones_version")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponChangeVersion {
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+    @Column(name = "current_version", nullable = false)
+    private Long currentVersion;
+}
@@ -0,0 +1,32 @@
+package org.necronet.cupones.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Una porción del contador de canjes de un cupón. El límite total se reparte entre varias filas para que
+ * los canjes concurrentes del mismo código no compitan por un único registro; la suma de capacity nunca
+ * supera maxUses, así que cada fila solo puede consumir su parte.
+ */
+@Entity
+@Table(name = "cupones_contadores", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cupones_contadores_shard", columnNames = {"coupon_id", "shard"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponCounterShard {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+    @Column(nullable = false)
+    private Integer shard;
+    @Column(nullable = false)
+    private Long used;
+    // null = sin límite
+    private Long capacity;
+}
@@ -0,0 +1,30 @@
+package org.necronet.cupones.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de un cupón eliminado, para que los clientes con snapshot local lo quiten
+ * en la siguiente sincronización incremental.
+ */
+@Entity
+@Table(name = "cupones_eliminados", indexes = {
+        @Index(name = "idx_cupones_eliminados_version", columnList = "change_version")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+    @Column(name = "change_version", nullable = false)
+    private Long changeVersion;
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,46 @@
+package org.necronet.cupones.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Un canje concreto de un cupón: qué porción del contador consumió y si consumió un uso del usuario.
+ * Liberar un canje pasa su estado de REDEEMED a RELEASED una sola vez y devuelve exactamente lo que
+ * ese canje consumió.
+ */
+@Entity
+@Table(name = "cupones_canjes", indexes = {
+        @Index(name = "idx_cupones_canjes_coupon", columnList = "coupon_id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponRedemption {
+
+    public enum Status {
+        REDEEMED,
+        RELEASED
+    }
+
+    @Id
+    @Column(length = 36)
+    private String id;
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+    @Column(name = "user_id")
+    private Long userId;
+    @Column(nullable = false)
+    private Integer shard;
+    // true si el canje consumió un uso de cupones_usos_usuario
+    @Column(nullable = false)
+    private boolean userUsageConsumed;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    private LocalDateTime redeemedAt;
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,25 @@
+package org.necronet.cupones.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "cupones_usos_usuario", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cupones_usos_usuario", columnNames = {"coupon_id", "user_id"})
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponUserUsage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    @Column(nullable = false)
+    private Integer uses;
+}
@@ -0,0 +1,22 @@
+package org.necronet.cupones.repository;
+
+import jakarta.persistence.LockModeType;
+import org.necronet.cupones.model.CouponChangeVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CouponChangeVersionRepository extends JpaRepository<CouponChangeVersion, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM CouponChangeVersion v WHERE v.id = :id")
+    Optional<CouponChangeVersion> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT v.currentVersion FROM CouponChangeVersion v WHERE v.id = :id")
+    Optional<Long> findCurrentVersion(@Param("id") Long id);
+}
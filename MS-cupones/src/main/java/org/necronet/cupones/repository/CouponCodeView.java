@@ -0,0 +1,6 @@
+package org.necronet.cupones.repository;
+
+public interface CouponCodeView {
+    Long getId();
+    String getCodeNormalized();
+}
@@ -0,0 +1,39 @@
+package org.necronet.cupones.repository;
+
+import jakarta.persistence.LockModeType;
+import org.necronet.cupones.model.CouponCounterShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CouponCounterShardRepository extends JpaRepository<CouponCounterShard, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CouponCounterShard s WHERE s.couponId = :couponId ORDER BY s.shard")
+    List<CouponCounterShard> findByCouponIdForUpdate(@Param("couponId") Long couponId);
+
+    // Consume un canje de la porción solo si le queda capacidad; devuelve 0 si está agotada
+    @Modifying
+    @Query("UPDATE CouponCounterShard s SET s.used = s.used + 1 " +
+            "WHERE s.couponId = :couponId AND s.shard = :shard AND (s.capacity IS NULL OR s.used < s.capacity)")
+    int consume(@Param("couponId") Long couponId, @Param("shard") int shard);
+
+    @Modifying
+    @Query("UPDATE CouponCounterShard s SET s.used = s.used - 1 " +
+            "WHERE s.couponId = :couponId AND s.shard = :shard AND s.used > 0")
+    int release(@Param("couponId") Long couponId, @Param("shard") int shard);
+
+    @Modifying
+    @Query("DELETE FROM CouponCounterShard s WHERE s.couponId = :couponId")
+    int deleteByCouponId(@Param("couponId") Long couponId);
+
+    @Query("SELECT s.couponId, SUM(s.used) FROM CouponCounterShard s WHERE s.couponId IN :couponIds GROUP BY s.couponId")
+    List<Object[]> sumUsedByCouponIds(@Param("couponIds") Collection<Long> couponIds);
+}
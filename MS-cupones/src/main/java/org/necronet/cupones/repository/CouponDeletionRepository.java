@@ -0,0 +1,15 @@
+package org.necronet.cupones.repository;
+
+import org.necronet.cupones.model.CouponDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CouponDeletionRepository extends JpaRepository<CouponDeletion, Long> {
+    List<CouponDeletion> findByChangeVersionGreaterThan(Long changeVersion);
+    @Query("SELECT COALESCE(MAX(d.changeVersion), 0) FROM CouponDeletion d")
+    long findMaxChangeVersion();
+}
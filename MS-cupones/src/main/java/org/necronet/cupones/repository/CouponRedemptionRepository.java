@@ -0,0 +1,25 @@
+package org.necronet.cupones.repository;
+
+import org.necronet.cupones.model.CouponRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CouponRedemptionRepository extends JpaRepository<CouponRedemption, String> {
+
+    // Solo una liberación concurrente del mismo canje obtiene 1
+    @Modifying
+    @Query("UPDATE CouponRedemption r SET r.status = org.necronet.cupones.model.CouponRedemption.Status.RELEASED, " +
+            "r.releasedAt = :releasedAt " +
+            "WHERE r.id = :id AND r.status = org.necronet.cupones.model.CouponRedemption.Status.REDEEMED")
+    int markReleased(@Param("id") String id, @Param("releasedAt") LocalDateTime releasedAt);
+
+    @Modifying
+    @Query("DELETE FROM CouponRedemption r WHERE r.couponId = :couponId")
+    int deleteByCouponId(@Param("couponId") Long couponId);
+}
@@ -1,7 +1,9 @@
 package org.necronet.cupones.repository;
 
 import org.necronet.cupones.model.Coupon;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,10 +17,27 @@ import java.util.Optional;
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
     Optional<Coupon> findByCode(String code);
     Optional<Coupon> findByCodeIgnoreCase(String code);
+    // Usar con Coupon.normalizeCode: va por el índice único de code_normalized
+    Optional<Coupon> findByCodeNormalized(String codeNormalized);
+    boolean existsByCodeNormalized(String codeNormalized);
+    List<Coupon> findByCodeNormalizedIsNullAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    List<CouponCodeView> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
     List<Coupon> findByActiveTrue();
     List<Coupon> findByValidToBefore(LocalDateTime date);
     @Query("SELECT c FROM Coupon c WHERE c.active = true AND c.validFrom <= :currentDate AND c.validTo >= :currentDate")
     List<Coupon> findValidCoupons(@Param("currentDate") LocalDateTime currentDate);
+    // Igual que findValidCoupons pero incluye los que aún no empiezan: el cliente evalúa validFrom localmente
+    @Query("SELECT c FROM Coupon c WHERE c.active = true AND c.validTo >= :currentDate")
+    List<Coupon> findActiveNotExpiredCoupons(@Param("currentDate") LocalDateTime currentDate);
+    List<Coupon> findByChangeVersionGreaterThan(Long changeVersion);
+    @Query("SELECT COALESCE(MAX(c.changeVersion), 0) FROM Coupon c")
+    long findMaxChangeVersion();
+    @Modifying
+    @Query("UPDATE Coupon c SET c.redeemedCount = :redeemedCount WHERE c.id = :id")
+    int updateRedeemedCount(@Param("id") Long id, @Param("redeemedCount") long redeemedCount);
+    @Modifying
+    @Query("UPDATE Coupon c SET c.counterShards = :counterShards WHERE c.id = :id")
+    int updateCounterShards(@Param("id") Long id, @Param("counterShards") int counterShards);
     List<Coupon> findByDiscountType(String discountType);
     boolean existsByCode(String code);
     List<Coupon> findByDescriptionContainingIgnoreCase(String description);
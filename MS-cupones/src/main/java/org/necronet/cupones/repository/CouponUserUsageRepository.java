@@ -0,0 +1,28 @@
+package org.necronet.cupones.repository;
+
+import org.necronet.cupones.model.CouponUserUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CouponUserUsageRepository extends JpaRepository<CouponUserUsage, Long> {
+
+    boolean existsByCouponIdAndUserId(Long couponId, Long userId);
+
+    @Modifying
+    @Query("UPDATE CouponUserUsage u SET u.uses = u.uses + 1 " +
+            "WHERE u.couponId = :couponId AND u.userId = :userId AND u.uses < :limit")
+    int consume(@Param("couponId") Long couponId, @Param("userId") Long userId, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE CouponUserUsage u SET u.uses = u.uses - 1 " +
+            "WHERE u.couponId = :couponId AND u.userId = :userId AND u.uses > 0")
+    int release(@Param("couponId") Long couponId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CouponUserUsage u WHERE u.couponId = :couponId")
+    int deleteByCouponId(@Param("couponId") Long couponId);
+}
@@ -0,0 +1,69 @@
+package org.necronet.cupones.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.necronet.cupones.model.CouponChangeVersion;
+import org.necronet.cupones.repository.CouponChangeVersionRepository;
+import org.necronet.cupones.repository.CouponDeletionRepository;
+import org.necronet.cupones.repository.CouponRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Versiones de cambio de los cupones. Se toman de una fila única leída con SELECT ... FOR UPDATE en la
+ * transacción del cambio: dos escrituras concurrentes no pueden obtener la misma versión, y una versión
+ * mayor no se confirma antes que una menor, así que quien sincroniza "desde la versión N" no se salta
+ * cambios que seguían en curso cuando leyó N.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CouponChangeVersionService {
+
+    private final CouponChangeVersionRepository changeVersionRepository;
+    private final CouponRepository couponRepository;
+    private final CouponDeletionRepository couponDeletionRepository;
+
+    /**
+     * Crea la fila la primera vez, partiendo de la mayor versión ya usada por cupones y bajas existentes.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (changeVersionRepository.existsById(CouponChangeVersion.SINGLETON_ID)) {
+            return;
+        }
+        long seed = Math.max(couponRepository.findMaxChangeVersion(), couponDeletionRepository.findMaxChangeVersion());
+        try {
+            changeVersionRepository.saveAndFlush(CouponChangeVersion.builder()
+                    .id(CouponChangeVersion.SINGLETON_ID)
+                    .currentVersion(seed)
+                    .build());
+            log.info("Versión de cambio de cupones inicializada en {}", seed);
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la creó al mismo tiempo
+            log.debug("La versión de cambio de cupones ya fue inicializada por otra instancia");
+        }
+    }
+
+    /**
+     * Reserva la siguiente versión. El bloqueo de la fila se mantiene hasta que termina la transacción
+     * del llamador, por eso exige una en curso.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next() {
+        CouponChangeVersion row = changeVersionRepository.findByIdForUpdate(CouponChangeVersion.SINGLETON_ID)
+                .orElseThrow(() -> new IllegalStateException("La versión de cambio de cupones no está inicializada"));
+        row.setCurrentVersion(row.getCurrentVersion() + 1);
+        return row.getCurrentVersion();
+    }
+
+    /**
+     * Última versión confirmada: todo cambio con versión menor o igual ya es visible.
+     */
+    public long current() {
+        return changeVersionRepository.findCurrentVersion(CouponChangeVersion.SINGLETON_ID).orElse(0L);
+    }
+}
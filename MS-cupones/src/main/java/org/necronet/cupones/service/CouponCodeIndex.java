@@ -0,0 +1,180 @@
+package org.necronet.cupones.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponDeletion;
+import org.necronet.cupones.repository.CouponCodeView;
+import org.necronet.cupones.repository.CouponDeletionRepository;
+import org.necronet.cupones.repository.CouponRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice en memoria de códigos normalizados para la búsqueda por prefijo del panel de administración.
+ * Es un mapa ordenado: todos los códigos que empiezan con un prefijo quedan contiguos, así que una
+ * búsqueda cuesta O(log n + resultados) sin recorrer la tabla ni usar LIKE.
+ *
+ * Se construye al arrancar (completando antes code_normalized en cupones antiguos), se actualiza en
+ * cada alta, modificación y baja de esta instancia, y cada refreshMs aplica los cambios hechos por
+ * otras instancias usando las versiones de cambio.
+ *
+ * Los cupones antiguos se normalizan por páginas. Si dos códigos solo se diferencian en mayúsculas o
+ * espacios, conserva el código el cupón más antiguo y los demás se renombran a CODIGO-id (con nueva
+ * versión de cambio, para que los snapshots lo reciban); cualquier otro fallo detiene el arranque en
+ * lugar de dejar cupones que no se pueden buscar.
+ */
+@Slf4j
+@Component
+public class CouponCodeIndex {
+
+    private static final int LOAD_BATCH = 5000;
+    private static final int BACKFILL_BATCH = 500;
+
+    private final CouponRepository couponRepository;
+    private final CouponDeletionRepository couponDeletionRepository;
+    private final CouponChangeVersionService changeVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentSkipListMap<String, Long> idsByCode = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> codesById = new ConcurrentHashMap<>();
+    private volatile long version;
+
+    public CouponCodeIndex(CouponRepository couponRepository, CouponDeletionRepository couponDeletionRepository,
+                           CouponChangeVersionService changeVersionService,
+                           PlatformTransactionManager transactionManager) {
+        this.couponRepository = couponRepository;
+        this.couponDeletionRepository = couponDeletionRepository;
+        this.changeVersionService = changeVersionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        backfillNormalizedCodes();
+
+        long loadedVersion = changeVersionService.current();
+        idsByCode.clear();
+        codesById.clear();
+        long lastId = 0L;
+        List<CouponCodeView> batch;
+        do {
+            batch = couponRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH));
+            for (CouponCodeView view : batch) {
+                put(view.getId(), view.getCodeNormalized());
+                lastId = view.getId();
+            }
+        } while (batch.size() == LOAD_BATCH);
+        version = loadedVersion;
+        log.info("Índice de códigos de cupón cargado: {} códigos, versión {}", idsByCode.size(), loadedVersion);
+    }
+
+    @Scheduled(fixedDelayString = "${cupones.indice.refreshMs:10000}")
+    public void refresh() {
+        long since = version;
+        long latest = changeVersionService.current();
+        if (latest <= since) {
+            return;
+        }
+        for (Coupon coupon : couponRepository.findByChangeVersionGreaterThan(since)) {
+            put(coupon.getId(), coupon.getCodeNormalized());
+        }
+        for (CouponDeletion deletion : couponDeletionRepository.findByChangeVersionGreaterThan(since)) {
+            remove(deletion.getCouponId());
+        }
+        version = latest;
+    }
+
+    public void put(Long id, String codeNormalized) {
+        if (id == null || codeNormalized == null) {
+            return;
+        }
+        String previous = codesById.put(id, codeNormalized);
+        if (previous != null && !previous.equals(codeNormalized)) {
+            idsByCode.remove(previous, id);
+        }
+        idsByCode.put(codeNormalized, id);
+    }
+
+    public void remove(Long id) {
+        String code = codesById.remove(id);
+        if (code != null) {
+            idsByCode.remove(code, id);
+        }
+    }
+
+    /**
+     * IDs de los cupones cuyo código empieza con el prefijo, en orden alfabético de código.
+     */
+    public List<Long> searchPrefix(String prefix, int limit) {
+        String normalized = Coupon.normalizeCode(prefix);
+        List<Long> ids = new ArrayList<>();
+        if (normalized == null || normalized.isEmpty() || limit <= 0) {
+            return ids;
+        }
+        // Todo código con ese prefijo es >= prefijo y < prefijo + el carácter más alto
+        for (Long id : idsByCode.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+            ids.add(id);
+            if (ids.size() == limit) {
+                break;
+            }
+        }
+        return ids;
+    }
+
+    public int size() {
+        return idsByCode.size();
+    }
+
+    private void backfillNormalizedCodes() {
+        int normalized = 0;
+        long lastId = 0L;
+        List<Coupon> page;
+        do {
+            page = couponRepository.findByCodeNormalizedIsNullAndIdGreaterThanOrderByIdAsc(lastId, Limit.of(BACKFILL_BATCH));
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Coupon> current = page;
+            transactionTemplate.executeWithoutResult(status -> normalizePage(current));
+            normalized += page.size();
+            lastId = page.get(page.size() - 1).getId();
+        } while (page.size() == BACKFILL_BATCH);
+        if (normalized > 0) {
+            log.info("Códigos normalizados en {} cupones antiguos", normalized);
+        }
+    }
+
+    private void normalizePage(List<Coupon> page) {
+        Set<String> taken = new HashSet<>();
+        Long renameVersion = null;
+        for (Coupon coupon : page) {
+            String code = Coupon.normalizeCode(coupon.getCode());
+            if (!taken.add(code) || couponRepository.existsByCodeNormalized(code)) {
+                String renamed = coupon.getCode().trim() + "-" + coupon.getId();
+                log.warn("El código del cupón {} ({}) coincide con otro salvo mayúsculas o espacios; se renombra a {}",
+                        coupon.getId(), coupon.getCode(), renamed);
+                if (renameVersion == null) {
+                    renameVersion = changeVersionService.next();
+                }
+                coupon.setCode(renamed);
+                coupon.setChangeVersion(renameVersion);
+                code = Coupon.normalizeCode(renamed);
+                taken.add(code);
+            }
+            coupon.setCodeNormalized(code);
+        }
+        couponRepository.saveAll(page);
+    }
+}
@@ -0,0 +1,321 @@
+package org.necronet.cupones.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.app.dto.ServiceResult;
+import org.necronet.cupones.dto.CouponRedemptionDto;
+import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponCounterShard;
+import org.necronet.cupones.model.CouponRedemption;
+import org.necronet.cupones.model.CouponUserUsage;
+import org.necronet.cupones.repository.CouponCounterShardRepository;
+import org.necronet.cupones.repository.CouponRedemptionRepository;
+import org.necronet.cupones.repository.CouponRepository;
+import org.necronet.cupones.repository.CouponUserUsageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Canje de cupones con límite total y por usuario.
+ *
+ * El límite total se reparte entre varias filas de cupones_contadores: cada canje incrementa una fila
+ * al azar con un UPDATE condicional (used < capacity) y, si esa porción está agotada, prueba las demás.
+ * Como la suma de las capacidades es maxUses, nunca se canjea de más aunque haya varias instancias,
+ * y los canjes concurrentes del mismo código se reparten entre filas en lugar de esperar por una sola.
+ * El límite por usuario usa el mismo UPDATE condicional sobre cupones_usos_usuario, dentro de la misma
+ * transacción. Cada canje queda registrado en cupones_canjes con la porción que consumió; liberarlo
+ * exige ese identificador y devuelve lo consumido una sola vez. El total en cupones.redeemedCount se
+ * concilia en lotes cada reconcileMs.
+ */
+@Slf4j
+@Service
+public class CouponRedemptionService {
+
+    static final String INVALID_COUPON = "Cupón no válido o expirado";
+    static final String LIMIT_REACHED = "El cupón alcanzó su límite de usos";
+    static final String USER_LIMIT_REACHED = "El usuario alcanzó el límite de usos de este cupón";
+    static final String USER_REQUIRED = "Se requiere el usuario para canjear este cupón";
+    static final String REDEMPTION_NOT_FOUND = "Canje no encontrado";
+
+    private static final int RECONCILE_BATCH = 500;
+
+    private final CouponRepository couponRepository;
+    private final CouponCounterShardRepository shardRepository;
+    private final CouponUserUsageRepository userUsageRepository;
+    private final CouponRedemptionRepository redemptionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+    // Cupones agotados recientemente: evita recorrer todas las porciones en cada intento durante una promoción
+    private final Cache<Long, Boolean> exhausted;
+    // Cupones con canjes todavía no conciliados en cupones.redeemedCount
+    private final Set<Long> pendingReconcile = ConcurrentHashMap.newKeySet();
+
+    public CouponRedemptionService(CouponRepository couponRepository,
+                                   CouponCounterShardRepository shardRepository,
+                                   CouponUserUsageRepository userUsageRepository,
+                                   CouponRedemptionRepository redemptionRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${cupones.canje.shards:16}") int shards,
+                                   @Value("${cupones.canje.exhaustedTtlMs:2000}") long exhaustedTtlMs) {
+        this.couponRepository = couponRepository;
+        this.shardRepository = shardRepository;
+        this.userUsageRepository = userUsageRepository;
+        this.redemptionRepository = redemptionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.exhausted = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(exhaustedTtlMs))
+                .build();
+    }
+
+    public ServiceResult<CouponRedemptionDto> redeem(String code, Long userId) {
+        List<String> errors = new ArrayList<>();
+        try {
+            Coupon coupon = couponRepository.findByCodeNormalized(Coupon.normalizeCode(code)).orElse(null);
+            if (coupon == null || !isValidNow(coupon)) {
+                return new ServiceResult<>(rejected(coupon, code, userId, INVALID_COUPON));
+            }
+            if (coupon.getMaxUsesPerUser() != null && userId == null) {
+                return new ServiceResult<>(rejected(coupon, code, userId, USER_REQUIRED));
+            }
+            if (exhausted.getIfPresent(coupon.getId()) != null) {
+                return new ServiceResult<>(rejected(coupon, code, userId, LIMIT_REACHED));
+            }
+
+            int shardCount = coupon.getCounterShards() != null
+                    ? coupon.getCounterShards()
+                    : initializeLegacyShards(coupon);
+            if (coupon.getMaxUsesPerUser() != null) {
+                // La fila se crea fuera de la transacción del canje para no ocupar dos conexiones por petición
+                ensureUserUsage(coupon.getId(), userId);
+            }
+
+            boolean userLimited = coupon.getMaxUsesPerUser() != null;
+            Outcome outcome = transactionTemplate.execute(status -> {
+                if (userLimited && userUsageRepository.consume(coupon.getId(), userId, coupon.getMaxUsesPerUser()) == 0) {
+                    return new Outcome(null, USER_LIMIT_REACHED);
+                }
+                int shard = consumeShard(coupon.getId(), shardCount);
+                if (shard < 0) {
+                    status.setRollbackOnly();
+                    return new Outcome(null, LIMIT_REACHED);
+                }
+                return new Outcome(redemptionRepository.save(CouponRedemption.builder()
+                        .id(UUID.randomUUID().toString())
+                        .couponId(coupon.getId())
+                        .userId(userId)
+                        .shard(shard)
+                        .userUsageConsumed(userLimited)
+                        .status(CouponRedemption.Status.REDEEMED)
+                        .redeemedAt(LocalDateTime.now())
+                        .build()), null);
+            });
+
+            if (outcome.reason() != null) {
+                if (LIMIT_REACHED.equals(outcome.reason())) {
+                    exhausted.put(coupon.getId(), Boolean.TRUE);
+                }
+                return new ServiceResult<>(rejected(coupon, code, userId, outcome.reason()));
+            }
+            pendingReconcile.add(coupon.getId());
+            return new ServiceResult<>(CouponRedemptionDto.builder()
+                    .redemptionId(outcome.redemption().getId())
+                    .couponId(coupon.getId())
+                    .code(coupon.getCode())
+                    .userId(userId)
+                    .redeemed(true)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error al canjear cupón código: {}", code, e);
+            errors.add("Error al canjear el cupón");
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    /**
+     * Devuelve un canje (por ejemplo, si la compra no se pudo completar después de canjear). Solo la
+     * primera liberación de cada canje devuelve el uso; las repetidas responden false sin tocar contadores.
+     */
+    public ServiceResult<Boolean> release(String redemptionId) {
+        List<String> errors = new ArrayList<>();
+        try {
+            CouponRedemption redemption = redemptionId == null
+                    ? null
+                    : redemptionRepository.findById(redemptionId).orElse(null);
+            if (redemption == null) {
+                errors.add(REDEMPTION_NOT_FOUND);
+                return new ServiceResult<>(errors);
+            }
+            Boolean released = transactionTemplate.execute(status -> {
+                if (redemptionRepository.markReleased(redemptionId, LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                shardRepository.release(redemption.getCouponId(), redemption.getShard());
+                if (redemption.isUserUsageConsumed()) {
+                    userUsageRepository.release(redemption.getCouponId(), redemption.getUserId());
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(released)) {
+                exhausted.invalidate(redemption.getCouponId());
+                pendingReconcile.add(redemption.getCouponId());
+            }
+            return new ServiceResult<>(Boolean.TRUE.equals(released));
+        } catch (Exception e) {
+            log.error("Error al liberar el canje {}", redemptionId, e);
+            errors.add("Error al liberar el canje del cupón");
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    /**
+     * Borra los contadores, usos por usuario y canjes de un cupón. Se llama al eliminarlo, dentro de la
+     * misma transacción.
+     */
+    @Transactional
+    public void deleteCounters(Long couponId) {
+        redemptionRepository.deleteByCouponId(couponId);
+        userUsageRepository.deleteByCouponId(couponId);
+        shardRepository.deleteByCouponId(couponId);
+        exhausted.invalidate(couponId);
+        pendingReconcile.remove(couponId);
+    }
+
+    /**
+     * Crea o redimensiona las porciones del contador para que sus capacidades sumen maxUses. Lo ya
+     * canjeado en cada porción se conserva; si el nuevo límite es menor que lo canjeado, quedan agotadas.
+     */
+    @Transactional
+    public void syncShards(Long couponId, Integer maxUses) {
+        List<CouponCounterShard> existing = new ArrayList<>(shardRepository.findByCouponIdForUpdate(couponId));
+        if (existing.isEmpty()) {
+            int count = maxUses == null ? shards : (int) Math.max(1, Math.min(shards, maxUses));
+            for (int i = 0; i < count; i++) {
+                existing.add(CouponCounterShard.builder()
+                        .couponId(couponId)
+                        .shard(i)
+                        .used(0L)
+                        .build());
+            }
+        }
+
+        long used = existing.stream().mapToLong(CouponCounterShard::getUsed).sum();
+        long remaining = maxUses == null ? 0 : Math.max(0, maxUses - used);
+        int count = existing.size();
+        for (int i = 0; i < count; i++) {
+            CouponCounterShard shard = existing.get(i);
+            shard.setCapacity(maxUses == null
+                    ? null
+                    : shard.getUsed() + remaining / count + (i < remaining % count ? 1 : 0));
+        }
+        shardRepository.saveAll(existing);
+        couponRepository.updateCounterShards(couponId, count);
+        exhausted.invalidate(couponId);
+    }
+
+    @Scheduled(fixedDelayString = "${cupones.canje.reconcileMs:5000}")
+    public void reconcileRedeemedCounts() {
+        List<Long> pending = new ArrayList<>();
+        for (Iterator<Long> it = pendingReconcile.iterator(); it.hasNext(); ) {
+            pending.add(it.next());
+            it.remove();
+        }
+
+        for (int from = 0; from < pending.size(); from += RECONCILE_BATCH) {
+            List<Long> batch = pending.subList(from, Math.min(pending.size(), from + RECONCILE_BATCH));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Map<Long, Long> totals = new HashMap<>();
+                    for (Object[] row : shardRepository.sumUsedByCouponIds(batch)) {
+                        totals.put((Long) row[0], ((Number) row[1]).longValue());
+                    }
+                    for (Long couponId : batch) {
+                        couponRepository.updateRedeemedCount(couponId, totals.getOrDefault(couponId, 0L));
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("No se pudo conciliar el total canjeado de {} cupones: {}", batch.size(), e.getMessage());
+                pendingReconcile.addAll(batch);
+            }
+        }
+    }
+
+    // Devuelve la porción consumida, o -1 si todas están agotadas
+    private int consumeShard(Long couponId, int shardCount) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = (start + i) % shardCount;
+            if (shardRepository.consume(couponId, shard) == 1) {
+                return shard;
+            }
+        }
+        return -1;
+    }
+
+    private int initializeLegacyShards(Coupon coupon) {
+        // Cupones creados antes de los contadores: se inicializan en el primer canje
+        try {
+            transactionTemplate.executeWithoutResult(status -> syncShards(coupon.getId(), coupon.getMaxUses()));
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición los creó al mismo tiempo
+        }
+        return couponRepository.findById(coupon.getId())
+                .map(Coupon::getCounterShards)
+                .orElseThrow(() -> new IllegalStateException("Cupón eliminado durante el canje"));
+    }
+
+    private void ensureUserUsage(Long couponId, Long userId) {
+        if (userUsageRepository.existsByCouponIdAndUserId(couponId, userId)) {
+            return;
+        }
+        try {
+            userUsageRepository.save(CouponUserUsage.builder()
+                    .couponId(couponId)
+                    .userId(userId)
+                    .uses(0)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición del mismo usuario la creó al mismo tiempo
+        }
+    }
+
+    private static boolean isValidNow(Coupon coupon) {
+        LocalDateTime now = LocalDateTime.now();
+        return coupon.isActive()
+                && (coupon.getValidFrom() == null || !now.isBefore(coupon.getValidFrom()))
+                && (coupon.getValidTo() == null || !now.isAfter(coupon.getValidTo()));
+    }
+
+    // Canje registrado, o el motivo por el que se rechazó dentro de la transacción
+    private record Outcome(CouponRedemption redemption, String reason) {
+    }
+
+    private static CouponRedemptionDto rejected(Coupon coupon, String code, Long userId, String reason) {
+        return CouponRedemptionDto.builder()
+                .couponId(coupon != null ? coupon.getId() : null)
+                .code(code)
+                .userId(userId)
+                .redeemed(false)
+                .reason(reason)
+                .build();
+    }
+}
@@ -4,23 +4,40 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.app.dto.ServiceResult;
 import org.necronet.cupones.dto.CouponDto;
+import org.necronet.cupones.dto.CouponSnapshotDto;
 import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponDeletion;
+import org.necronet.cupones.repository.CouponDeletionRepository;
 import org.necronet.cupones.repository.CouponRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CouponService {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final CouponRepository couponRepository;
+    private final CouponDeletionRepository couponDeletionRepository;
+    private final CouponRedemptionService couponRedemptionService;
+    private final CouponCodeIndex couponCodeIndex;
+    private final CouponChangeVersionService changeVersionService;
 
+    @Transactional
     public ServiceResult<CouponDto> createCoupon(CouponDto couponDto) {
         List<String> errors = validateCoupon(couponDto);
         if (!errors.isEmpty()) {
@@ -28,6 +45,11 @@ public class CouponService {
         }
 
         try {
+            if (couponRepository.existsByCodeNormalized(Coupon.normalizeCode(couponDto.getCode()))) {
+                errors.add("Ya existe un cupón con el código " + couponDto.getCode());
+                return new ServiceResult<>(errors);
+            }
+
             Coupon coupon = Coupon.builder()
                     .code(couponDto.getCode())
                     .description(couponDto.getDescription())
@@ -36,9 +58,14 @@ public class CouponService {
                     .validFrom(couponDto.getValidFrom())
                     .validTo(couponDto.getValidTo())
                     .active(couponDto.isActive())
+                    .maxUses(couponDto.getMaxUses())
+                    .maxUsesPerUser(couponDto.getMaxUsesPerUser())
+                    .changeVersion(changeVersionService.next())
                     .build();
 
             Coupon savedCoupon = couponRepository.save(coupon);
+            couponRedemptionService.syncShards(savedCoupon.getId(), savedCoupon.getMaxUses());
+            afterCommit(() -> couponCodeIndex.put(savedCoupon.getId(), Coupon.normalizeCode(savedCoupon.getCode())));
             return new ServiceResult<>(convertToDto(savedCoupon));
         } catch (Exception e) {
             log.error("Error al crear cupón", e);
@@ -63,6 +90,7 @@ public class CouponService {
         }
     }
 
+    @Transactional
     public ServiceResult<CouponDto> updateCoupon(Long couponId, CouponDto couponDto) {
         List<String> errors = validateCoupon(couponDto);
         if (!errors.isEmpty()) {
@@ -70,20 +98,32 @@ public class CouponService {
         }
 
         try {
+            boolean codeTaken = couponRepository.findByCodeNormalized(Coupon.normalizeCode(couponDto.getCode()))
+                    .filter(other -> !other.getId().equals(couponId))
+                    .isPresent();
+            if (codeTaken) {
+                errors.add("Ya existe un cupón con el código " + couponDto.getCode());
+                return new ServiceResult<>(errors);
+            }
+
             return couponRepository.findById(couponId)
                     .map(existingCoupon -> {
-                        Coupon updatedCoupon = Coupon.builder()
-                                .id(existingCoupon.getId())
-                                .code(couponDto.getCode())
-                                .description(couponDto.getDescription())
-                                .discountValue(couponDto.getDiscountValue())
-                                .discountType(couponDto.getDiscountType())
-                                .validFrom(couponDto.getValidFrom())
-                                .validTo(couponDto.getValidTo())
-                                .active(couponDto.isActive())
-                                .build();
-
-                        Coupon savedCoupon = couponRepository.save(updatedCoupon);
+                        // Se modifica la entidad cargada: redeemedCount y counterShards los mantienen los
+                        // canjes y, con @DynamicUpdate, el UPDATE solo escribe las columnas cambiadas aquí
+                        existingCoupon.setCode(couponDto.getCode());
+                        existingCoupon.setDescription(couponDto.getDescription());
+                        existingCoupon.setDiscountValue(couponDto.getDiscountValue());
+                        existingCoupon.setDiscountType(couponDto.getDiscountType());
+                        existingCoupon.setValidFrom(couponDto.getValidFrom());
+                        existingCoupon.setValidTo(couponDto.getValidTo());
+                        existingCoupon.setActive(couponDto.isActive());
+                        existingCoupon.setMaxUses(couponDto.getMaxUses());
+                        existingCoupon.setMaxUsesPerUser(couponDto.getMaxUsesPerUser());
+                        existingCoupon.setChangeVersion(changeVersionService.next());
+
+                        Coupon savedCoupon = couponRepository.save(existingCoupon);
+                        couponRedemptionService.syncShards(savedCoupon.getId(), savedCoupon.getMaxUses());
+                        afterCommit(() -> couponCodeIndex.put(savedCoupon.getId(), Coupon.normalizeCode(savedCoupon.getCode())));
                         return new ServiceResult<>(convertToDto(savedCoupon));
                     })
                     .orElseGet(() -> {
@@ -97,11 +137,19 @@ public class CouponService {
         }
     }
 
+    @Transactional
     public ServiceResult<Boolean> deleteCoupon(Long couponId) {
         List<String> errors = new ArrayList<>();
         try {
             if (couponRepository.existsById(couponId)) {
                 couponRepository.deleteById(couponId);
+                couponRedemptionService.deleteCounters(couponId);
+                couponDeletionRepository.save(CouponDeletion.builder()
+                        .couponId(couponId)
+                        .changeVersion(changeVersionService.next())
+                        .deletedAt(LocalDateTime.now())
+                        .build());
+                afterCommit(() -> couponCodeIndex.remove(couponId));
                 return new ServiceResult<>(true);
             }
             errors.add("Cupón no encontrado");
@@ -116,7 +164,7 @@ public class CouponService {
     public ServiceResult<CouponDto> validateCoupon(String code) {
         List<String> errors = new ArrayList<>();
         try {
-            return couponRepository.findByCode(code)
+            return couponRepository.findByCodeNormalized(Coupon.normalizeCode(code))
                     .filter(coupon -> coupon.isActive() &&
                             LocalDateTime.now().isAfter(coupon.getValidFrom()) &&
                             LocalDateTime.now().isBefore(coupon.getValidTo()))
@@ -132,6 +180,88 @@ public class CouponService {
         }
     }
 
+    /**
+     * Snapshot para validación local. Sin versión (o con 0) devuelve todos los cupones activos que no han
+     * expirado; con versión devuelve solo lo creado, modificado o eliminado después de ella. Los cupones
+     * modificados se envían aunque ya no sean válidos, para que el cliente los reemplace.
+     */
+    @Transactional(readOnly = true)
+    public ServiceResult<CouponSnapshotDto> getSnapshot(Long sinceVersion) {
+        List<String> errors = new ArrayList<>();
+        try {
+            // La versión se lee antes que los datos: lo que cambie en medio se vuelve a enviar la próxima vez
+            long version = changeVersionService.current();
+            if (sinceVersion == null || sinceVersion <= 0) {
+                List<CouponDto> coupons = couponRepository.findActiveNotExpiredCoupons(LocalDateTime.now()).stream()
+                        .map(this::convertToDto)
+                        .toList();
+                return new ServiceResult<>(CouponSnapshotDto.builder()
+                        .version(version)
+                        .full(true)
+                        .coupons(coupons)
+                        .removedIds(List.of())
+                        .build());
+            }
+
+            List<CouponDto> coupons = couponRepository.findByChangeVersionGreaterThan(sinceVersion).stream()
+                    .map(this::convertToDto)
+                    .toList();
+            List<Long> removedIds = couponDeletionRepository.findByChangeVersionGreaterThan(sinceVersion).stream()
+                    .map(CouponDeletion::getCouponId)
+                    .toList();
+            return new ServiceResult<>(CouponSnapshotDto.builder()
+                    .version(Math.max(version, sinceVersion))
+                    .full(false)
+                    .coupons(coupons)
+                    .removedIds(removedIds)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error al obtener snapshot de cupones desde versión: {}", sinceVersion, e);
+            errors.add("Error al obtener el snapshot de cupones");
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    /**
+     * Búsqueda por prefijo de código para el panel de administración, resuelta con el índice en memoria.
+     */
+    public ServiceResult<List<CouponDto>> searchByCodePrefix(String prefix, int limit) {
+        List<String> errors = new ArrayList<>();
+        if (prefix == null || prefix.isBlank()) {
+            errors.add("El prefijo de búsqueda es requerido");
+            return new ServiceResult<>(errors);
+        }
+        try {
+            List<Long> ids = couponCodeIndex.searchPrefix(prefix, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS));
+            Map<Long, Coupon> coupons = couponRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Coupon::getId, Function.identity()));
+            // Se respeta el orden alfabético que entrega el índice
+            List<CouponDto> result = ids.stream()
+                    .map(coupons::get)
+                    .filter(Objects::nonNull)
+                    .map(this::convertToDto)
+                    .toList();
+            return new ServiceResult<>(result);
+        } catch (Exception e) {
+            log.error("Error al buscar cupones por prefijo: {}", prefix, e);
+            errors.add("Error al buscar cupones");
+            return new ServiceResult<>(errors);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     public CouponDto convertToDto(Coupon coupon) {
         return CouponDto.builder()
                 .id(coupon.getId())
@@ -142,6 +272,9 @@ public class CouponService {
                 .validFrom(coupon.getValidFrom())
                 .validTo(coupon.getValidTo())
                 .active(coupon.isActive())
+                .maxUses(coupon.getMaxUses())
+                .maxUsesPerUser(coupon.getMaxUsesPerUser())
+                .redeemedCount(coupon.getRedeemedCount())
                 .build();
     }
 
@@ -166,6 +299,14 @@ public class CouponService {
             errors.add("Las fechas de validez son inválidas");
         }
 
+        if (couponDto.getMaxUses() != null && couponDto.getMaxUses() < 1) {
+            errors.add("El límite de usos debe ser mayor que cero");
+        }
+
+        if (couponDto.getMaxUsesPerUser() != null && couponDto.getMaxUsesPerUser() < 1) {
+            errors.add("El límite de usos por usuario debe ser mayor que cero");
+        }
+
         return errors;
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package org.necronet.cupones;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.necronet.cupones.model.CouponDeletion;
+import org.necronet.cupones.repository.CouponChangeVersionRepository;
+import org.necronet.cupones.repository.CouponDeletionRepository;
+import org.necronet.cupones.service.CouponChangeVersionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Versiones de cambio asignadas por muchas transacciones concurrentes contra una base H2 real: ninguna
+ * se repite ni se salta, que es lo que fallaba con MAX(change_version) + 1.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:versiones;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CouponChangeVersionService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponChangeVersionConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private CouponChangeVersionService changeVersionService;
+
+    @Autowired
+    private CouponChangeVersionRepository changeVersionRepository;
+
+    @Autowired
+    private CouponDeletionRepository couponDeletionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        couponDeletionRepository.deleteAll();
+        changeVersionRepository.deleteAll();
+        changeVersionService.initialize();
+    }
+
+    @Test
+    void next_ConcurrentTransactions_ShouldAssignUniqueConsecutiveVersions() throws Exception {
+        long start = changeVersionService.current();
+        int attempts = 2000;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    return transaction.execute(status -> changeVersionService.next());
+                }));
+            }
+            go.countDown();
+            Set<Long> versions = new TreeSet<>();
+            for (Future<Long> future : futures) {
+                versions.add(future.get(60, TimeUnit.SECONDS));
+            }
+
+            assertEquals(attempts, versions.size());
+            assertEquals(start + 1, ((TreeSet<Long>) versions).first());
+            assertEquals(start + attempts, ((TreeSet<Long>) versions).last());
+            assertEquals(start + attempts, changeVersionService.current());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void initialize_ShouldContinueFromHighestExistingVersion() {
+        changeVersionRepository.deleteAll();
+        couponDeletionRepository.save(CouponDeletion.builder()
+                .couponId(9L)
+                .changeVersion(41L)
+                .deletedAt(LocalDateTime.now())
+                .build());
+
+        changeVersionService.initialize();
+        Long next = new TransactionTemplate(transactionManager).execute(status -> changeVersionService.next());
+
+        assertEquals(42L, next);
+    }
+
+    @Test
+    void next_WithoutTransaction_ShouldFail() {
+        assertThrows(Exception.class, () -> changeVersionService.next());
+    }
+}
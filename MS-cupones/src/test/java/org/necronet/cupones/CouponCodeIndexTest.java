@@ -0,0 +1,155 @@
+package org.necronet.cupones;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponDeletion;
+import org.necronet.cupones.repository.CouponCodeView;
+import org.necronet.cupones.repository.CouponDeletionRepository;
+import org.necronet.cupones.repository.CouponRepository;
+import org.necronet.cupones.service.CouponChangeVersionService;
+import org.necronet.cupones.service.CouponCodeIndex;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCodeIndexTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponDeletionRepository couponDeletionRepository;
+
+    @Mock
+    private CouponChangeVersionService changeVersionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CouponCodeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CouponCodeIndex(couponRepository, couponDeletionRepository, changeVersionService,
+                transactionManager);
+    }
+
+    private static CouponCodeView view(Long id, String code) {
+        return new CouponCodeView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCodeNormalized() {
+                return code;
+            }
+        };
+    }
+
+    @Test
+    void searchPrefix_ShouldReturnMatchesInAlphabeticalOrder() {
+        index.put(1L, "SUMMER20");
+        index.put(2L, "SUMMER10");
+        index.put(3L, "SUN5");
+        index.put(4L, "WINTER");
+
+        assertEquals(List.of(2L, 1L), index.searchPrefix("summ", 10));
+        assertEquals(List.of(2L, 1L, 3L), index.searchPrefix(" su", 10));
+        assertEquals(List.of(2L), index.searchPrefix("SU", 1));
+        assertTrue(index.searchPrefix("X", 10).isEmpty());
+        assertTrue(index.searchPrefix("", 10).isEmpty());
+    }
+
+    @Test
+    void put_ShouldReplacePreviousCode_WhenCouponRenamed() {
+        index.put(1L, "SUMMER20");
+
+        index.put(1L, "AUTUMN20");
+
+        assertTrue(index.searchPrefix("SUMMER", 10).isEmpty());
+        assertEquals(List.of(1L), index.searchPrefix("AUT", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void remove_ShouldDropCode() {
+        index.put(1L, "SUMMER20");
+
+        index.remove(1L);
+
+        assertTrue(index.searchPrefix("SUMMER", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void rebuild_ShouldBackfillLegacyCodesAndLoadAll() {
+        Coupon legacy = Coupon.builder().id(7L).code(" promo7 ").build();
+        when(couponRepository.findByCodeNormalizedIsNullAndIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(legacy));
+        when(couponRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(view(3L, "SUMMER20"), view(7L, "PROMO7")));
+
+        index.rebuild();
+
+        verify(couponRepository).saveAll(argThat(coupons ->
+                "PROMO7".equals(coupons.iterator().next().getCodeNormalized())));
+        verify(changeVersionService, never()).next();
+        assertEquals(List.of(7L), index.searchPrefix("pro", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void rebuild_ShouldRenameLegacyCodesThatCollideIgnoringCase() {
+        Coupon first = Coupon.builder().id(4L).code("Promo").build();
+        Coupon second = Coupon.builder().id(9L).code("PROMO ").build();
+        Coupon third = Coupon.builder().id(12L).code("summer20").build();
+        when(couponRepository.findByCodeNormalizedIsNullAndIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(first, second, third));
+        when(couponRepository.existsByCodeNormalized(anyString())).thenReturn(false);
+        when(couponRepository.existsByCodeNormalized("SUMMER20")).thenReturn(true);
+        when(changeVersionService.next()).thenReturn(31L);
+        when(couponRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(List.of());
+
+        index.rebuild();
+
+        assertEquals("PROMO", first.getCodeNormalized());
+        assertNull(first.getChangeVersion());
+        assertEquals("PROMO-9", second.getCodeNormalized());
+        assertEquals(31L, second.getChangeVersion());
+        assertEquals("summer20-12", third.getCode());
+        assertEquals("SUMMER20-12", third.getCodeNormalized());
+        verify(changeVersionService, times(1)).next();
+    }
+
+    @Test
+    void refresh_ShouldApplyChangesAndDeletionsFromOtherInstances() {
+        index.put(1L, "SUMMER20");
+        index.put(2L, "WINTER");
+        when(changeVersionService.current()).thenReturn(5L);
+        when(couponRepository.findByChangeVersionGreaterThan(0L))
+                .thenReturn(List.of(Coupon.builder().id(1L).codeNormalized("SPRING20").build()));
+        when(couponDeletionRepository.findByChangeVersionGreaterThan(0L))
+                .thenReturn(List.of(CouponDeletion.builder().couponId(2L).changeVersion(4L).build()));
+
+        index.refresh();
+
+        assertEquals(List.of(1L), index.searchPrefix("SPR", 10));
+        assertTrue(index.searchPrefix("WIN", 10).isEmpty());
+        assertTrue(index.searchPrefix("SUM", 10).isEmpty());
+    }
+}
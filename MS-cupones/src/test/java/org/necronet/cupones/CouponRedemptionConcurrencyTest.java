@@ -0,0 +1,262 @@
+package org.necronet.cupones;
+
+import org.app.dto.ServiceResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.necronet.cupones.dto.CouponDto;
+import org.necronet.cupones.dto.CouponRedemptionDto;
+import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponCounterShard;
+import org.necronet.cupones.repository.CouponCounterShardRepository;
+import org.necronet.cupones.repository.CouponRedemptionRepository;
+import org.necronet.cupones.repository.CouponRepository;
+import org.necronet.cupones.repository.CouponUserUsageRepository;
+import org.necronet.cupones.service.CouponChangeVersionService;
+import org.necronet.cupones.service.CouponCodeIndex;
+import org.necronet.cupones.service.CouponRedemptionService;
+import org.necronet.cupones.service.CouponService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés del canje de cupones contra una base H2 real: miles de canjes concurrentes del mismo
+ * código y se comprueba que nunca se supera el límite total ni el límite por usuario.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:canjes;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CouponRedemptionService.class, CouponService.class, CouponCodeIndex.class, CouponChangeVersionService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CouponRedemptionConcurrencyTest {
+
+    private static final int THREADS = 64;
+
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponCounterShardRepository shardRepository;
+
+    @Autowired
+    private CouponUserUsageRepository userUsageRepository;
+
+    @Autowired
+    private CouponRedemptionRepository redemptionRepository;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        redemptionRepository.deleteAll();
+        userUsageRepository.deleteAll();
+        shardRepository.deleteAll();
+        couponRepository.deleteAll();
+    }
+
+    @Test
+    void redeem_ThousandsOfConcurrentRedemptions_ShouldNeverExceedMaxUses() throws Exception {
+        Coupon coupon = createCoupon("FLASH", 1000, null);
+        int attempts = 5000;
+
+        List<ServiceResult<CouponRedemptionDto>> results =
+                runConcurrently(attempts, i -> couponRedemptionService.redeem("FLASH", (long) i));
+
+        assertTrue(results.stream().noneMatch(ServiceResult::hasErrors));
+        long redeemed = results.stream().filter(r -> r.getData().isRedeemed()).count();
+        assertEquals(1000, redeemed);
+        assertEquals(1000, totalUsed(coupon.getId()));
+        assertTrue(shardRepository.findAll().stream()
+                .allMatch(s -> s.getUsed() <= s.getCapacity()));
+
+        couponRedemptionService.reconcileRedeemedCounts();
+        assertEquals(1000L, couponRepository.findById(coupon.getId()).orElseThrow().getRedeemedCount());
+    }
+
+    @Test
+    void redeem_ConcurrentRedemptionsBySameUser_ShouldRespectPerUserLimit() throws Exception {
+        Coupon coupon = createCoupon("UNOXPERSONA", null, 2);
+
+        List<ServiceResult<CouponRedemptionDto>> results =
+                runConcurrently(500, i -> couponRedemptionService.redeem("UNOXPERSONA", 42L + (i % 5)));
+
+        assertTrue(results.stream().noneMatch(ServiceResult::hasErrors));
+        long redeemed = results.stream().filter(r -> r.getData().isRedeemed()).count();
+        assertEquals(10, redeemed);
+        assertEquals(10, totalUsed(coupon.getId()));
+    }
+
+    @Test
+    void release_ShouldAllowRedeemingAgainAfterExhaustion() {
+        createCoupon("ULTIMO", 1, 1);
+
+        CouponRedemptionDto first = couponRedemptionService.redeem("ULTIMO", 1L).getData();
+        assertTrue(first.isRedeemed());
+        assertNotNull(first.getRedemptionId());
+        CouponRedemptionDto rejected = couponRedemptionService.redeem("ULTIMO", 2L).getData();
+        assertFalse(rejected.isRedeemed());
+        assertNull(rejected.getRedemptionId());
+        assertEquals("El cupón alcanzó su límite de usos", rejected.getReason());
+
+        assertTrue(couponRedemptionService.release(first.getRedemptionId()).getData());
+
+        assertTrue(couponRedemptionService.redeem("ULTIMO", 2L).getData().isRedeemed());
+    }
+
+    @Test
+    void release_SameRedemptionConcurrently_ShouldReturnTheUseOnlyOnce() throws Exception {
+        Coupon coupon = createCoupon("REINTENTO", 3, 2);
+        couponRedemptionService.redeem("REINTENTO", 1L);
+        String redemptionId = couponRedemptionService.redeem("REINTENTO", 1L).getData().getRedemptionId();
+        couponRedemptionService.redeem("REINTENTO", 2L);
+
+        List<ServiceResult<Boolean>> results =
+                runConcurrently(THREADS, i -> couponRedemptionService.release(redemptionId));
+
+        assertTrue(results.stream().noneMatch(ServiceResult::hasErrors));
+        assertEquals(1, results.stream().filter(ServiceResult::getData).count());
+        assertEquals(2, totalUsed(coupon.getId()));
+        assertEquals(1, userUsageRepository.findAll().stream()
+                .filter(u -> u.getUserId() == 1L)
+                .findFirst().orElseThrow().getUses());
+    }
+
+    @Test
+    void release_UnknownRedemption_ShouldReturnError() {
+        createCoupon("AJENO", 5, null);
+        couponRedemptionService.redeem("AJENO", 1L);
+
+        ServiceResult<Boolean> result = couponRedemptionService.release("no-existe");
+
+        assertTrue(result.hasErrors());
+        assertEquals(1, totalUsed(couponRepository.findAll().get(0).getId()));
+    }
+
+    @Test
+    void deleteCoupon_ShouldRemoveCountersUsagesAndRedemptions() {
+        Coupon coupon = createCoupon("BORRABLE", 10, 2);
+        couponRedemptionService.redeem("BORRABLE", 1L);
+        couponRedemptionService.redeem("BORRABLE", 2L);
+
+        assertFalse(couponService.deleteCoupon(coupon.getId()).hasErrors());
+
+        assertTrue(shardRepository.findAll().isEmpty());
+        assertTrue(userUsageRepository.findAll().isEmpty());
+        assertTrue(redemptionRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void updateCoupon_ShouldNotOverwriteRedeemedCountReconciledMeanwhile() throws Exception {
+        Coupon coupon = createCoupon("EDITABLE", 10, null);
+        CouponDto changes = couponService.convertToDto(coupon);
+        changes.setDescription("Nueva descripción");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // La actualización ya cargó el cupón cuando la conciliación escribe el total en otra transacción
+            couponRepository.findById(coupon.getId()).orElseThrow();
+            try {
+                Executors.newSingleThreadExecutor().submit(() -> new TransactionTemplate(transactionManager)
+                        .executeWithoutResult(s -> couponRepository.updateRedeemedCount(coupon.getId(), 4L)))
+                        .get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            assertFalse(couponService.updateCoupon(coupon.getId(), changes).hasErrors());
+        });
+
+        Coupon updated = couponRepository.findById(coupon.getId()).orElseThrow();
+        assertEquals("Nueva descripción", updated.getDescription());
+        assertEquals(4L, updated.getRedeemedCount());
+    }
+
+    @Test
+    void syncShards_ShouldKeepUsedWhenLimitIsRaised() {
+        Coupon coupon = createCoupon("AMPLIABLE", 3, null);
+        for (long user = 1; user <= 4; user++) {
+            couponRedemptionService.redeem("AMPLIABLE", user);
+        }
+        assertEquals(3, totalUsed(coupon.getId()));
+
+        couponRedemptionService.syncShards(coupon.getId(), 5);
+
+        assertTrue(couponRedemptionService.redeem("AMPLIABLE", 5L).getData().isRedeemed());
+        assertTrue(couponRedemptionService.redeem("AMPLIABLE", 6L).getData().isRedeemed());
+        assertFalse(couponRedemptionService.redeem("AMPLIABLE", 7L).getData().isRedeemed());
+        assertEquals(5, totalUsed(coupon.getId()));
+    }
+
+    private Coupon createCoupon(String code, Integer maxUses, Integer maxUsesPerUser) {
+        Coupon coupon = couponRepository.save(Coupon.builder()
+                .code(code)
+                .description("Prueba de canje")
+                .discountValue(new BigDecimal("10"))
+                .discountType("PERCENTAGE")
+                .validFrom(LocalDateTime.now().minusDays(1))
+                .validTo(LocalDateTime.now().plusDays(1))
+                .active(true)
+                .maxUses(maxUses)
+                .maxUsesPerUser(maxUsesPerUser)
+                .build());
+        couponRedemptionService.syncShards(coupon.getId(), maxUses);
+        return couponRepository.findById(coupon.getId()).orElseThrow();
+    }
+
+    private long totalUsed(Long couponId) {
+        return shardRepository.findAll().stream()
+                .filter(s -> s.getCouponId().equals(couponId))
+                .mapToLong(CouponCounterShard::getUsed)
+                .sum();
+    }
+
+    private <T> List<T> runConcurrently(int attempts, IntFunction<T> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                int attempt = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.apply(attempt);
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -8,8 +8,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.necronet.cupones.dto.CouponDto;
+import org.necronet.cupones.dto.CouponSnapshotDto;
 import org.necronet.cupones.model.Coupon;
+import org.necronet.cupones.model.CouponDeletion;
+import org.necronet.cupones.repository.CouponDeletionRepository;
 import org.necronet.cupones.repository.CouponRepository;
+import org.necronet.cupones.service.CouponChangeVersionService;
+import org.necronet.cupones.service.CouponCodeIndex;
+import org.necronet.cupones.service.CouponRedemptionService;
 import org.necronet.cupones.service.CouponService;
 
 import java.math.BigDecimal;
@@ -19,6 +25,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +34,18 @@ class CouponServiceTest {
     @Mock
     private CouponRepository couponRepository;
 
+    @Mock
+    private CouponDeletionRepository couponDeletionRepository;
+
+    @Mock
+    private CouponRedemptionService couponRedemptionService;
+
+    @Mock
+    private CouponCodeIndex couponCodeIndex;
+
+    @Mock
+    private CouponChangeVersionService changeVersionService;
+
     @InjectMocks
     private CouponService couponService;
 
@@ -122,22 +141,20 @@ class CouponServiceTest {
     @Test
     void updateCoupon_ShouldUpdate_WhenValidInputAndExists() {
         
-        CouponDto updateDto = validCouponDto.builder()
-                .description("Updated description")
-                .build();
+        validCouponDto.setDescription("Updated description");
+        validCoupon.setRedeemedCount(7L);
 
         when(couponRepository.findById(1L)).thenReturn(Optional.of(validCoupon));
-        when(couponRepository.save(any(Coupon.class))).thenReturn(validCoupon.builder()
-                .description("Updated description")
-                .build());
+        when(couponRepository.save(any(Coupon.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         
-        ServiceResult<CouponDto> result = couponService.updateCoupon(1L, updateDto);
+        ServiceResult<CouponDto> result = couponService.updateCoupon(1L, validCouponDto);
 
         
         assertFalse(result.hasErrors());
         assertEquals("Updated description", result.getData().getDescription());
-        verify(couponRepository, times(1)).save(any(Coupon.class));
+        // Se guarda la entidad cargada, no una copia con el total canjeado leído al principio
+        verify(couponRepository, times(1)).save(same(validCoupon));
     }
 
     @Test
@@ -166,6 +183,7 @@ class CouponServiceTest {
         assertFalse(result.hasErrors());
         assertTrue(result.getData());
         verify(couponRepository, times(1)).deleteById(1L);
+        verify(couponRedemptionService).deleteCounters(1L);
     }
 
     @Test
@@ -185,7 +203,7 @@ class CouponServiceTest {
     @Test
     void validateCoupon_ShouldReturnValidCoupon_WhenActiveAndInDateRange() {
         
-        when(couponRepository.findByCode("SUMMER20")).thenReturn(Optional.of(validCoupon));
+        when(couponRepository.findByCodeNormalized("SUMMER20")).thenReturn(Optional.of(validCoupon));
 
         
         ServiceResult<CouponDto> result = couponService.validateCoupon("SUMMER20");
@@ -202,7 +220,7 @@ class CouponServiceTest {
                 .validTo(now.minusDays(1))
                 .build();
 
-        when(couponRepository.findByCode("EXPIRED")).thenReturn(Optional.of(expiredCoupon));
+        when(couponRepository.findByCodeNormalized("EXPIRED")).thenReturn(Optional.of(expiredCoupon));
 
         
         ServiceResult<CouponDto> result = couponService.validateCoupon("EXPIRED");
@@ -220,7 +238,7 @@ class CouponServiceTest {
                 .active(false)
                 .build();
 
-        when(couponRepository.findByCode("INACTIVE")).thenReturn(Optional.of(inactiveCoupon));
+        when(couponRepository.findByCodeNormalized("INACTIVE")).thenReturn(Optional.of(inactiveCoupon));
 
         
         ServiceResult<CouponDto> result = couponService.validateCoupon("INACTIVE");
@@ -234,7 +252,7 @@ class CouponServiceTest {
     @Test
     void validateCoupon_ShouldReturnError_WhenNotFound() {
         
-        when(couponRepository.findByCode("INVALID")).thenReturn(Optional.empty());
+        when(couponRepository.findByCodeNormalized("INVALID")).thenReturn(Optional.empty());
 
         
         ServiceResult<CouponDto> result = couponService.validateCoupon("INVALID");
@@ -245,6 +263,131 @@ class CouponServiceTest {
         assertTrue(result.getErrors().get(0).contains("no válido"));
     }
 
+    @Test
+    void validateCoupon_ShouldIgnoreCaseAndSurroundingSpaces() {
+        when(couponRepository.findByCodeNormalized("SUMMER20")).thenReturn(Optional.of(validCoupon));
+
+        ServiceResult<CouponDto> result = couponService.validateCoupon("  summer20 ");
+
+        assertFalse(result.hasErrors());
+        assertEquals(1L, result.getData().getId());
+    }
+
+    @Test
+    void createCoupon_ShouldReturnError_WhenCodeExistsWithDifferentCase() {
+        when(couponRepository.existsByCodeNormalized("SUMMER20")).thenReturn(true);
+        validCouponDto.setCode("Summer20");
+
+        ServiceResult<CouponDto> result = couponService.createCoupon(validCouponDto);
+
+        assertTrue(result.hasErrors());
+        assertTrue(result.getErrors().get(0).contains("Ya existe"));
+        verify(couponRepository, never()).save(any());
+    }
+
+    @Test
+    void createCoupon_ShouldAddCodeToIndex() {
+        when(couponRepository.save(any(Coupon.class))).thenReturn(validCoupon);
+
+        couponService.createCoupon(validCouponDto);
+
+        verify(couponCodeIndex).put(1L, "SUMMER20");
+    }
+
+    @Test
+    void updateCoupon_ShouldReturnError_WhenCodeBelongsToAnotherCoupon() {
+        Coupon other = Coupon.builder().id(2L).code("SUMMER20").build();
+        when(couponRepository.findByCodeNormalized("SUMMER20")).thenReturn(Optional.of(other));
+
+        ServiceResult<CouponDto> result = couponService.updateCoupon(1L, validCouponDto);
+
+        assertTrue(result.hasErrors());
+        assertTrue(result.getErrors().get(0).contains("Ya existe"));
+        verify(couponRepository, never()).save(any());
+    }
+
+    @Test
+    void deleteCoupon_ShouldRemoveCodeFromIndex() {
+        when(couponRepository.existsById(1L)).thenReturn(true);
+
+        couponService.deleteCoupon(1L);
+
+        verify(couponCodeIndex).remove(1L);
+    }
+
+    @Test
+    void searchByCodePrefix_ShouldReturnCouponsInIndexOrder() {
+        Coupon summer10 = Coupon.builder().id(2L).code("SUMMER10").active(true).build();
+        when(couponCodeIndex.searchPrefix("sum", 20)).thenReturn(List.of(2L, 1L));
+        when(couponRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(validCoupon, summer10));
+
+        ServiceResult<List<CouponDto>> result = couponService.searchByCodePrefix("sum", 20);
+
+        assertFalse(result.hasErrors());
+        assertEquals(List.of("SUMMER10", "SUMMER20"), result.getData().stream().map(CouponDto::getCode).toList());
+    }
+
+    @Test
+    void searchByCodePrefix_ShouldReturnError_WhenPrefixBlank() {
+        ServiceResult<List<CouponDto>> result = couponService.searchByCodePrefix(" ", 20);
+
+        assertTrue(result.hasErrors());
+        verifyNoInteractions(couponCodeIndex);
+    }
+
+    @Test
+    void createCoupon_ShouldAssignNextChangeVersion() {
+        when(changeVersionService.next()).thenReturn(10L);
+        when(couponRepository.save(any(Coupon.class))).thenReturn(validCoupon);
+
+        couponService.createCoupon(validCouponDto);
+
+        verify(couponRepository).save(argThat(coupon -> coupon.getChangeVersion() == 10L));
+    }
+
+    @Test
+    void deleteCoupon_ShouldRecordDeletionWithNextVersion() {
+        when(couponRepository.existsById(1L)).thenReturn(true);
+        when(changeVersionService.next()).thenReturn(5L);
+
+        couponService.deleteCoupon(1L);
+
+        verify(couponDeletionRepository).save(argThat(deletion ->
+                deletion.getCouponId() == 1L && deletion.getChangeVersion() == 5L));
+    }
+
+    @Test
+    void getSnapshot_ShouldReturnFullSnapshot_WhenNoVersion() {
+        when(changeVersionService.current()).thenReturn(12L);
+        when(couponRepository.findActiveNotExpiredCoupons(any(LocalDateTime.class))).thenReturn(List.of(validCoupon));
+
+        ServiceResult<CouponSnapshotDto> result = couponService.getSnapshot(null);
+
+        assertFalse(result.hasErrors());
+        assertTrue(result.getData().isFull());
+        assertEquals(12L, result.getData().getVersion());
+        assertEquals("SUMMER20", result.getData().getCoupons().get(0).getCode());
+        verify(couponRepository, never()).findByChangeVersionGreaterThan(any());
+    }
+
+    @Test
+    void getSnapshot_ShouldReturnChangesAndDeletions_WhenVersionGiven() {
+        Coupon expired = Coupon.builder().id(2L).code("OLD10").active(false).changeVersion(14L).build();
+        when(changeVersionService.current()).thenReturn(14L);
+        when(couponRepository.findByChangeVersionGreaterThan(12L)).thenReturn(List.of(expired));
+        when(couponDeletionRepository.findByChangeVersionGreaterThan(12L))
+                .thenReturn(List.of(CouponDeletion.builder().couponId(3L).changeVersion(13L).build()));
+
+        ServiceResult<CouponSnapshotDto> result = couponService.getSnapshot(12L);
+
+        assertFalse(result.hasErrors());
+        assertFalse(result.getData().isFull());
+        assertEquals(14L, result.getData().getVersion());
+        assertEquals("OLD10", result.getData().getCoupons().get(0).getCode());
+        assertEquals(List.of(3L), result.getData().getRemovedIds());
+        verify(couponRepository, never()).findActiveNotExpiredCoupons(any());
+    }
+
     @Test
     void convertToDto_ShouldConvertCorrectly() {
         
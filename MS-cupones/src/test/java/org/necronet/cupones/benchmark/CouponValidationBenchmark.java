@@ -0,0 +1,104 @@
+package org.necronet.cupones.benchmark;
+
+import org.necronet.cupones.CuponesApplication;
+import org.necronet.cupones.repository.CouponRepository;
+import org.necronet.cupones.service.CouponCodeIndex;
+import org.necronet.cupones.service.CouponService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * validateCoupon con 1M de cupones en H2 en memoria.
+ *
+ * buscarPorCodigoSinIndice es la consulta de antes (WHERE code = ?, columna sin índice, recorre la tabla);
+ * validarCupon es validateCoupon actual, que busca por code_normalized con índice único. Los códigos se
+ * consultan en minúsculas para ejercitar la normalización. buscarPorPrefijo mide la búsqueda del panel de
+ * administración contra el índice en memoria.
+ *
+ * Ejecutar con: mvn test-compile y luego el main de esta clase con el classpath de test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CouponValidationBenchmark {
+
+    private static final int COUPONS = 1_000_000;
+
+    private ConfigurableApplicationContext context;
+    private CouponRepository couponRepository;
+    private CouponService couponService;
+    private CouponCodeIndex couponCodeIndex;
+
+    @Setup
+    public void setUp() {
+        // Como argumentos de línea de comandos para que tengan prioridad sobre application.yml
+        context = new SpringApplicationBuilder(CuponesApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--logging.level.root=WARN");
+
+        // Un INSERT ... SELECT en lugar de saveAll: sembrar 1M de entidades por JPA tarda minutos
+        context.getBean(JdbcTemplate.class).execute("""
+                INSERT INTO cupones (id, code, code_normalized, description, discount_value, discount_type,
+                                     valid_from, valid_to, active, redeemed_count, change_version)
+                SELECT X, 'CUP' || LPAD(X, 7, '0'), 'CUP' || LPAD(X, 7, '0'), 'Benchmark', 10, 'PERCENTAGE',
+                       DATEADD('DAY', -1, CURRENT_TIMESTAMP), DATEADD('DAY', 30, CURRENT_TIMESTAMP),
+                       MOD(X, 10) <> 0, 0, 0
+                FROM SYSTEM_RANGE(1, %d)
+                """.formatted(COUPONS));
+
+        couponRepository = context.getBean(CouponRepository.class);
+        couponService = context.getBean(CouponService.class);
+        couponCodeIndex = context.getBean(CouponCodeIndex.class);
+        couponCodeIndex.rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private static String randomCode() {
+        return "cup" + String.format(Locale.ROOT, "%07d", ThreadLocalRandom.current().nextInt(1, COUPONS + 1));
+    }
+
+    @Benchmark
+    public Object buscarPorCodigoSinIndice() {
+        return couponRepository.findByCode(randomCode().toUpperCase(Locale.ROOT));
+    }
+
+    @Benchmark
+    public Object validarCupon() {
+        return couponService.validateCoupon(randomCode());
+    }
+
+    @Benchmark
+    public Object buscarPorPrefijo() {
+        // Prefijo de 6 caracteres: ~1000 coincidencias, se devuelven las primeras 20
+        return couponCodeIndex.searchPrefix(randomCode().substring(0, 6), 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CouponValidationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
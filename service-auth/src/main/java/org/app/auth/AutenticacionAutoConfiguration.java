@@ -0,0 +1,38 @@
+package org.app.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registra la verificación local de tokens y la cache de validaciones remotas en los servicios que dependen
+ * de service-auth. Las propiedades son las mismas que leía cada servicio: auth.app.jwtSecret y auth.cache.*.
+ * Los servicios que reciben llamadas de otros servicios configuran además auth.servicio.jwtSecret para que
+ * TokenServicioVerifier acepte sus tokens; cada emisor declara su propio TokenServicio con su sujeto y alcance.
+ */
+@AutoConfiguration
+public class AutenticacionAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtTokenVerifier jwtTokenVerifier(@Value("${auth.app.jwtSecret:}") String jwtSecret) {
+        return new JwtTokenVerifier(jwtSecret);
+    }
+
+    // Como MeterBinder, Actuator publica sus métricas cache.* sin registrarla a mano
+    @Bean
+    @ConditionalOnMissingBean
+    public ValidatedTokenCache validatedTokenCache(@Value("${auth.cache.maxSize:10000}") long maxSize,
+                                                   @Value("${auth.cache.ttlMs:300000}") long ttlMs,
+                                                   @Value("${auth.cache.negativeTtlMs:30000}") long negativeTtlMs) {
+        return new ValidatedTokenCache(maxSize, ttlMs, negativeTtlMs);
+    }
+
+    // Sin auth.servicio.jwtSecret no acepta ningún token y los endpoints con scope responden 401/403
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenServicioVerifier tokenServicioVerifier(@Value("${auth.servicio.jwtSecret:}") String jwtSecret) {
+        return new TokenServicioVerifier(jwtSecret);
+    }
+}
@@ -0,0 +1,58 @@
+package org.app.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Verifica localmente la firma HS256 y la expiración de los tokens emitidos por MS-Authenticacion,
+ * evitando la llamada remota a /api/auth/validate-token en cada request.
+ */
+public class JwtTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenVerifier.class);
+
+    private final JwtParser parser;
+
+    public JwtTokenVerifier(String jwtSecret) {
+        if (StringUtils.hasText(jwtSecret)) {
+            this.parser = Jwts.parser().verifyWith(getSigningKey(jwtSecret)).build();
+        } else {
+            logger.warn("auth.app.jwtSecret no configurado, la validación local de tokens queda deshabilitada");
+            this.parser = null;
+        }
+    }
+
+    // Misma derivación de clave que JwtUtils.getSigningKey en MS-Authenticacion
+    public static SecretKey getSigningKey(String jwtSecret) {
+        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
+
+    public boolean isEnabled() {
+        return parser != null;
+    }
+
+    /**
+     * Devuelve los claims del token, o null si la firma no es válida, el token está mal formado o expiró.
+     */
+    public Claims verify(String token) {
+        if (parser == null || !StringUtils.hasText(token)) {
+            return null;
+        }
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Token rechazado en validación local: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.app.auth;
+
+import io.jsonwebtoken.Jwts;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Token propio de un servicio para llamar a otro sin una petición de usuario detrás (tareas programadas,
+ * entregas del outbox). Se firma con auth.servicio.jwtSecret, que solo conocen los servicios que se llaman
+ * entre sí y no MS-Authenticacion, así que ningún token de usuario pasa por uno de servicio ni al revés. El
+ * claim scope dice qué puede hacer y el destino lo exige por endpoint (TokenServicioVerifier). Se reutiliza
+ * hasta que le queda menos de un minuto de vida.
+ */
+public class TokenServicio {
+
+    private static final Duration VIGENCIA = Duration.ofMinutes(10);
+    private static final Duration RENOVACION = Duration.ofMinutes(1);
+
+    private final SecretKey clave;
+    private final String sujeto;
+    private final String alcance;
+    private String token;
+    private Instant expiracion = Instant.MIN;
+
+    /**
+     * @param alcance uno o más permisos separados por espacio, por ejemplo "compras:leer"
+     */
+    public TokenServicio(String jwtSecret, String sujeto, String alcance) {
+        this.clave = StringUtils.hasText(jwtSecret) ? JwtTokenVerifier.getSigningKey(jwtSecret) : null;
+        this.sujeto = sujeto;
+        this.alcance = alcance;
+    }
+
+    /**
+     * @return el token, o null si auth.servicio.jwtSecret no está configurado
+     */
+    public synchronized String obtener() {
+        if (clave == null) {
+            return null;
+        }
+        Instant ahora = Instant.now();
+        if (token == null || ahora.plus(RENOVACION).isAfter(expiracion)) {
+            expiracion = ahora.plus(VIGENCIA);
+            token = Jwts.builder()
+                    .subject(sujeto)
+                    .claim("scope", alcance)
+                    .issuedAt(Date.from(ahora))
+                    .expiration(Date.from(expiracion))
+                    .signWith(clave, Jwts.SIG.HS256)
+                    .compact();
+        }
+        return token;
+    }
+}
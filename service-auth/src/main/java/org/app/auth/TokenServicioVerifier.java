@@ -0,0 +1,58 @@
+package org.app.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verifica los tokens que los servicios emiten para llamarse entre sí (TokenServicio). Se firman con
+ * auth.servicio.jwtSecret, que MS-Authenticacion no conoce, así que un token de usuario nunca pasa esta
+ * verificación; además deben traer el claim scope con lo que el servicio tiene permitido.
+ */
+public class TokenServicioVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenServicioVerifier.class);
+
+    private final JwtParser parser;
+
+    public TokenServicioVerifier(String jwtSecret) {
+        if (StringUtils.hasText(jwtSecret)) {
+            this.parser = Jwts.parser().verifyWith(JwtTokenVerifier.getSigningKey(jwtSecret)).build();
+        } else {
+            logger.info("auth.servicio.jwtSecret no configurado, no se aceptan tokens de servicio");
+            this.parser = null;
+        }
+    }
+
+    /**
+     * Devuelve los claims de un token de servicio válido con scope, o null en cualquier otro caso.
+     */
+    public Claims verify(String token) {
+        if (parser == null || !StringUtils.hasText(token)) {
+            return null;
+        }
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            return StringUtils.hasText(claims.get("scope", String.class)) ? claims : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Permisos del token como autoridades de Spring Security: "compras:leer" pasa a "SCOPE_compras:leer".
+     */
+    public static List<String> autoridades(Claims claims) {
+        return Arrays.stream(claims.get("scope", String.class).split(" "))
+                .filter(StringUtils::hasText)
+                .map(alcance -> "SCOPE_" + alcance)
+                .toList();
+    }
+}
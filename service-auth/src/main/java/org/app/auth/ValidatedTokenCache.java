@@ -0,0 +1,135 @@
+package org.app.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache acotada de resultados de validación remota de tokens. La clave es el SHA-256 del token y cada
+ * entrada vence en el exp del propio token o en el TTL configurado, lo que ocurra primero. Los tokens
+ * rechazados se guardan con un TTL corto para no repetir la llamada a MS-Authenticacion. Como MeterBinder,
+ * Actuator publica aciertos, fallos y desalojos como métricas cache.* con la etiqueta cache=auth.tokens.
+ */
+public class ValidatedTokenCache implements MeterBinder {
+
+    static final String NOMBRE_METRICAS = "auth.tokens";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private record Entrada(boolean valido, long ttlNanos) {
+    }
+
+    private final Cache<String, Entrada> cache;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+
+    public ValidatedTokenCache(long maxSize, long ttlMs, long negativeTtlMs) {
+        this(maxSize, ttlMs, negativeTtlMs, Ticker.systemTicker());
+    }
+
+    ValidatedTokenCache(long maxSize, long ttlMs, long negativeTtlMs, Ticker ticker) {
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entrada>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entrada value, long currentTime) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entrada value, long currentTime, long currentDuration) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entrada value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Devuelve TRUE/FALSE si hay un resultado vigente para el token, o null si hay que consultar a MS-Authenticacion.
+     */
+    public Boolean get(String token) {
+        Entrada entrada = cache.getIfPresent(hash(token));
+        return entrada != null ? entrada.valido() : null;
+    }
+
+    public void putValid(String token) {
+        long ttl = ttlMs;
+        Long expMs = obtenerExpiracionMs(token);
+        if (expMs != null) {
+            ttl = Math.min(ttl, expMs - System.currentTimeMillis());
+        }
+        if (ttl > 0) {
+            cache.put(hash(token), new Entrada(true, TimeUnit.MILLISECONDS.toNanos(ttl)));
+        }
+    }
+
+    public void putInvalid(String token) {
+        if (negativeTtlMs > 0) {
+            cache.put(hash(token), new Entrada(false, TimeUnit.MILLISECONDS.toNanos(negativeTtlMs)));
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, NOMBRE_METRICAS);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    // Lee el claim exp sin verificar la firma: solo se usa después de que MS-Authenticacion aceptó el token
+    private static Long obtenerExpiracionMs(String token) {
+        String[] partes = token.split("\\.");
+        if (partes.length < 2) {
+            return null;
+        }
+        try {
+            JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(partes[1]));
+            JsonNode exp = payload.get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
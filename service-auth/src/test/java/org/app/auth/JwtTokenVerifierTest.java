@@ -0,0 +1,66 @@
+package org.app.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenVerifierTest {
+
+    private static final String JWT_SECRET = "9ab67789df495410c1798fea3ccb00fb8816221312a10b4e00a874a7e4b46960cd8495067622053e6e6ad36addae12c4308921ad8ba01ab23ce2f5bfc1936691ce66bec658cca86526e52e6f337276e5900817fff24fbf04124c3d26a51b364966360da1b4b1eb0a6e6d99988fe21637cbbfb5b092e1ff2a894d658b422ff98ae57f16798286a1d3535052f4f81093a0a80dd3fcc2f6f3516d021f07f824ec809b5868bc439e578a4c82253c02abb0364412a3cc2a86845a91ad2a11285299a594c04815467df481d2a2a0af7f92a61456259ae79789ca4263ea83d017d85169464178dc34f044a2daafd5ad5e325dc7a55ce4cb7fdcfeba0c9c8d90f05a31e6";
+
+    private final JwtTokenVerifier verifier = new JwtTokenVerifier(JWT_SECRET);
+
+    private String firmar(SecretKey key, long expiraEnMs) {
+        return Jwts.builder()
+                .subject("admin")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + expiraEnMs))
+                .signWith(key, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    @Test
+    void verify_deberiaRetornarClaimsParaTokenValido() {
+        String token = firmar(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET)), 60_000);
+
+        Claims claims = verifier.verify(token);
+
+        assertNotNull(claims);
+        assertEquals("admin", claims.getSubject());
+    }
+
+    @Test
+    void verify_deberiaRechazarTokenExpirado() {
+        String token = firmar(Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET)), -60_000);
+
+        assertNull(verifier.verify(token));
+    }
+
+    @Test
+    void verify_deberiaRechazarTokenConOtraFirma() {
+        String token = firmar(Jwts.SIG.HS256.key().build(), 60_000);
+
+        assertNull(verifier.verify(token));
+    }
+
+    @Test
+    void verify_deberiaRechazarTokenMalFormado() {
+        assertNull(verifier.verify("no-es-un-jwt"));
+        assertNull(verifier.verify(""));
+    }
+
+    @Test
+    void isEnabled_deberiaSerFalseSinSecreto() {
+        JwtTokenVerifier sinSecreto = new JwtTokenVerifier("");
+
+        assertFalse(sinSecreto.isEnabled());
+        assertNull(sinSecreto.verify("cualquier.token.valor"));
+    }
+}
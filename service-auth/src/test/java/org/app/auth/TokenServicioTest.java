@@ -0,0 +1,58 @@
+package org.app.auth;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServicioTest {
+
+    private static final String SECRETO_USUARIOS = "9ab67789df495410c1798fea3ccb00fb8816221312a10b4e00a874a7e4b46960" +
+            "cd8495067622053e6e6ad36addae12c4308921ad8ba01ab23ce2f5bfc1936691";
+    private static final String SECRETO_SERVICIOS = "b7a07839f40714deab40ca5b02ad06eab318a94ad4c011c60e77a77dc0100df2" +
+            "46506fb04c0f58fd899d6fb9919419ff4bfa2a3e62e4da981da2612c16b4d944";
+
+    private final TokenServicioVerifier verifier = new TokenServicioVerifier(SECRETO_SERVICIOS);
+
+    @Test
+    void obtener_deberiaEmitirUnTokenConSujetoYAlcancesQueElVerificadorAcepta() {
+        TokenServicio tokenServicio = new TokenServicio(SECRETO_SERVICIOS, "ms-pago", "carritos:confirmar otro:permiso");
+
+        Claims claims = verifier.verify(tokenServicio.obtener());
+
+        assertNotNull(claims);
+        assertEquals("ms-pago", claims.getSubject());
+        assertEquals(List.of("SCOPE_carritos:confirmar", "SCOPE_otro:permiso"), TokenServicioVerifier.autoridades(claims));
+    }
+
+    @Test
+    void obtener_deberiaReutilizarElTokenMientrasSigaVigente() {
+        TokenServicio tokenServicio = new TokenServicio(SECRETO_SERVICIOS, "ms-pago", "carritos:confirmar");
+
+        assertSame(tokenServicio.obtener(), tokenServicio.obtener());
+    }
+
+    @Test
+    void verify_deberiaRechazarUnTokenFirmadoConElSecretoDeUsuarios() {
+        // Aunque imite el sujeto y el alcance de un servicio
+        TokenServicio falso = new TokenServicio(SECRETO_USUARIOS, "ms-pago", "carritos:confirmar");
+
+        assertNull(verifier.verify(falso.obtener()));
+        assertNotNull(new JwtTokenVerifier(SECRETO_USUARIOS).verify(falso.obtener()));
+    }
+
+    @Test
+    void verify_deberiaRechazarUnTokenDeServicioSinAlcance() {
+        TokenServicio sinAlcance = new TokenServicio(SECRETO_SERVICIOS, "ms-pago", " ");
+
+        assertNull(verifier.verify(sinAlcance.obtener()));
+    }
+
+    @Test
+    void sinSecreto_noDeberiaEmitirNiAceptarTokens() {
+        assertNull(new TokenServicio("", "ms-pago", "carritos:confirmar").obtener());
+        assertNull(new TokenServicioVerifier("").verify("cualquier.token.valor"));
+    }
+}
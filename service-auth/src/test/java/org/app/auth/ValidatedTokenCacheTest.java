@@ -0,0 +1,119 @@
+package org.app.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidatedTokenCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private ValidatedTokenCache nuevaCache(long maxSize) {
+        return new ValidatedTokenCache(maxSize, 60_000, 5_000, nanos::get);
+    }
+
+    // Solo el payload importa para la cache; la firma no se verifica aquí
+    private static String tokenConExp(long expSegundos) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"sub\":\"admin\",\"exp\":" + expSegundos + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        return header + "." + payload + ".firma";
+    }
+
+    private void avanzar(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void get_deberiaRetornarNullSiNoHayEntrada() {
+        ValidatedTokenCache cache = nuevaCache(100);
+
+        assertNull(cache.get(tokenConExp(System.currentTimeMillis() / 1000 + 3600)));
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void putValid_deberiaVencerAlCumplirseElTtl() {
+        ValidatedTokenCache cache = nuevaCache(100);
+        String token = tokenConExp(System.currentTimeMillis() / 1000 + 3600);
+
+        cache.putValid(token);
+        assertEquals(Boolean.TRUE, cache.get(token));
+
+        avanzar(60_001);
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void putValid_deberiaVencerEnElExpDelTokenSiEsAntesQueElTtl() {
+        ValidatedTokenCache cache = nuevaCache(100);
+        String token = tokenConExp(System.currentTimeMillis() / 1000 + 10);
+
+        cache.putValid(token);
+        assertEquals(Boolean.TRUE, cache.get(token));
+
+        avanzar(11_000);
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void putValid_noDeberiaGuardarTokenYaExpirado() {
+        ValidatedTokenCache cache = nuevaCache(100);
+        String token = tokenConExp(System.currentTimeMillis() / 1000 - 10);
+
+        cache.putValid(token);
+
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void putInvalid_deberiaGuardarRechazoConTtlNegativo() {
+        ValidatedTokenCache cache = nuevaCache(100);
+        String token = tokenConExp(System.currentTimeMillis() / 1000 + 3600);
+
+        cache.putInvalid(token);
+        assertEquals(Boolean.FALSE, cache.get(token));
+        assertEquals(1, cache.stats().hitCount());
+
+        avanzar(5_001);
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void cache_deberiaRespetarElTamanoMaximo() {
+        ValidatedTokenCache cache = nuevaCache(10);
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+
+        for (int i = 0; i < 100; i++) {
+            cache.putValid(tokenConExp(exp + i));
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.stats().evictionCount() >= 90);
+    }
+
+    @Test
+    void bindTo_deberiaPublicarAciertosYFallosEnMicrometer() {
+        ValidatedTokenCache cache = nuevaCache(100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        String token = tokenConExp(System.currentTimeMillis() / 1000 + 3600);
+
+        cache.get(token);
+        cache.putValid(token);
+        cache.get(token);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "auth.tokens").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "auth.tokens").tag("result", "miss")
+                .functionCounter().count());
+    }
+}
@@ -0,0 +1,30 @@
+package org.app.diagnostico;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registra el monitor de hilos virtuales y GET /api/diagnostico/hilos en los servicios web que dependen de
+ * service-diagnostics, sin que cada uno tenga que escanear este paquete.
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DiagnosticoAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public HilosVirtualesMonitor hilosVirtualesMonitor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtuales,
+            @Value("${hilos.virtuales.umbralFijacionMs:20}") long umbralFijacionMs) {
+        return new HilosVirtualesMonitor(virtuales, umbralFijacionMs);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public DiagnosticoController diagnosticoController(HilosVirtualesMonitor hilosVirtualesMonitor) {
+        return new DiagnosticoController(hilosVirtualesMonitor);
+    }
+}
@@ -0,0 +1,36 @@
+package org.app.diagnostico;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/diagnostico")
+@Tag(name = "Diagnóstico", description = "Estado de ejecución del servicio")
+public class DiagnosticoController {
+
+    private final HilosVirtualesMonitor hilosVirtualesMonitor;
+
+    public DiagnosticoController(HilosVirtualesMonitor hilosVirtualesMonitor) {
+        this.hilosVirtualesMonitor = hilosVirtualesMonitor;
+    }
+
+    @Operation(
+            summary = "Diagnóstico de hilos",
+            description = "Modo de ejecución de las peticiones (plataforma o virtual) y fijaciones de hilos virtuales a su portador detectadas con JFR"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumen de hilos obtenido")
+    })
+    @GetMapping("/hilos")
+    public ResponseEntity<Map<String, Object>> obtenerDiagnosticoHilos() {
+        return ResponseEntity.ok(hilosVirtualesMonitor.getResumen());
+    }
+}
@@ -0,0 +1,130 @@
+package org.app.diagnostico;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Diagnóstico de hilos virtuales fijados a su hilo portador (pinning). En Java 21 un hilo virtual que se
+ * bloquea dentro de un bloque synchronized o de una llamada nativa no libera al portador, y con tantos
+ * portadores como núcleos unas pocas fijaciones largas frenan todo el servicio. Con
+ * spring.threads.virtual.enabled se escucha el evento jdk.VirtualThreadPinned de JFR, se cuentan las
+ * fijaciones por el primer frame fuera del JDK y se registra en el log la primera vez que aparece cada uno.
+ * Lo registra {@link DiagnosticoAutoConfiguration} en cada servicio que incluye esta librería.
+ */
+public class HilosVirtualesMonitor {
+
+    static final String EVENTO_FIJADO = "jdk.VirtualThreadPinned";
+    private static final int MAX_ORIGENES = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(HilosVirtualesMonitor.class);
+
+    private final boolean virtuales;
+    private final Duration umbral;
+    private final AtomicLong fijaciones = new AtomicLong();
+    private final AtomicLong duracionMaximaNanos = new AtomicLong();
+    private final Map<String, AtomicLong> porOrigen = new ConcurrentHashMap<>();
+    private volatile RecordingStream stream;
+
+    public HilosVirtualesMonitor(boolean virtuales, long umbralFijacionMs) {
+        this.virtuales = virtuales;
+        this.umbral = Duration.ofMillis(umbralFijacionMs);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!virtuales) {
+            return;
+        }
+        try {
+            RecordingStream nuevo = new RecordingStream();
+            nuevo.enable(EVENTO_FIJADO).withThreshold(umbral).withStackTrace();
+            nuevo.onEvent(EVENTO_FIJADO, evento -> registrar(origen(evento.getStackTrace()), evento.getDuration()));
+            nuevo.startAsync();
+            stream = nuevo;
+            logger.info("Hilos virtuales activos; se registran fijaciones de más de {} ms", umbral.toMillis());
+        } catch (RuntimeException e) {
+            // JFR deshabilitado en la JVM (-XX:-FlightRecorder): el servicio funciona igual, sin diagnóstico
+            logger.warn("No se pudo iniciar el diagnóstico de hilos virtuales fijados: {}", e.getMessage());
+        }
+    }
+
+    void registrar(String origen, Duration duracion) {
+        fijaciones.incrementAndGet();
+        duracionMaximaNanos.accumulateAndGet(duracion.toNanos(), Math::max);
+
+        AtomicLong contador = porOrigen.get(origen);
+        if (contador == null && porOrigen.size() < MAX_ORIGENES) {
+            AtomicLong nuevo = new AtomicLong();
+            contador = porOrigen.putIfAbsent(origen, nuevo);
+            if (contador == null) {
+                contador = nuevo;
+                logger.warn("Hilo virtual fijado a su portador durante {} ms en {}", duracion.toMillis(), origen);
+            }
+        }
+        if (contador != null) {
+            contador.incrementAndGet();
+        }
+    }
+
+    static String origen(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "desconocido";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String clase = frame.getMethod().getType().getName();
+            if (!clase.startsWith("java.") && !clase.startsWith("jdk.") && !clase.startsWith("sun.")) {
+                return describir(frame);
+            }
+        }
+        return describir(stackTrace.getFrames().get(0));
+    }
+
+    private static String describir(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    public Map<String, Object> getResumen() {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        Map<String, Long> origenes = new LinkedHashMap<>();
+        porOrigen.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, AtomicLong> e) -> e.getValue().get()).reversed())
+                .forEach(e -> origenes.put(e.getKey(), e.getValue().get()));
+
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("modo", virtuales ? "virtual" : "plataforma");
+        resumen.put("diagnosticoActivo", stream != null);
+        resumen.put("umbralFijacionMs", umbral.toMillis());
+        resumen.put("fijaciones", fijaciones.get());
+        resumen.put("duracionMaximaMs", Duration.ofNanos(duracionMaximaNanos.get()).toMillis());
+        resumen.put("origenes", origenes);
+        // ThreadMXBean solo cuenta hilos de plataforma: con hilos virtuales debería quedarse cerca del número de portadores
+        resumen.put("hilosPlataforma", hilos.getThreadCount());
+        resumen.put("hilosPlataformaMaximo", hilos.getPeakThreadCount());
+        return resumen;
+    }
+
+    public long getFijaciones() {
+        return fijaciones.get();
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.app.diagnostico;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HilosVirtualesMonitorTest {
+
+    private HilosVirtualesMonitor monitor;
+
+    @AfterEach
+    void tearDown() {
+        if (monitor != null) {
+            monitor.detener();
+        }
+    }
+
+    @Test
+    void iniciar_deberiaDetectarFijacionDentroDeSynchronized() throws Exception {
+        monitor = new HilosVirtualesMonitor(true, 10);
+        monitor.iniciar();
+        Object lock = new Object();
+
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join();
+
+        // JFR entrega los eventos al stream en bloques, aproximadamente una vez por segundo
+        long limite = System.currentTimeMillis() + 10_000;
+        while (monitor.getFijaciones() == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(100);
+        }
+
+        assertEquals(1, monitor.getFijaciones());
+        @SuppressWarnings("unchecked")
+        Map<String, Long> origenes = (Map<String, Long>) monitor.getResumen().get("origenes");
+        assertTrue(origenes.keySet().stream().anyMatch(origen -> origen.startsWith(HilosVirtualesMonitorTest.class.getName())),
+                () -> "Origenes: " + origenes);
+    }
+
+    @Test
+    void registrar_deberiaAgruparPorOrigenYGuardarLaMaxima() {
+        monitor = new HilosVirtualesMonitor(true, 20);
+
+        monitor.registrar("com.app.Lento.metodo:10", Duration.ofMillis(30));
+        monitor.registrar("com.app.Lento.metodo:10", Duration.ofMillis(80));
+        monitor.registrar("com.app.Otro.metodo:5", Duration.ofMillis(25));
+
+        Map<String, Object> resumen = monitor.getResumen();
+        assertEquals("virtual", resumen.get("modo"));
+        assertEquals(3L, resumen.get("fijaciones"));
+        assertEquals(80L, resumen.get("duracionMaximaMs"));
+        assertEquals(Map.of("com.app.Lento.metodo:10", 2L, "com.app.Otro.metodo:5", 1L), resumen.get("origenes"));
+        assertEquals("com.app.Lento.metodo:10",
+                ((Map<?, ?>) resumen.get("origenes")).keySet().iterator().next());
+    }
+
+    @Test
+    void iniciar_noDeberiaEscucharEnModoPlataforma() {
+        monitor = new HilosVirtualesMonitor(false, 20);
+        monitor.iniciar();
+
+        Map<String, Object> resumen = monitor.getResumen();
+        assertEquals("plataforma", resumen.get("modo"));
+        assertEquals(false, resumen.get("diagnosticoActivo"));
+    }
+}
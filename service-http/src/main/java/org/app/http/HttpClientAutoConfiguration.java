@@ -0,0 +1,27 @@
+package org.app.http;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Registra el HttpClientFactory en los servicios que dependen de service-http. Las propiedades son las mismas
+ * que leía cada servicio: http.client.*. Cada servicio sigue declarando su RestTemplate a partir de la fábrica.
+ */
+@AutoConfiguration
+public class HttpClientAutoConfiguration {
+
+    // Como MeterBinder, Actuator publica sus métricas httpcomponents.httpclient.pool.* sin registrarla a mano
+    @Bean
+    @ConditionalOnMissingBean
+    public HttpClientFactory httpClientFactory(@Value("${http.client.maxTotal:200}") int maxTotal,
+                                               @Value("${http.client.maxPerRoute:50}") int maxPerRoute,
+                                               @Value("${http.client.connectTimeoutMs:2000}") long connectTimeoutMs,
+                                               @Value("${http.client.readTimeoutMs:5000}") long readTimeoutMs,
+                                               @Value("${http.client.poolTimeoutMs:2000}") long poolTimeoutMs,
+                                               @Value("${http.client.keepAliveMs:30000}") long keepAliveMs) {
+        return new HttpClientFactory(maxTotal, maxPerRoute, connectTimeoutMs, readTimeoutMs, poolTimeoutMs,
+                keepAliveMs);
+    }
+}
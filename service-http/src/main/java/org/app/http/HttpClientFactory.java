@@ -0,0 +1,86 @@
+package org.app.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+/**
+ * Fábrica compartida de clientes HTTP para las llamadas entre microservicios: pool de conexiones por host
+ * con keep-alive y timeouts de conexión/lectura, en lugar del SimpleClientHttpRequestFactory por defecto.
+ * Como MeterBinder, Actuator publica el estado del pool (conexiones leased y available, peticiones en espera
+ * y máximo) como métricas httpcomponents.httpclient.pool.* con la etiqueta httpclient=microservicios.
+ */
+public class HttpClientFactory implements MeterBinder {
+
+    static final String NOMBRE_METRICAS = "microservicios";
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientFactory.class);
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final HttpComponentsClientHttpRequestFactory requestFactory;
+
+    public HttpClientFactory(int maxTotal, int maxPerRoute, long connectTimeoutMs, long readTimeoutMs,
+                             long poolTimeoutMs, long keepAliveMs) {
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                // Tomcat no envía Keep-Alive: timeout, así que se fija un máximo propio
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMs))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+                .build();
+
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    public RestTemplate createRestTemplate() {
+        return new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, NOMBRE_METRICAS).bindTo(registry);
+    }
+
+    // Spring lo invoca al cerrar el contexto: es el destroyMethod inferido del @Bean
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Error al cerrar el pool de conexiones HTTP: {}", e.getMessage());
+        }
+    }
+}
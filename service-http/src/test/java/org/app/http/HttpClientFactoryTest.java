@@ -0,0 +1,103 @@
+package org.app.http;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientFactoryTest {
+
+    private HttpServer server;
+    private HttpClientFactory factory;
+    private final Set<InetSocketAddress> conexiones = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> {
+            conexiones.add(exchange.getRemoteAddress());
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.createContext("/lento", exchange -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        factory = new HttpClientFactory(10, 5, 500, 200, 500, 30_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.close();
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void createRestTemplate_deberiaReutilizarLaConexion() {
+        RestTemplate restTemplate = factory.createRestTemplate();
+
+        for (int i = 0; i < 20; i++) {
+            ResponseEntity<String> response = restTemplate.getForEntity(url("/ok"), String.class);
+            assertEquals("ok", response.getBody());
+        }
+
+        assertEquals(1, conexiones.size());
+    }
+
+    @Test
+    void bindTo_deberiaPublicarElEstadoDelPoolEnMicrometer() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        factory.bindTo(registry);
+        RestTemplate restTemplate = factory.createRestTemplate();
+
+        for (int i = 0; i < 20; i++) {
+            restTemplate.getForEntity(url("/ok"), String.class);
+        }
+
+        assertEquals(0.0, conexiones(registry, "leased"));
+        assertEquals(1.0, conexiones(registry, "available"));
+        assertEquals(0.0, registry.get("httpcomponents.httpclient.pool.total.pending")
+                .tag("httpclient", HttpClientFactory.NOMBRE_METRICAS).gauge().value());
+        assertEquals(10.0, registry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", HttpClientFactory.NOMBRE_METRICAS).gauge().value());
+        assertEquals(5.0, registry.get("httpcomponents.httpclient.pool.route.max.default")
+                .tag("httpclient", HttpClientFactory.NOMBRE_METRICAS).gauge().value());
+    }
+
+    private static double conexiones(SimpleMeterRegistry registry, String estado) {
+        return registry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", HttpClientFactory.NOMBRE_METRICAS).tag("state", estado).gauge().value();
+    }
+
+    @Test
+    void createRestTemplate_deberiaCortarPorTimeoutDeLectura() {
+        RestTemplate restTemplate = factory.createRestTemplate();
+
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForEntity(url("/lento"), String.class));
+    }
+}
@@ -0,0 +1,250 @@
+package org.app.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Protección común para las llamadas entre microservicios. Cada destino (un servicio hermano) tiene su
+ * propio circuit breaker, su bulkhead y su timeout, de modo que un servicio lento o caído agota solo su
+ * cupo de llamadas y no los hilos de todas las peticiones que lo usan.
+ *
+ * Una llamada idempotente corre en un hilo virtual y quien la pide espera como mucho timeoutMs; al vencer,
+ * el intento se interrumpe, lo que cierra su conexión. Con hedgeMs configurado se lanza un segundo intento
+ * si el primero tarda más de hedgeMs y el bulkhead le da un lugar propio; gana la primera respuesta
+ * correcta y el otro intento se cancela.
+ *
+ * Las que no son idempotentes (reservar stock, canjear un cupón, confirmar una compra) no tienen timeout
+ * propio ni segundo intento: cortarlas antes de la respuesta no deshace lo que el destino ya haya aplicado,
+ * y quien llama la daría por fallida. Corren en el hilo de quien llama y las acota el timeout de lectura
+ * del cliente HTTP.
+ *
+ * Qué excepciones cuentan como fallo del destino lo decide el predicado recibido: normalmente un 4xx es
+ * un error de quien llama y no debe abrir el circuito.
+ */
+public class ClienteResiliente implements AutoCloseable {
+
+    private final ConfiguracionResiliencia configuracion;
+    private final Predicate<Throwable> esFalloDelDestino;
+    private final Map<String, Destino> destinos = new ConcurrentHashMap<>();
+    private final ExecutorService llamadas = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llamada-remota-", 1).factory());
+
+    public ClienteResiliente(ConfiguracionResiliencia configuracion, Predicate<Throwable> esFalloDelDestino) {
+        this.configuracion = configuracion;
+        this.esFalloDelDestino = esFalloDelDestino;
+    }
+
+    /**
+     * Nombre del destino a partir de la URL: el recurso tras /api/ (http://host:9015/api/productos/get/1 es
+     * "productos"), o host:puerto si la ruta no sigue esa forma.
+     */
+    public static String destinoDe(String url) {
+        int inicioRuta = url.indexOf('/', url.indexOf("://") + 3);
+        String autoridad = inicioRuta < 0 ? url.substring(url.indexOf("://") + 3) : url.substring(url.indexOf("://") + 3, inicioRuta);
+        if (inicioRuta >= 0 && url.startsWith("/api/", inicioRuta)) {
+            int inicio = inicioRuta + "/api/".length();
+            int fin = inicio;
+            while (fin < url.length() && "/?#".indexOf(url.charAt(fin)) < 0) {
+                fin++;
+            }
+            if (fin > inicio) {
+                return url.substring(inicio, fin);
+            }
+        }
+        return autoridad;
+    }
+
+    public <T> T ejecutar(String destino, boolean idempotente, Supplier<T> llamada) {
+        Destino d = destinos.computeIfAbsent(destino, this::crearDestino);
+        if (!d.circuito.tryAcquirePermission()) {
+            throw new DependenciaNoDisponibleException(destino, DependenciaNoDisponibleException.Motivo.CIRCUITO_ABIERTO);
+        }
+        if (!d.bulkhead.tryAcquirePermission()) {
+            d.circuito.releasePermission();
+            d.rechazosBulkhead.increment();
+            throw new DependenciaNoDisponibleException(destino, DependenciaNoDisponibleException.Motivo.BULKHEAD_LLENO);
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            T resultado = invocar(d, idempotente, llamada);
+            d.circuito.onSuccess(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            d.circuito.onError(System.nanoTime() - inicio, TimeUnit.NANOSECONDS, e);
+            throw e;
+        } finally {
+            d.bulkhead.onComplete();
+        }
+    }
+
+    private <T> T invocar(Destino d, boolean idempotente, Supplier<T> llamada) {
+        if (!idempotente) {
+            return llamada.get();
+        }
+        PoliticaResiliencia politica = d.politica;
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(politica.getTimeoutMs());
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        AtomicInteger intentosVivos = new AtomicInteger(1);
+        List<Future<?>> intentos = new ArrayList<>(2);
+        intentos.add(lanzar(d, llamada, resultado, intentosVivos, false));
+        boolean conHedge = false;
+
+        try {
+            if (politica.getHedgeMs() > 0 && politica.getHedgeMs() < politica.getTimeoutMs()) {
+                try {
+                    return resultado.get(politica.getHedgeMs(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // El segundo intento ocupa su propio lugar en el bulkhead hasta que quien llama deja de
+                    // esperar; si no queda lugar se sigue esperando solo al primero
+                    if (d.bulkhead.tryAcquirePermission()) {
+                        conHedge = true;
+                        intentosVivos.incrementAndGet();
+                        d.hedgesLanzados.increment();
+                        intentos.add(lanzar(d, llamada, resultado, intentosVivos, true));
+                    }
+                }
+            }
+            return resultado.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            d.timeouts.increment();
+            throw new DependenciaNoDisponibleException(d.nombre, DependenciaNoDisponibleException.Motivo.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependenciaNoDisponibleException(d.nombre, DependenciaNoDisponibleException.Motivo.INTERRUMPIDA);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            intentos.forEach(intento -> intento.cancel(true));
+            if (conHedge) {
+                d.bulkhead.onComplete();
+            }
+        }
+    }
+
+    private <T> Future<?> lanzar(Destino d, Supplier<T> llamada, CompletableFuture<T> resultado,
+                                 AtomicInteger intentosVivos, boolean hedge) {
+        return llamadas.submit(() -> {
+            try {
+                T valor = llamada.get();
+                if (resultado.complete(valor) && hedge) {
+                    d.hedgesGanados.increment();
+                }
+            } catch (Throwable e) {
+                // Solo falla la llamada si fallaron todos los intentos
+                if (intentosVivos.decrementAndGet() == 0) {
+                    resultado.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private Destino crearDestino(String nombre) {
+        PoliticaResiliencia politica = configuracion.politica(nombre);
+        CircuitBreaker circuito = CircuitBreaker.of(nombre, CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(politica.getVentana())
+                .minimumNumberOfCalls(politica.getLlamadasMinimas())
+                .failureRateThreshold(politica.getUmbralFallos())
+                .slowCallDurationThreshold(Duration.ofMillis(politica.getLlamadaLentaMs()))
+                .slowCallRateThreshold(politica.getUmbralLentas())
+                .waitDurationInOpenState(Duration.ofMillis(politica.getEsperaAbiertoMs()))
+                .permittedNumberOfCallsInHalfOpenState(politica.getLlamadasSemiAbierto())
+                // Un error de quien llama no cuenta ni como fallo ni como éxito del destino
+                .ignoreException(e -> !esFalloDelDestino.test(e))
+                .build());
+        Bulkhead bulkhead = Bulkhead.of(nombre, BulkheadConfig.custom()
+                .maxConcurrentCalls(politica.getMaxConcurrentes())
+                .maxWaitDuration(Duration.ofMillis(politica.getEsperaBulkheadMs()))
+                .build());
+        return new Destino(nombre, politica, circuito, bulkhead);
+    }
+
+    /**
+     * Estado y contadores de cada destino usado desde el arranque, ordenados por nombre.
+     */
+    public Map<String, Map<String, Object>> metricas() {
+        Map<String, Map<String, Object>> metricas = new TreeMap<>();
+        destinos.forEach((nombre, destino) -> metricas.put(nombre, destino.metricas()));
+        return metricas;
+    }
+
+    public Map<String, Object> metricas(String destino) {
+        Destino d = destinos.get(destino);
+        return d != null ? d.metricas() : null;
+    }
+
+    @Override
+    public void close() {
+        llamadas.shutdownNow();
+    }
+
+    private static final class Destino {
+
+        private final String nombre;
+        private final PoliticaResiliencia politica;
+        private final CircuitBreaker circuito;
+        private final Bulkhead bulkhead;
+        private final LongAdder rechazosBulkhead = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder hedgesLanzados = new LongAdder();
+        private final LongAdder hedgesGanados = new LongAdder();
+
+        private Destino(String nombre, PoliticaResiliencia politica, CircuitBreaker circuito, Bulkhead bulkhead) {
+            this.nombre = nombre;
+            this.politica = politica;
+            this.circuito = circuito;
+            this.bulkhead = bulkhead;
+        }
+
+        private Map<String, Object> metricas() {
+            CircuitBreaker.Metrics metricasCircuito = circuito.getMetrics();
+            Map<String, Object> metricas = new LinkedHashMap<>();
+            metricas.put("estado", circuito.getState().name());
+            // -1 mientras no haya llamadasMinimas en la ventana
+            metricas.put("tasaFallos", metricasCircuito.getFailureRate());
+            metricas.put("tasaLentas", metricasCircuito.getSlowCallRate());
+            metricas.put("exitosas", metricasCircuito.getNumberOfSuccessfulCalls());
+            metricas.put("fallidas", metricasCircuito.getNumberOfFailedCalls());
+            metricas.put("lentas", metricasCircuito.getNumberOfSlowCalls());
+            metricas.put("rechazosCircuito", metricasCircuito.getNumberOfNotPermittedCalls());
+            metricas.put("rechazosBulkhead", rechazosBulkhead.sum());
+            metricas.put("enCurso", bulkhead.getMetrics().getMaxAllowedConcurrentCalls()
+                    - bulkhead.getMetrics().getAvailableConcurrentCalls());
+            metricas.put("maxConcurrentes", bulkhead.getMetrics().getMaxAllowedConcurrentCalls());
+            metricas.put("timeouts", timeouts.sum());
+            metricas.put("timeoutMs", politica.getTimeoutMs());
+            metricas.put("hedgeMs", politica.getHedgeMs());
+            metricas.put("hedgesLanzados", hedgesLanzados.sum());
+            metricas.put("hedgesGanados", hedgesGanados.sum());
+            return metricas;
+        }
+    }
+}
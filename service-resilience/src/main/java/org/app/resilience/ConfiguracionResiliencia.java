@@ -0,0 +1,34 @@
+package org.app.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Política por defecto y políticas por destino. Un destino con entrada propia usa solo esa entrada:
+ * lo que no se indique en ella toma el valor por defecto de PoliticaResiliencia, no el de "defecto".
+ */
+public class ConfiguracionResiliencia {
+
+    private PoliticaResiliencia defecto = new PoliticaResiliencia();
+    private Map<String, PoliticaResiliencia> destinos = new LinkedHashMap<>();
+
+    public PoliticaResiliencia getDefecto() {
+        return defecto;
+    }
+
+    public void setDefecto(PoliticaResiliencia defecto) {
+        this.defecto = defecto;
+    }
+
+    public Map<String, PoliticaResiliencia> getDestinos() {
+        return destinos;
+    }
+
+    public void setDestinos(Map<String, PoliticaResiliencia> destinos) {
+        this.destinos = destinos;
+    }
+
+    public PoliticaResiliencia politica(String destino) {
+        return destinos.getOrDefault(destino, defecto);
+    }
+}
@@ -0,0 +1,137 @@
+package org.app.resilience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Ámbito para lanzar en paralelo consultas remotas independientes dentro de una petición y esperarlas
+ * juntas. Una misma dependencia e ID se consulta una sola vez mientras el ámbito está abierto, aunque se
+ * pida varias veces. El contexto de la petición (el token) lo propaga el executor, normalmente un
+ * {@link RemoteLookupExecutor} creado con el propagador del servicio.
+ *
+ * Se usa con try-with-resources: al cerrar, las consultas que aún no empezaron se cancelan y se espera a
+ * las que están en curso, de modo que ninguna sobrevive a la petición. No se comparte entre peticiones.
+ */
+public class ConsultasParalelas implements AutoCloseable {
+
+    private final Executor executor;
+    private final Map<String, CompletableFuture<?>> consultas = new ConcurrentHashMap<>();
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private volatile boolean cerrado;
+
+    public ConsultasParalelas(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Lanza la consulta, o devuelve la ya lanzada si la misma dependencia e ID se pidió antes en este ámbito.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Consulta<V> iniciar(String dependencia, K id, Function<K, V> consulta) {
+        if (cerrado) {
+            throw new IllegalStateException("El ámbito de consultas ya está cerrado");
+        }
+        String clave = dependencia + ":" + id;
+        CompletableFuture<V> futuro = new CompletableFuture<>();
+        CompletableFuture<?> existente = consultas.putIfAbsent(clave, futuro);
+        if (existente != null) {
+            return new Consulta<>((CompletableFuture<V>) existente);
+        }
+
+        llamadas.incrementAndGet();
+        // Con la cola llena el executor corre la tarea en este mismo hilo, fuera del mapa de consultas
+        try {
+            executor.execute(() -> {
+                if (cerrado) {
+                    futuro.completeExceptionally(new CancellationException("Consulta cancelada: " + clave));
+                    return;
+                }
+                try {
+                    futuro.complete(consulta.apply(id));
+                } catch (Throwable e) {
+                    futuro.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            futuro.completeExceptionally(e);
+        }
+        return new Consulta<>(futuro);
+    }
+
+    /**
+     * Espera a todas las consultas lanzadas. Si una falla, las pendientes se cancelan y se relanza su error
+     * sin esperar al resto.
+     */
+    public void esperar() {
+        List<CompletableFuture<?>> tareas = new ArrayList<>(consultas.values());
+        CompletableFuture<Void> todas = CompletableFuture.allOf(tareas.toArray(CompletableFuture[]::new));
+        CompletableFuture<Object> primerFallo = new CompletableFuture<>();
+        tareas.forEach(tarea -> tarea.whenComplete((valor, error) -> {
+            if (error != null) {
+                primerFallo.completeExceptionally(error);
+            }
+        }));
+
+        try {
+            CompletableFuture.anyOf(todas, primerFallo).join();
+        } catch (CompletionException e) {
+            cerrado = true;
+            throw desenvolver(e);
+        }
+    }
+
+    /**
+     * Número de consultas remotas realmente lanzadas; las repetidas dentro del ámbito no cuentan.
+     */
+    public int getLlamadas() {
+        return llamadas.get();
+    }
+
+    @Override
+    public void close() {
+        cerrado = true;
+        CompletableFuture.allOf(consultas.values().toArray(CompletableFuture[]::new))
+                .exceptionally(error -> null)
+                .join();
+    }
+
+    private static RuntimeException desenvolver(CompletionException e) {
+        Throwable causa = e.getCause();
+        if (causa instanceof CompletionException anidada && anidada.getCause() != null) {
+            causa = anidada.getCause();
+        }
+        if (causa instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return e;
+    }
+
+    public static final class Consulta<V> {
+
+        private final CompletableFuture<V> futuro;
+
+        private Consulta(CompletableFuture<V> futuro) {
+            this.futuro = futuro;
+        }
+
+        /**
+         * Resultado de la consulta; bloquea hasta que termine y relanza su error si falló.
+         */
+        public V obtener() {
+            try {
+                return futuro.join();
+            } catch (CompletionException e) {
+                throw desenvolver(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.app.resilience;
+
+/**
+ * La llamada no llegó a hacerse o no terminó a tiempo por una de las protecciones del cliente.
+ */
+public class DependenciaNoDisponibleException extends RuntimeException {
+
+    public enum Motivo {
+        CIRCUITO_ABIERTO,
+        BULKHEAD_LLENO,
+        TIMEOUT,
+        INTERRUMPIDA
+    }
+
+    private final String destino;
+    private final Motivo motivo;
+
+    public DependenciaNoDisponibleException(String destino, Motivo motivo) {
+        super("Servicio " + destino + " no disponible: " + motivo);
+        this.destino = destino;
+        this.motivo = motivo;
+    }
+
+    public String getDestino() {
+        return destino;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
+    }
+}
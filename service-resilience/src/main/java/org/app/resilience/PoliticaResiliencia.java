@@ -0,0 +1,117 @@
+package org.app.resilience;
+
+/**
+ * Límites aplicados a las llamadas hacia un destino. Los valores por defecto sirven para un servicio
+ * interno que responde en decenas de milisegundos; se ajustan por destino en la configuración.
+ */
+public class PoliticaResiliencia {
+
+    // Tiempo máximo total de una llamada idempotente, incluida la lectura duplicada si la hubo. Las demás
+    // solo las acota el timeout de lectura del cliente HTTP
+    private long timeoutMs = 3000;
+
+    // Llamadas simultáneas hacia el destino; el resto se rechaza tras esperar esperaBulkheadMs
+    private int maxConcurrentes = 25;
+    private long esperaBulkheadMs = 0;
+
+    // Circuit breaker sobre las últimas "ventana" llamadas
+    private int ventana = 20;
+    private int llamadasMinimas = 10;
+    private float umbralFallos = 50;
+    private long llamadaLentaMs = 2000;
+    private float umbralLentas = 100;
+    private long esperaAbiertoMs = 10000;
+    private int llamadasSemiAbierto = 3;
+
+    // Lecturas idempotentes: si no hay respuesta en hedgeMs se lanza un segundo intento y gana el primero
+    // que responda bien. 0 lo desactiva.
+    private long hedgeMs = 0;
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public int getMaxConcurrentes() {
+        return maxConcurrentes;
+    }
+
+    public void setMaxConcurrentes(int maxConcurrentes) {
+        this.maxConcurrentes = maxConcurrentes;
+    }
+
+    public long getEsperaBulkheadMs() {
+        return esperaBulkheadMs;
+    }
+
+    public void setEsperaBulkheadMs(long esperaBulkheadMs) {
+        this.esperaBulkheadMs = esperaBulkheadMs;
+    }
+
+    public int getVentana() {
+        return ventana;
+    }
+
+    public void setVentana(int ventana) {
+        this.ventana = ventana;
+    }
+
+    public int getLlamadasMinimas() {
+        return llamadasMinimas;
+    }
+
+    public void setLlamadasMinimas(int llamadasMinimas) {
+        this.llamadasMinimas = llamadasMinimas;
+    }
+
+    public float getUmbralFallos() {
+        return umbralFallos;
+    }
+
+    public void setUmbralFallos(float umbralFallos) {
+        this.umbralFallos = umbralFallos;
+    }
+
+    public long getLlamadaLentaMs() {
+        return llamadaLentaMs;
+    }
+
+    public void setLlamadaLentaMs(long llamadaLentaMs) {
+        this.llamadaLentaMs = llamadaLentaMs;
+    }
+
+    public float getUmbralLentas() {
+        return umbralLentas;
+    }
+
+    public void setUmbralLentas(float umbralLentas) {
+        this.umbralLentas = umbralLentas;
+    }
+
+    public long getEsperaAbiertoMs() {
+        return esperaAbiertoMs;
+    }
+
+    public void setEsperaAbiertoMs(long esperaAbiertoMs) {
+        this.esperaAbiertoMs = esperaAbiertoMs;
+    }
+
+    public int getLlamadasSemiAbierto() {
+        return llamadasSemiAbierto;
+    }
+
+    public void setLlamadasSemiAbierto(int llamadasSemiAbierto) {
+        this.llamadasSemiAbierto = llamadasSemiAbierto;
+    }
+
+    public long getHedgeMs() {
+        return hedgeMs;
+    }
+
+    public void setHedgeMs(long hedgeMs) {
+        this.hedgeMs = hedgeMs;
+    }
+}
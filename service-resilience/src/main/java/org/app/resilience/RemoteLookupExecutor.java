@@ -0,0 +1,92 @@
+package org.app.resilience;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pool acotado para las consultas remotas en paralelo. Cuando la cola se llena la tarea se
+ * ejecuta en el hilo que la envía, lo que frena a la petición en vez de rechazarla.
+ *
+ * Con hilos virtuales no se mantiene un pool: cada consulta corre en un hilo virtual nuevo y un
+ * semáforo conserva el mismo límite de consultas simultáneas; sin permiso libre, la tarea se
+ * ejecuta en el hilo de la petición igual que con CallerRunsPolicy.
+ *
+ * Cada servicio lo declara como bean con su propio límite y con el propagador de su contexto
+ * (TokenContext::propagar), que envuelve cada tarea en el hilo que la envía.
+ */
+public class RemoteLookupExecutor implements Executor, AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permisos;
+    private final UnaryOperator<Runnable> propagador;
+
+    public RemoteLookupExecutor(int paralelismo, boolean virtuales, UnaryOperator<Runnable> propagador) {
+        this.propagador = propagador;
+        if (virtuales) {
+            this.executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("consulta-remota-", 1).factory());
+            this.permisos = new Semaphore(paralelismo);
+        } else {
+            this.executor = crearPool(paralelismo);
+            this.permisos = null;
+        }
+    }
+
+    public RemoteLookupExecutor(int paralelismo) {
+        this(paralelismo, false, UnaryOperator.identity());
+    }
+
+    private static ThreadPoolExecutor crearPool(int paralelismo) {
+        AtomicInteger secuencia = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                paralelismo,
+                paralelismo,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(paralelismo * 32),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "consulta-remota-" + secuencia.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @Override
+    public void execute(Runnable tarea) {
+        Runnable command = propagador.apply(tarea);
+        if (permisos == null) {
+            executor.execute(command);
+            return;
+        }
+        if (!permisos.tryAcquire()) {
+            command.run();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permisos.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,282 @@
+package org.app.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClienteResilienteTest {
+
+    private ClienteResiliente cliente;
+
+    @AfterEach
+    void cerrar() {
+        if (cliente != null) {
+            cliente.close();
+        }
+    }
+
+    private ClienteResiliente crear(PoliticaResiliencia politica) {
+        ConfiguracionResiliencia configuracion = new ConfiguracionResiliencia();
+        configuracion.setDefecto(politica);
+        // IllegalArgumentException hace aquí el papel de un 4xx: error de quien llama, no del destino
+        cliente = new ClienteResiliente(configuracion, e -> !(e instanceof IllegalArgumentException));
+        return cliente;
+    }
+
+    @Test
+    void destinoDe_usaElRecursoTrasApi() {
+        assertEquals("productos", ClienteResiliente.destinoDe("http://localhost:9015/api/productos/get/1"));
+        assertEquals("auth", ClienteResiliente.destinoDe("http://localhost:8081/api/auth/validate"));
+        assertEquals("inventario", ClienteResiliente.destinoDe("http://inventario/api/inventario?sucursal=1"));
+        assertEquals("localhost:9000", ClienteResiliente.destinoDe("http://localhost:9000/health"));
+        assertEquals("localhost:9000", ClienteResiliente.destinoDe("http://localhost:9000"));
+    }
+
+    @Test
+    void ejecutar_devuelveElResultadoYPropagaLaExcepcionOriginal() {
+        crear(new PoliticaResiliencia());
+
+        assertEquals("ok", cliente.ejecutar("productos", true, () -> "ok"));
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> cliente.ejecutar("productos", true, () -> { throw new IllegalStateException("caido"); }));
+        assertEquals("caido", error.getMessage());
+    }
+
+    @Test
+    void ejecutar_cortaPorTimeoutEInterrumpeLaLlamada() throws InterruptedException {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(100);
+        crear(politica);
+        CountDownLatch interrumpida = new CountDownLatch(1);
+
+        DependenciaNoDisponibleException error = assertThrows(DependenciaNoDisponibleException.class,
+                () -> cliente.ejecutar("carrito", true, () -> {
+                    try {
+                        Thread.sleep(5_000);
+                    } catch (InterruptedException e) {
+                        interrumpida.countDown();
+                    }
+                    return "tarde";
+                }));
+
+        assertEquals(DependenciaNoDisponibleException.Motivo.TIMEOUT, error.getMotivo());
+        assertTrue(interrumpida.await(2, TimeUnit.SECONDS));
+        assertEquals(1L, cliente.metricas("carrito").get("timeouts"));
+    }
+
+    @Test
+    void ejecutar_noCortaPorTimeoutLasLlamadasQueNoSonIdempotentes() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(100);
+        crear(politica);
+
+        String resultado = cliente.ejecutar("inventario", false, () -> {
+            dormir(300);
+            return "reservado";
+        });
+
+        assertEquals("reservado", resultado);
+        assertEquals(0L, cliente.metricas("inventario").get("timeouts"));
+    }
+
+    @Test
+    void ejecutar_abreElCircuitoTrasFallosDelDestinoPeroNoPorErroresDeQuienLlama() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setVentana(4);
+        politica.setLlamadasMinimas(4);
+        politica.setUmbralFallos(50);
+        crear(politica);
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> cliente.ejecutar("pagos", false, () -> { throw new IllegalArgumentException("400"); }));
+        }
+        assertEquals("CLOSED", cliente.metricas("pagos").get("estado"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class,
+                    () -> cliente.ejecutar("pagos", false, () -> { throw new IllegalStateException("500"); }));
+        }
+        assertEquals("OPEN", cliente.metricas("pagos").get("estado"));
+
+        AtomicBoolean llamada = new AtomicBoolean();
+        DependenciaNoDisponibleException error = assertThrows(DependenciaNoDisponibleException.class,
+                () -> cliente.ejecutar("pagos", false, () -> llamada.getAndSet(true)));
+        assertEquals(DependenciaNoDisponibleException.Motivo.CIRCUITO_ABIERTO, error.getMotivo());
+        assertFalse(llamada.get());
+    }
+
+    @Test
+    void ejecutar_rechazaLoQueExcedeElBulkheadSinAfectarOtrosDestinos() throws Exception {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setMaxConcurrentes(2);
+        crear(politica);
+        CountDownLatch dentro = new CountDownLatch(2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService llamadores = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> primera = llamadores.submit(() -> cliente.ejecutar("inventario", true, () -> esperar(dentro, liberar)));
+            Future<?> segunda = llamadores.submit(() -> cliente.ejecutar("inventario", true, () -> esperar(dentro, liberar)));
+            assertTrue(dentro.await(2, TimeUnit.SECONDS));
+
+            DependenciaNoDisponibleException error = assertThrows(DependenciaNoDisponibleException.class,
+                    () -> cliente.ejecutar("inventario", true, () -> "ok"));
+            assertEquals(DependenciaNoDisponibleException.Motivo.BULKHEAD_LLENO, error.getMotivo());
+            assertEquals("ok", cliente.ejecutar("sucursales", true, () -> "ok"));
+
+            liberar.countDown();
+            primera.get(2, TimeUnit.SECONDS);
+            segunda.get(2, TimeUnit.SECONDS);
+            Map<String, Object> metricas = cliente.metricas("inventario");
+            assertEquals(1L, metricas.get("rechazosBulkhead"));
+            assertEquals(0, metricas.get("enCurso"));
+        } finally {
+            liberar.countDown();
+            llamadores.shutdownNow();
+        }
+    }
+
+    @Test
+    void ejecutar_lanzaUnSegundoIntentoEnLecturasLentasYGanaElPrimeroEnResponder() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(2_000);
+        politica.setHedgeMs(50);
+        crear(politica);
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = cliente.ejecutar("productos", true, () -> {
+            if (intentos.incrementAndGet() == 1) {
+                dormir(1_500);
+                return "lento";
+            }
+            return "rapido";
+        });
+
+        assertEquals("rapido", resultado);
+        assertEquals(2, intentos.get());
+        Map<String, Object> metricas = cliente.metricas("productos");
+        assertEquals(1L, metricas.get("hedgesLanzados"));
+        assertEquals(1L, metricas.get("hedgesGanados"));
+    }
+
+    @Test
+    void ejecutar_elSegundoIntentoOcupaUnLugarDelBulkhead() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(2_000);
+        politica.setHedgeMs(50);
+        politica.setMaxConcurrentes(2);
+        crear(politica);
+        AtomicInteger intentos = new AtomicInteger();
+        AtomicReference<Object> enCursoDuranteElHedge = new AtomicReference<>();
+        AtomicReference<Throwable> terceraLlamada = new AtomicReference<>();
+
+        String resultado = cliente.ejecutar("productos", true, () -> {
+            if (intentos.incrementAndGet() == 1) {
+                dormir(1_500);
+                return "lento";
+            }
+            enCursoDuranteElHedge.set(cliente.metricas("productos").get("enCurso"));
+            try {
+                cliente.ejecutar("productos", true, () -> "otra");
+            } catch (DependenciaNoDisponibleException e) {
+                terceraLlamada.set(e);
+            }
+            return "rapido";
+        });
+
+        assertEquals("rapido", resultado);
+        assertEquals(2, enCursoDuranteElHedge.get());
+        assertInstanceOf(DependenciaNoDisponibleException.class, terceraLlamada.get());
+        assertEquals(DependenciaNoDisponibleException.Motivo.BULKHEAD_LLENO,
+                ((DependenciaNoDisponibleException) terceraLlamada.get()).getMotivo());
+        assertEquals(0, cliente.metricas("productos").get("enCurso"));
+    }
+
+    @Test
+    void ejecutar_sinLugarEnElBulkheadNoLanzaElSegundoIntento() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(2_000);
+        politica.setHedgeMs(50);
+        politica.setMaxConcurrentes(1);
+        crear(politica);
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = cliente.ejecutar("productos", true, () -> {
+            intentos.incrementAndGet();
+            dormir(200);
+            return "unico";
+        });
+
+        assertEquals("unico", resultado);
+        assertEquals(1, intentos.get());
+        assertEquals(0L, cliente.metricas("productos").get("hedgesLanzados"));
+    }
+
+    @Test
+    void ejecutar_noDuplicaLlamadasQueNoSonIdempotentes() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(2_000);
+        politica.setHedgeMs(20);
+        crear(politica);
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = cliente.ejecutar("pagos", false, () -> {
+            intentos.incrementAndGet();
+            dormir(200);
+            return "creado";
+        });
+
+        assertEquals("creado", resultado);
+        assertEquals(1, intentos.get());
+        assertEquals(0L, cliente.metricas("pagos").get("hedgesLanzados"));
+    }
+
+    @Test
+    void ejecutar_conHedgeSoloFallaSiFallanTodosLosIntentos() {
+        PoliticaResiliencia politica = new PoliticaResiliencia();
+        politica.setTimeoutMs(2_000);
+        politica.setHedgeMs(50);
+        crear(politica);
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = cliente.ejecutar("productos", true, () -> {
+            if (intentos.incrementAndGet() == 1) {
+                dormir(200);
+                throw new IllegalStateException("reset");
+            }
+            dormir(400);
+            return "segundo";
+        });
+
+        assertEquals("segundo", resultado);
+    }
+
+    private static String esperar(CountDownLatch dentro, CountDownLatch liberar) {
+        dentro.countDown();
+        try {
+            liberar.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.app.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultasParalelasTest {
+
+    // Hace el papel del TokenContext de cada servicio
+    private static final ThreadLocal<String> TOKEN = new ThreadLocal<>();
+
+    private final RemoteLookupExecutor executor = new RemoteLookupExecutor(4, false, ConsultasParalelasTest::propagar);
+
+    @AfterEach
+    void tearDown() {
+        TOKEN.remove();
+        executor.close();
+    }
+
+    @Test
+    void iniciar_deberiaEjecutarLasConsultasALaVezConElTokenDeLaPeticion() throws Exception {
+        TOKEN.set("token-peticion");
+        CountDownLatch ambasIniciadas = new CountDownLatch(2);
+
+        try (ConsultasParalelas consultas = new ConsultasParalelas(executor)) {
+            ConsultasParalelas.Consulta<String> producto = consultas.iniciar("producto", 1L,
+                    id -> esperarALaOtra(ambasIniciadas, "producto:" + TOKEN.get()));
+            ConsultasParalelas.Consulta<String> sucursal = consultas.iniciar("sucursal", 1L,
+                    id -> esperarALaOtra(ambasIniciadas, "sucursal:" + TOKEN.get()));
+            consultas.esperar();
+
+            assertEquals("producto:token-peticion", producto.obtener());
+            assertEquals("sucursal:token-peticion", sucursal.obtener());
+        }
+        assertEquals("token-peticion", TOKEN.get());
+    }
+
+    @Test
+    void iniciar_mismaDependenciaEId_deberiaConsultarUnaSolaVez() {
+        AtomicInteger llamadas = new AtomicInteger();
+
+        try (ConsultasParalelas consultas = new ConsultasParalelas(executor)) {
+            ConsultasParalelas.Consulta<Long> primera = consultas.iniciar("sucursal", 7L, id -> {
+                llamadas.incrementAndGet();
+                return id;
+            });
+            ConsultasParalelas.Consulta<Long> repetida = consultas.iniciar("sucursal", 7L, id -> {
+                llamadas.incrementAndGet();
+                return id;
+            });
+            consultas.iniciar("producto", 7L, id -> id);
+            consultas.esperar();
+
+            assertEquals(7L, primera.obtener());
+            assertEquals(7L, repetida.obtener());
+            assertEquals(1, llamadas.get());
+            assertEquals(2, consultas.getLlamadas());
+        }
+    }
+
+    @Test
+    void esperar_conUnaConsultaFallida_deberiaRelanzarSuErrorSinEsperarALasDemas() {
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        try (ConsultasParalelas consultas = new ConsultasParalelas(executor)) {
+            consultas.iniciar("producto", 1L, id -> {
+                try {
+                    liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "lento";
+            });
+            consultas.iniciar("sucursal", 1L, id -> {
+                throw new RuntimeException("Error al obtener sucursal");
+            });
+
+            RuntimeException error = assertThrows(RuntimeException.class, consultas::esperar);
+            assertEquals("Error al obtener sucursal", error.getMessage());
+            liberar.countDown();
+        }
+    }
+
+    @Test
+    void iniciar_conElAmbitoCerrado_deberiaFallar() {
+        ConsultasParalelas consultas = new ConsultasParalelas(executor);
+        consultas.close();
+
+        assertThrows(IllegalStateException.class, () -> consultas.iniciar("producto", 1L, id -> id));
+    }
+
+    private static Runnable propagar(Runnable tarea) {
+        String token = TOKEN.get();
+        return () -> {
+            String anterior = TOKEN.get();
+            TOKEN.set(token);
+            try {
+                tarea.run();
+            } finally {
+                TOKEN.set(anterior);
+            }
+        };
+    }
+
+    private static String esperarALaOtra(CountDownLatch ambasIniciadas, String valor) {
+        ambasIniciadas.countDown();
+        try {
+            // Si se ejecutaran en serie, la primera no vería nunca iniciada a la segunda
+            if (!ambasIniciadas.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Las consultas no se ejecutaron a la vez");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return valor;
+    }
+}
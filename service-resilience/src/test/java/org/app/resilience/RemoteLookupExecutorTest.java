@@ -0,0 +1,74 @@
+package org.app.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteLookupExecutorTest {
+
+    private RemoteLookupExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void execute_conHilosVirtuales_deberiaEnvolverLaTareaEnElHiloQueLaEnvia() {
+        Thread[] envolvio = new Thread[1];
+        executor = new RemoteLookupExecutor(4, true, tarea -> {
+            envolvio[0] = Thread.currentThread();
+            return tarea;
+        });
+
+        CompletableFuture<Boolean> virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor);
+
+        assertTrue(virtual.join());
+        assertSame(Thread.currentThread(), envolvio[0]);
+    }
+
+    @Test
+    void execute_conHilosVirtualesSinPermisos_deberiaEjecutarEnElHiloQueEnvia() throws Exception {
+        executor = new RemoteLookupExecutor(1, true, tarea -> tarea);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        executor.execute(() -> {
+            ocupado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(ocupado.await(5, TimeUnit.SECONDS));
+
+        Thread[] hilo = new Thread[1];
+        executor.execute(() -> hilo[0] = Thread.currentThread());
+        liberar.countDown();
+
+        assertSame(Thread.currentThread(), hilo[0]);
+    }
+
+    @Test
+    void execute_conPoolDePlataforma_deberiaAplicarElPropagadorACadaTarea() {
+        AtomicInteger envueltas = new AtomicInteger();
+        executor = new RemoteLookupExecutor(2, false, tarea -> {
+            envueltas.incrementAndGet();
+            return tarea;
+        });
+
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> { }, executor),
+                CompletableFuture.runAsync(() -> { }, executor)).join();
+
+        assertEquals(2, envueltas.get());
+    }
+}